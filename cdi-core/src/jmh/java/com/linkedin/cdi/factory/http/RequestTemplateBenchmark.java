@@ -0,0 +1,92 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.http;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.util.JsonUtils;
+import com.linkedin.cdi.util.VariableUtils;
+import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Measures the time to make a paginated GET request with an authorization header:
+ *
+ * - copyAndReplace: the steps of making a request before request templates, i.e. copying
+ *   the parameters through JSON strings and substituting every template per request
+ * - compilePerRequest: {@link HttpRequestMethod#getHttpRequest}, compiling the templates per request
+ * - compiledTemplate: a {@link RequestTemplate} compiled once, as HttpConnection does
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestTemplateBenchmark {
+  private static final String URI_TEMPLATE = "https://api.domain.com/v2/accounts/{{accountId}}/calls";
+
+  private Map<String, String> headers;
+  private JsonObject parameters;
+  private RequestTemplate template;
+
+  @Setup
+  public void setup() {
+    headers = ImmutableMap.of(
+        "Authorization", "Bearer {{token}}",
+        "Content-Type", "application/json",
+        "Accept", "application/json");
+    parameters = new Gson().fromJson("{\"accountId\": \"12345\", \"token\": \"a1b2c3d4e5f6\", "
+        + "\"fromDateTime\": \"2021-01-01T00:00:00Z\", \"toDateTime\": \"2021-01-02T00:00:00Z\", "
+        + "\"pageSize\": 100, \"pageStart\": 2000, \"cursor\": \"c2VjcmV0LWN1cnNvcg\"}", JsonObject.class);
+    template = RequestTemplate.compile(HttpRequestMethod.GET, URI_TEMPLATE, headers);
+  }
+
+  @Benchmark
+  public HttpUriRequest copyAndReplace() throws UnsupportedEncodingException {
+    Map<String, String> headersCopy = new HashMap<>();
+    JsonObject parametersCopy = JsonUtils.deepCopy(parameters).getAsJsonObject();
+    for (Map.Entry<String, String> entry : headers.entrySet()) {
+      Pair<String, JsonObject> replaced = VariableUtils.replaceWithTracking(entry.getValue(), parameters);
+      if (!replaced.getLeft().equals(entry.getValue())) {
+        parametersCopy = JsonUtils.deepCopy(replaced.getRight()).getAsJsonObject();
+      }
+      headersCopy.put(entry.getKey(), replaced.getLeft());
+    }
+    Pair<String, JsonObject> replaced = VariableUtils.replaceWithTracking(URI_TEMPLATE, parametersCopy, true);
+    HttpUriRequest request = HttpRequestMethod.GET.getHttpRequestContentJson(
+        replaced.getLeft(), replaced.getRight(), new JsonObject());
+    for (Map.Entry<String, String> entry : headersCopy.entrySet()) {
+      request.addHeader(entry.getKey(), entry.getValue());
+    }
+    return request;
+  }
+
+  @Benchmark
+  public HttpUriRequest compilePerRequest() throws UnsupportedEncodingException {
+    return HttpRequestMethod.GET.getHttpRequest(URI_TEMPLATE, parameters, headers);
+  }
+
+  @Benchmark
+  public HttpUriRequest compiledTemplate() throws UnsupportedEncodingException {
+    return template.getHttpRequest(parameters);
+  }
+}
@@ -0,0 +1,137 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Adaptive concurrency limiter parameters
+ */
+public class AdaptiveConcurrencyProperties extends JsonObjectProperties {
+  final private static String NAME = "name";
+  final private static String INITIAL_LIMIT = "initialLimit";
+  final private static String MIN_LIMIT = "minLimit";
+  final private static String MAX_LIMIT = "maxLimit";
+  final private static String DECREASE_FACTOR = "decreaseFactor";
+  final private static String LATENCY_THRESHOLD = "latencyThreshold";
+  final private static int INITIAL_LIMIT_DEFAULT = 4;
+  final private static int MIN_LIMIT_DEFAULT = 1;
+  final private static int MAX_LIMIT_DEFAULT = 64;
+  final private static double DECREASE_FACTOR_DEFAULT = 0.5;
+  final private static double LATENCY_THRESHOLD_DEFAULT = 2.0;
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      NAME, INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT, DECREASE_FACTOR, LATENCY_THRESHOLD);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      for (String attribute : Lists.newArrayList(INITIAL_LIMIT, MIN_LIMIT, MAX_LIMIT)) {
+        if (value.has(attribute) && value.get(attribute).getAsInt() <= 0) {
+          return false;
+        }
+      }
+      if (getMinLimit(value) > getMaxLimit(value)) {
+        return false;
+      }
+      if (value.has(DECREASE_FACTOR)) {
+        double factor = value.get(DECREASE_FACTOR).getAsDouble();
+        if (factor <= 0 || factor >= 1) {
+          return false;
+        }
+      }
+      if (value.has(LATENCY_THRESHOLD) && value.get(LATENCY_THRESHOLD).getAsDouble() <= 1) {
+        return false;
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  AdaptiveConcurrencyProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Adaptive concurrency is enabled when the property is configured
+   * @param state state
+   * @return true if concurrent requests should be adaptively limited
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return the limiter name, or blank if the limiter is keyed by the host
+   */
+  public String getName(State state) {
+    JsonObject value = get(state);
+    if (value.has(NAME)) {
+      return value.get(NAME).getAsString();
+    }
+    return StringUtils.EMPTY;
+  }
+
+  /**
+   * @param state state
+   * @return the initial limit, within the minimum and maximum limits
+   */
+  public Integer getInitialLimit(State state) {
+    JsonObject value = get(state);
+    int initial = value.has(INITIAL_LIMIT) ? value.get(INITIAL_LIMIT).getAsInt() : INITIAL_LIMIT_DEFAULT;
+    return Math.max(getMinLimit(value), Math.min(getMaxLimit(value), initial));
+  }
+
+  public Integer getMinLimit(State state) {
+    return getMinLimit(get(state));
+  }
+
+  public Integer getMaxLimit(State state) {
+    return getMaxLimit(get(state));
+  }
+
+  public Double getDecreaseFactor(State state) {
+    JsonObject value = get(state);
+    if (value.has(DECREASE_FACTOR)) {
+      return value.get(DECREASE_FACTOR).getAsDouble();
+    }
+    return DECREASE_FACTOR_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the ratio to the baseline latency above which a response is considered a latency spike
+   */
+  public Double getLatencyThreshold(State state) {
+    JsonObject value = get(state);
+    if (value.has(LATENCY_THRESHOLD)) {
+      return value.get(LATENCY_THRESHOLD).getAsDouble();
+    }
+    return LATENCY_THRESHOLD_DEFAULT;
+  }
+
+  private int getMinLimit(JsonObject value) {
+    return value.has(MIN_LIMIT) ? value.get(MIN_LIMIT).getAsInt() : MIN_LIMIT_DEFAULT;
+  }
+
+  private int getMaxLimit(JsonObject value) {
+    return value.has(MAX_LIMIT) ? value.get(MAX_LIMIT).getAsInt() : MAX_LIMIT_DEFAULT;
+  }
+}
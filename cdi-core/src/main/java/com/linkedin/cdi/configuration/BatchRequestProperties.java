@@ -0,0 +1,125 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Request batching parameters, which coalesce the unit values of a work unit batch into requests
+ */
+public class BatchRequestProperties extends JsonObjectProperties {
+  final private static String SIZE = "size";
+  final private static String FORMAT = "format";
+  final private static String DELIMITER = "delimiter";
+  final private static String KEY = "key";
+  final private static String MAX_URI_LENGTH = "maxUriLength";
+  final private static String FORMAT_DELIMITED = "delimited";
+  final private static String FORMAT_ARRAY = "array";
+  final private static String DELIMITER_DEFAULT = ",";
+  final private static int MAX_URI_LENGTH_DEFAULT = 2048;
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      SIZE, FORMAT, DELIMITER, KEY, MAX_URI_LENGTH);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      if (!value.has(SIZE) || value.get(SIZE).getAsInt() <= 0) {
+        return false;
+      }
+      if (value.has(FORMAT) && !Lists.newArrayList(FORMAT_DELIMITED, FORMAT_ARRAY)
+          .contains(value.get(FORMAT).getAsString())) {
+        return false;
+      }
+      if (value.has(MAX_URI_LENGTH) && value.get(MAX_URI_LENGTH).getAsInt() < 0) {
+        return false;
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  BatchRequestProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Request batching is enabled when the property is configured
+   * @param state state
+   * @return true if unit values should be coalesced into requests
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return the maximum number of unit values in a request
+   */
+  public Integer getSize(State state) {
+    JsonObject value = get(state);
+    if (value.has(SIZE)) {
+      return value.get(SIZE).getAsInt();
+    }
+    return 1;
+  }
+
+  /**
+   * @param state state
+   * @return true if the unit values are passed as a JSON array, or otherwise
+   * they are joined into a string by the delimiter
+   */
+  public boolean isArrayFormat(State state) {
+    JsonObject value = get(state);
+    return value.has(FORMAT) && value.get(FORMAT).getAsString().equals(FORMAT_ARRAY);
+  }
+
+  public String getDelimiter(State state) {
+    JsonObject value = get(state);
+    if (value.has(DELIMITER)) {
+      return value.get(DELIMITER).getAsString();
+    }
+    return DELIMITER_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the field of records that has the unit value, or blank if records are not
+   * split back to units
+   */
+  public String getKey(State state) {
+    JsonObject value = get(state);
+    if (value.has(KEY)) {
+      return value.get(KEY).getAsString();
+    }
+    return StringUtils.EMPTY;
+  }
+
+  /**
+   * @param state state
+   * @return the maximum length of request URIs, or 0 if the length is not limited
+   */
+  public Integer getMaxUriLength(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_URI_LENGTH)) {
+      return value.get(MAX_URI_LENGTH).getAsInt();
+    }
+    return MAX_URI_LENGTH_DEFAULT;
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Hedged request parameters
+ */
+public class HedgingProperties extends JsonObjectProperties {
+  final private static String NAME = "name";
+  final private static String PERCENTILE = "percentile";
+  final private static String INITIAL_DELAY_MILLIS = "initialDelayMillis";
+  final private static String MIN_DELAY_MILLIS = "minDelayMillis";
+  final private static String WINDOW = "window";
+  final private static String BUDGET = "budget";
+  final private static double PERCENTILE_DEFAULT = 95.0;
+  final private static long INITIAL_DELAY_MILLIS_DEFAULT = 1000L;
+  final private static long MIN_DELAY_MILLIS_DEFAULT = 10L;
+  final private static int WINDOW_DEFAULT = 100;
+  final private static double BUDGET_DEFAULT = 0.1;
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      NAME, PERCENTILE, INITIAL_DELAY_MILLIS, MIN_DELAY_MILLIS, WINDOW, BUDGET);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      if (value.has(PERCENTILE)) {
+        double percentile = value.get(PERCENTILE).getAsDouble();
+        if (percentile <= 0 || percentile >= 100) {
+          return false;
+        }
+      }
+      for (String attribute : Lists.newArrayList(INITIAL_DELAY_MILLIS, MIN_DELAY_MILLIS)) {
+        if (value.has(attribute) && value.get(attribute).getAsLong() < 0) {
+          return false;
+        }
+      }
+      if (value.has(WINDOW) && value.get(WINDOW).getAsInt() <= 0) {
+        return false;
+      }
+      if (value.has(BUDGET)) {
+        double budget = value.get(BUDGET).getAsDouble();
+        if (budget <= 0 || budget > 1) {
+          return false;
+        }
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  HedgingProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Hedging is enabled when the property is configured
+   * @param state state
+   * @return true if GET requests should be hedged
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return the name of the latency statistics, or blank if the statistics are kept by the host
+   */
+  public String getName(State state) {
+    JsonObject value = get(state);
+    if (value.has(NAME)) {
+      return value.get(NAME).getAsString();
+    }
+    return StringUtils.EMPTY;
+  }
+
+  /**
+   * @param state state
+   * @return the latency percentile after which a duplicate request is sent
+   */
+  public Double getPercentile(State state) {
+    JsonObject value = get(state);
+    if (value.has(PERCENTILE)) {
+      return value.get(PERCENTILE).getAsDouble();
+    }
+    return PERCENTILE_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the hedging delay before enough latencies are observed
+   */
+  public Long getInitialDelayMillis(State state) {
+    JsonObject value = get(state);
+    if (value.has(INITIAL_DELAY_MILLIS)) {
+      return value.get(INITIAL_DELAY_MILLIS).getAsLong();
+    }
+    return INITIAL_DELAY_MILLIS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the minimum hedging delay
+   */
+  public Long getMinDelayMillis(State state) {
+    JsonObject value = get(state);
+    if (value.has(MIN_DELAY_MILLIS)) {
+      return value.get(MIN_DELAY_MILLIS).getAsLong();
+    }
+    return MIN_DELAY_MILLIS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the number of recent latencies the percentile is computed from
+   */
+  public Integer getWindow(State state) {
+    JsonObject value = get(state);
+    if (value.has(WINDOW)) {
+      return value.get(WINDOW).getAsInt();
+    }
+    return WINDOW_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the maximum ratio of duplicate requests to requests
+   */
+  public Double getBudget(State state) {
+    JsonObject value = get(state);
+    if (value.has(BUDGET)) {
+      return value.get(BUDGET).getAsDouble();
+    }
+    return BUDGET_DEFAULT;
+  }
+}
@@ -0,0 +1,140 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * HTTP response cache parameters
+ */
+public class HttpResponseCacheProperties extends JsonObjectProperties {
+  final private static String PATH = "path";
+  final private static String TTL_SECONDS = "ttlSeconds";
+  final private static String MAX_BYTES = "maxBytes";
+  final private static String MAX_ENTRIES = "maxEntries";
+  final private static String METHODS = "methods";
+  final private static String HEADERS = "headers";
+  final private static long TTL_SECONDS_DEFAULT = 24 * 3600L;
+  final private static long MAX_BYTES_DEFAULT = 1024L * 1024 * 1024;
+  final private static long MAX_ENTRIES_DEFAULT = 10000L;
+  final private static List<String> METHODS_DEFAULT = Lists.newArrayList("GET");
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      PATH, TTL_SECONDS, MAX_BYTES, MAX_ENTRIES, METHODS, HEADERS);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      // a cache location is required
+      if (!value.has(PATH) || StringUtils.isBlank(value.get(PATH).getAsString())) {
+        return false;
+      }
+      for (String attribute : Lists.newArrayList(TTL_SECONDS, MAX_BYTES, MAX_ENTRIES)) {
+        if (value.has(attribute) && value.get(attribute).getAsLong() <= 0) {
+          return false;
+        }
+      }
+      for (String attribute : Lists.newArrayList(METHODS, HEADERS)) {
+        if (value.has(attribute) && !value.get(attribute).isJsonArray()) {
+          return false;
+        }
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  HttpResponseCacheProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Response caching is enabled when the property is configured
+   * @param state state
+   * @return true if responses should be cached
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  public String getPath(State state) {
+    JsonObject value = get(state);
+    if (value.has(PATH)) {
+      return value.get(PATH).getAsString();
+    }
+    return StringUtils.EMPTY;
+  }
+
+  public Long getTtlMillis(State state) {
+    JsonObject value = get(state);
+    if (value.has(TTL_SECONDS)) {
+      return 1000L * value.get(TTL_SECONDS).getAsLong();
+    }
+    return 1000L * TTL_SECONDS_DEFAULT;
+  }
+
+  public Long getMaxBytes(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_BYTES)) {
+      return value.get(MAX_BYTES).getAsLong();
+    }
+    return MAX_BYTES_DEFAULT;
+  }
+
+  public Long getMaxEntries(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_ENTRIES)) {
+      return value.get(MAX_ENTRIES).getAsLong();
+    }
+    return MAX_ENTRIES_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the HTTP methods, in upper case, whose responses can be cached
+   */
+  public List<String> getMethods(State state) {
+    JsonObject value = get(state);
+    if (value.has(METHODS)) {
+      List<String> methods = new ArrayList<>();
+      for (JsonElement method : value.get(METHODS).getAsJsonArray()) {
+        methods.add(method.getAsString().toUpperCase());
+      }
+      return methods;
+    }
+    return METHODS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the names of the request headers that are part of the cache key
+   */
+  public List<String> getHeaders(State state) {
+    JsonObject value = get(state);
+    List<String> headers = new ArrayList<>();
+    if (value.has(HEADERS)) {
+      for (JsonElement header : value.get(HEADERS).getAsJsonArray()) {
+        headers.add(header.getAsString());
+      }
+    }
+    return headers;
+  }
+}
@@ -0,0 +1,137 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * HTTP retry policy parameters
+ */
+public class HttpRetryProperties extends JsonObjectProperties {
+  final private static String MAX_RETRIES = "maxRetries";
+  final private static String BASE_DELAY_MILLIS = "baseDelayMillis";
+  final private static String MAX_DELAY_MILLIS = "maxDelayMillis";
+  final private static String BUDGET_SECONDS = "budgetSeconds";
+  final private static String EXCEPTIONS = "exceptions";
+  final private static String POLICY = "policy";
+  final private static long MAX_RETRIES_DEFAULT = 5L;
+  final private static long BASE_DELAY_MILLIS_DEFAULT = 1000L;
+  final private static long MAX_DELAY_MILLIS_DEFAULT = 60000L;
+  final private static long BUDGET_SECONDS_DEFAULT = 600L;
+  final private static String POLICY_DEFAULT = "com.linkedin.cdi.connection.ExponentialBackoffRetryPolicy";
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      MAX_RETRIES, BASE_DELAY_MILLIS, MAX_DELAY_MILLIS, BUDGET_SECONDS, EXCEPTIONS, POLICY);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      if (value.has(MAX_RETRIES) && value.get(MAX_RETRIES).getAsLong() < 0) {
+        return false;
+      }
+      for (String attribute : Lists.newArrayList(BASE_DELAY_MILLIS, MAX_DELAY_MILLIS, BUDGET_SECONDS)) {
+        if (value.has(attribute) && value.get(attribute).getAsLong() <= 0) {
+          return false;
+        }
+      }
+      if (value.has(EXCEPTIONS) && !value.get(EXCEPTIONS).isJsonArray()) {
+        return false;
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  HttpRetryProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Retrying is enabled when the property is configured
+   * @param state state
+   * @return true if failed requests should be retried
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  public Long getMaxRetries(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_RETRIES)) {
+      return value.get(MAX_RETRIES).getAsLong();
+    }
+    return MAX_RETRIES_DEFAULT;
+  }
+
+  public Long getBaseDelayMillis(State state) {
+    JsonObject value = get(state);
+    if (value.has(BASE_DELAY_MILLIS)) {
+      return value.get(BASE_DELAY_MILLIS).getAsLong();
+    }
+    return BASE_DELAY_MILLIS_DEFAULT;
+  }
+
+  public Long getMaxDelayMillis(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_DELAY_MILLIS)) {
+      return value.get(MAX_DELAY_MILLIS).getAsLong();
+    }
+    return MAX_DELAY_MILLIS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the maximum total time, in milliseconds, that a work unit can spend waiting for retries
+   */
+  public Long getBudgetMillis(State state) {
+    JsonObject value = get(state);
+    if (value.has(BUDGET_SECONDS)) {
+      return 1000L * value.get(BUDGET_SECONDS).getAsLong();
+    }
+    return 1000L * BUDGET_SECONDS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the class names of the exceptions that should be retried
+   */
+  public List<String> getExceptions(State state) {
+    JsonObject value = get(state);
+    List<String> exceptions = new ArrayList<>();
+    if (value.has(EXCEPTIONS)) {
+      for (JsonElement exception : value.get(EXCEPTIONS).getAsJsonArray()) {
+        exceptions.add(exception.getAsString());
+      }
+    }
+    return exceptions;
+  }
+
+  /**
+   * @param state state
+   * @return the class name of the retry policy
+   */
+  public String getPolicy(State state) {
+    JsonObject value = get(state);
+    if (value.has(POLICY)) {
+      return value.get(POLICY).getAsString();
+    }
+    return POLICY_DEFAULT;
+  }
+}
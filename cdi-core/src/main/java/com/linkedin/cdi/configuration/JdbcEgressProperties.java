@@ -0,0 +1,104 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Batched JDBC egress parameters
+ */
+public class JdbcEgressProperties extends JsonObjectProperties {
+  final private static String BATCH_SIZE = "batchSize";
+  final private static String COMMIT_INTERVAL = "commitInterval";
+  final private static String THREADS = "threads";
+  final private static int BATCH_SIZE_DEFAULT = 1000;
+  final private static int COMMIT_INTERVAL_DEFAULT = 10000;
+  final private static int THREADS_DEFAULT = 1;
+  final private static int THREADS_MAX = 32;
+
+  final private static List<String> allAttributes = Lists.newArrayList(BATCH_SIZE, COMMIT_INTERVAL, THREADS);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      for (String attribute : allAttributes) {
+        if (value.has(attribute) && !isInteger(value.get(attribute))) {
+          return false;
+        }
+      }
+      if (value.has(BATCH_SIZE) && value.get(BATCH_SIZE).getAsInt() <= 0) {
+        return false;
+      }
+      // 0 commits once, after all records are written
+      if (value.has(COMMIT_INTERVAL) && value.get(COMMIT_INTERVAL).getAsInt() < 0) {
+        return false;
+      }
+      if (value.has(THREADS) && (value.get(THREADS).getAsInt() <= 0 || value.get(THREADS).getAsInt() > THREADS_MAX)) {
+        return false;
+      }
+    }
+    return super.isValid(state);
+  }
+
+  private static boolean isInteger(JsonElement element) {
+    return element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()
+        && element.getAsDouble() == Math.rint(element.getAsDouble());
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  JdbcEgressProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Egress is enabled when the property is configured
+   * @param state state
+   * @return true if the JDBC statement should write the payload records in batches
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return the number of records sent to the database in one batch
+   */
+  public Integer getBatchSize(State state) {
+    JsonObject value = get(state);
+    return value.has(BATCH_SIZE) ? value.get(BATCH_SIZE).getAsInt() : BATCH_SIZE_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the minimum number of records between commits, 0 to commit once after all records
+   */
+  public Integer getCommitInterval(State state) {
+    JsonObject value = get(state);
+    return value.has(COMMIT_INTERVAL) ? value.get(COMMIT_INTERVAL).getAsInt() : COMMIT_INTERVAL_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the number of concurrent writers, each on its own connection
+   */
+  public Integer getThreads(State state) {
+    JsonObject value = get(state);
+    return value.has(THREADS) ? value.get(THREADS).getAsInt() : THREADS_DEFAULT;
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Streaming parameters of JDBC LOB columns
+ */
+public class JdbcLobProperties extends JsonObjectProperties {
+  final private static String MODE = "mode";
+  final private static String BUFFER_SIZE = "bufferSize";
+  final private static String PATH = "path";
+  final private static String MODE_INLINE = "inline";
+  final private static String MODE_FILE = "file";
+  final private static int BUFFER_SIZE_DEFAULT = 64 * 1024;
+
+  final private static List<String> allAttributes = Lists.newArrayList(MODE, BUFFER_SIZE, PATH);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      if (value.has(MODE) && !Lists.newArrayList(MODE_INLINE, MODE_FILE)
+          .contains(value.get(MODE).getAsString().toLowerCase())) {
+        return false;
+      }
+      if (value.has(BUFFER_SIZE) && (!value.get(BUFFER_SIZE).isJsonPrimitive()
+          || !value.get(BUFFER_SIZE).getAsJsonPrimitive().isNumber() || value.get(BUFFER_SIZE).getAsInt() <= 0)) {
+        return false;
+      }
+      // side files need a directory
+      if (value.has(MODE) && value.get(MODE).getAsString().equalsIgnoreCase(MODE_FILE)
+          && (!value.has(PATH) || StringUtils.isBlank(value.get(PATH).getAsString()))) {
+        return false;
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  JdbcLobProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * LOB streaming is enabled when the property is configured
+   * @param state state
+   * @return true if LOB columns should be streamed rather than read into strings
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return true if LOB values are written to side files, and the columns have references to the files
+   */
+  public boolean isFileMode(State state) {
+    JsonObject value = get(state);
+    return value.has(MODE) && value.get(MODE).getAsString().equalsIgnoreCase(MODE_FILE);
+  }
+
+  /**
+   * @param state state
+   * @return the size of the buffer that LOB values are copied through, in bytes or characters
+   */
+  public Integer getBufferSize(State state) {
+    JsonObject value = get(state);
+    return value.has(BUFFER_SIZE) ? value.get(BUFFER_SIZE).getAsInt() : BUFFER_SIZE_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the directory of side files
+   */
+  public String getPath(State state) {
+    JsonObject value = get(state);
+    return value.has(PATH) ? value.get(PATH).getAsString() : StringUtils.EMPTY;
+  }
+}
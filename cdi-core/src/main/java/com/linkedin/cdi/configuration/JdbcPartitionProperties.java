@@ -0,0 +1,116 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Range partitioned JDBC read parameters
+ */
+public class JdbcPartitionProperties extends JsonObjectProperties {
+  final private static String COLUMN = "column";
+  final private static String PARTITIONS = "partitions";
+  final private static String LOWER_BOUND = "lowerBound";
+  final private static String UPPER_BOUND = "upperBound";
+  final private static int PARTITIONS_DEFAULT = 4;
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      COLUMN, PARTITIONS, LOWER_BOUND, UPPER_BOUND);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      if (!value.has(COLUMN) || StringUtils.isBlank(value.get(COLUMN).getAsString())) {
+        return false;
+      }
+      if (value.has(PARTITIONS) && value.get(PARTITIONS).getAsInt() <= 0) {
+        return false;
+      }
+      // the bounds are configured together, either as numbers or as timestamp strings
+      if (value.has(LOWER_BOUND) != value.has(UPPER_BOUND)) {
+        return false;
+      }
+      for (String attribute : Lists.newArrayList(LOWER_BOUND, UPPER_BOUND)) {
+        if (value.has(attribute) && !value.get(attribute).isJsonPrimitive()) {
+          return false;
+        }
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  JdbcPartitionProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Partitioned reads are enabled when the property is configured
+   * @param state state
+   * @return true if the JDBC statement should be read in range partitions
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return the numeric or timestamp column to split the statement by
+   */
+  public String getColumn(State state) {
+    return get(state).get(COLUMN).getAsString();
+  }
+
+  /**
+   * @param state state
+   * @return the number of sub-ranges, which are read concurrently
+   */
+  public Integer getPartitions(State state) {
+    JsonObject value = get(state);
+    if (value.has(PARTITIONS)) {
+      return value.get(PARTITIONS).getAsInt();
+    }
+    return PARTITIONS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return true if the bounds are configured, rather than queried
+   */
+  public boolean hasBounds(State state) {
+    return get(state).has(LOWER_BOUND);
+  }
+
+  /**
+   * @param state state
+   * @return the configured lower bound, a number or a timestamp string
+   */
+  public JsonPrimitive getLowerBound(State state) {
+    return get(state).getAsJsonPrimitive(LOWER_BOUND);
+  }
+
+  /**
+   * @param state state
+   * @return the configured upper bound, a number or a timestamp string
+   */
+  public JsonPrimitive getUpperBound(State state) {
+    return get(state).getAsJsonPrimitive(UPPER_BOUND);
+  }
+}
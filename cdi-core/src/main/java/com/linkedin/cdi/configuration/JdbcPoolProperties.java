@@ -0,0 +1,140 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * JDBC connection pool parameters
+ */
+public class JdbcPoolProperties extends JsonObjectProperties {
+  final private static String MAX_SIZE = "maxSize";
+  final private static String MAX_WAIT_SECONDS = "maxWaitSeconds";
+  final private static String IDLE_TIMEOUT_SECONDS = "idleTimeoutSeconds";
+  final private static String VALIDATION_TIMEOUT_SECONDS = "validationTimeoutSeconds";
+  final private static String LEAK_DETECTION_SECONDS = "leakDetectionSeconds";
+  final private static String STATEMENT_CACHE_SIZE = "statementCacheSize";
+  final private static int MAX_SIZE_DEFAULT = 10;
+  final private static long MAX_WAIT_SECONDS_DEFAULT = 60L;
+  final private static long IDLE_TIMEOUT_SECONDS_DEFAULT = 300L;
+  final private static int VALIDATION_TIMEOUT_SECONDS_DEFAULT = 5;
+  final private static long LEAK_DETECTION_SECONDS_DEFAULT = 3600L;
+  final private static int STATEMENT_CACHE_SIZE_DEFAULT = 50;
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      MAX_SIZE, MAX_WAIT_SECONDS, IDLE_TIMEOUT_SECONDS, VALIDATION_TIMEOUT_SECONDS, LEAK_DETECTION_SECONDS,
+      STATEMENT_CACHE_SIZE);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      for (String attribute : allAttributes) {
+        if (value.has(attribute) && value.get(attribute).getAsLong() < 0) {
+          return false;
+        }
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  JdbcPoolProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Pooling is enabled when the property is configured, unless the maximum pool size is 0
+   * @param state state
+   * @return true if JDBC connections should be pooled
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state) && getMaxSize(state) > 0;
+  }
+
+  /**
+   * @param state state
+   * @return the maximum number of physical connections per URL and user
+   */
+  public Integer getMaxSize(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_SIZE)) {
+      return value.get(MAX_SIZE).getAsInt();
+    }
+    return MAX_SIZE_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the time to wait for a connection when all connections are in use
+   */
+  public Long getMaxWaitSeconds(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_WAIT_SECONDS)) {
+      return value.get(MAX_WAIT_SECONDS).getAsLong();
+    }
+    return MAX_WAIT_SECONDS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the time after which an idle connection is closed, 0 to keep idle connections
+   */
+  public Long getIdleTimeoutSeconds(State state) {
+    JsonObject value = get(state);
+    if (value.has(IDLE_TIMEOUT_SECONDS)) {
+      return value.get(IDLE_TIMEOUT_SECONDS).getAsLong();
+    }
+    return IDLE_TIMEOUT_SECONDS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the time allowed for validating a connection before it is borrowed
+   */
+  public Integer getValidationTimeoutSeconds(State state) {
+    JsonObject value = get(state);
+    if (value.has(VALIDATION_TIMEOUT_SECONDS)) {
+      return value.get(VALIDATION_TIMEOUT_SECONDS).getAsInt();
+    }
+    return VALIDATION_TIMEOUT_SECONDS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the time a connection can be borrowed before it is reported as a leak, 0 to disable
+   */
+  public Long getLeakDetectionSeconds(State state) {
+    JsonObject value = get(state);
+    if (value.has(LEAK_DETECTION_SECONDS)) {
+      return value.get(LEAK_DETECTION_SECONDS).getAsLong();
+    }
+    return LEAK_DETECTION_SECONDS_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the number of prepared statements cached per connection, 0 to disable the cache
+   */
+  public Integer getStatementCacheSize(State state) {
+    JsonObject value = get(state);
+    if (value.has(STATEMENT_CACHE_SIZE)) {
+      return value.get(STATEMENT_CACHE_SIZE).getAsInt();
+    }
+    return STATEMENT_CACHE_SIZE_DEFAULT;
+  }
+}
@@ -0,0 +1,105 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Independent JDBC statements of a job, each extracted by work units of its own
+ */
+public class JdbcStatementsProperties extends JsonArrayProperties {
+  final private static String STATEMENT = "statement";
+  final private static String SCHEMA = "schema";
+
+  final private static List<String> allAttributes = Lists.newArrayList(KEY_WORD_NAME, STATEMENT, SCHEMA);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonArray value = GSON.fromJson(state.getProp(getConfig()), JsonArray.class);
+      Set<String> names = new HashSet<>();
+      for (JsonElement element : value) {
+        if (!element.isJsonObject()) {
+          return false;
+        }
+        JsonObject statement = element.getAsJsonObject();
+        if (!statement.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+          return false;
+        }
+        // the name identifies the work units, and the watermarks, of a statement
+        if (!statement.has(KEY_WORD_NAME) || !statement.get(KEY_WORD_NAME).isJsonPrimitive()
+            || StringUtils.isBlank(statement.get(KEY_WORD_NAME).getAsString())
+            || !names.add(statement.get(KEY_WORD_NAME).getAsString())) {
+          return false;
+        }
+        if (!statement.has(STATEMENT) || !statement.get(STATEMENT).isJsonPrimitive()
+            || StringUtils.isBlank(statement.get(STATEMENT).getAsString())) {
+          return false;
+        }
+        if (statement.has(SCHEMA) && !statement.get(SCHEMA).isJsonArray()) {
+          return false;
+        }
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  JdbcStatementsProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * @param state state
+   * @return true if the job has a list of statements rather than one statement
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return the statements by name, in the configured order
+   */
+  public Map<String, JsonObject> getStatements(State state) {
+    Map<String, JsonObject> statements = new LinkedHashMap<>();
+    for (JsonElement element : get(state)) {
+      statements.put(element.getAsJsonObject().get(KEY_WORD_NAME).getAsString(), element.getAsJsonObject());
+    }
+    return statements;
+  }
+
+  /**
+   * @param statement a statement definition
+   * @return the SQL of the statement
+   */
+  public String getStatement(JsonObject statement) {
+    return statement.get(STATEMENT).getAsString();
+  }
+
+  /**
+   * @param statement a statement definition
+   * @return the output schema of the statement, or null if the schema is inferred from its columns
+   */
+  public JsonArray getSchema(JsonObject statement) {
+    return statement.has(SCHEMA) ? statement.getAsJsonArray(SCHEMA) : null;
+  }
+}
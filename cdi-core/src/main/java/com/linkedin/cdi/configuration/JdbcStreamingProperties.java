@@ -0,0 +1,104 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * JDBC result set streaming parameters
+ */
+public class JdbcStreamingProperties extends JsonObjectProperties {
+  final private static String ENABLED = "enabled";
+  final private static String FETCH_SIZE = "fetchSize";
+  final private static String FETCH_BYTES = "fetchBytes";
+  final private static String MAX_FETCH_SIZE = "maxFetchSize";
+  final private static long FETCH_BYTES_DEFAULT = 4 * 1024 * 1024L;
+  final private static int MAX_FETCH_SIZE_DEFAULT = 10000;
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      ENABLED, FETCH_SIZE, FETCH_BYTES, MAX_FETCH_SIZE);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      if (value.has(FETCH_SIZE) && value.get(FETCH_SIZE).getAsInt() < 0) {
+        return false;
+      }
+      for (String attribute : Lists.newArrayList(FETCH_BYTES, MAX_FETCH_SIZE)) {
+        if (value.has(attribute) && value.get(attribute).getAsLong() <= 0) {
+          return false;
+        }
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  JdbcStreamingProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Streaming is enabled when it is configured, unless it is turned off explicitly
+   * @param state state
+   * @return true if connections and statements should be configured to stream result sets
+   */
+  public boolean isEnabled(State state) {
+    if (isBlank(state) || !isValid(state)) {
+      return false;
+    }
+    JsonObject value = get(state);
+    return !value.has(ENABLED) || value.get(ENABLED).getAsBoolean();
+  }
+
+  /**
+   * @param state state
+   * @return the fixed fetch size, or 0 to derive the fetch size from the row size
+   */
+  public Integer getFetchSize(State state) {
+    JsonObject value = get(state);
+    if (value.has(FETCH_SIZE)) {
+      return value.get(FETCH_SIZE).getAsInt();
+    }
+    return 0;
+  }
+
+  /**
+   * @param state state
+   * @return the target size of a batch of fetched rows in bytes, when the fetch size is derived
+   */
+  public Long getFetchBytes(State state) {
+    JsonObject value = get(state);
+    if (value.has(FETCH_BYTES)) {
+      return value.get(FETCH_BYTES).getAsLong();
+    }
+    return FETCH_BYTES_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the maximum fetch size, when the fetch size is derived
+   */
+  public Integer getMaxFetchSize(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_FETCH_SIZE)) {
+      return value.get(MAX_FETCH_SIZE).getAsInt();
+    }
+    return MAX_FETCH_SIZE_DEFAULT;
+  }
+}
@@ -10,8 +10,10 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.linkedin.cdi.extractor.FileDumpExtractor;
+import com.linkedin.cdi.util.ContentEncodingUtils;
 import com.linkedin.cdi.util.SchemaUtils;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import org.apache.gobblin.configuration.State;
@@ -105,6 +107,22 @@ public interface PropertyCollection {
   BooleanProperties MSTAGE_HDFS_READER_PARSE_JSON_STRINGS =
       new BooleanProperties("ms.hdfs.reader.parse.json.strings", Boolean.FALSE);
 
+  // ms.http.accept.encoding lists the content codings to accept, responses are decoded by their Content-Encoding
+  StringProperties MSTAGE_HTTP_ACCEPT_ENCODING = new StringProperties("ms.http.accept.encoding", "gzip, deflate") {
+    @Override
+    public boolean isValid(State state) {
+      if (!isBlank(state)) {
+        return Arrays.stream(state.getProp(getConfig()).split(KEY_WORD_COMMA))
+            .allMatch(ContentEncodingUtils::isKnown);
+      }
+      return true;
+    }
+  };
+
+  // ms.http.adaptive.concurrency adjusts the concurrent requests to a host by the responses, across work units in a JVM
+  AdaptiveConcurrencyProperties MSTAGE_HTTP_ADAPTIVE_CONCURRENCY =
+      new AdaptiveConcurrencyProperties("ms.http.adaptive.concurrency");
+
   // ms.http.maxConnections has default value 50 and max value 500
   // 0 is interpreted as default
   IntegerProperties MSTAGE_HTTP_CONN_MAX =
@@ -137,14 +155,64 @@ public interface PropertyCollection {
     }
   };
 
+  // ms.http.hedging sends a duplicate GET request when the response is slower than a latency percentile
+  HedgingProperties MSTAGE_HTTP_HEDGING = new HedgingProperties("ms.http.hedging");
+
+  // ms.http.rate.limiter paces requests to a host, or to a named group of hosts, across all work units in a JVM
+  RateLimiterProperties MSTAGE_HTTP_RATE_LIMITER = new RateLimiterProperties("ms.http.rate.limiter");
+
   JsonObjectProperties MSTAGE_HTTP_REQUEST_HEADERS = new JsonObjectProperties("ms.http.request.headers");
   StringProperties MSTAGE_HTTP_REQUEST_METHOD = new StringProperties("ms.http.request.method");
+
+  // ms.http.response.cache enables a local or HDFS cache of responses to replay them in reruns
+  HttpResponseCacheProperties MSTAGE_HTTP_RESPONSE_CACHE = new HttpResponseCacheProperties("ms.http.response.cache");
+
   JsonObjectProperties MSTAGE_HTTP_RESPONSE_TYPE = new JsonObjectProperties("ms.http.response.type");
+
+  // ms.http.retry defines the backoff and the retry budget of failed HTTP requests
+  HttpRetryProperties MSTAGE_HTTP_RETRY = new HttpRetryProperties("ms.http.retry");
+
   JsonObjectProperties MSTAGE_HTTP_STATUSES = new JsonObjectProperties("ms.http.statuses",
           GSON.fromJson("{\"success\":[200,201,202], \"pagination_error\":[401]}", JsonObject.class));
   JsonObjectProperties MSTAGE_HTTP_STATUS_REASONS = new JsonObjectProperties("ms.http.status.reasons");
+
+  // ms.jdbc.bind.variables executes the JDBC statement with bind parameters in place of its variables
+  BooleanProperties MSTAGE_JDBC_BIND_VARIABLES = new BooleanProperties("ms.jdbc.bind.variables", Boolean.FALSE);
+
+  // ms.jdbc.connection.pool defines the JVM-wide pool of JDBC connections per URL and user
+  JdbcPoolProperties MSTAGE_JDBC_CONNECTION_POOL = new JdbcPoolProperties("ms.jdbc.connection.pool");
+
+  // ms.jdbc.egress writes the payload records by the JDBC statement in batches
+  JdbcEgressProperties MSTAGE_JDBC_EGRESS = new JdbcEgressProperties("ms.jdbc.egress");
+
+  // ms.jdbc.lob streams the values of JDBC LOB columns to the output or to side files
+  JdbcLobProperties MSTAGE_JDBC_LOB = new JdbcLobProperties("ms.jdbc.lob");
+
+  // ms.jdbc.partition splits the JDBC statement into sub-ranges of a column that are read concurrently
+  JdbcPartitionProperties MSTAGE_JDBC_PARTITION = new JdbcPartitionProperties("ms.jdbc.partition");
+
+  // ms.jdbc.keyset defines the ordered key columns of keyset pagination of the JDBC statement
+  JsonArrayProperties MSTAGE_JDBC_KEYSET = new JsonArrayProperties("ms.jdbc.keyset");
+
+  // ms.jdbc.streaming configures how JDBC result sets are streamed with server-side cursors
+  JdbcStreamingProperties MSTAGE_JDBC_STREAMING = new JdbcStreamingProperties("ms.jdbc.streaming");
+
+  // ms.jdbc.schema.cache.seconds is how long the columns and the schema of a JDBC statement are cached in the JVM
+  // default: 0 second, i.e. no caching, maximum: 24 hours
+  LongProperties MSTAGE_JDBC_SCHEMA_CACHE_SECONDS =
+      new LongProperties("ms.jdbc.schema.cache.seconds", 0L, 24 * 3600L, 0L) {
+        @Override
+        public Long getMillis(State state) {
+          return 1000L * this.get(state);
+        }
+      };
+
   StringProperties MSTAGE_JDBC_SCHEMA_REFACTOR = new StringProperties("ms.jdbc.schema.refactor", "none");
   StringProperties MSTAGE_JDBC_STATEMENT = new StringProperties("ms.jdbc.statement");
+
+  // ms.jdbc.statements defines independent JDBC statements of a job, each extracted by work units of its own
+  JdbcStatementsProperties MSTAGE_JDBC_STATEMENTS = new JdbcStatementsProperties("ms.jdbc.statements");
+
   BooleanProperties MSTAGE_METRICS_ENABLED = new BooleanProperties("ms.metrics.enabled", Boolean.FALSE);
   KafkaProperties MSTAGE_KAFKA_PROPERTIES = new KafkaProperties("ms.kafka");
   StringProperties MSTAGE_REPORTER_CLASS = new StringProperties("ms.reporter.class",
@@ -156,6 +224,11 @@ public interface PropertyCollection {
 
   JsonArrayProperties MSTAGE_OUTPUT_SCHEMA = new JsonArrayProperties("ms.output.schema");
   JsonObjectProperties MSTAGE_PAGINATION = new JsonObjectProperties("ms.pagination");
+
+  // ms.pagination.parallelism is the number of concurrent page requests when the total count is known
+  // default: 1, i.e. pages are requested one after another, minimum: 1, maximum: 64
+  IntegerProperties MSTAGE_PAGINATION_PARALLELISM = new IntegerProperties("ms.pagination.parallelism", 1, 64, 1);
+
   JsonArrayProperties MSTAGE_PARAMETERS = new JsonArrayProperties("ms.parameters") {
     @Override
     public boolean isValid(State state) {
@@ -175,6 +248,9 @@ public interface PropertyCollection {
   //  set highest possible value to 10 Zs
   StringProperties MSTAGE_RANGE_GENERATOR_MAX_VALUE = new StringProperties("ms.range.generator.max.value", "zzzzzzzzzz");
 
+  // ms.response.buffer enables buffering of responses in memory, with spilling to disk beyond a threshold
+  ResponseBufferProperties MSTAGE_RESPONSE_BUFFER = new ResponseBufferProperties("ms.response.buffer");
+
   JsonObjectProperties MSTAGE_RETENTION =
       new JsonObjectProperties("ms.retention") {
         @Override
@@ -234,6 +310,23 @@ public interface PropertyCollection {
   WatermarkProperties MSTAGE_WATERMARK = new WatermarkProperties("ms.watermark");
   JsonArrayProperties MSTAGE_WATERMARK_GROUPS = new JsonArrayProperties("ms.watermark.groups");
 
+  // ms.work.unit.batch.size is the number of unit watermark values extracted by each work unit
+  // default: 1, i.e. a work unit per unit value, minimum: 1, maximum: 10000
+  IntegerProperties MSTAGE_WORK_UNIT_BATCH_SIZE = new IntegerProperties("ms.work.unit.batch.size", 1, 10000, 1);
+
+  // ms.work.unit.batch.parallelism is the number of units of a work unit batch extracted concurrently
+  // default: 4, minimum: 1, maximum: 64
+  IntegerProperties MSTAGE_WORK_UNIT_BATCH_PARALLELISM =
+      new IntegerProperties("ms.work.unit.batch.parallelism", 4, 64, 1);
+
+  // ms.work.unit.batch.request coalesces up to "size" unit values of a work unit batch into one request
+  BatchRequestProperties MSTAGE_WORK_UNIT_BATCH_REQUEST = new BatchRequestProperties("ms.work.unit.batch.request");
+
+  // internal properties passing the units of a work unit batch to the extractor, and
+  // the high watermarks of the units from the extractor to the state store
+  JsonArrayProperties MSTAGE_WORK_UNIT_BATCH_UNITS = new JsonArrayProperties("ms.work.unit.batch.units");
+  JsonObjectProperties MSTAGE_WORK_UNIT_BATCH_WATERMARKS = new JsonObjectProperties("ms.work.unit.batch.watermarks");
+
   // default: 0, minimum: 0, maximum: -
   LongProperties MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME = new LongProperties("ms.work.unit.scheduling.starttime");
 
@@ -343,22 +436,39 @@ public interface PropertyCollection {
       MSTAGE_EXTRACT_PREPROCESSORS_PARAMETERS,
       MSTAGE_GRACE_PERIOD_DAYS,
       MSTAGE_HDFS_READER_PARSE_JSON_STRINGS,
+      MSTAGE_HTTP_ACCEPT_ENCODING,
+      MSTAGE_HTTP_ADAPTIVE_CONCURRENCY,
       MSTAGE_HTTP_CONN_MAX,
       MSTAGE_HTTP_CONN_PER_ROUTE_MAX,
       MSTAGE_HTTP_CONN_TTL_SECONDS,
+      MSTAGE_HTTP_HEDGING,
+      MSTAGE_HTTP_RATE_LIMITER,
       MSTAGE_HTTP_REQUEST_HEADERS,
       MSTAGE_HTTP_REQUEST_METHOD,
+      MSTAGE_HTTP_RESPONSE_CACHE,
       MSTAGE_HTTP_RESPONSE_TYPE,
+      MSTAGE_HTTP_RETRY,
       MSTAGE_HTTP_STATUSES,
       MSTAGE_HTTP_STATUS_REASONS,
+      MSTAGE_JDBC_BIND_VARIABLES,
+      MSTAGE_JDBC_CONNECTION_POOL,
+      MSTAGE_JDBC_EGRESS,
+      MSTAGE_JDBC_KEYSET,
+      MSTAGE_JDBC_LOB,
+      MSTAGE_JDBC_PARTITION,
+      MSTAGE_JDBC_SCHEMA_CACHE_SECONDS,
       MSTAGE_JDBC_SCHEMA_REFACTOR,
       MSTAGE_JDBC_STATEMENT,
+      MSTAGE_JDBC_STATEMENTS,
+      MSTAGE_JDBC_STREAMING,
       MSTAGE_KAFKA_PROPERTIES,
       MSTAGE_NORMALIZER_BATCH_SIZE,
       MSTAGE_OUTPUT_SCHEMA,
       MSTAGE_PAGINATION,
+      MSTAGE_PAGINATION_PARALLELISM,
       MSTAGE_PARAMETERS,
       MSTAGE_PAYLOAD_PROPERTY,
+      MSTAGE_RESPONSE_BUFFER,
       MSTAGE_RETENTION,
       MSTAGE_S3_LIST_MAX_KEYS,
       MSTAGE_SCHEMA_CLEANSING,
@@ -380,6 +490,11 @@ public interface PropertyCollection {
       MSTAGE_WAIT_TIMEOUT_SECONDS,
       MSTAGE_WATERMARK,
       MSTAGE_WATERMARK_GROUPS,
+      MSTAGE_WORK_UNIT_BATCH_SIZE,
+      MSTAGE_WORK_UNIT_BATCH_PARALLELISM,
+      MSTAGE_WORK_UNIT_BATCH_REQUEST,
+      MSTAGE_WORK_UNIT_BATCH_UNITS,
+      MSTAGE_WORK_UNIT_BATCH_WATERMARKS,
       MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME,
       MSTAGE_WORK_UNIT_MIN_RECORDS,
       MSTAGE_WORK_UNIT_MIN_UNITS,
@@ -0,0 +1,112 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Request rate limiter parameters
+ */
+public class RateLimiterProperties extends JsonObjectProperties {
+  final private static String NAME = "name";
+  final private static String REQUESTS_PER_SECOND = "requestsPerSecond";
+  final private static String BURST = "burst";
+  final private static String MAX_CONCURRENCY = "maxConcurrency";
+  final private static int BURST_DEFAULT = 1;
+
+  final private static List<String> allAttributes = Lists.newArrayList(
+      NAME, REQUESTS_PER_SECOND, BURST, MAX_CONCURRENCY);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      // at least one of the limits is required
+      if (!value.has(REQUESTS_PER_SECOND) && !value.has(MAX_CONCURRENCY)) {
+        return false;
+      }
+      if (value.has(REQUESTS_PER_SECOND) && value.get(REQUESTS_PER_SECOND).getAsDouble() <= 0) {
+        return false;
+      }
+      for (String attribute : Lists.newArrayList(BURST, MAX_CONCURRENCY)) {
+        if (value.has(attribute) && value.get(attribute).getAsInt() <= 0) {
+          return false;
+        }
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  RateLimiterProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Rate limiting is enabled when the property is configured
+   * @param state state
+   * @return true if requests should be rate limited
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  /**
+   * @param state state
+   * @return the limiter name, or blank if the limiter is keyed by the host
+   */
+  public String getName(State state) {
+    JsonObject value = get(state);
+    if (value.has(NAME)) {
+      return value.get(NAME).getAsString();
+    }
+    return StringUtils.EMPTY;
+  }
+
+  /**
+   * @param state state
+   * @return the maximum requests per second, or 0 if the rate is not limited
+   */
+  public Double getRequestsPerSecond(State state) {
+    JsonObject value = get(state);
+    if (value.has(REQUESTS_PER_SECOND)) {
+      return value.get(REQUESTS_PER_SECOND).getAsDouble();
+    }
+    return 0.0;
+  }
+
+  public Integer getBurst(State state) {
+    JsonObject value = get(state);
+    if (value.has(BURST)) {
+      return value.get(BURST).getAsInt();
+    }
+    return BURST_DEFAULT;
+  }
+
+  /**
+   * @param state state
+   * @return the maximum concurrent requests, or 0 if the concurrency is not limited
+   */
+  public Integer getMaxConcurrency(State state) {
+    JsonObject value = get(state);
+    if (value.has(MAX_CONCURRENCY)) {
+      return value.get(MAX_CONCURRENCY).getAsInt();
+    }
+    return 0;
+  }
+}
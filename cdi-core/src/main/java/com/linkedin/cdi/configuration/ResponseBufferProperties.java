@@ -0,0 +1,77 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.configuration;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.util.SpillableBuffer;
+import java.util.List;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * Response buffer parameters
+ */
+public class ResponseBufferProperties extends JsonObjectProperties {
+  final private static String THRESHOLD_BYTES = "thresholdBytes";
+  final private static String COMPRESSION = "compression";
+  final private static String COMPRESSION_LZ4 = "lz4";
+  final private static String COMPRESSION_NONE = "none";
+
+  final private static List<String> allAttributes = Lists.newArrayList(THRESHOLD_BYTES, COMPRESSION);
+
+  @Override
+  public boolean isValid(State state) {
+    if (super.isValid(state) && !super.isBlank(state)) {
+      JsonObject value = GSON.fromJson(state.getProp(getConfig()), JsonObject.class);
+      if (!value.entrySet().stream().allMatch(p -> allAttributes.contains(p.getKey()))) {
+        return false;
+      }
+      if (value.has(THRESHOLD_BYTES) && value.get(THRESHOLD_BYTES).getAsLong() < 0) {
+        return false;
+      }
+      if (value.has(COMPRESSION)) {
+        String compression = value.get(COMPRESSION).getAsString();
+        return compression.equalsIgnoreCase(COMPRESSION_LZ4) || compression.equalsIgnoreCase(COMPRESSION_NONE);
+      }
+    }
+    return super.isValid(state);
+  }
+
+  /**
+   * Constructor with implicit default value
+   * @param config property name
+   */
+  ResponseBufferProperties(String config) {
+    super(config);
+  }
+
+  /**
+   * Response buffering is enabled when the property is configured
+   * @param state state
+   * @return true if responses should be buffered
+   */
+  public boolean isEnabled(State state) {
+    return !isBlank(state) && isValid(state);
+  }
+
+  public Long getThresholdBytes(State state) {
+    JsonObject value = get(state);
+    if (value.has(THRESHOLD_BYTES)) {
+      return value.get(THRESHOLD_BYTES).getAsLong();
+    }
+    return SpillableBuffer.DEFAULT_THRESHOLD;
+  }
+
+  public Boolean isCompressed(State state) {
+    JsonObject value = get(state);
+    if (value.has(COMPRESSION)) {
+      return value.get(COMPRESSION).getAsString().equalsIgnoreCase(COMPRESSION_LZ4);
+    }
+    return false;
+  }
+}
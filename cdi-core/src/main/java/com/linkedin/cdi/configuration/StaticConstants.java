@@ -12,6 +12,7 @@ public interface StaticConstants {
   String KEY_WORD_ARRAY = "array";
   String KEY_WORD_ARRAY_ITEM = "arrayItem";
   String KEY_WORD_AUTHENTICATION = "authentication";
+  String KEY_WORD_BATCH = "batch";
   String KEY_WORD_BOOLEAN = "boolean";
   String KEY_WORD_CATEGORY = "category";
   String KEY_WORD_COLUMN_NAME = "columnName";
@@ -33,6 +34,7 @@ public interface StaticConstants {
   String KEY_WORD_ISO = "ISO";
   String KEY_WORD_IS_NULLABLE = "isNullable";
   String KEY_WORD_ITEMS = "items";
+  String KEY_WORD_LOW_WATERMARK = "lowWatermark";
   String KEY_WORD_MAP = "map";
   String KEY_WORD_NAME = "name";
   String KEY_WORD_HTTP_NOTOK = "notok";
@@ -52,6 +54,7 @@ public interface StaticConstants {
   String KEY_WORD_RETRY_COUNT = "retryCount";
   String KEY_WORD_RETRY_DELAY_IN_SEC = "delayInSec";
   String KEY_WORD_ROOT = "root";
+  String KEY_WORD_SIGNATURE = "signature";
   String KEY_WORD_SNAPSHOT_ONLY = "SNAPSHOT_ONLY";
   String KEY_WORD_SOURCE = "source";
   String KEY_WORD_SOURCE_TYPE = "source.type";
@@ -62,6 +65,7 @@ public interface StaticConstants {
   String KEY_WORD_TO = "to";
   String KEY_WORD_TOKEN = "token";
   String KEY_WORD_TYPE = "type";
+  String KEY_WORD_UNIT = "unit";
   String KEY_WORD_UNITS = "units";
   String KEY_WORD_UNKNOWN = "unknown";
   String KEY_WORD_VALIDATION = "validation";
@@ -0,0 +1,193 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A concurrency limiter shared by all connections in the JVM that request the same
+ * host, or the same named group of hosts, which adjusts the number of concurrent
+ * requests by additive increase and multiplicative decrease (AIMD).
+ *
+ * While responses are healthy, the limit grows by 1 for every limit number of
+ * responses, i.e. about 1 per round of requests, as long as the permits are in use.
+ * On a throttling response, like 429 or 503, on a request failure, or on a latency
+ * spike above the threshold times the baseline latency, the limit is multiplied by
+ * the decrease factor. Only one decrease is made per congestion event, i.e. responses
+ * to requests started before the last decrease don't decrease the limit again.
+ *
+ * The baseline latency is a slow moving average of response latencies, so that it
+ * follows lasting changes in the API latency.
+ */
+public class AdaptiveConcurrencyLimiter {
+  private static final Logger LOG = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+  private static final ConcurrentMap<String, AdaptiveConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<>();
+  // the weight of a new sample in the baseline latency
+  private static final double BASELINE_WEIGHT = 0.05;
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final double decreaseFactor;
+  private final double latencyThreshold;
+  private final LongSupplier clock;
+  private double limit;
+  private int inFlight = 0;
+  private double baselineNanos = 0;
+  private long decreasedNanos;
+
+  /**
+   * A permit to make a request
+   */
+  public static class Permit {
+    private final long startNanos;
+    private boolean released = false;
+
+    private Permit(long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    public long getStartNanos() {
+      return startNanos;
+    }
+  }
+
+  AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+      double decreaseFactor, double latencyThreshold) {
+    this(name, initialLimit, minLimit, maxLimit, decreaseFactor, latencyThreshold, System::nanoTime);
+  }
+
+  /**
+   * @param clock the source of the current time in nanoseconds, replaced in tests
+   */
+  AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+      double decreaseFactor, double latencyThreshold, LongSupplier clock) {
+    this.name = name;
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.decreaseFactor = decreaseFactor;
+    this.latencyThreshold = latencyThreshold;
+    this.clock = clock;
+    this.decreasedNanos = clock.getAsLong();
+  }
+
+  /**
+   * Get the shared limiter of a name, creating it with the given parameters if it doesn't exist
+   *
+   * @param name the limiter name, typically the host
+   * @param initialLimit the initial number of concurrent requests
+   * @param minLimit the minimum number of concurrent requests
+   * @param maxLimit the maximum number of concurrent requests
+   * @param decreaseFactor the factor applied to the limit on congestion
+   * @param latencyThreshold the ratio to the baseline latency above which a response is a latency spike
+   * @return the shared limiter
+   */
+  public static AdaptiveConcurrencyLimiter getInstance(String name, int initialLimit, int minLimit, int maxLimit,
+      double decreaseFactor, double latencyThreshold) {
+    return LIMITERS.computeIfAbsent(name,
+        k -> new AdaptiveConcurrencyLimiter(k, initialLimit, minLimit, maxLimit, decreaseFactor, latencyThreshold));
+  }
+
+  /**
+   * Take a permit, waiting until the number of requests in flight is below the limit
+   *
+   * @return the permit
+   */
+  public synchronized Permit acquire() throws InterruptedException {
+    while (inFlight >= (int) limit) {
+      wait();
+    }
+    inFlight++;
+    return new Permit(clock.getAsLong());
+  }
+
+  /**
+   * Take a permit if the number of requests in flight is below the limit, without waiting
+   *
+   * @return the permit, or null if the limit is reached
+   */
+  public synchronized Permit tryAcquire() {
+    if (inFlight >= (int) limit) {
+      return null;
+    }
+    inFlight++;
+    return new Permit(clock.getAsLong());
+  }
+
+  /**
+   * Return a permit, releasing a permit more than once has no effect
+   *
+   * @param permit the permit
+   */
+  public synchronized void release(Permit permit) {
+    if (permit != null && !permit.released) {
+      permit.released = true;
+      inFlight--;
+      notifyAll();
+    }
+  }
+
+  /**
+   * Adjust the limit by the outcome of a request
+   *
+   * @param permit the permit of the request
+   * @param latencyNanos the time from sending the request to receiving the response
+   * @param congested true if the request was throttled or failed
+   */
+  public synchronized void onResponse(Permit permit, long latencyNanos, boolean congested) {
+    boolean spike = baselineNanos > 0 && latencyNanos > latencyThreshold * baselineNanos;
+    if (!congested) {
+      baselineNanos = baselineNanos == 0 ? latencyNanos
+          : (1 - BASELINE_WEIGHT) * baselineNanos + BASELINE_WEIGHT * latencyNanos;
+    }
+    if (congested || spike) {
+      if (permit.startNanos > decreasedNanos) {
+        double prior = limit;
+        limit = Math.max(minLimit, limit * decreaseFactor);
+        decreasedNanos = clock.getAsLong();
+        LOG.info("Concurrency limit of {} is decreased from {} to {} on {}", name, (int) prior, (int) limit,
+            congested ? "throttling" : "latency of " + TimeUnit.NANOSECONDS.toMillis(latencyNanos) + " ms");
+      }
+    } else if (inFlight >= limit / 2) {
+      // the limit only grows when it is being used
+      int prior = (int) limit;
+      limit = Math.min(maxLimit, limit + 1 / limit);
+      if ((int) limit > prior) {
+        LOG.debug("Concurrency limit of {} is increased to {}", name, (int) limit);
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * @param status a HTTP status code
+   * @return true if the status code indicates throttling, i.e. 429 or 503
+   */
+  public static boolean isThrottled(int status) {
+    return status == 429 || status == 503;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the current number of allowed concurrent requests
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+}
@@ -0,0 +1,135 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.utils.DateUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * The default retry policy, which retries the status codes in the "retry" list of
+ * ms.http.statuses, and the exceptions in the "exceptions" list of ms.http.retry.
+ *
+ * The delay grows exponentially with the attempts, and it is randomized with full
+ * jitter, i.e. a random delay between 0 and min(maxDelay, baseDelay * 2 ^ (attempt - 1)),
+ * so that concurrent work units don't retry in lockstep.
+ *
+ * For 429 (Too Many Requests) and 503 (Service Unavailable), the Retry-After header,
+ * in seconds or as a HTTP date, takes precedence over the computed delay.
+ */
+public class ExponentialBackoffRetryPolicy implements RetryPolicy {
+  private static final Logger LOG = LoggerFactory.getLogger(ExponentialBackoffRetryPolicy.class);
+  // HttpStatus has no constant for 429 Too Many Requests
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+  private static final List<Integer> RETRY_STATUSES_DEFAULT = Lists.newArrayList(
+      SC_TOO_MANY_REQUESTS, HttpStatus.SC_SERVICE_UNAVAILABLE);
+  // the exponent is capped to avoid overflow
+  private static final int MAX_EXPONENT = 30;
+
+  private final List<Integer> retryStatuses = new ArrayList<>();
+  private final List<Class<?>> retryExceptions = new ArrayList<>();
+  private final long maxRetries;
+  private final long baseDelayMillis;
+  private final long maxDelayMillis;
+
+  public ExponentialBackoffRetryPolicy(State state) {
+    JsonObject statuses = MSTAGE_HTTP_STATUSES.get(state);
+    if (statuses.has(KEY_WORD_RETRY) && statuses.get(KEY_WORD_RETRY).isJsonArray()) {
+      for (JsonElement status : statuses.get(KEY_WORD_RETRY).getAsJsonArray()) {
+        retryStatuses.add(status.getAsInt());
+      }
+    } else {
+      retryStatuses.addAll(RETRY_STATUSES_DEFAULT);
+    }
+    for (String exception : MSTAGE_HTTP_RETRY.getExceptions(state)) {
+      try {
+        retryExceptions.add(Class.forName(exception));
+      } catch (ClassNotFoundException e) {
+        LOG.warn("Exception class {} is not found, and it will not be retried", exception);
+      }
+    }
+    maxRetries = MSTAGE_HTTP_RETRY.getMaxRetries(state);
+    baseDelayMillis = MSTAGE_HTTP_RETRY.getBaseDelayMillis(state);
+    maxDelayMillis = MSTAGE_HTTP_RETRY.getMaxDelayMillis(state);
+  }
+
+  @Override
+  public long getRetryDelayMillis(int attempt, HttpResponse response, Throwable exception) {
+    if (attempt > maxRetries) {
+      return -1;
+    }
+    if (response != null) {
+      int status = response.getStatusLine().getStatusCode();
+      if (!retryStatuses.contains(status)) {
+        return -1;
+      }
+      if (status == SC_TOO_MANY_REQUESTS || status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+        long retryAfter = getRetryAfterMillis(response);
+        if (retryAfter >= 0) {
+          return retryAfter;
+        }
+      }
+    } else if (!isRetriable(exception)) {
+      return -1;
+    }
+    long ceiling = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, MAX_EXPONENT));
+    return ThreadLocalRandom.current().nextLong(ceiling + 1);
+  }
+
+  /**
+   * @param exception the exception of a failed request
+   * @return true if the exception, or any of its causes, is one of the retriable exceptions
+   */
+  private boolean isRetriable(Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      for (Class<?> retryException : retryExceptions) {
+        if (retryException.isInstance(cause)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Parse the Retry-After header, which is either a number of seconds or a HTTP date
+   *
+   * @param response the HTTP response
+   * @return the delay in milliseconds, or -1 if there is no valid Retry-After header
+   */
+  static long getRetryAfterMillis(HttpResponse response) {
+    Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+    if (header == null || StringUtils.isBlank(header.getValue())) {
+      return -1;
+    }
+    String value = header.getValue().trim();
+    if (StringUtils.isNumeric(value)) {
+      return 1000L * Long.parseLong(value);
+    }
+    Date date = DateUtils.parseDate(value);
+    if (date == null) {
+      LOG.warn("Invalid Retry-After header: {}", value);
+      return -1;
+    }
+    return Math.max(0, date.getTime() - System.currentTimeMillis());
+  }
+}
@@ -58,6 +58,11 @@ public class HdfsConnection extends MultistageConnection {
     hdfsKeys = (HdfsKeys) jobKeys;
   }
 
+  @Override
+  public HdfsConnection fork(State state, ExtractorKeys extractorKeys) {
+    return new HdfsConnection(state, hdfsKeys, extractorKeys);
+  }
+
   /**
    * Get a list of files if the URI has pattern match, else read the files at the URI.
    *
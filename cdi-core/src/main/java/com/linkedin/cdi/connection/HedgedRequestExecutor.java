@@ -0,0 +1,334 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.cdi.factory.http.HttpRequestClient;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A hedging policy for idempotent GET requests, shared by all connections in the JVM
+ * that request the same host, or the same named group of hosts.
+ *
+ * If the response to a request has not arrived within a delay, a duplicate request is
+ * sent, and the first response wins. The other request is aborted, which releases its
+ * connection, or its response is closed if it arrives anyway. The delay is a percentile
+ * of recent response latencies, so that only the slowest requests are duplicated, and
+ * the number of duplicate requests is limited to a ratio of all requests. A duplicate
+ * request also needs the permits of the request, like the rate limiter token and the
+ * concurrency permit of the host, and it is not sent if they are not available at once.
+ *
+ * Latencies are measured from sending a request to receiving the response headers, and
+ * only the latencies of requests that received a response are recorded. An aborted request
+ * has no latency, as the time until it is aborted is not its latency.
+ */
+public class HedgedRequestExecutor {
+  private static final Logger LOG = LoggerFactory.getLogger(HedgedRequestExecutor.class);
+  private static final ConcurrentMap<String, HedgedRequestExecutor> EXECUTORS = new ConcurrentHashMap<>();
+  private static final ExecutorService REQUESTS = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("hedged-request-%d").build());
+  // the number of latencies required before the percentile is used for the delay
+  private static final int MIN_SAMPLES = 10;
+
+  private final String name;
+  private final double percentile;
+  private final long initialDelayMillis;
+  private final long minDelayMillis;
+  private final double budget;
+  private final long[] latencies;
+  private int samples = 0;
+  private int next = 0;
+  private long requests = 0;
+  private long hedges = 0;
+  private long hedgeWins = 0;
+
+  /**
+   * The permits of a duplicate request, which are taken without waiting
+   */
+  public interface Permits {
+    /**
+     * @return true if the permits are taken, or false if none is taken
+     */
+    boolean tryAcquire();
+
+    /**
+     * Return the permits taken by {@link #tryAcquire()}
+     */
+    void release();
+  }
+
+  private static final Permits NO_PERMITS = new Permits() {
+    @Override
+    public boolean tryAcquire() {
+      return true;
+    }
+
+    @Override
+    public void release() {
+    }
+  };
+
+  /**
+   * A request being executed, and its outcome
+   */
+  private static class Attempt {
+    private final HttpUriRequest request;
+    private final long startNanos = System.nanoTime();
+    private CloseableHttpResponse response = null;
+    private Exception error = null;
+    private boolean abandoned = false;
+
+    private Attempt(HttpUriRequest request) {
+      this.request = request;
+    }
+  }
+
+  HedgedRequestExecutor(String name, double percentile, long initialDelayMillis, long minDelayMillis,
+      int window, double budget) {
+    this.name = name;
+    this.percentile = percentile;
+    this.initialDelayMillis = initialDelayMillis;
+    this.minDelayMillis = minDelayMillis;
+    this.budget = budget;
+    this.latencies = new long[window];
+  }
+
+  /**
+   * Get the shared executor of a name, creating it with the given parameters if it doesn't exist
+   *
+   * @param name the executor name, typically the host
+   * @param percentile the latency percentile after which a duplicate request is sent
+   * @param initialDelayMillis the delay before enough latencies are observed
+   * @param minDelayMillis the minimum delay
+   * @param window the number of recent latencies the percentile is computed from
+   * @param budget the maximum ratio of duplicate requests to requests
+   * @return the shared executor
+   */
+  public static HedgedRequestExecutor getInstance(String name, double percentile, long initialDelayMillis,
+      long minDelayMillis, int window, double budget) {
+    return EXECUTORS.computeIfAbsent(name,
+        k -> new HedgedRequestExecutor(k, percentile, initialDelayMillis, minDelayMillis, window, budget));
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * @return the number of duplicate requests sent
+   */
+  public synchronized long getHedges() {
+    return hedges;
+  }
+
+  /**
+   * @return the number of duplicate requests that responded first
+   */
+  public synchronized long getHedgeWins() {
+    return hedgeWins;
+  }
+
+  /**
+   * @return the time to wait for a response before sending a duplicate request
+   */
+  public synchronized long getDelayMillis() {
+    if (samples < Math.min(MIN_SAMPLES, latencies.length)) {
+      return initialDelayMillis;
+    }
+    long[] sorted = Arrays.copyOf(latencies, samples);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile / 100 * samples) - 1;
+    long delayMillis = TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(index, 0)]);
+    return Math.max(delayMillis, minDelayMillis);
+  }
+
+  /**
+   * Execute a GET request, sending a duplicate request if the response doesn't arrive within the delay
+   *
+   * @param httpClient the HTTP client, which must allow 2 concurrent requests to the host
+   * @param request the GET request
+   * @return the response of the request or the duplicate request, whichever arrives first
+   * @throws IOException if both requests failed, or the only request failed
+   */
+  public CloseableHttpResponse execute(HttpRequestClient httpClient, HttpUriRequest request)
+      throws IOException, InterruptedException {
+    return execute(httpClient, request, NO_PERMITS);
+  }
+
+  /**
+   * Execute a GET request, sending a duplicate request if the response doesn't arrive within the delay,
+   * and the permits of the duplicate request are available. The permits are returned when this method
+   * returns, because only one of the requests is pending after that, which has the permits of the request.
+   *
+   * @param httpClient the HTTP client, which must allow 2 concurrent requests to the host
+   * @param request the GET request
+   * @param permits the permits of the duplicate request
+   * @return the response of the request or the duplicate request, whichever arrives first
+   * @throws IOException if both requests failed, or the only request failed
+   */
+  public CloseableHttpResponse execute(HttpRequestClient httpClient, HttpUriRequest request, Permits permits)
+      throws IOException, InterruptedException {
+    long delayMillis;
+    synchronized (this) {
+      requests++;
+      delayMillis = getDelayMillis();
+    }
+    BlockingQueue<Attempt> completed = new LinkedBlockingQueue<>();
+    Attempt primary = submit(httpClient, request, completed);
+    Attempt hedge = null;
+    Attempt winner = null;
+    try {
+      winner = completed.poll(delayMillis, TimeUnit.MILLISECONDS);
+      if (winner == null && reserveHedge(permits)) {
+        LOG.info("No response from {} in {} ms, sending a duplicate request", request.getURI().getHost(), delayMillis);
+        hedge = submit(httpClient, duplicate(request), completed);
+      }
+      if (winner == null) {
+        winner = completed.take();
+      }
+      // a failed request doesn't win while the other request is pending
+      if (winner.error != null && hedge != null) {
+        winner = completed.take();
+        if (winner.error != null) {
+          winner = primary;
+        }
+      }
+    } finally {
+      // abort the pending request, or both if the waiting is interrupted
+      abandon(primary, winner);
+      if (hedge != null) {
+        abandon(hedge, winner);
+        permits.release();
+      }
+    }
+
+    if (winner == hedge) {
+      synchronized (this) {
+        hedgeWins++;
+      }
+    }
+    if (winner.error != null) {
+      throw winner.error instanceof IOException ? (IOException) winner.error : new IOException(winner.error);
+    }
+    return winner.response;
+  }
+
+  /**
+   * Execute a request in the background, queuing the attempt when it completes
+   */
+  private Attempt submit(HttpRequestClient httpClient, HttpUriRequest request, BlockingQueue<Attempt> completed) {
+    Attempt attempt = new Attempt(request);
+    REQUESTS.submit(() -> {
+      CloseableHttpResponse response = null;
+      Exception error = null;
+      try {
+        response = httpClient.execute(request, HttpClientContext.create());
+      } catch (Exception e) {
+        error = e;
+      }
+      // only a request with a response has a latency, an aborted request fails
+      if (response != null) {
+        recordLatency(System.nanoTime() - attempt.startNanos);
+      }
+      synchronized (attempt) {
+        attempt.error = error;
+        if (attempt.abandoned) {
+          close(response);
+          return;
+        }
+        attempt.response = response;
+      }
+      completed.offer(attempt);
+    });
+    return attempt;
+  }
+
+  /**
+   * Abort a request that didn't win, or close its response if it has arrived
+   */
+  private void abandon(Attempt attempt, Attempt winner) {
+    if (attempt == winner) {
+      return;
+    }
+    synchronized (attempt) {
+      if (attempt.abandoned) {
+        return;
+      }
+      attempt.abandoned = true;
+      if (attempt.response != null) {
+        close(attempt.response);
+        attempt.response = null;
+        return;
+      }
+      if (attempt.error != null) {
+        return;
+      }
+    }
+    if (attempt.request instanceof HttpRequestBase) {
+      ((HttpRequestBase) attempt.request).abort();
+    }
+  }
+
+  /**
+   * @param permits the permits of the duplicate request
+   * @return true if a duplicate request is within the budget, and its permits are taken
+   */
+  private boolean reserveHedge(Permits permits) {
+    synchronized (this) {
+      if (hedges + 1 > budget * requests) {
+        return false;
+      }
+    }
+    if (!permits.tryAcquire()) {
+      LOG.debug("No permit for a duplicate request of {}", name);
+      return false;
+    }
+    synchronized (this) {
+      hedges++;
+    }
+    return true;
+  }
+
+  private synchronized void recordLatency(long latencyNanos) {
+    latencies[next] = latencyNanos;
+    next = (next + 1) % latencies.length;
+    samples = Math.min(samples + 1, latencies.length);
+  }
+
+  /**
+   * @return a copy of a GET request with the same URI and headers
+   */
+  private static HttpUriRequest duplicate(HttpUriRequest request) {
+    HttpGet copy = new HttpGet(request.getURI());
+    copy.setHeaders(request.getAllHeaders());
+    return copy;
+  }
+
+  private static void close(CloseableHttpResponse response) {
+    if (response != null) {
+      try {
+        response.close();
+      } catch (IOException e) {
+        LOG.debug("Error closing the response of an abandoned request", e);
+      }
+    }
+  }
+}
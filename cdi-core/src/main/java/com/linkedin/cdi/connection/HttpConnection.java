@@ -14,24 +14,34 @@ import com.linkedin.cdi.factory.ConnectionClientFactory;
 import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.HttpKeys;
 import com.linkedin.cdi.keys.JobKeys;
+import com.linkedin.cdi.factory.http.HttpRequestClient;
 import com.linkedin.cdi.factory.http.HttpRequestMethod;
-import com.linkedin.cdi.util.JsonUtils;
+import com.linkedin.cdi.factory.http.RequestTemplate;
+import com.linkedin.cdi.util.ContentEncodingUtils;
+import com.linkedin.cdi.util.SpillableBuffer;
 import com.linkedin.cdi.util.WorkUnitStatus;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.gobblin.configuration.State;
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.entity.ContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,9 +57,29 @@ import static com.linkedin.cdi.configuration.StaticConstants.*;
  */
 public class HttpConnection extends MultistageConnection {
   private static final Logger LOG = LoggerFactory.getLogger(HttpConnection.class);
+  // the work unit state properties of the response content bytes received, and after decoding
+  public static final String METRIC_RESPONSE_ENCODED_BYTES = "ms.metrics.http.response.encoded.bytes";
+  public static final String METRIC_RESPONSE_DECODED_BYTES = "ms.metrics.http.response.decoded.bytes";
   final private HttpKeys httpSourceKeys;
   private HttpClient httpClient;
+  private HttpRequestClient requestClient;
   private CloseableHttpResponse response;
+  private SpillableBuffer responseBuffer = null;
+  private HttpResponseCache responseCache = null;
+  private CountingInputStream encodedCounter = null;
+  private CountingInputStream decodedCounter = null;
+  private long encodedBytes = 0;
+  private long decodedBytes = 0;
+  private long publishedEncodedBytes = 0;
+  private long publishedDecodedBytes = 0;
+  private RetryPolicy retryPolicy = null;
+  private RequestRateLimiter rateLimiter = null;
+  private boolean holdingPermit = false;
+  private AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+  private AdaptiveConcurrencyLimiter.Permit concurrencyPermit = null;
+  private RequestTemplate requestTemplate = null;
+  private HedgedRequestExecutor hedgedRequestExecutor = null;
+  private long retryMillis = 0;
 
   public HttpKeys getHttpSourceKeys() {
     return httpSourceKeys;
@@ -63,6 +93,13 @@ public class HttpConnection extends MultistageConnection {
     this.httpClient = httpClient;
   }
 
+  /**
+   * @return the client of the connection client factory that is not a classic HttpClient, if any
+   */
+  public HttpRequestClient getHttpRequestClient() {
+    return requestClient;
+  }
+
   public CloseableHttpResponse getResponse() {
     return response;
   }
@@ -71,6 +108,27 @@ public class HttpConnection extends MultistageConnection {
     this.response = response;
   }
 
+  /**
+   * @return the number of response content bytes received, before decoding
+   */
+  public long getEncodedBytes() {
+    return encodedBytes + (encodedCounter == null ? 0 : encodedCounter.getByteCount());
+  }
+
+  /**
+   * @return the number of response content bytes after decoding
+   */
+  public long getDecodedBytes() {
+    return decodedBytes + (decodedCounter == null ? 0 : decodedCounter.getByteCount());
+  }
+
+  /**
+   * @return the total time, in milliseconds, spent waiting for retries
+   */
+  public long getRetryMillis() {
+    return retryMillis;
+  }
+
   public HttpConnection(State state, JobKeys jobKeys, ExtractorKeys extractorKeys) {
     super(state, jobKeys, extractorKeys);
     httpClient = getHttpClient(state);
@@ -87,14 +145,20 @@ public class HttpConnection extends MultistageConnection {
    * Thread-safely create HttpClient as needed. This connection object
    * is mostly going to be initialized in separate threads; therefore,
    * this is more of a precaution.
+   *
+   * When the factory provides a client that is not a classic HttpClient, that
+   * client is used, and no classic HttpClient is created.
    */
   synchronized HttpClient getHttpClient(State state) {
-    if (httpClient == null) {
+    if (httpClient == null && requestClient == null) {
       try {
         Class<?> factoryClass = Class.forName(
             MSTAGE_CONNECTION_CLIENT_FACTORY.get(state));
         ConnectionClientFactory factory = (ConnectionClientFactory) factoryClass.newInstance();
-        httpClient = factory.getHttpClient(state);
+        requestClient = factory.getHttpRequestClient(state);
+        if (requestClient == null) {
+          httpClient = factory.getHttpClient(state);
+        }
       } catch (Exception e) {
         LOG.error("Error creating HttpClient:", e);
       }
@@ -102,6 +166,17 @@ public class HttpConnection extends MultistageConnection {
     return httpClient;
   }
 
+  /**
+   * A forked connection has its own HttpClient and dynamic parameters, and shares
+   * the job keys, the rate limiters, and the concurrency limiters with this connection
+   *
+   * @return a new connection for concurrent requests
+   */
+  @Override
+  public HttpConnection fork(State state, ExtractorKeys extractorKeys) {
+    return new HttpConnection(state, httpSourceKeys, extractorKeys);
+  }
+
   @Override
   public WorkUnitStatus executeFirst(WorkUnitStatus workUnitStatus) throws RetriableAuthenticationException {
     WorkUnitStatus status = super.executeFirst(workUnitStatus);
@@ -137,16 +212,22 @@ public class HttpConnection extends MultistageConnection {
     try {
       status.getMessages().put("contentType", getResponseContentType(response));
       status.getMessages().put("headers", getResponseHeaders(response).toString());
-      if (response.getEntity() != null) {
-        status.setBuffer(response.getEntity().getContent());
-      }
     } catch (Exception e) {
-      // Log but ignore errors when getting content and content type
-      // These errors will lead to a NULL buffer in work unit status
-      // And that situation will be handled in extractor accordingly
+      // Log but ignore errors when getting content type and headers
       LOG.error(e.getMessage());
     }
 
+    // a response whose content cannot be read fails the work unit, rather than
+    // being taken as an empty page that ends the pagination
+    if (response.getEntity() != null) {
+      try {
+        status.setBuffer(getResponseContent(response));
+      } catch (Exception e) {
+        LOG.error("Error reading the response content", e);
+        return null;
+      }
+    }
+
     return status;
   }
 
@@ -160,10 +241,25 @@ public class HttpConnection extends MultistageConnection {
         LOG.debug("parameter: {} value: {}", entry.getKey(), entry.getValue());
       }
     }
-    Pair<String, CloseableHttpResponse> response = executeHttpRequest(command,
-        httpSourceKeys.getSourceUri(),
-        parameters,
-        httpSourceKeys.getHttpRequestHeadersWithAuthentication());
+    // retry failed requests per the retry policy, failures that are not retried
+    // are handled per ms.http.statuses as usual
+    Pair<String, CloseableHttpResponse> response;
+    for (int attempt = 1; ; attempt++) {
+      try {
+        response = executeHttpRequest(command,
+            httpSourceKeys.getSourceUri(),
+            parameters,
+            httpSourceKeys.getHttpRequestHeadersWithAuthentication());
+      } catch (RuntimeException e) {
+        if (waitForRetry(attempt, null, e)) {
+          continue;
+        }
+        throw e;
+      }
+      if (response.getLeft().equalsIgnoreCase(KEY_WORD_HTTP_OK) || !waitForRetry(attempt, response.getRight(), null)) {
+        break;
+      }
+    }
 
     if (response.getLeft().equalsIgnoreCase(KEY_WORD_HTTP_OK)) {
       LOG.info("Request was successful, return HTTP response");
@@ -225,21 +321,47 @@ public class HttpConnection extends MultistageConnection {
     // trying to make a Http request, capture the client side error and
     // fail the task if any encoding exception or IO exception
     CloseableHttpResponse response;
+    String cacheKey;
+    long startNanos = 0;
     HttpClientContext context = HttpClientContext.create();
     try {
-      JsonObject payloads = new JsonObject();
-      JsonObject queryParameters = new JsonObject();
-      for (Map.Entry<String, JsonElement> entry: parameters.entrySet()) {
-        if (entry.getKey().equalsIgnoreCase(KEY_WORD_PAYLOAD)) {
-          payloads = JsonUtils.deepCopy(entry.getValue()).getAsJsonObject();
-        } else {
-          queryParameters.add(entry.getKey(), entry.getValue());
+      // the templates are compiled once and recompiled only if they change
+      if (requestTemplate == null || !requestTemplate.isCompiledFrom(command, httpUriTemplate, headers)) {
+        requestTemplate = RequestTemplate.compile(command, httpUriTemplate, headers);
+      }
+      HttpUriRequest request = requestTemplate.getHttpRequest(parameters);
+      checkUriLength(request);
+      String acceptEncoding = ContentEncodingUtils.getAcceptEncoding(MSTAGE_HTTP_ACCEPT_ENCODING.get(getState()));
+      if (!request.containsHeader(HttpHeaders.ACCEPT_ENCODING) && StringUtils.isNotBlank(acceptEncoding)) {
+        request.setHeader(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+      }
+      cacheKey = getResponseCache() == null ? null : responseCache.getKey(request);
+      if (cacheKey != null) {
+        CloseableHttpResponse cached = responseCache.get(cacheKey);
+        if (cached != null) {
+          return Pair.of(KEY_WORD_HTTP_OK, cached);
         }
       }
-      HttpUriRequest request = command.getHttpRequest(httpUriTemplate, queryParameters, headers, payloads);
-      response = (CloseableHttpResponse) httpClient.execute(request, context);
+      // the permits of the prior request are returned once, before either permit of this request is taken
+      releasePermits();
+      acquireConcurrency(request);
+      acquireRateLimit(request);
+      startNanos = System.nanoTime();
+      HttpRequestClient client = requestClient != null ? requestClient : HttpRequestClient.of(httpClient);
+      HedgedRequestExecutor hedging = getHedgedRequestExecutor(request);
+      response = hedging == null
+          ? client.execute(request, context)
+          : hedging.execute(client, request, getHedgePermits());
       LOG.debug(context.toString());
+      if (concurrencyPermit != null) {
+        concurrencyLimiter.onResponse(concurrencyPermit, System.nanoTime() - startNanos,
+            AdaptiveConcurrencyLimiter.isThrottled(response.getStatusLine().getStatusCode()));
+      }
     } catch (Exception e) {
+      if (concurrencyPermit != null && startNanos > 0) {
+        concurrencyLimiter.onResponse(concurrencyPermit, System.nanoTime() - startNanos, true);
+      }
+      releasePermits();
       throw new RuntimeException(e.getMessage(), e);
     }
 
@@ -255,6 +377,13 @@ public class HttpConnection extends MultistageConnection {
     if (httpSourceKeys.getHttpStatuses().getOrDefault("success", Lists.newArrayList()).contains(status)
         && !httpSourceKeys.getHttpStatusReasons().getOrDefault("error", Lists.newArrayList()).contains(reason)) {
       LOG.info("Request was successful, returning OK and HTTP response.");
+      if (cacheKey != null) {
+        try {
+          response = responseCache.put(cacheKey, response);
+        } catch (IOException e) {
+          throw new RuntimeException(e.getMessage(), e);
+        }
+      }
       return Pair.of(KEY_WORD_HTTP_OK, response);
     }
 
@@ -262,17 +391,349 @@ public class HttpConnection extends MultistageConnection {
     // and fail the job if IOException happened during the process
     if (null != response.getEntity()) {
       try {
-        reason += StringUtils.LF + EntityUtils.toString(response.getEntity());
+        reason += StringUtils.LF + getResponseString(response.getEntity());
         LOG.error("Status code: {}, reason: {}", status, reason);
         response.close();
       } catch (IOException e) {
         throw new RuntimeException(e.getMessage(), e);
       }
     }
+    releasePermits();
     LOG.warn("Request was unsuccessful, returning NOTOK and HTTP response");
     return Pair.of(KEY_WORD_HTTP_NOTOK, response);
   }
 
+  /**
+   * Fail requests with unit values coalesced per ms.work.unit.batch.request, when the
+   * request URI is longer than the limit, before sending them. Requests of a single unit
+   * are not coalesced, and their state doesn't have ms.work.unit.batch.request.
+   *
+   * @param request the HTTP request
+   */
+  private void checkUriLength(HttpUriRequest request) {
+    if (!MSTAGE_WORK_UNIT_BATCH_REQUEST.isEnabled(getState())) {
+      return;
+    }
+    int maxUriLength = MSTAGE_WORK_UNIT_BATCH_REQUEST.getMaxUriLength(getState());
+    int uriLength = request.getURI().toString().length();
+    if (maxUriLength > 0 && uriLength > maxUriLength) {
+      throw new IllegalArgumentException(String.format(
+          "Request URI length %d exceeds the maximum length %d", uriLength, maxUriLength));
+    }
+  }
+
+  /**
+   * Get the hedging policy of the request host, or of the configured name, when
+   * ms.http.hedging is configured. Only GET requests are hedged, because they are idempotent.
+   *
+   * @param request the HTTP request
+   * @return the hedged request executor, or null if the request should not be hedged
+   */
+  private HedgedRequestExecutor getHedgedRequestExecutor(HttpUriRequest request) {
+    if (!MSTAGE_HTTP_HEDGING.isEnabled(getState()) || !request.getMethod().equals(HttpGet.METHOD_NAME)) {
+      return null;
+    }
+    String name = MSTAGE_HTTP_HEDGING.getName(getState());
+    if (StringUtils.isBlank(name)) {
+      name = RequestRateLimiter.getHostKey(request.getURI());
+    }
+    if (hedgedRequestExecutor == null || !hedgedRequestExecutor.getName().equals(name)) {
+      hedgedRequestExecutor = HedgedRequestExecutor.getInstance(name,
+          MSTAGE_HTTP_HEDGING.getPercentile(getState()),
+          MSTAGE_HTTP_HEDGING.getInitialDelayMillis(getState()),
+          MSTAGE_HTTP_HEDGING.getMinDelayMillis(getState()),
+          MSTAGE_HTTP_HEDGING.getWindow(getState()),
+          MSTAGE_HTTP_HEDGING.getBudget(getState()));
+    }
+    return hedgedRequestExecutor;
+  }
+
+  /**
+   * The permits of the duplicate request of a hedged request, which are a concurrency permit of
+   * the adaptive concurrency limiter, and a concurrency permit and a token of the rate limiter,
+   * when they are configured. The limiters are those of the request, which were acquired before.
+   *
+   * @return the permits of the duplicate request
+   */
+  private HedgedRequestExecutor.Permits getHedgePermits() {
+    RequestRateLimiter hedgeRateLimiter = MSTAGE_HTTP_RATE_LIMITER.isEnabled(getState()) ? rateLimiter : null;
+    AdaptiveConcurrencyLimiter hedgeConcurrencyLimiter =
+        MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isEnabled(getState()) ? concurrencyLimiter : null;
+    return new HedgedRequestExecutor.Permits() {
+      private AdaptiveConcurrencyLimiter.Permit permit = null;
+      private boolean holdingPermit = false;
+
+      @Override
+      public boolean tryAcquire() {
+        if (hedgeConcurrencyLimiter != null) {
+          permit = hedgeConcurrencyLimiter.tryAcquire();
+          if (permit == null) {
+            return false;
+          }
+        }
+        if (hedgeRateLimiter != null) {
+          holdingPermit = hedgeRateLimiter.tryAcquirePermit();
+          // the token is taken last, because it cannot be returned
+          if (!holdingPermit || !hedgeRateLimiter.tryAcquireToken()) {
+            release();
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public void release() {
+        if (holdingPermit) {
+          hedgeRateLimiter.releasePermit();
+          holdingPermit = false;
+        }
+        if (permit != null) {
+          hedgeConcurrencyLimiter.release(permit);
+          permit = null;
+        }
+      }
+    };
+  }
+
+  /**
+   * Wait for the rate limiter of the request host, or of the configured limiter name,
+   * when ms.http.rate.limiter is configured. The concurrency permit is held until the
+   * response is closed. The permits of the prior request must be returned before.
+   *
+   * @param request the HTTP request
+   */
+  private void acquireRateLimit(HttpUriRequest request) throws InterruptedException {
+    if (!MSTAGE_HTTP_RATE_LIMITER.isEnabled(getState())) {
+      return;
+    }
+    String name = MSTAGE_HTTP_RATE_LIMITER.getName(getState());
+    if (StringUtils.isBlank(name)) {
+      name = RequestRateLimiter.getHostKey(request.getURI());
+    }
+    if (rateLimiter == null || !rateLimiter.getName().equals(name)) {
+      rateLimiter = RequestRateLimiter.getInstance(name,
+          MSTAGE_HTTP_RATE_LIMITER.getRequestsPerSecond(getState()),
+          MSTAGE_HTTP_RATE_LIMITER.getBurst(getState()),
+          MSTAGE_HTTP_RATE_LIMITER.getMaxConcurrency(getState()));
+    }
+    rateLimiter.acquirePermit();
+    holdingPermit = true;
+    rateLimiter.acquireToken();
+  }
+
+  /**
+   * Wait for a permit of the adaptive concurrency limiter of the request host, or of the
+   * configured limiter name, when ms.http.adaptive.concurrency is configured. The new permit
+   * is held until the response is closed. The permits of the prior request must be returned
+   * before.
+   *
+   * @param request the HTTP request
+   */
+  private void acquireConcurrency(HttpUriRequest request) throws InterruptedException {
+    if (!MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isEnabled(getState())) {
+      return;
+    }
+    String name = MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getName(getState());
+    if (StringUtils.isBlank(name)) {
+      name = RequestRateLimiter.getHostKey(request.getURI());
+    }
+    if (concurrencyLimiter == null || !concurrencyLimiter.getName().equals(name)) {
+      concurrencyLimiter = AdaptiveConcurrencyLimiter.getInstance(name,
+          MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getInitialLimit(getState()),
+          MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getMinLimit(getState()),
+          MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getMaxLimit(getState()),
+          MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getDecreaseFactor(getState()),
+          MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getLatencyThreshold(getState()));
+    }
+    concurrencyPermit = concurrencyLimiter.acquire();
+  }
+
+  /**
+   * Return the permits of the rate limiter and the adaptive concurrency limiter
+   */
+  private void releasePermits() {
+    if (holdingPermit) {
+      rateLimiter.releasePermit();
+      holdingPermit = false;
+    }
+    if (concurrencyPermit != null) {
+      concurrencyLimiter.release(concurrencyPermit);
+      concurrencyPermit = null;
+    }
+  }
+
+  /**
+   * Requests are paced by the rate limiter instead of the call interval when
+   * ms.http.rate.limiter has a request rate
+   *
+   * @return the minimum time, in milliseconds, to wait before requesting the next page
+   */
+  @Override
+  protected long getCallInterval() {
+    if (MSTAGE_HTTP_RATE_LIMITER.isEnabled(getState())
+        && MSTAGE_HTTP_RATE_LIMITER.getRequestsPerSecond(getState()) > 0) {
+      return 0;
+    }
+    return super.getCallInterval();
+  }
+
+  /**
+   * Create the retry policy when ms.http.retry is configured, or when ms.http.statuses
+   * has a list of statuses to retry.
+   *
+   * @return the retry policy, or null if failed requests should not be retried
+   */
+  private synchronized RetryPolicy getRetryPolicy() {
+    if (retryPolicy == null && (MSTAGE_HTTP_RETRY.isEnabled(getState())
+        || MSTAGE_HTTP_STATUSES.get(getState()).has(KEY_WORD_RETRY))) {
+      try {
+        Class<?> policyClass = Class.forName(MSTAGE_HTTP_RETRY.getPolicy(getState()));
+        retryPolicy = (RetryPolicy) policyClass.getConstructor(State.class).newInstance(getState());
+      } catch (Exception e) {
+        LOG.error("Error creating retry policy, failed requests will not be retried", e);
+      }
+    }
+    return retryPolicy;
+  }
+
+  /**
+   * Wait before retrying a failed request, per the retry policy, as long as the retry
+   * budget of the work unit allows
+   *
+   * @param attempt the number of attempts made so far
+   * @param response the unsuccessful response, or null if the request failed with an exception
+   * @param exception the exception of the failed request, or null if there is a response
+   * @return true if the request should be retried
+   */
+  private boolean waitForRetry(int attempt, HttpResponse response, Throwable exception) {
+    if (getRetryPolicy() == null) {
+      return false;
+    }
+    long delayMillis = retryPolicy.getRetryDelayMillis(attempt, response, exception);
+    if (delayMillis < 0) {
+      return false;
+    }
+    long budgetMillis = MSTAGE_HTTP_RETRY.getBudgetMillis(getState());
+    if (retryMillis + delayMillis > budgetMillis) {
+      LOG.warn("Retry budget of {} ms is exhausted after {} ms, stop retrying", budgetMillis, retryMillis);
+      return false;
+    }
+    LOG.info("Retry attempt {} in {} ms", attempt, delayMillis);
+    try {
+      Thread.sleep(delayMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    retryMillis += delayMillis;
+    return true;
+  }
+
+  /**
+   * Get the shared response cache of the cache directory when ms.http.response.cache is configured.
+   * Failures in creating the cache are logged, and the requests are executed without cache.
+   *
+   * @return the response cache, or null if caching is not enabled
+   */
+  private synchronized HttpResponseCache getResponseCache() {
+    if (responseCache == null && MSTAGE_HTTP_RESPONSE_CACHE.isEnabled(getState())) {
+      try {
+        responseCache = HttpResponseCache.getInstance(MSTAGE_HTTP_RESPONSE_CACHE.getPath(getState()),
+            MSTAGE_HTTP_RESPONSE_CACHE.getTtlMillis(getState()),
+            MSTAGE_HTTP_RESPONSE_CACHE.getMaxBytes(getState()),
+            MSTAGE_HTTP_RESPONSE_CACHE.getMaxEntries(getState()),
+            MSTAGE_HTTP_RESPONSE_CACHE.getMethods(getState()),
+            MSTAGE_HTTP_RESPONSE_CACHE.getHeaders(getState()));
+      } catch (IOException e) {
+        LOG.error("Error creating response cache, requests will not be cached", e);
+      }
+    }
+    return responseCache;
+  }
+
+  /**
+   * Get the response content stream. When ms.response.buffer is configured, the content
+   * is fully read into a buffer, so that it can be read more than once, and the response
+   * is released right away; the buffer of the prior response is released at the same time.
+   *
+   * @param response HttpResponse
+   * @return the content stream
+   */
+  private InputStream getResponseContent(HttpResponse response) throws IOException {
+    InputStream content = getDecodedContent(response.getEntity());
+    if (!MSTAGE_RESPONSE_BUFFER.isEnabled(getState())) {
+      return content;
+    }
+    closeResponseBuffer();
+    responseBuffer = SpillableBuffer.of(content,
+        MSTAGE_RESPONSE_BUFFER.getThresholdBytes(getState()),
+        MSTAGE_RESPONSE_BUFFER.isCompressed(getState()));
+    LOG.info("Buffered {} bytes of response, spilled to disk: {}", responseBuffer.size(), responseBuffer.isSpilled());
+    return responseBuffer.getInputStream();
+  }
+
+  /**
+   * Decode the response content by its Content-Encoding, counting the bytes before
+   * and after decoding. Counts of the prior response are accumulated at the same time.
+   *
+   * @param entity the response entity
+   * @return the decoded content stream
+   */
+  private InputStream getDecodedContent(HttpEntity entity) throws IOException {
+    collectContentMetrics();
+    CountingInputStream encoded = new CountingInputStream(entity.getContent());
+    String contentEncoding = entity.getContentEncoding() == null ? null : entity.getContentEncoding().getValue();
+    decodedCounter = new CountingInputStream(ContentEncodingUtils.decode(encoded, contentEncoding));
+    encodedCounter = encoded;
+    return decodedCounter;
+  }
+
+  /**
+   * Read the decoded response content as a string, typically for error logging
+   */
+  private String getResponseString(HttpEntity entity) throws IOException {
+    ContentType contentType = ContentType.get(entity);
+    try (InputStream content = getDecodedContent(entity)) {
+      return IOUtils.toString(content, contentType == null || contentType.getCharset() == null
+          ? StandardCharsets.ISO_8859_1 : contentType.getCharset());
+    }
+  }
+
+  /**
+   * Add the bytes received since the last publishing to the work unit state, where the
+   * connections forked for parallel pages add their bytes too
+   */
+  private void publishContentMetrics() {
+    State state = getState();
+    synchronized (state) {
+      state.setProp(METRIC_RESPONSE_ENCODED_BYTES,
+          state.getPropAsLong(METRIC_RESPONSE_ENCODED_BYTES, 0L) + encodedBytes - publishedEncodedBytes);
+      state.setProp(METRIC_RESPONSE_DECODED_BYTES,
+          state.getPropAsLong(METRIC_RESPONSE_DECODED_BYTES, 0L) + decodedBytes - publishedDecodedBytes);
+    }
+    publishedEncodedBytes = encodedBytes;
+    publishedDecodedBytes = decodedBytes;
+  }
+
+  private void collectContentMetrics() {
+    if (encodedCounter != null) {
+      encodedBytes += encodedCounter.getByteCount();
+      decodedBytes += decodedCounter.getByteCount();
+      LOG.info("Received {} bytes of response content, {} bytes decoded",
+          encodedCounter.getByteCount(), decodedCounter.getByteCount());
+      encodedCounter = null;
+      decodedCounter = null;
+    }
+  }
+
+  private void closeResponseBuffer() {
+    if (responseBuffer != null) {
+      responseBuffer.close();
+      responseBuffer = null;
+    }
+  }
+
   /**
    * Get the content type string from response
    * @param response HttpResponse
@@ -307,6 +768,9 @@ public class HttpConnection extends MultistageConnection {
   @Override
   public boolean closeStream() {
     LOG.info("Closing InputStream for {}", getExtractorKeys().getSignature());
+    closeResponseBuffer();
+    collectContentMetrics();
+    releasePermits();
     try {
       if (response != null) {
         response.close();
@@ -321,11 +785,20 @@ public class HttpConnection extends MultistageConnection {
 
   @Override
   public boolean closeAll(String message) {
+    closeResponseBuffer();
+    collectContentMetrics();
+    publishContentMetrics();
+    releasePermits();
+    LOG.info("Received {} bytes of response content in total, {} bytes decoded", encodedBytes, decodedBytes);
     try {
       if (this.httpClient instanceof Closeable) {
         ((Closeable) this.httpClient).close();
         httpClient = null;
       }
+      if (requestClient != null) {
+        requestClient.close();
+        requestClient = null;
+      }
     } catch (IOException e) {
       LOG.error("error closing HttpSource {}", e.getMessage());
       return false;
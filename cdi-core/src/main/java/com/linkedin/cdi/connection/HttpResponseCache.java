@@ -0,0 +1,364 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.commons.io.IOUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A response cache that records successful HTTP responses on local disk or HDFS,
+ * and replays them for identical requests, so that reruns and backfills don't
+ * need to fetch the same pages again from rate limited APIs.
+ *
+ * The cache key is a hash of the request method, the request URI after variable
+ * substitution, the request payload, and a selected list of request headers.
+ * Authentication headers are generally not part of the key, as tokens change
+ * from run to run.
+ *
+ * Each entry is a file with a line of metadata, including the status line, the
+ * response headers and the creation time, followed by the raw response body.
+ * Entries expire after the TTL. When the cache exceeds its size limits, the least
+ * recently used entries are evicted. The cache lists its directory once, ordering
+ * existing entries by the modification time of their files, and then tracks the
+ * entries, their sizes and their recency in memory, so that writes don't list the
+ * directory again.
+ *
+ * Caches are shared by all connections of the JVM using the same directory, so that
+ * work units, parallel pages and batched units don't list the directory each, and the
+ * size limits and the recency of entries apply to all of them. The cache is created by
+ * the first connection using the directory, and connections configured with different
+ * settings for the same directory share the existing settings.
+ */
+public class HttpResponseCache {
+  private static final Logger LOG = LoggerFactory.getLogger(HttpResponseCache.class);
+  private static final Gson GSON = new Gson();
+  private static final String ENTRY_SUFFIX = ".cache";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String KEY_CREATED = "created";
+  private static final String KEY_STATUS = "status";
+  private static final String KEY_REASON = "reason";
+  private static final String KEY_HEADERS = "headers";
+  private static final ConcurrentMap<String, HttpResponseCache> CACHES = new ConcurrentHashMap<>();
+
+  private final Path directory;
+  private final FileSystem fileSystem;
+  private final long ttlMillis;
+  private final long maxBytes;
+  private final long maxEntries;
+  private final List<String> methods;
+  private final List<String> keyHeaders;
+  // entry sizes by key, in the order of access, the least recently used first
+  private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long totalBytes = 0;
+
+  /**
+   * @param location the cache directory, a local path or a HDFS path
+   * @param ttlMillis the time to live of entries
+   * @param maxBytes the maximum total size of entries
+   * @param maxEntries the maximum number of entries
+   * @param methods the HTTP methods whose responses can be cached
+   * @param keyHeaders the names of the request headers that are part of the cache key
+   */
+  HttpResponseCache(String location, long ttlMillis, long maxBytes, long maxEntries,
+      List<String> methods, List<String> keyHeaders) throws IOException {
+    this.directory = new Path(location);
+    this.fileSystem = directory.getFileSystem(new Configuration());
+    this.ttlMillis = ttlMillis;
+    this.maxBytes = maxBytes;
+    this.maxEntries = maxEntries;
+    this.methods = methods;
+    this.keyHeaders = keyHeaders;
+    fileSystem.mkdirs(directory);
+    loadEntries();
+  }
+
+  /**
+   * Get the shared cache of a directory, creating it with the given settings if it doesn't exist
+   *
+   * @param location the cache directory, a local path or a HDFS path
+   * @param ttlMillis the time to live of entries
+   * @param maxBytes the maximum total size of entries
+   * @param maxEntries the maximum number of entries
+   * @param methods the HTTP methods whose responses can be cached
+   * @param keyHeaders the names of the request headers that are part of the cache key
+   * @return the shared cache
+   * @throws IOException if the directory cannot be listed
+   */
+  public static HttpResponseCache getInstance(String location, long ttlMillis, long maxBytes, long maxEntries,
+      List<String> methods, List<String> keyHeaders) throws IOException {
+    Path path = new Path(location);
+    String key = path.getFileSystem(new Configuration()).makeQualified(path).toString();
+    HttpResponseCache cache;
+    try {
+      cache = CACHES.computeIfAbsent(key, k -> {
+        try {
+          return new HttpResponseCache(location, ttlMillis, maxBytes, maxEntries, methods, keyHeaders);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    if (cache.ttlMillis != ttlMillis || cache.maxBytes != maxBytes || cache.maxEntries != maxEntries
+        || !cache.methods.equals(methods) || !cache.keyHeaders.equals(keyHeaders)) {
+      LOG.warn("Response cache {} exists with TTL {} ms, max bytes {}, max entries {}, methods {}, and headers {}, "
+              + "which are used instead of the configured settings",
+          key, cache.ttlMillis, cache.maxBytes, cache.maxEntries, cache.methods, cache.keyHeaders);
+    }
+    return cache;
+  }
+
+  /**
+   * Calculate the cache key of a request
+   *
+   * @param request the HTTP request
+   * @return the cache key, or null if the request is not cacheable
+   */
+  public String getKey(HttpUriRequest request) throws IOException {
+    if (!methods.contains(request.getMethod().toUpperCase(Locale.ROOT))) {
+      return null;
+    }
+    Hasher hasher = Hashing.sha256().newHasher()
+        .putString(request.getMethod(), StandardCharsets.UTF_8).putChar('\n')
+        .putString(request.getURI().toString(), StandardCharsets.UTF_8).putChar('\n');
+    if (request instanceof HttpEntityEnclosingRequest) {
+      HttpEntityEnclosingRequest enclosingRequest = (HttpEntityEnclosingRequest) request;
+      if (enclosingRequest.getEntity() != null) {
+        if (!enclosingRequest.getEntity().isRepeatable()) {
+          return null;
+        }
+        hasher.putBytes(EntityUtils.toByteArray(enclosingRequest.getEntity()));
+      }
+    }
+    for (String name : keyHeaders) {
+      hasher.putChar('\n').putString(name.toLowerCase(Locale.ROOT), StandardCharsets.UTF_8).putChar(':');
+      for (Header header : request.getHeaders(name)) {
+        hasher.putString(header.getValue(), StandardCharsets.UTF_8).putChar(',');
+      }
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Replay a cached response
+   *
+   * @param key the cache key
+   * @return the cached response, or null if there is no unexpired entry
+   */
+  public CloseableHttpResponse get(String key) {
+    Path entry = getEntryPath(key);
+    FSDataInputStream input = null;
+    try {
+      input = fileSystem.open(entry);
+      long length = fileSystem.getFileStatus(entry).getLen();
+      String metadataLine = readLine(input);
+      JsonObject metadata = GSON.fromJson(metadataLine, JsonObject.class);
+      if (System.currentTimeMillis() - metadata.get(KEY_CREATED).getAsLong() > ttlMillis) {
+        input.close();
+        LOG.info("Cached response {} expired", key);
+        fileSystem.delete(entry, false);
+        removeEntry(key);
+        return null;
+      }
+      // mark the entry as recently used, for this cache and for the caches that list the directory later
+      touchEntry(key);
+      fileSystem.setTimes(entry, System.currentTimeMillis(), -1);
+
+      CachedHttpResponse response = new CachedHttpResponse(metadata.get(KEY_STATUS).getAsInt(),
+          metadata.has(KEY_REASON) ? metadata.get(KEY_REASON).getAsString() : null);
+      for (JsonElement header : metadata.get(KEY_HEADERS).getAsJsonArray()) {
+        response.addHeader(header.getAsJsonArray().get(0).getAsString(), header.getAsJsonArray().get(1).getAsString());
+      }
+      InputStreamEntity entity = new InputStreamEntity(input, length - input.getPos());
+      entity.setContentType(response.getFirstHeader("Content-Type"));
+      entity.setContentEncoding(response.getFirstHeader("Content-Encoding"));
+      response.setEntity(entity);
+      LOG.info("Replaying cached response {}", key);
+      return response;
+    } catch (FileNotFoundException e) {
+      IOUtils.closeQuietly(input);
+      removeEntry(key);
+      return null;
+    } catch (Exception e) {
+      IOUtils.closeQuietly(input);
+      LOG.warn("Error reading cached response " + key, e);
+      return null;
+    }
+  }
+
+  /**
+   * Record a response, and return a response that replays the recorded content
+   * in place of the original response, which is consumed and closed
+   *
+   * @param key the cache key
+   * @param response the original response
+   * @return the replacement response
+   */
+  public CloseableHttpResponse put(String key, CloseableHttpResponse response) throws IOException {
+    JsonObject metadata = new JsonObject();
+    metadata.addProperty(KEY_CREATED, System.currentTimeMillis());
+    metadata.addProperty(KEY_STATUS, response.getStatusLine().getStatusCode());
+    metadata.addProperty(KEY_REASON, response.getStatusLine().getReasonPhrase());
+    JsonArray headers = new JsonArray();
+    for (Header header : response.getAllHeaders()) {
+      JsonArray pair = new JsonArray();
+      pair.add(header.getName());
+      pair.add(header.getValue());
+      headers.add(pair);
+    }
+    metadata.add(KEY_HEADERS, headers);
+
+    // write to a temporary file then rename, so that readers never see partial entries
+    Path entry = getEntryPath(key);
+    Path temp = new Path(directory, key + "." + System.nanoTime() + TEMP_SUFFIX);
+    try (OutputStream output = fileSystem.create(temp, true)) {
+      output.write(GSON.toJson(metadata).getBytes(StandardCharsets.UTF_8));
+      output.write('\n');
+      if (response.getEntity() != null) {
+        try (InputStream content = response.getEntity().getContent()) {
+          IOUtils.copy(content, output);
+        }
+      }
+    } finally {
+      response.close();
+    }
+    fileSystem.delete(entry, false);
+    if (!fileSystem.rename(temp, entry)) {
+      fileSystem.delete(temp, false);
+      throw new IOException("Cannot create cache entry " + entry);
+    }
+    long bytes = fileSystem.getFileStatus(entry).getLen();
+    synchronized (this) {
+      addEntry(key, bytes);
+      evict();
+    }
+
+    CloseableHttpResponse replay = get(key);
+    if (replay == null) {
+      throw new IOException("Cannot read cache entry " + entry);
+    }
+    return replay;
+  }
+
+  /**
+   * List the entries in the cache directory, the least recently modified first
+   */
+  private void loadEntries() throws IOException {
+    FileStatus[] statuses = fileSystem.listStatus(directory, path -> path.getName().endsWith(ENTRY_SUFFIX));
+    Arrays.sort(statuses, Comparator.comparingLong(FileStatus::getModificationTime));
+    for (FileStatus status : statuses) {
+      String name = status.getPath().getName();
+      addEntry(name.substring(0, name.length() - ENTRY_SUFFIX.length()), status.getLen());
+    }
+  }
+
+  private synchronized void addEntry(String key, long bytes) {
+    Long prior = entries.put(key, bytes);
+    totalBytes += bytes - (prior == null ? 0 : prior);
+  }
+
+  private synchronized void removeEntry(String key) {
+    Long prior = entries.remove(key);
+    totalBytes -= prior == null ? 0 : prior;
+  }
+
+  private synchronized void touchEntry(String key) {
+    entries.get(key);
+  }
+
+  /**
+   * Evict the least recently used entries until the cache is within its size limits
+   */
+  private synchronized void evict() throws IOException {
+    Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+    while ((totalBytes > maxBytes || entries.size() > maxEntries) && iterator.hasNext()) {
+      Map.Entry<String, Long> entry = iterator.next();
+      if (fileSystem.delete(getEntryPath(entry.getKey()), false)) {
+        LOG.info("Evicted cached response {}", entry.getKey());
+      }
+      totalBytes -= entry.getValue();
+      iterator.remove();
+    }
+  }
+
+  private Path getEntryPath(String key) {
+    return new Path(directory, key + ENTRY_SUFFIX);
+  }
+
+  /**
+   * Read the metadata line byte by byte, so that the stream is positioned at the start of the body
+   */
+  private String readLine(InputStream input) throws IOException {
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    int b;
+    while ((b = input.read()) != -1 && b != '\n') {
+      line.write(b);
+    }
+    return new String(line.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * A response replayed from the cache
+   */
+  static class CachedHttpResponse extends BasicHttpResponse implements CloseableHttpResponse {
+    CachedHttpResponse(int status, String reason) {
+      super(HttpVersion.HTTP_1_1, status, reason);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (getEntity() != null) {
+        getEntity().getContent().close();
+      }
+    }
+  }
+
+  /**
+   * @param response a HTTP response
+   * @return true if the response is replayed from the cache
+   */
+  public static boolean isCached(HttpResponse response) {
+    return response instanceof CachedHttpResponse;
+  }
+}
@@ -0,0 +1,310 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.util.JdbcUtils;
+import com.linkedin.cdi.util.JsonElementTypes;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * JdbcAvroEmitter writes the rows of a result set as Avro records, reading each column with
+ * the typed getter of its type, so that values are not converted to strings and parsed again.
+ *
+ * The Avro schema is derived once from the columns of the result set, and the types follow the
+ * schema of JDBC columns: integers are int or long, floating point numbers are double, dates and
+ * timestamps are long epoch milliseconds, and binary columns are bytes. Decimals are bytes of the
+ * decimal logical type, with the precision and scale of the column, or double if the column doesn't
+ * have a valid precision and scale. Times, character columns, and other columns are strings. A field
+ * is nullable if its column might have null values.
+ *
+ * BLOB and CLOB values are read into memory in full, as Avro writes a record at a time. When LOB
+ * values are written to side files by a JdbcLobHandler, the fields of LOB columns are the paths
+ * of the files instead.
+ */
+public class JdbcAvroEmitter {
+  private static final String DEFAULT_NAME = "jdbc";
+
+  private final Schema schema;
+  private final FieldReader[] readers;
+
+  /**
+   * A reader of the value of a column
+   */
+  private interface FieldReader {
+    Object read(ResultSet resultSet, int index) throws SQLException;
+  }
+
+  private JdbcAvroEmitter(Schema schema, FieldReader[] readers) {
+    this.schema = schema;
+    this.readers = readers;
+  }
+
+  /**
+   * Derive the Avro schema of the columns of a statement
+   *
+   * @param name the name of the record, which is made a valid Avro name
+   * @param columns the columns of the statement
+   * @return the emitter of the columns
+   */
+  public static JdbcAvroEmitter create(String name, JdbcSchemaCache.Entry columns) {
+    return create(name, columns, null);
+  }
+
+  /**
+   * Derive the Avro schema of the columns of a statement
+   *
+   * @param name the name of the record, which is made a valid Avro name
+   * @param columns the columns of the statement
+   * @param lobHandler the handler of LOB columns, whose side files are used in the file mode, or null
+   * @return the emitter of the columns
+   */
+  public static JdbcAvroEmitter create(String name, JdbcSchemaCache.Entry columns, JdbcLobHandler lobHandler) {
+    int[] columnTypes = columns.getColumnTypes();
+    List<String> fieldNames = getFieldNames(columns);
+    List<Schema.Field> fields = new ArrayList<>();
+    FieldReader[] readers = new FieldReader[columnTypes.length];
+    JdbcUtils.ColumnConverter[] lobConverters = lobHandler != null && lobHandler.isFileMode()
+        ? lobHandler.getColumnConverters() : null;
+    for (int i = 0; i < columnTypes.length; i++) {
+      Schema type;
+      if (lobConverters != null
+          && (JdbcUtils.isBinaryLob(columnTypes[i]) || JdbcUtils.isCharacterLob(columnTypes[i]))) {
+        type = Schema.create(Schema.Type.STRING);
+        readers[i] = lobConverters[i]::convert;
+      } else if (isDecimal(columns, i)) {
+        int scale = columns.getScales()[i];
+        type = LogicalTypes.decimal(columns.getPrecisions()[i], scale).addToSchema(Schema.create(Schema.Type.BYTES));
+        readers[i] = getDecimalReader(scale);
+      } else {
+        type = Schema.create(getType(columnTypes[i]));
+        readers[i] = getReader(columnTypes[i], type.getType());
+      }
+      boolean nullable = columns.getNullables()[i] || isNullable(columns.getSchema(), i);
+      Schema fieldSchema = nullable ? Schema.createUnion(Schema.create(Schema.Type.NULL), type) : type;
+      fields.add(new Schema.Field(fieldNames.get(i), fieldSchema, null,
+          nullable ? Schema.Field.NULL_DEFAULT_VALUE : null));
+    }
+    Schema schema = Schema.createRecord(toAvroName(name == null ? DEFAULT_NAME : name), null, null, false);
+    schema.setFields(fields);
+    return new JdbcAvroEmitter(schema, readers);
+  }
+
+  /**
+   * @return the Avro schema of the records
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Read the current row of a result set into a record
+   *
+   * @param resultSet the result set
+   * @param record the record to fill, which can be reused for all rows
+   * @return the record
+   * @throws SQLException if a value cannot be read
+   */
+  public GenericRecord read(ResultSet resultSet, GenericRecord record) throws SQLException {
+    for (int i = 0; i < readers.length; i++) {
+      record.put(i, readers[i].read(resultSet, i + 1));
+    }
+    return record;
+  }
+
+  /**
+   * Write all rows of a result set as an Avro data file
+   *
+   * @param resultSet the result set
+   * @param outputStream the output stream, which is not closed
+   * @return the number of records written
+   * @throws IOException if the records cannot be written
+   * @throws SQLException if the rows cannot be read
+   */
+  public long write(ResultSet resultSet, OutputStream outputStream) throws IOException, SQLException {
+    long records = 0;
+    DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<>(schema));
+    writer.create(schema, outputStream);
+    // a record is encoded when it is appended, so that one record is reused for all rows
+    GenericRecord record = new GenericData.Record(schema);
+    while (resultSet.next()) {
+      writer.append(read(resultSet, record));
+      records++;
+    }
+    writer.flush();
+    return records;
+  }
+
+  private static Schema.Type getType(int columnType) {
+    switch (columnType) {
+      case Types.BINARY:
+      case Types.VARBINARY:
+      case Types.LONGVARBINARY:
+      case Types.BLOB:
+        return Schema.Type.BYTES;
+      case Types.TIME:
+      case Types.TIME_WITH_TIMEZONE:
+        return Schema.Type.STRING;
+      default:
+        break;
+    }
+    switch (JdbcUtils.parseColumnType(columnType)) {
+      case BOOLEAN:
+        return Schema.Type.BOOLEAN;
+      case INT:
+        return Schema.Type.INT;
+      case LONG:
+      case TIMESTAMP:
+        return Schema.Type.LONG;
+      case DOUBLE:
+        return Schema.Type.DOUBLE;
+      default:
+        return Schema.Type.STRING;
+    }
+  }
+
+  /**
+   * A decimal column has a precision, and a scale between 0 and the precision, which some
+   * databases don't have for numbers of any precision
+   */
+  private static boolean isDecimal(JdbcSchemaCache.Entry columns, int index) {
+    int columnType = columns.getColumnTypes()[index];
+    if ((columnType != Types.DECIMAL && columnType != Types.NUMERIC)
+        || columns.getPrecisions() == null || columns.getScales() == null) {
+      return false;
+    }
+    int precision = columns.getPrecisions()[index];
+    int scale = columns.getScales()[index];
+    return precision > 0 && scale >= 0 && scale <= precision;
+  }
+
+  /**
+   * The value of a decimal field is the two's complement of the unscaled value, in the scale of the column
+   */
+  private static FieldReader getDecimalReader(int scale) {
+    return (resultSet, index) -> {
+      BigDecimal value = resultSet.getBigDecimal(index);
+      if (value == null) {
+        return null;
+      }
+      try {
+        return ByteBuffer.wrap(value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().toByteArray());
+      } catch (ArithmeticException e) {
+        throw new SQLException(
+            String.format("The value %s doesn't have the scale %d of column %d", value, scale, index), e);
+      }
+    };
+  }
+
+  private static FieldReader getReader(int columnType, Schema.Type type) {
+    if (columnType == Types.BLOB) {
+      return (resultSet, index) -> {
+        Blob blob = resultSet.getBlob(index);
+        return blob == null ? null : ByteBuffer.wrap(blob.getBytes(1L, (int) blob.length()));
+      };
+    }
+    if (columnType == Types.CLOB || columnType == Types.NCLOB) {
+      return (resultSet, index) -> {
+        Clob clob = resultSet.getClob(index);
+        return clob == null ? null : clob.getSubString(1, (int) clob.length());
+      };
+    }
+    switch (type) {
+      case BYTES:
+        return (resultSet, index) -> {
+          byte[] bytes = resultSet.getBytes(index);
+          return bytes == null ? null : ByteBuffer.wrap(bytes);
+        };
+      case BOOLEAN:
+        return (resultSet, index) -> {
+          boolean value = resultSet.getBoolean(index);
+          return resultSet.wasNull() ? null : value;
+        };
+      case INT:
+        return (resultSet, index) -> {
+          int value = resultSet.getInt(index);
+          return resultSet.wasNull() ? null : value;
+        };
+      case LONG:
+        if (JdbcUtils.parseColumnType(columnType) == JsonElementTypes.TIMESTAMP) {
+          return (resultSet, index) -> {
+            Timestamp value = resultSet.getTimestamp(index);
+            return value == null ? null : value.getTime();
+          };
+        }
+        return (resultSet, index) -> {
+          long value = resultSet.getLong(index);
+          return resultSet.wasNull() ? null : value;
+        };
+      case DOUBLE:
+        return (resultSet, index) -> {
+          double value = resultSet.getDouble(index);
+          return resultSet.wasNull() ? null : value;
+        };
+      default:
+        return ResultSet::getString;
+    }
+  }
+
+  /**
+   * The field names are the column names of the schema, which are cleansed, made valid Avro names
+   */
+  private static List<String> getFieldNames(JdbcSchemaCache.Entry columns) {
+    JsonArray schema = columns.getSchema();
+    List<String> names = new ArrayList<>();
+    Set<String> used = new HashSet<>();
+    for (int i = 0; i < columns.getColumnNames().size(); i++) {
+      String name = columns.getColumnNames().get(i);
+      if (schema != null && schema.size() == columns.getColumnNames().size()
+          && schema.get(i).getAsJsonObject().has(KEY_WORD_COLUMN_NAME)) {
+        name = schema.get(i).getAsJsonObject().get(KEY_WORD_COLUMN_NAME).getAsString();
+      }
+      String unique = toAvroName(name);
+      for (int suffix = 2; !used.add(unique); suffix++) {
+        unique = toAvroName(name) + "_" + suffix;
+      }
+      names.add(unique);
+    }
+    return names;
+  }
+
+  private static boolean isNullable(JsonArray schema, int index) {
+    if (schema == null || schema.size() <= index) {
+      return false;
+    }
+    JsonObject column = schema.get(index).getAsJsonObject();
+    return column.has(KEY_WORD_IS_NULLABLE) && column.get(KEY_WORD_IS_NULLABLE).getAsBoolean();
+  }
+
+  private static String toAvroName(String name) {
+    String avroName = name.replaceAll("[^A-Za-z0-9_]", "_");
+    return avroName.isEmpty() || !Character.isLetter(avroName.charAt(0)) && avroName.charAt(0) != '_'
+        ? "_" + avroName : avroName;
+  }
+}
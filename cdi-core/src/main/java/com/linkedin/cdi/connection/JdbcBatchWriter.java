@@ -0,0 +1,229 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * JdbcBatchWriter writes rows by one prepared statement, such as an INSERT or an UPDATE,
+ * sending the rows to the database in batches, and committing them at intervals.
+ *
+ * The rows can be written by concurrent writers, each writing a contiguous slice of the rows
+ * on its own connection, and each committing its own slice.
+ *
+ * If a batch fails, the uncommitted rows of all writers are rolled back, and the rows that
+ * were committed before the failure stay committed. The committed rows are the leading rows
+ * of each slice, so that a failed write can be resumed from the first uncommitted row.
+ */
+public class JdbcBatchWriter {
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcBatchWriter.class);
+
+  private final String statement;
+  private final int batchSize;
+  private final int commitInterval;
+  private final AtomicLong committed = new AtomicLong(0);
+  private final AtomicLong batches = new AtomicLong(0);
+
+  /**
+   * @param statement the SQL statement with bind parameters
+   * @param batchSize the number of rows sent to the database in one batch
+   * @param commitInterval the minimum number of rows between commits, 0 to commit once after all rows
+   */
+  public JdbcBatchWriter(String statement, int batchSize, int commitInterval) {
+    this.statement = statement.trim().replaceAll(";+$", "");
+    this.batchSize = Math.max(batchSize, 1);
+    this.commitInterval = Math.max(commitInterval, 0);
+  }
+
+  /**
+   * @return the number of rows committed so far, including the rows committed before a failure
+   */
+  public long getCommitted() {
+    return committed.get();
+  }
+
+  /**
+   * @return the number of batches executed so far
+   */
+  public long getBatches() {
+    return batches.get();
+  }
+
+  /**
+   * Write all rows on one connection
+   *
+   * @param connection the connection, which is left open
+   * @param rows the values of the bind parameters of each row
+   * @return the number of rows written
+   * @throws SQLException if a batch fails, after the uncommitted rows are rolled back
+   */
+  public long write(Connection connection, List<List<Object>> rows) throws SQLException {
+    return writeSlice(0, connection, rows, new AtomicBoolean(false));
+  }
+
+  /**
+   * Write the rows in contiguous slices by concurrent writers
+   *
+   * The first slice is written on the given connection, and each other slice on a connection
+   * of the supplier, which is closed after the slice is written. There are no more slices than
+   * batches, so that small writes don't take connections they don't need.
+   *
+   * @param connection the connection of the first slice, which is left open
+   * @param connections the supplier of a connection for each other slice
+   * @param rows the values of the bind parameters of each row
+   * @param threads the maximum number of concurrent writers
+   * @return the number of rows written
+   * @throws Exception the first error of a writer, after the uncommitted rows of all writers are rolled back
+   */
+  public long write(Connection connection, JdbcPartitionReader.ConnectionSupplier connections,
+      List<List<Object>> rows, int threads) throws Exception {
+    int slices = (int) Math.max(1, Math.min(threads, (rows.size() + batchSize - 1L) / batchSize));
+    if (slices == 1) {
+      return write(connection, rows);
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(slices,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jdbc-batch-writer-%d").build());
+    AtomicBoolean cancelled = new AtomicBoolean(false);
+    AtomicReference<Exception> error = new AtomicReference<>();
+    List<Future<Long>> futures = new ArrayList<>();
+    int sliceSize = (rows.size() + slices - 1) / slices;
+    for (int i = 0; i < slices; i++) {
+      int slice = i;
+      List<List<Object>> sliceRows = rows.subList(i * sliceSize, Math.min(rows.size(), (i + 1) * sliceSize));
+      futures.add(executor.submit(() -> {
+        try {
+          return slice == 0 ? writeSlice(slice, connection, sliceRows, cancelled)
+              : writePooledSlice(slice, connections, sliceRows, cancelled);
+        } catch (Exception e) {
+          if (!(e instanceof CancellationException)) {
+            error.compareAndSet(null, e);
+          }
+          cancelled.set(true);
+          throw e;
+        }
+      }));
+    }
+    executor.shutdown();
+
+    long written = 0;
+    for (Future<Long> future : futures) {
+      try {
+        written += future.get();
+      } catch (ExecutionException e) {
+        LOG.debug("A writer stopped: {}", e.getCause().getMessage());
+      }
+    }
+    if (error.get() != null) {
+      throw error.get();
+    }
+    return written;
+  }
+
+  private long writePooledSlice(int slice, JdbcPartitionReader.ConnectionSupplier connections,
+      List<List<Object>> rows, AtomicBoolean cancelled) throws SQLException {
+    try (Connection connection = connections.get()) {
+      if (connection == null) {
+        throw new SQLException("Cannot create a JDBC connection for writer " + slice);
+      }
+      return writeSlice(slice, connection, rows, cancelled);
+    }
+  }
+
+  /**
+   * Write a slice of rows in batches, committing after the first batch that reaches the commit interval
+   */
+  private long writeSlice(int slice, Connection connection, List<List<Object>> rows, AtomicBoolean cancelled)
+      throws SQLException {
+    boolean autoCommit = connection.getAutoCommit();
+    long sliceCommitted = 0;
+    long uncommitted = 0;
+    int pending = 0;
+    connection.setAutoCommit(false);
+    try (PreparedStatement stmt = connection.prepareStatement(statement)) {
+      for (List<Object> row : rows) {
+        if (cancelled.get()) {
+          throw new CancellationException();
+        }
+        JdbcStatementTemplate.bind(stmt, row, 1);
+        stmt.addBatch();
+        if (++pending == batchSize) {
+          executeBatch(stmt);
+          uncommitted += pending;
+          pending = 0;
+          if (commitInterval > 0 && uncommitted >= commitInterval) {
+            connection.commit();
+            sliceCommitted += uncommitted;
+            committed.addAndGet(uncommitted);
+            uncommitted = 0;
+          }
+        }
+      }
+      if (pending > 0) {
+        executeBatch(stmt);
+        uncommitted += pending;
+      }
+      connection.commit();
+      committed.addAndGet(uncommitted);
+      LOG.info("Wrote {} rows of writer {}", rows.size(), slice);
+      return rows.size();
+    } catch (SQLException | RuntimeException e) {
+      rollback(connection);
+      if (e instanceof CancellationException) {
+        LOG.info("Writer {} cancelled after committing {} rows", slice, sliceCommitted);
+        throw e;
+      }
+      throw new SQLException(String.format(
+          "Failed writing rows of writer %d, the first %d of its %d rows were committed: %s",
+          slice, sliceCommitted, rows.size(), getMessage(e)), e);
+    } finally {
+      try {
+        connection.setAutoCommit(autoCommit);
+      } catch (SQLException e) {
+        LOG.debug("Cannot restore the auto-commit mode of a writer connection", e);
+      }
+    }
+  }
+
+  private void executeBatch(PreparedStatement stmt) throws SQLException {
+    stmt.executeBatch();
+    batches.incrementAndGet();
+  }
+
+  /**
+   * The cause of a failed batch is usually in the next exception of a BatchUpdateException
+   */
+  private static String getMessage(Exception e) {
+    if (e instanceof BatchUpdateException && ((BatchUpdateException) e).getNextException() != null) {
+      return ((BatchUpdateException) e).getNextException().getMessage();
+    }
+    return e.getMessage();
+  }
+
+  private static void rollback(Connection connection) {
+    try {
+      connection.rollback();
+    } catch (SQLException e) {
+      LOG.error("Cannot roll back the uncommitted rows of a writer: {}", e.getMessage());
+    }
+  }
+}
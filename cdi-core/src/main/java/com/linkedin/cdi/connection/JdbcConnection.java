@@ -4,36 +4,43 @@
 
 package com.linkedin.cdi.connection;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.linkedin.cdi.exception.RetriableAuthenticationException;
 import com.linkedin.cdi.factory.ConnectionClientFactory;
 import com.linkedin.cdi.keys.ExtractorKeys;
 import com.linkedin.cdi.keys.JdbcKeys;
 import com.linkedin.cdi.keys.JobKeys;
+import com.linkedin.cdi.util.Database;
 import com.linkedin.cdi.util.JdbcUtils;
 import com.linkedin.cdi.util.ParameterTypes;
 import com.linkedin.cdi.util.SchemaBuilder;
+import com.linkedin.cdi.util.SecretManager;
+import com.linkedin.cdi.util.SpoolingInputStream;
 import com.linkedin.cdi.util.WorkUnitStatus;
 import com.opencsv.CSVWriter;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.apache.gobblin.configuration.ConfigurationKeys;
 import org.apache.gobblin.configuration.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +56,8 @@ import static com.linkedin.cdi.configuration.PropertyCollection.*;
  */
 public class JdbcConnection extends MultistageConnection {
   private static final Logger LOG = LoggerFactory.getLogger(JdbcConnection.class);
+  private static final int DEFAULT_FETCH_SIZE = 1000;
+  private static final List<String> EGRESS_COLUMNS = Arrays.asList("records", "batches");
   private JdbcKeys jdbcSourceKeys;
 
   public JdbcKeys getJdbcSourceKeys() {
@@ -67,7 +76,31 @@ public class JdbcConnection extends MultistageConnection {
     this.jdbcConnection = jdbcConnection;
   }
 
+  @VisibleForTesting
+  void setSpoolBlockSize(int spoolBlockSize) {
+    this.spoolBlockSize = spoolBlockSize;
+  }
+
   private Connection jdbcConnection;
+  private SpoolingInputStream spool = null;
+  private int spoolBlockSize = SpoolingInputStream.DEFAULT_BLOCK_SIZE;
+  private JdbcKeysetPaginator keysetPaginator = null;
+  // the columns of the last described statement, which the following pages reuse
+  private String describedQuery = null;
+  private JdbcSchemaCache.Entry describedColumns = null;
+  private JdbcStatementTemplate statementTemplate = null;
+  // the prepared statements of the connection, which pages execute again with new bind values
+  private JdbcStatementCache statementCache = null;
+  private boolean egressWritten = false;
+  // the decrypted source URI, which decides the database and its streaming settings
+  private String sourceUri = null;
+
+  /**
+   * A producer of rows that passes each row to the consumer
+   */
+  private interface RowProducer {
+    void produce(JdbcPartitionReader.RowConsumer consumer) throws Exception;
+  }
 
   public JdbcConnection(State state, JobKeys jobKeys, ExtractorKeys extractorKeys) {
     super(state, jobKeys, extractorKeys);
@@ -75,36 +108,89 @@ public class JdbcConnection extends MultistageConnection {
     jdbcSourceKeys = (JdbcKeys) jobKeys;
   }
 
+  @Override
+  public JdbcConnection fork(State state, ExtractorKeys extractorKeys) {
+    return new JdbcConnection(state, jdbcSourceKeys, extractorKeys);
+  }
+
   @Override
   public WorkUnitStatus execute(WorkUnitStatus status) {
     try {
+      if (MSTAGE_JDBC_EGRESS.isEnabled(getState())) {
+        return executeEgress(status);
+      }
+      if (MSTAGE_JDBC_BIND_VARIABLES.get(getState())) {
+        if (statementTemplate == null) {
+          statementTemplate = JdbcStatementTemplate.parse(jdbcSourceKeys.getJdbcStatement());
+        }
+        JsonObject parameters = getExtractorKeys().getDynamicParameters();
+        List<Object> values = statementTemplate.getValues(parameters);
+        LOG.info("Bind values of the statement: {}", values);
+        prepareForStreaming(jdbcConnection);
+        return executeStatement(statementTemplate.getSql(parameters), values, status);
+      }
+      prepareForStreaming(jdbcConnection);
       return executeStatement(
         getWorkUnitSpecificString(jdbcSourceKeys.getJdbcStatement(), getExtractorKeys().getDynamicParameters()),
-        status);
+        new ArrayList<>(), status);
     } catch (Exception e) {
       LOG.error(e.getMessage(), e);
       return null;
     }
   }
 
+  /**
+   * Close the spool, the cached prepared statements, and the JDBC connection. A pooled connection
+   * returns to the pool, unless the spool was unfinished, in which case its statement might still
+   * be running, and the connection is aborted before the statements are closed.
+   */
   @Override
   public boolean closeAll(String message) {
+    boolean unfinished = spool != null && !spool.isFinished();
+    closeSpool();
     try {
       if (jdbcConnection != null) {
-        jdbcConnection.close();
+        if (unfinished) {
+          abort(jdbcConnection);
+        } else {
+          closeStatementCache();
+          jdbcConnection.close();
+        }
         jdbcConnection = null;
       }
     } catch (Exception e) {
       LOG.error("Error closing the input stream", e);
       return false;
+    } finally {
+      closeStatementCache();
     }
     return true;
   }
 
+  /**
+   * Get the statement cache of the current connection, a new connection has a new cache
+   */
+  @VisibleForTesting
+  JdbcStatementCache getStatementCache() {
+    if (statementCache == null || statementCache.getConnection() != jdbcConnection) {
+      closeStatementCache();
+      statementCache = new JdbcStatementCache(jdbcConnection);
+    }
+    return statementCache;
+  }
+
+  private void closeStatementCache() {
+    if (statementCache != null) {
+      statementCache.close();
+      statementCache = null;
+    }
+  }
+
   @Override
   public WorkUnitStatus executeFirst(WorkUnitStatus workUnitStatus) throws RetriableAuthenticationException {
     WorkUnitStatus status = super.executeFirst(workUnitStatus);
-    jdbcConnection = getJdbcConnection(getState());
+    keysetPaginator = null;
+    jdbcConnection = jdbcConnection == null ? getJdbcConnection(getState()) : jdbcConnection;
     return jdbcConnection != null ? execute(status) : null;
   }
 
@@ -115,6 +201,21 @@ public class JdbcConnection extends MultistageConnection {
     return jdbcConnection != null ? execute(status) : null;
   }
 
+  /**
+   * Abort a connection, falling back to closing it if the driver doesn't support aborting
+   */
+  private void abort(Connection connection) throws SQLException {
+    try {
+      connection.abort(Runnable::run);
+    } catch (SQLException e) {
+      LOG.debug("Cannot abort the JDBC connection, closing it: {}", e.getMessage());
+    }
+    // some drivers don't close the connection on abort
+    if (!connection.isClosed()) {
+      connection.close();
+    }
+  }
+
   /**
    * Create jdbcConnection for work unit in thread-safe mode
    */
@@ -141,6 +242,9 @@ public class JdbcConnection extends MultistageConnection {
    * configuration. The reason it is devised so is that we would use JsonExtractor to handle nested data,
    * and use CsvExtractor to handle larger data volume.
    *
+   * With AvroExtractor, the content is an Avro data file, and the columns are read by typed getters
+   * into records directly, so that values are not converted to strings and parsed again.
+   *
    * Use case developers should decide on which option to use based on the payload by setting
    * ms.extractor.class accordingly
    *
@@ -154,7 +258,12 @@ public class JdbcConnection extends MultistageConnection {
    *      2. unit watermarks if any attributes can be used effectively to breakdown data ingestion to smaller chunks
    * see ms.watermarks and go/dil-doc for details
    *
+   * When ms.jdbc.bind.variables is true, the query has bind parameters in place of variables,
+   * and it is executed as a prepared statement, which is kept in the statement cache of the
+   * connection and executed again with new values for the following pages.
+   *
    * @param query the query to be executed
+   * @param parameters the values of the bind parameters of the query
    * @param wuStatus the input work unit status
    * @return the updated work unit status object
    * @throws SQLException extractor shall handle this exception and fail the work unit
@@ -162,37 +271,435 @@ public class JdbcConnection extends MultistageConnection {
   @SuppressFBWarnings
   private WorkUnitStatus executeStatement(
       String query,
+      List<Object> parameters,
       WorkUnitStatus wuStatus) throws SQLException {
 
+    if (isKeysetPaginationEnabled()) {
+      return executeKeysetStatement(query, parameters, wuStatus);
+    }
+    if (MSTAGE_JDBC_PARTITION.isEnabled(getState())) {
+      return executePartitionedStatement(query, parameters, wuStatus);
+    }
+
     LOG.info("Executing SQL statement: {}", query);
-    Statement stmt = jdbcConnection.createStatement();
+    boolean prepared = MSTAGE_JDBC_BIND_VARIABLES.get(getState());
+    // a cached statement is executed again only after the spool has read its prior result set
+    boolean cached = prepared && (spool == null || spool.isFinished());
+    Statement stmt = cached ? getStatementCache().prepare(query)
+        : prepared ? jdbcConnection.prepareStatement(query) : jdbcConnection.createStatement();
+    if (prepared) {
+      JdbcStatementTemplate.bind((PreparedStatement) stmt, parameters, 1);
+    }
 
-    if (jdbcSourceKeys.isPaginationEnabled()) {
+    int fetchSize = getFetchSize(0);
+    if (fetchSize != 0) {
       try {
-        stmt.setFetchSize(jdbcSourceKeys.getPaginationInitValues().get(ParameterTypes.PAGESIZE).intValue());
+        stmt.setFetchSize(fetchSize);
       } catch (SQLException e) {
         LOG.error("Not able to fetch size: ", e);
       }
     }
 
-    if (stmt.execute(query)) {
+    if (prepared ? ((PreparedStatement) stmt).execute() : stmt.execute(query)) {
       ResultSet resultSet = stmt.getResultSet();
+      // the metadata is only read in full if the columns of the statement are not cached, or they changed
+      JdbcSchemaCache.Entry columns = getCachedColumns(query);
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      if (columns != null && !columns.matches(JdbcUtils.getColumnTypes(metaData),
+          JdbcUtils.getColumnPrecisions(metaData), JdbcUtils.getColumnScales(metaData))) {
+        LOG.info("The columns of the statement changed, the cached schema is not used");
+        columns = null;
+      }
+      if (columns == null) {
+        columns = cacheColumns(query, metaData);
+      }
+      tuneFetchSize(resultSet, fetchSize, columns.getRowBytes());
+      // if source schema is not present, try retrieving the source schema and store in the work unit message
+      // this also prevents from processing source schema repeatedly in the pagination scenario
+      if (!jdbcSourceKeys.hasSourceSchema()) {
+        wuStatus.getMessages().put("schema", columns.getSchema().toString());
+      }
       if (MSTAGE_EXTRACTOR_CLASS.get(getState()).matches(".*JsonExtractor.*")) {
         wuStatus.setBuffer(new ByteArrayInputStream(toJson(resultSet,
-            resultSet.getMetaData()).toString().getBytes(StandardCharsets.UTF_8)));
+            columns).toString().getBytes(StandardCharsets.UTF_8)));
       } else if (MSTAGE_EXTRACTOR_CLASS.get(getState()).matches(".*CsvExtractor.*")) {
-        wuStatus.setBuffer(toCsvInputStream(resultSet, resultSet.getMetaData()));
+        // the statement is released by the spooler after all rows are written
+        wuStatus.setBuffer(toCsvInputStream(stmt, resultSet, cached, columns));
+        return wuStatus;
+      } else if (MSTAGE_EXTRACTOR_CLASS.get(getState()).matches(".*AvroExtractor.*")) {
+        // the statement is released by the spooler after all rows are written
+        wuStatus.setBuffer(toAvroInputStream(stmt, resultSet, cached, columns));
+        return wuStatus;
       } else {
-        stmt.close();
-        throw new UnsupportedOperationException();
+        release(stmt, resultSet, cached);
+        throw new UnsupportedOperationException("Unsupported extractor class for JDBC sources: "
+            + MSTAGE_EXTRACTOR_CLASS.get(getState()));
       }
-      // if source schema is not present, try retrieving the source schema and store in the work unit message
-      // this also prevents from processing source schema repeatedly in the pagination scenario
-      if (!jdbcSourceKeys.hasSourceSchema()) {
-        wuStatus.getMessages().put("schema", retrieveSchema(resultSet.getMetaData()).toString());
+      release(stmt, resultSet, cached);
+      return wuStatus;
+    }
+    release(stmt, null, cached);
+    return wuStatus;
+  }
+
+  /**
+   * Release a statement after its rows are read, a cached statement stays open for the following pages
+   */
+  private static void release(Statement statement, ResultSet resultSet, boolean cached) throws SQLException {
+    if (!cached) {
+      statement.close();
+    } else if (resultSet != null) {
+      resultSet.close();
+    }
+  }
+
+  /**
+   * Write the payload records by the user provided statement in batches, and put the number of
+   * records and batches written as a one row buffer in WorkUnitStatus
+   *
+   * The statement, typically an INSERT or an UPDATE, has variables for the fields of the records,
+   * which become bind parameters. The values of a record are its fields, or the dynamic parameters
+   * for variables that are not fields. All records are written by the first request of the work unit,
+   * and the following requests, if any, write nothing.
+   *
+   * The records are committed at intervals, and they can be written by concurrent writers, each
+   * writing a slice of the records on a connection of the connection pool. A failed batch rolls
+   * back the uncommitted records of all writers, and fails the work unit.
+   *
+   * @param wuStatus the input work unit status
+   * @return the updated work unit status object
+   * @throws Exception extractor shall handle this exception and fail the work unit
+   */
+  private WorkUnitStatus executeEgress(WorkUnitStatus wuStatus) throws Exception {
+    if (statementTemplate == null) {
+      statementTemplate = JdbcStatementTemplate.parse(jdbcSourceKeys.getJdbcStatement());
+    }
+    if (egressWritten) {
+      // an empty page ends pagination
+      return setRowBuffer(wuStatus, EGRESS_COLUMNS, consumer -> { });
+    }
+    egressWritten = true;
+    JsonObject parameters = getExtractorKeys().getDynamicParameters();
+    List<List<Object>> rows = new ArrayList<>();
+    for (JsonElement payload : getExtractorKeys().getPayloads()) {
+      if (!payload.isJsonObject()) {
+        throw new SQLException("A payload record is not a JsonObject: " + payload);
+      }
+      JsonObject values = new JsonObject();
+      for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
+        values.add(entry.getKey(), entry.getValue());
+      }
+      for (Map.Entry<String, JsonElement> entry : payload.getAsJsonObject().entrySet()) {
+        values.add(entry.getKey(), entry.getValue());
+      }
+      rows.add(statementTemplate.getValues(values));
+    }
+
+    String statement = statementTemplate.getSql(parameters);
+    JdbcBatchWriter writer = new JdbcBatchWriter(statement,
+        MSTAGE_JDBC_EGRESS.getBatchSize(getState()), MSTAGE_JDBC_EGRESS.getCommitInterval(getState()));
+    LOG.info("Writing {} records in batches of {}: {}", rows.size(), MSTAGE_JDBC_EGRESS.getBatchSize(getState()),
+        statement);
+    try {
+      writer.write(jdbcConnection, () -> getJdbcConnection(getState()), rows,
+          MSTAGE_JDBC_EGRESS.getThreads(getState()));
+    } catch (Exception e) {
+      LOG.error("Failed writing records, {} of {} records were committed", writer.getCommitted(), rows.size());
+      throw e;
+    }
+    LOG.info("Wrote {} records in {} batches", rows.size(), writer.getBatches());
+
+    if (!jdbcSourceKeys.hasSourceSchema()) {
+      wuStatus.getMessages().put("schema", retrieveSchema(EGRESS_COLUMNS,
+          new int[]{Types.BIGINT, Types.BIGINT}, new boolean[]{false, false}).toString());
+    }
+    String[] summary = {String.valueOf(rows.size()), String.valueOf(writer.getBatches())};
+    return setRowBuffer(wuStatus, EGRESS_COLUMNS, consumer -> consumer.accept(summary));
+  }
+
+  /**
+   * Execute the user provided statement in sub-ranges of the partition column, and put the rows
+   * of all sub-ranges as one InputStream in WorkUnitStatus
+   *
+   * The bounds of the column are queried on the work unit connection unless they are configured,
+   * and each sub-range is read on its own connection, which is taken from the connection pool.
+   *
+   * @param query the query to be executed
+   * @param parameters the values of the bind parameters of the query
+   * @param wuStatus the input work unit status
+   * @return the updated work unit status object
+   * @throws SQLException extractor shall handle this exception and fail the work unit
+   */
+  private WorkUnitStatus executePartitionedStatement(String query, List<Object> parameters, WorkUnitStatus wuStatus)
+      throws SQLException {
+    String column = MSTAGE_JDBC_PARTITION.getColumn(getState());
+    Object[] bounds = MSTAGE_JDBC_PARTITION.hasBounds(getState())
+        ? new Object[]{JdbcPartitionReader.parseBound(MSTAGE_JDBC_PARTITION.getLowerBound(getState())),
+            JdbcPartitionReader.parseBound(MSTAGE_JDBC_PARTITION.getUpperBound(getState()))}
+        : JdbcPartitionReader.queryBounds(jdbcConnection, query, parameters, column);
+    JdbcSchemaCache.Entry columns = describe(query, parameters, wuStatus);
+    JdbcPartitionReader reader = new JdbcPartitionReader(query, parameters, column,
+        JdbcPartitionReader.split(bounds[0], bounds[1], MSTAGE_JDBC_PARTITION.getPartitions(getState())),
+        getFetchSize(columns.getRowBytes()));
+    LOG.info("Executing SQL statement in {} partitions of {} from {} to {}: {}",
+        reader.getPartitions(), column, bounds[0], bounds[1], query);
+
+    JdbcPartitionReader.ConnectionSupplier connections = () -> prepareForStreaming(getJdbcConnection(getState()));
+    return setRowBuffer(wuStatus, columns.getColumnNames(), consumer -> reader.read(connections, consumer));
+  }
+
+  /**
+   * Execute the user provided statement for one page of keyset pagination, and put the rows
+   * of the page as an InputStream in WorkUnitStatus. The buffer is empty after the last page.
+   *
+   * @param query the query to be executed
+   * @param parameters the values of the bind parameters of the query
+   * @param wuStatus the input work unit status
+   * @return the updated work unit status object
+   * @throws SQLException extractor shall handle this exception and fail the work unit
+   */
+  private WorkUnitStatus executeKeysetStatement(String query, List<Object> parameters, WorkUnitStatus wuStatus)
+      throws SQLException {
+    if (keysetPaginator == null) {
+      keysetPaginator = new JdbcKeysetPaginator(getKeysetColumns(),
+          jdbcSourceKeys.getPaginationInitValues().get(ParameterTypes.PAGESIZE).intValue());
+    }
+    JdbcKeysetPaginator paginator = keysetPaginator;
+    List<String> columnNames = paginator.isExhausted()
+        ? new ArrayList<>() : describe(query, parameters, wuStatus).getColumnNames();
+    JdbcStatementCache statements = getStatementCache();
+    return setRowBuffer(wuStatus, columnNames,
+        consumer -> paginator.readPage(statements, query, parameters, consumer));
+  }
+
+  /**
+   * Keyset pagination is used when ms.jdbc.keyset is configured, and pagination has a page size
+   */
+  private boolean isKeysetPaginationEnabled() {
+    return MSTAGE_JDBC_KEYSET.isValidNonblank(getState())
+        && jdbcSourceKeys.getPaginationInitValues().getOrDefault(ParameterTypes.PAGESIZE, 0L) > 0;
+  }
+
+  private List<String> getKeysetColumns() {
+    List<String> columns = new ArrayList<>();
+    MSTAGE_JDBC_KEYSET.get(getState()).forEach(column -> columns.add(column.getAsString()));
+    return columns;
+  }
+
+  /**
+   * Retrieve the columns of a statement without reading its rows, and store the schema
+   * in the work unit message if source schema is not present
+   *
+   * The statement is only executed if it is not the statement described last by this connection,
+   * and its columns are not in the schema cache, so that the pages of keyset pagination and of
+   * partitioned statements don't describe the statement again, whether or not the schema cache is on.
+   *
+   * @param query the query
+   * @param parameters the values of the bind parameters of the query
+   * @param wuStatus the work unit status
+   * @return the columns and the schema of the statement
+   * @throws SQLException SQL Exception from executing the query
+   */
+  private JdbcSchemaCache.Entry describe(String query, List<Object> parameters, WorkUnitStatus wuStatus)
+      throws SQLException {
+    JdbcSchemaCache.Entry columns = query.equals(describedQuery) ? describedColumns : getCachedColumns(query);
+    if (columns == null) {
+      PreparedStatement stmt = getStatementCache().prepare(String.format(
+          "SELECT * FROM (%s) described WHERE 1 = 0", query.trim().replaceAll(";+$", "")));
+      JdbcStatementTemplate.bind(stmt, parameters, 1);
+      try (ResultSet resultSet = stmt.executeQuery()) {
+        columns = cacheColumns(query, resultSet.getMetaData());
+      }
+    }
+    describedQuery = query;
+    describedColumns = columns;
+    if (!jdbcSourceKeys.hasSourceSchema()) {
+      wuStatus.getMessages().put("schema", columns.getSchema().toString());
+    }
+    return columns;
+  }
+
+  /**
+   * Get the columns of a statement from the schema cache
+   *
+   * @param query the query
+   * @return the columns and the schema of the statement, or null if they are not cached
+   */
+  private JdbcSchemaCache.Entry getCachedColumns(String query) {
+    long ttl = MSTAGE_JDBC_SCHEMA_CACHE_SECONDS.getMillis(getState());
+    JdbcSchemaCache.Entry columns = ttl > 0 ? JdbcSchemaCache.getInstance().get(getSchemaCacheKey(query), ttl) : null;
+    if (columns != null) {
+      LOG.debug("Using the cached schema of the statement");
+    }
+    return columns;
+  }
+
+  /**
+   * Read the columns of a statement from the result set metadata, and put them in the schema cache
+   *
+   * @param query the query
+   * @param resultSetMetadata the result set metadata
+   * @return the columns and the schema of the statement
+   * @throws SQLException SQL Exception from processing the metadata
+   */
+  private JdbcSchemaCache.Entry cacheColumns(String query, ResultSetMetaData resultSetMetadata) throws SQLException {
+    List<String> columnNames = new ArrayList<>();
+    boolean[] nullables = new boolean[resultSetMetadata.getColumnCount()];
+    boolean[] mayBeNull = new boolean[resultSetMetadata.getColumnCount()];
+    for (int i = 0; i < resultSetMetadata.getColumnCount(); i++) {
+      columnNames.add(getColumnName(resultSetMetadata, i + 1));
+      int nullability = resultSetMetadata.isNullable(i + 1);
+      nullables[i] = nullability == ResultSetMetaData.columnNullable;
+      mayBeNull[i] = nullability != ResultSetMetaData.columnNoNulls;
+    }
+    int[] columnTypes = JdbcUtils.getColumnTypes(resultSetMetadata);
+    JdbcSchemaCache.Entry columns = new JdbcSchemaCache.Entry(columnNames, columnTypes, mayBeNull,
+        JdbcUtils.getColumnPrecisions(resultSetMetadata), JdbcUtils.getColumnScales(resultSetMetadata),
+        JdbcUtils.estimateRowBytes(resultSetMetadata), retrieveSchema(columnNames, columnTypes, nullables));
+    if (MSTAGE_JDBC_SCHEMA_CACHE_SECONDS.get(getState()) > 0) {
+      JdbcSchemaCache.getInstance().put(getSchemaCacheKey(query), columns);
+    }
+    return columns;
+  }
+
+  /**
+   * The schema cache key has the settings that change the column names or the schema
+   */
+  private String getSchemaCacheKey(String query) {
+    return JdbcSchemaCache.getKey(query, jdbcSourceKeys.getSourceUri(),
+        jdbcSourceKeys.getSchemaRefactorFunction(),
+        getJobKeys().isEnableCleansing(),
+        getJobKeys().getSchemaCleansingPattern(),
+        getJobKeys().getSchemaCleansingReplacement(),
+        getJobKeys().getSchemaCleansingNullable());
+  }
+
+  /**
+   * Configure the connection to stream result sets through server-side cursors, as the database requires
+   *
+   * @param connection the connection
+   * @return the connection
+   * @throws SQLException if the connection cannot be configured
+   */
+  private Connection prepareForStreaming(Connection connection) throws SQLException {
+    Database database = Database.find(getSourceUri());
+    if (connection != null && database != null && MSTAGE_JDBC_STREAMING.isEnabled(getState())) {
+      database.prepareForStreaming(connection);
+    }
+    return connection;
+  }
+
+  /**
+   * Get the fetch size of statements
+   *
+   * The page size is the fetch size when pagination is enabled. Otherwise, the fetch size is the
+   * configured fetch size, or it is derived from the columns of the result set, so that a batch
+   * of rows takes about the configured number of bytes. Before the columns are known, the fetch
+   * size is the smaller of 1000 and the maximum fetch size.
+   *
+   * @param rowBytes the estimated number of bytes of a row, or 0 if the columns are not known yet
+   * @return the fetch size, as the database requires it for streaming, or 0 to keep the driver default
+   */
+  private int getFetchSize(long rowBytes) {
+    boolean streaming = MSTAGE_JDBC_STREAMING.isEnabled(getState());
+    long pageSize = jdbcSourceKeys.isPaginationEnabled()
+        ? jdbcSourceKeys.getPaginationInitValues().getOrDefault(ParameterTypes.PAGESIZE, 0L) : 0L;
+    int fetchSize;
+    if (pageSize > 0) {
+      fetchSize = (int) pageSize;
+    } else if (!streaming) {
+      return 0;
+    } else if (MSTAGE_JDBC_STREAMING.getFetchSize(getState()) > 0) {
+      fetchSize = MSTAGE_JDBC_STREAMING.getFetchSize(getState());
+    } else if (rowBytes > 0) {
+      fetchSize = JdbcUtils.getFetchSize(rowBytes,
+          MSTAGE_JDBC_STREAMING.getFetchBytes(getState()), MSTAGE_JDBC_STREAMING.getMaxFetchSize(getState()));
+    } else {
+      fetchSize = Math.min(DEFAULT_FETCH_SIZE, MSTAGE_JDBC_STREAMING.getMaxFetchSize(getState()));
+    }
+    Database database = Database.find(getSourceUri());
+    return streaming && database != null
+        ? database.getStreamingFetchSize(getSourceUri(), fetchSize) : fetchSize;
+  }
+
+  /**
+   * @return the source URI, decrypted if it is encrypted, which is decrypted once per connection
+   */
+  private String getSourceUri() {
+    if (sourceUri == null) {
+      sourceUri = SecretManager.getInstance(getState()).decrypt(jdbcSourceKeys.getSourceUri());
+    }
+    return sourceUri;
+  }
+
+  /**
+   * Change the fetch size of an executed statement to the fetch size derived from its columns,
+   * which takes effect from the next batch of rows
+   *
+   * @param resultSet the result set
+   * @param fetchSize the fetch size that the statement was executed with
+   * @param rowBytes the estimated number of bytes of a row
+   */
+  private void tuneFetchSize(ResultSet resultSet, int fetchSize, long rowBytes) {
+    try {
+      int tuned = getFetchSize(rowBytes);
+      if (fetchSize > 0 && tuned > 0 && tuned != fetchSize) {
+        LOG.info("Fetching {} rows at a time", tuned);
+        resultSet.setFetchSize(tuned);
       }
+    } catch (SQLException e) {
+      LOG.debug("Not able to change the fetch size: {}", e.getMessage());
+    }
+  }
+
+  /**
+   * Put the rows of a producer in WorkUnitStatus, as a JsonArray buffer or a spooled CSV buffer
+   * depending on the extractor
+   *
+   * @param wuStatus the work unit status
+   * @param columnNames the column names of the rows
+   * @param producer the producer of rows
+   * @return the updated work unit status object
+   * @throws SQLException SQL Exception from producing the rows
+   */
+  private WorkUnitStatus setRowBuffer(WorkUnitStatus wuStatus, List<String> columnNames, RowProducer producer)
+      throws SQLException {
+    if (MSTAGE_EXTRACTOR_CLASS.get(getState()).matches(".*JsonExtractor.*")) {
+      JsonArray jsonArray = new JsonArray();
+      try {
+        producer.produce(row -> {
+          JsonObject jsonObject = new JsonObject();
+          for (int i = 0; i < row.length; i++) {
+            jsonObject.addProperty(columnNames.get(i), row[i]);
+          }
+          jsonArray.add(jsonObject);
+        });
+      } catch (SQLException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new SQLException(e);
+      }
+      wuStatus.setBuffer(new ByteArrayInputStream(jsonArray.toString().getBytes(StandardCharsets.UTF_8)));
+    } else if (MSTAGE_EXTRACTOR_CLASS.get(getState()).matches(".*CsvExtractor.*")) {
+      char separator = MSTAGE_CSV.getFieldSeparator(getState()).charAt(0);
+      char quote = MSTAGE_CSV.getQuoteCharacter(getState()).charAt(0);
+      char escape = MSTAGE_CSV.getEscapeCharacter(getState()).charAt(0);
+      try {
+        closeSpool();
+        spool = SpoolingInputStream.start(outputStream -> {
+          OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+          CSVWriter csvWriter = new CSVWriter(writer, separator, quote, escape);
+          producer.produce(csvWriter::writeNext);
+          csvWriter.flush();
+        }, true, spoolBlockSize);
+        wuStatus.setBuffer(spool);
+      } catch (IOException ioe) {
+        throw new RuntimeException(ioe);
+      }
+    } else {
+      throw new UnsupportedOperationException(MSTAGE_EXTRACTOR_CLASS.get(getState())
+          + " is not supported with ms.jdbc.partition, ms.jdbc.keyset, or ms.jdbc.egress");
     }
-    stmt.close();
     return wuStatus;
   }
 
@@ -202,16 +709,20 @@ public class JdbcConnection extends MultistageConnection {
    * for nested dataset, this is more preferred
    *
    * @param resultSet the input result set
-   * @param resultSetMetadata the result set metadata
+   * @param columns the columns of the result set
    * @return the converted JsonArray
    * @throws SQLException SQL Exception from processing ResultSet
    */
-  private JsonArray toJson(final ResultSet resultSet, final ResultSetMetaData resultSetMetadata) throws SQLException {
+  private JsonArray toJson(final ResultSet resultSet, final JdbcSchemaCache.Entry columns) throws SQLException {
+    JdbcLobHandler lobHandler = getLobHandler(columns.getColumnTypes());
+    JdbcUtils.ColumnConverter[] converters = lobHandler != null
+        ? lobHandler.getColumnConverters() : JdbcUtils.getColumnConverters(columns.getColumnTypes());
+    List<String> columnNames = columns.getColumnNames();
     JsonArray jsonArray = new JsonArray();
     while (resultSet.next()) {
       JsonObject jsonObject = new JsonObject();
-      for (int i = 0; i < resultSetMetadata.getColumnCount(); i++) {
-        jsonObject.addProperty(getColumnName(resultSetMetadata, i + 1), JdbcUtils.parseColumnAsString(resultSet, resultSetMetadata, i + 1));
+      for (int i = 0; i < converters.length; i++) {
+        jsonObject.addProperty(columnNames.get(i), converters[i].convert(resultSet, i + 1));
       }
       jsonArray.add(jsonObject);
     }
@@ -219,18 +730,19 @@ public class JdbcConnection extends MultistageConnection {
   }
 
   /**
-   * Retrieve schema info from metadata
-   * @param resultSetMetadata result set metadata
+   * Retrieve schema info from the columns
+   * @param columnNames the column names
+   * @param columnTypes java.sql.Types of the columns
+   * @param nullables the nullability of the columns
    * @return schema in JsonArray format
-   * @throws SQLException SQL Exception from processing ResultSet
    */
-  private JsonArray retrieveSchema(final ResultSetMetaData resultSetMetadata) throws SQLException {
+  private JsonArray retrieveSchema(final List<String> columnNames, final int[] columnTypes,
+      final boolean[] nullables) {
     List<SchemaBuilder> columns = new ArrayList<>();
-    for (int i = 0; i < resultSetMetadata.getColumnCount(); i++) {
-      boolean nullable = resultSetMetadata.isNullable(i + 1) == ResultSetMetaData.columnNullable;
-      columns.add(new SchemaBuilder(getColumnName(resultSetMetadata, i + 1),
-          SchemaBuilder.PRIMITIVE, nullable, new ArrayList<>()).setPrimitiveType(
-              JdbcUtils.parseColumnType(resultSetMetadata.getColumnType(i + 1), nullable).getAltName()));
+    for (int i = 0; i < columnNames.size(); i++) {
+      columns.add(new SchemaBuilder(columnNames.get(i),
+          SchemaBuilder.PRIMITIVE, nullables[i], new ArrayList<>()).setPrimitiveType(
+              JdbcUtils.parseColumnType(columnTypes[i], nullables[i]).getAltName()));
     }
     return new SchemaBuilder(SchemaBuilder.RECORD, false, columns)
         .buildAltSchema(new HashMap<>(),
@@ -258,58 +770,127 @@ public class JdbcConnection extends MultistageConnection {
   }
 
   /**
-   * Converts a ResultSet to CSV file and return an input stream from the file
+   * Converts a ResultSet to CSV and return an input stream of the CSV data
    *
    * for large dataset, this is more preferred
    *
+   * The rows are written by a background thread into a LZ4 compressed spool file,
+   * and the returned input stream reads the spool file concurrently, so that the
+   * extractor can start processing rows before the query finishes.
+   *
+   * @param statement the statement that produced the result set, it is released after all rows are written
    * @param resultSet the input result set
-   * @param resultSetMetadata the result set metadata
+   * @param cached whether the statement is cached, in which case only the result set is closed
+   * @param columns the columns of the result set
    * @return an InputStream
    * @throws SQLException SQL Exception from processing ResultSet
    */
-  private InputStream toCsvInputStream(final ResultSet resultSet, final ResultSetMetaData resultSetMetadata)
-      throws SQLException {
+  private InputStream toCsvInputStream(final Statement statement, final ResultSet resultSet, final boolean cached,
+      final JdbcSchemaCache.Entry columns) throws SQLException {
+    char separator = MSTAGE_CSV.getFieldSeparator(getState()).charAt(0);
+    char quote = MSTAGE_CSV.getQuoteCharacter(getState()).charAt(0);
+    char escape = MSTAGE_CSV.getEscapeCharacter(getState()).charAt(0);
+    JdbcLobHandler lobHandler = getLobHandler(columns.getColumnTypes());
+    JdbcUtils.ColumnConverter[] converters = lobHandler != null
+        ? lobHandler.getColumnConverters() : JdbcUtils.getColumnConverters(columns.getColumnTypes());
+    // inline LOB values are streamed to the spool rather than read into strings
+    boolean streamLobs = lobHandler != null && !lobHandler.isFileMode() && JdbcLobHandler.canStreamCsv(quote);
     try {
-      Path path = Files.createTempFile(null, null);
-      File file = path.toFile();
-      file.deleteOnExit();
-      file.setReadable(true, true);
-
-      OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(path.toFile()), StandardCharsets.UTF_8);
-      CSVWriter csvWriter = new CSVWriter(writer,
-          MSTAGE_CSV.getFieldSeparator(getState()).charAt(0),
-          MSTAGE_CSV.getQuoteCharacter(getState()).charAt(0),
-          MSTAGE_CSV.getEscapeCharacter(getState()).charAt(0));
-
-      long lines = 0;
-      while (resultSet.next()) {
-        csvWriter.writeNext(getRowAsStringArray(resultSet, resultSetMetadata));
-        lines ++;
-      }
-
-      csvWriter.flush();
-      csvWriter.close();
-
-      LOG.info(String.format("Wrote %d lines to temp file %s", lines, path.toAbsolutePath()));
-      return Files.newInputStream(path);
+      closeSpool();
+      spool = SpoolingInputStream.start(outputStream -> {
+        try {
+          OutputStreamWriter writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+          CSVWriter csvWriter = new CSVWriter(writer, separator, quote, escape);
+          long lines = 0;
+          while (resultSet.next()) {
+            if (streamLobs) {
+              lobHandler.writeCsvRow(resultSet, converters, writer, separator, quote, escape);
+            } else {
+              csvWriter.writeNext(JdbcUtils.parseRowAsStrings(resultSet, converters));
+            }
+            lines++;
+          }
+          csvWriter.flush();
+          LOG.info(String.format("Wrote %d lines to spool", lines));
+        } finally {
+          release(statement, resultSet, cached);
+        }
+      }, true, spoolBlockSize);
+      return spool;
     } catch (IOException ioe) {
+      release(statement, resultSet, cached);
       throw new RuntimeException(ioe);
     }
   }
 
   /**
-   * Converts one row from the ResultSet to CSV
+   * Create the handler of LOB columns when ms.jdbc.lob is configured and the statement has LOB columns
    *
+   * @param columnTypes java.sql.Types of the columns
+   * @return the handler, or null if LOB values are read into strings as other values
+   * @throws SQLException if the directory of side files cannot be created
+   */
+  private JdbcLobHandler getLobHandler(int[] columnTypes) throws SQLException {
+    if (!MSTAGE_JDBC_LOB.isEnabled(getState()) || !JdbcLobHandler.hasLobs(columnTypes)) {
+      return null;
+    }
+    int bufferSize = MSTAGE_JDBC_LOB.getBufferSize(getState());
+    if (!MSTAGE_JDBC_LOB.isFileMode(getState())) {
+      return new JdbcLobHandler(columnTypes, bufferSize);
+    }
+    try {
+      return new JdbcLobHandler(columnTypes, bufferSize, MSTAGE_JDBC_LOB.getPath(getState()),
+          UUID.randomUUID().toString());
+    } catch (IOException e) {
+      throw new SQLException("Cannot create the directory of LOB files: " + MSTAGE_JDBC_LOB.getPath(getState()), e);
+    }
+  }
+
+  /**
+   * Converts a ResultSet to an Avro data file and return an input stream of the file
+   *
+   * The Avro schema is derived once from the columns, and the rows are written by a background
+   * thread into a spool file like CSV rows.
+   *
+   * @param statement the statement that produced the result set, it is released after all rows are written
    * @param resultSet the input result set
-   * @param resultSetMetadata the result set metadata
-   * @return a string array including all fields
+   * @param cached whether the statement is cached, in which case only the result set is closed
+   * @param columns the columns of the result set
+   * @return an InputStream
    * @throws SQLException SQL Exception from processing ResultSet
    */
-  private String[] getRowAsStringArray(final ResultSet resultSet, final ResultSetMetaData resultSetMetadata) throws SQLException {
-    String[] row = new String[resultSetMetadata.getColumnCount()];
-    for (int i = 0; i < resultSetMetadata.getColumnCount(); i++) {
-      row[i] = JdbcUtils.parseColumnAsString(resultSet, resultSetMetadata, i + 1);
+  private InputStream toAvroInputStream(final Statement statement, final ResultSet resultSet, final boolean cached,
+      final JdbcSchemaCache.Entry columns) throws SQLException {
+    JdbcAvroEmitter emitter = JdbcAvroEmitter.create(
+        getState().getProp(ConfigurationKeys.EXTRACT_TABLE_NAME_KEY), columns, getLobHandler(columns.getColumnTypes()));
+    try {
+      closeSpool();
+      spool = SpoolingInputStream.start(outputStream -> {
+        try {
+          LOG.info(String.format("Wrote %d records to spool", emitter.write(resultSet, outputStream)));
+        } finally {
+          release(statement, resultSet, cached);
+        }
+      }, true, spoolBlockSize);
+      return spool;
+    } catch (IOException ioe) {
+      release(statement, resultSet, cached);
+      throw new RuntimeException(ioe);
+    }
+  }
+
+  /**
+   * Close the spool of the last statement, this cancels the spooling if it is
+   * still in progress
+   */
+  private void closeSpool() {
+    if (spool != null) {
+      try {
+        spool.close();
+      } catch (IOException e) {
+        LOG.warn("Error closing the spool", e);
+      }
+      spool = null;
     }
-    return row;
   }
 }
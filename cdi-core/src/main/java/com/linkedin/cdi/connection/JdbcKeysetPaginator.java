@@ -0,0 +1,240 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.linkedin.cdi.util.JdbcUtils;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * JdbcKeysetPaginator reads a statement page by page in the order of a key, which can be
+ * a composite key, and starts each page after the last key of the prior page, so that the
+ * cost of a page doesn't grow with the number of rows before it, as it does with OFFSET.
+ *
+ * The statement is wrapped as a derived table, for example:
+ * SELECT * FROM (statement) keyset WHERE (a > ?) OR (a = ? AND b > ?) ORDER BY a, b
+ * and the page size is applied as the maximum number of rows of the query.
+ *
+ * The key doesn't have to be unique. The rows of the last key of a full page are held
+ * back, and they are read with the next page, so that the rows of a key are never split
+ * across pages. When a full page has only one key, all rows of the key are read by a query
+ * of the key before moving on to the next key. The key columns should not be NULL.
+ *
+ * The page queries after the first page have the same SQL, and they are prepared once by
+ * the statement cache of the connection.
+ */
+public class JdbcKeysetPaginator {
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcKeysetPaginator.class);
+  private static final String ALIAS = "keyset";
+
+  private final List<String> keys;
+  private final int pageSize;
+  private volatile Object[] lastKey = null;
+  private volatile boolean exhausted = false;
+
+  /**
+   * @param keys the key columns, in the order of the key
+   * @param pageSize the number of rows of a page
+   */
+  public JdbcKeysetPaginator(List<String> keys, int pageSize) {
+    this.keys = keys;
+    this.pageSize = pageSize;
+  }
+
+  /**
+   * @return the key of the last row read, or null before the first page
+   */
+  public Object[] getLastKey() {
+    return lastKey;
+  }
+
+  /**
+   * @return true if the last page was not full, so that there are no more rows
+   */
+  public boolean isExhausted() {
+    return exhausted;
+  }
+
+  /**
+   * @param statement the SQL statement
+   * @return the query of the next page, with parameters for the last key
+   */
+  public String getPageQuery(String statement) {
+    String orderBy = String.join(", ", keys);
+    if (lastKey == null) {
+      return String.format("SELECT * FROM (%s) %s ORDER BY %s", trim(statement), ALIAS, orderBy);
+    }
+    // (k1 > ?) OR (k1 = ? AND k2 > ?) OR ...
+    List<String> conditions = new ArrayList<>();
+    for (int i = 0; i < keys.size(); i++) {
+      List<String> terms = new ArrayList<>();
+      for (int j = 0; j < i; j++) {
+        terms.add(keys.get(j) + " = ?");
+      }
+      terms.add(keys.get(i) + " > ?");
+      conditions.add("(" + String.join(" AND ", terms) + ")");
+    }
+    return String.format("SELECT * FROM (%s) %s WHERE %s ORDER BY %s",
+        trim(statement), ALIAS, String.join(" OR ", conditions), orderBy);
+  }
+
+  /**
+   * @param statement the SQL statement
+   * @return the query of all rows of a key, with parameters for the key
+   */
+  public String getKeyQuery(String statement) {
+    return String.format("SELECT * FROM (%s) %s WHERE %s", trim(statement), ALIAS,
+        keys.stream().map(key -> key + " = ?").collect(Collectors.joining(" AND ")));
+  }
+
+  /**
+   * Read the next page, and pass its rows to the consumer
+   *
+   * @param connection the connection
+   * @param statement the SQL statement
+   * @param parameters the values of the bind parameters of the statement
+   * @param consumer the consumer of rows
+   * @return the number of rows passed to the consumer
+   * @throws Exception the error of the query or of the consumer
+   */
+  public long readPage(Connection connection, String statement, List<Object> parameters,
+      JdbcPartitionReader.RowConsumer consumer) throws Exception {
+    try (JdbcStatementCache statements = new JdbcStatementCache(connection)) {
+      return readPage(statements, statement, parameters, consumer);
+    }
+  }
+
+  /**
+   * Read the next page with the prepared statements of a statement cache, and pass its rows to the consumer
+   *
+   * @param statements the statement cache of the connection
+   * @param statement the SQL statement
+   * @param parameters the values of the bind parameters of the statement
+   * @param consumer the consumer of rows
+   * @return the number of rows passed to the consumer
+   * @throws Exception the error of the query or of the consumer
+   */
+  public long readPage(JdbcStatementCache statements, String statement, List<Object> parameters,
+      JdbcPartitionReader.RowConsumer consumer) throws Exception {
+    if (exhausted) {
+      return 0;
+    }
+    String query = getPageQuery(statement);
+    LOG.info("Executing SQL statement after key {}: {}", lastKey == null ? null : Arrays.toString(lastKey), query);
+
+    long emitted = 0;
+    long read = 0;
+    Object[] emittedKey = null;
+    Object[] pendingKey = null;
+    List<String[]> pending = new ArrayList<>();
+    PreparedStatement stmt = statements.prepare(query);
+    int index = JdbcStatementTemplate.bind(stmt, parameters, 1);
+    if (lastKey != null) {
+      for (int i = 0; i < keys.size(); i++) {
+        for (int j = 0; j <= i; j++) {
+          stmt.setObject(index++, lastKey[j]);
+        }
+      }
+    }
+    stmt.setMaxRows(pageSize);
+    stmt.setFetchSize(pageSize);
+    try (ResultSet resultSet = stmt.executeQuery()) {
+      ResultSetMetaData metaData = resultSet.getMetaData();
+      int[] keyIndexes = getKeyIndexes(metaData);
+      JdbcUtils.ColumnConverter[] converters = JdbcUtils.getColumnConverters(JdbcUtils.getColumnTypes(metaData));
+      while (resultSet.next()) {
+        read++;
+        Object[] key = getKey(resultSet, keyIndexes);
+        if (pendingKey != null && !Arrays.equals(key, pendingKey)) {
+          // the rows of the pending key are complete
+          for (String[] row : pending) {
+            consumer.accept(row);
+          }
+          emitted += pending.size();
+          emittedKey = pendingKey;
+          pending.clear();
+        }
+        pendingKey = key;
+        pending.add(JdbcUtils.parseRowAsStrings(resultSet, converters));
+      }
+    }
+
+    if (read < pageSize) {
+      // the last page has all rows of its last key
+      for (String[] row : pending) {
+        consumer.accept(row);
+      }
+      emitted += pending.size();
+      exhausted = true;
+    } else if (emittedKey != null) {
+      // the rows of the last key are read with the next page
+      lastKey = emittedKey;
+    } else {
+      // a full page of one key, read all rows of the key
+      LOG.info("A page has only the key {}, reading all rows of the key", Arrays.toString(pendingKey));
+      emitted += readKey(statements, statement, parameters, pendingKey, consumer);
+      lastKey = pendingKey;
+    }
+    LOG.info("Read {} rows of the page", emitted);
+    return emitted;
+  }
+
+  private long readKey(JdbcStatementCache statements, String statement, List<Object> parameters, Object[] key,
+      JdbcPartitionReader.RowConsumer consumer) throws Exception {
+    long count = 0;
+    PreparedStatement stmt = statements.prepare(getKeyQuery(statement));
+    int index = JdbcStatementTemplate.bind(stmt, parameters, 1);
+    for (Object value : key) {
+      stmt.setObject(index++, value);
+    }
+    stmt.setFetchSize(pageSize);
+    try (ResultSet resultSet = stmt.executeQuery()) {
+      JdbcUtils.ColumnConverter[] converters =
+          JdbcUtils.getColumnConverters(JdbcUtils.getColumnTypes(resultSet.getMetaData()));
+      while (resultSet.next()) {
+        consumer.accept(JdbcUtils.parseRowAsStrings(resultSet, converters));
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private int[] getKeyIndexes(ResultSetMetaData metaData) throws SQLException {
+    int[] indexes = new int[keys.size()];
+    for (int i = 0; i < keys.size(); i++) {
+      for (int column = 1; column <= metaData.getColumnCount(); column++) {
+        if (metaData.getColumnLabel(column).equalsIgnoreCase(keys.get(i))) {
+          indexes[i] = column;
+        }
+      }
+      if (indexes[i] == 0) {
+        throw new SQLException("The key column " + keys.get(i) + " is not in the result of the statement");
+      }
+    }
+    return indexes;
+  }
+
+  private static Object[] getKey(ResultSet resultSet, int[] keyIndexes) throws SQLException {
+    Object[] key = new Object[keyIndexes.length];
+    for (int i = 0; i < keyIndexes.length; i++) {
+      key[i] = resultSet.getObject(keyIndexes[i]);
+    }
+    return key;
+  }
+
+  private static String trim(String statement) {
+    return statement.trim().replaceAll(";+$", "");
+  }
+}
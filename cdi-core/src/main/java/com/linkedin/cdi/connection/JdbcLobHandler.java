@@ -0,0 +1,262 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.linkedin.cdi.util.JdbcUtils;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+
+/**
+ * JdbcLobHandler reads the values of LOB columns as streams through a bounded buffer, rather than
+ * reading each value into memory, and converting it again.
+ *
+ * In the inline mode, BLOB values are Base64 text and CLOB values are text. CSV rows are written
+ * with the LOB values streamed directly to the output, so that the memory of a row doesn't grow
+ * with the size of its values.
+ *
+ * In the file mode, each LOB value is streamed to a side file, BLOB values as bytes and CLOB values
+ * as UTF-8 text, and the value of the column is the path of the file.
+ *
+ * NULL values are NULL in both modes. A handler is used by one thread.
+ */
+public class JdbcLobHandler {
+  private static final String BINARY_SUFFIX = ".bin";
+  private static final String TEXT_SUFFIX = ".txt";
+  private static final char NO_QUOTE_CHARACTER = '\u0000';
+  private static final char NO_ESCAPE_CHARACTER = '\u0000';
+
+  private final int[] columnTypes;
+  private final byte[] bytes;
+  private final char[] chars;
+  private final Path directory;
+  private final FileSystem fileSystem;
+  private final String prefix;
+  private long files = 0;
+
+  /**
+   * @param columnTypes java.sql.Types of the columns
+   * @return true if any column is a LOB column
+   */
+  public static boolean hasLobs(int[] columnTypes) {
+    for (int columnType : columnTypes) {
+      if (JdbcUtils.isBinaryLob(columnType) || JdbcUtils.isCharacterLob(columnType)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * A handler of the inline mode
+   *
+   * @param columnTypes java.sql.Types of the columns
+   * @param bufferSize the size of the buffer, in bytes or characters
+   */
+  public JdbcLobHandler(int[] columnTypes, int bufferSize) {
+    this.columnTypes = columnTypes;
+    this.bytes = new byte[bufferSize];
+    this.chars = new char[bufferSize];
+    this.directory = null;
+    this.fileSystem = null;
+    this.prefix = null;
+  }
+
+  /**
+   * A handler of the file mode
+   *
+   * @param columnTypes java.sql.Types of the columns
+   * @param bufferSize the size of the buffer, in bytes or characters
+   * @param location the directory of side files, a local path or a HDFS path
+   * @param prefix the prefix of side files, which is unique among the statements writing to the directory
+   * @throws IOException if the directory cannot be created
+   */
+  public JdbcLobHandler(int[] columnTypes, int bufferSize, String location, String prefix) throws IOException {
+    this.columnTypes = columnTypes;
+    this.bytes = new byte[bufferSize];
+    this.chars = new char[bufferSize];
+    this.directory = new Path(location);
+    this.fileSystem = directory.getFileSystem(new Configuration());
+    this.prefix = prefix;
+    fileSystem.mkdirs(directory);
+  }
+
+  /**
+   * @return true if LOB values are written to side files
+   */
+  public boolean isFileMode() {
+    return directory != null;
+  }
+
+  /**
+   * Get the converters of the columns, in which LOB values are read through the buffer, or
+   * are written to side files
+   *
+   * @return the converters of the columns, in the order of the columns
+   */
+  public JdbcUtils.ColumnConverter[] getColumnConverters() {
+    JdbcUtils.ColumnConverter[] converters = JdbcUtils.getColumnConverters(columnTypes);
+    for (int i = 0; i < columnTypes.length; i++) {
+      if (JdbcUtils.isBinaryLob(columnTypes[i]) || JdbcUtils.isCharacterLob(columnTypes[i])) {
+        converters[i] = isFileMode() ? this::writeFile : this::readString;
+      }
+    }
+    return converters;
+  }
+
+  /**
+   * Write the current row of a result set as a CSV line, streaming LOB values to the output
+   *
+   * The line is the same as the line of CSVWriter with all values quoted, and quote and escape
+   * characters in values escaped.
+   *
+   * @param resultSet the result set
+   * @param converters the converters of the columns
+   * @param out the output
+   * @param separator the field separator
+   * @param quote the quote character
+   * @param escape the escape character
+   * @throws SQLException if a value cannot be read
+   * @throws IOException if the line cannot be written
+   */
+  public void writeCsvRow(ResultSet resultSet, JdbcUtils.ColumnConverter[] converters, Writer out,
+      char separator, char quote, char escape) throws SQLException, IOException {
+    Writer escaped = escape == NO_ESCAPE_CHARACTER ? out : new FilterWriter(out) {
+      @Override
+      public void write(int c) throws IOException {
+        if (c == quote || c == escape) {
+          out.write(escape);
+        }
+        out.write(c);
+      }
+
+      @Override
+      public void write(char[] buffer, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+          write(buffer[i]);
+        }
+      }
+
+      @Override
+      public void write(String string, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+          write(string.charAt(i));
+        }
+      }
+    };
+    for (int i = 0; i < converters.length; i++) {
+      if (i > 0) {
+        out.write(separator);
+      }
+      if (!isFileMode() && JdbcUtils.isBinaryLob(columnTypes[i])) {
+        try (InputStream in = resultSet.getBinaryStream(i + 1)) {
+          if (in != null) {
+            out.write(quote);
+            JdbcUtils.copyAsBase64(in, escaped, bytes);
+            out.write(quote);
+          }
+        }
+      } else if (!isFileMode() && JdbcUtils.isCharacterLob(columnTypes[i])) {
+        try (Reader in = resultSet.getCharacterStream(i + 1)) {
+          if (in != null) {
+            out.write(quote);
+            JdbcUtils.copy(in, escaped, chars);
+            out.write(quote);
+          }
+        }
+      } else {
+        String value = converters[i].convert(resultSet, i + 1);
+        if (value != null) {
+          out.write(quote);
+          escaped.write(value);
+          out.write(quote);
+        }
+      }
+    }
+    out.write('\n');
+  }
+
+  /**
+   * @param quote the quote character of CSV output
+   * @return true if CSV rows can be written with LOB values streamed
+   */
+  public static boolean canStreamCsv(char quote) {
+    return quote != NO_QUOTE_CHARACTER;
+  }
+
+  /**
+   * @return the number of side files written
+   */
+  public long getFiles() {
+    return files;
+  }
+
+  private String readString(ResultSet resultSet, int index) throws SQLException {
+    StringWriter writer = new StringWriter();
+    try {
+      if (JdbcUtils.isBinaryLob(columnTypes[index - 1])) {
+        try (InputStream in = resultSet.getBinaryStream(index)) {
+          if (in == null) {
+            return null;
+          }
+          JdbcUtils.copyAsBase64(in, writer, bytes);
+        }
+      } else {
+        try (Reader in = resultSet.getCharacterStream(index)) {
+          if (in == null) {
+            return null;
+          }
+          JdbcUtils.copy(in, writer, chars);
+        }
+      }
+    } catch (IOException e) {
+      throw new SQLException(e);
+    }
+    return writer.toString();
+  }
+
+  private String writeFile(ResultSet resultSet, int index) throws SQLException {
+    boolean binary = JdbcUtils.isBinaryLob(columnTypes[index - 1]);
+    Path file = new Path(directory, String.format("%s-%d-%d%s", prefix, files, index,
+        binary ? BINARY_SUFFIX : TEXT_SUFFIX));
+    try {
+      if (binary) {
+        try (InputStream in = resultSet.getBinaryStream(index)) {
+          if (in == null) {
+            return null;
+          }
+          try (OutputStream out = fileSystem.create(file, true)) {
+            JdbcUtils.copy(in, out, bytes);
+          }
+        }
+      } else {
+        try (Reader in = resultSet.getCharacterStream(index)) {
+          if (in == null) {
+            return null;
+          }
+          try (Writer out = new OutputStreamWriter(fileSystem.create(file, true), StandardCharsets.UTF_8)) {
+            JdbcUtils.copy(in, out, chars);
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new SQLException("Cannot write the LOB value to " + file, e);
+    }
+    files++;
+    return file.toString();
+  }
+}
@@ -0,0 +1,331 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonPrimitive;
+import com.linkedin.cdi.util.JdbcUtils;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * JdbcPartitionReader reads a statement in sub-ranges of a numeric or timestamp column,
+ * each sub-range on its own connection, and streams the rows of all sub-ranges to one
+ * consumer as they arrive.
+ *
+ * The statement is wrapped as a derived table, and the sub-ranges are split at boundaries
+ * between the lower bound and the upper bound. The first sub-range has no lower limit and
+ * includes NULL values, and the last sub-range has no upper limit, so that all rows are
+ * read exactly once even if the bounds don't cover all values.
+ *
+ * The rows are not ordered across sub-ranges.
+ */
+public class JdbcPartitionReader {
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcPartitionReader.class);
+  private static final String ALIAS = "partitioned";
+  private static final int QUEUE_CAPACITY = 10000;
+  private static final long OFFER_TIMEOUT_MILLIS = 100;
+  // the marker of a finished sub-range
+  private static final String[] END = new String[0];
+
+  private final String statement;
+  private final List<Object> parameters;
+  private final String column;
+  private final List<Object> boundaries;
+  private final int fetchSize;
+
+  /**
+   * A supplier of a connection for each sub-range, the connection is closed after the sub-range is read
+   */
+  public interface ConnectionSupplier {
+    Connection get() throws SQLException;
+  }
+
+  /**
+   * The consumer of rows, which is called on the reading thread
+   */
+  public interface RowConsumer {
+    void accept(String[] row) throws Exception;
+  }
+
+  /**
+   * @param statement the SQL statement
+   * @param parameters the values of the bind parameters of the statement
+   * @param column the column to split the statement by
+   * @param boundaries the values where sub-ranges are split, numbers or timestamps in ascending order
+   * @param fetchSize the fetch size of sub-range statements, 0 for the driver default
+   */
+  public JdbcPartitionReader(String statement, List<Object> parameters, String column, List<Object> boundaries,
+      int fetchSize) {
+    this.statement = statement.trim().replaceAll(";+$", "");
+    this.parameters = parameters;
+    this.column = column;
+    this.boundaries = boundaries;
+    this.fetchSize = fetchSize;
+  }
+
+  /**
+   * Query the minimum and maximum values of the column in the statement
+   *
+   * @param connection the connection
+   * @param statement the SQL statement
+   * @param parameters the values of the bind parameters of the statement
+   * @param column the column
+   * @return the minimum and the maximum, which are null if the statement has no rows
+   * @throws SQLException if the query fails
+   */
+  public static Object[] queryBounds(Connection connection, String statement, List<Object> parameters,
+      String column) throws SQLException {
+    String query = String.format("SELECT MIN(%s), MAX(%s) FROM (%s) %s",
+        column, column, statement.trim().replaceAll(";+$", ""), ALIAS);
+    LOG.info("Querying partition bounds: {}", query);
+    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+      JdbcStatementTemplate.bind(stmt, parameters, 1);
+      try (ResultSet resultSet = stmt.executeQuery()) {
+        resultSet.next();
+        return new Object[]{resultSet.getObject(1), resultSet.getObject(2)};
+      }
+    }
+  }
+
+  /**
+   * Convert a configured bound to a value that can be split
+   *
+   * @param bound a number, or a timestamp string in the format of yyyy-mm-dd hh:mm:ss
+   * @return a BigDecimal or a Timestamp
+   */
+  public static Object parseBound(JsonPrimitive bound) {
+    return bound.isNumber() ? bound.getAsBigDecimal() : Timestamp.valueOf(bound.getAsString());
+  }
+
+  /**
+   * Split the range between the bounds into equal sub-ranges
+   *
+   * Integral numbers and timestamps are split at integral values, and boundaries that are
+   * equal are merged, so that there can be fewer sub-ranges than requested for narrow ranges.
+   *
+   * @param lower the lower bound, a number or a date
+   * @param upper the upper bound, a number or a date
+   * @param partitions the number of sub-ranges
+   * @return the boundaries between sub-ranges, empty if the range cannot be split
+   */
+  public static List<Object> split(Object lower, Object upper, int partitions) {
+    List<Object> boundaries = new ArrayList<>();
+    if (lower instanceof java.util.Date && upper instanceof java.util.Date) {
+      BigDecimal low = BigDecimal.valueOf(((java.util.Date) lower).getTime());
+      BigDecimal high = BigDecimal.valueOf(((java.util.Date) upper).getTime());
+      for (BigDecimal boundary : split(low, high, partitions, true)) {
+        boundaries.add(new Timestamp(boundary.longValue()));
+      }
+    } else if (lower instanceof Number && upper instanceof Number) {
+      BigDecimal low = new BigDecimal(lower.toString());
+      BigDecimal high = new BigDecimal(upper.toString());
+      boundaries.addAll(split(low, high, partitions, isIntegral((Number) lower) && isIntegral((Number) upper)));
+    } else if (lower != null || upper != null) {
+      LOG.warn("Cannot split the range from {} to {}, reading in one partition", lower, upper);
+    }
+    return boundaries;
+  }
+
+  private static List<BigDecimal> split(BigDecimal low, BigDecimal high, int partitions, boolean integral) {
+    if (high.compareTo(low) <= 0) {
+      return Collections.emptyList();
+    }
+    List<BigDecimal> boundaries = new ArrayList<>();
+    BigDecimal range = high.subtract(low);
+    for (int i = 1; i < partitions; i++) {
+      BigDecimal offset = range.multiply(BigDecimal.valueOf(i))
+          .divide(BigDecimal.valueOf(partitions), integral ? 0 : 10, RoundingMode.CEILING);
+      BigDecimal boundary = low.add(offset);
+      if (boundary.compareTo(low) > 0 && boundary.compareTo(high) <= 0
+          && (boundaries.isEmpty() || boundary.compareTo(boundaries.get(boundaries.size() - 1)) > 0)) {
+        boundaries.add(boundary);
+      }
+    }
+    return boundaries;
+  }
+
+  private static boolean isIntegral(Number value) {
+    if (value instanceof BigDecimal) {
+      return ((BigDecimal) value).scale() <= 0;
+    }
+    return !(value instanceof Double || value instanceof Float);
+  }
+
+  /**
+   * @return the number of sub-ranges
+   */
+  public int getPartitions() {
+    return boundaries.size() + 1;
+  }
+
+  /**
+   * @param partition the 0 based index of the sub-range
+   * @return the statement of the sub-range, with parameters for its boundaries
+   */
+  public String getPartitionQuery(int partition) {
+    if (boundaries.isEmpty()) {
+      return statement;
+    }
+    String condition;
+    if (partition == 0) {
+      condition = String.format("%s < ? OR %s IS NULL", column, column);
+    } else if (partition == boundaries.size()) {
+      condition = String.format("%s >= ?", column);
+    } else {
+      condition = String.format("%s >= ? AND %s < ?", column, column);
+    }
+    return String.format("SELECT * FROM (%s) %s WHERE %s", statement, ALIAS, condition);
+  }
+
+  /**
+   * Read all sub-ranges concurrently, and pass the rows to the consumer on the calling thread
+   *
+   * If a sub-range fails, or the consumer fails, the other sub-ranges are cancelled,
+   * and their connections are aborted.
+   *
+   * @param connections the supplier of a connection for each sub-range
+   * @param consumer the consumer of rows
+   * @throws Exception the first error of a sub-range or of the consumer
+   */
+  public void read(ConnectionSupplier connections, RowConsumer consumer) throws Exception {
+    int partitions = getPartitions();
+    ExecutorService executor = Executors.newFixedThreadPool(partitions,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jdbc-partition-%d").build());
+    BlockingQueue<String[]> rows = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    AtomicBoolean cancelled = new AtomicBoolean(false);
+    AtomicReference<Exception> error = new AtomicReference<>();
+    for (int i = 0; i < partitions; i++) {
+      int partition = i;
+      executor.submit(() -> readPartition(partition, connections, rows, cancelled, error));
+    }
+
+    try {
+      int finished = 0;
+      while (finished < partitions) {
+        String[] row = rows.take();
+        if (error.get() != null) {
+          throw error.get();
+        }
+        if (row == END) {
+          finished++;
+        } else {
+          consumer.accept(row);
+        }
+      }
+    } finally {
+      cancelled.set(true);
+      executor.shutdownNow();
+    }
+  }
+
+  private void readPartition(int partition, ConnectionSupplier connections, BlockingQueue<String[]> rows,
+      AtomicBoolean cancelled, AtomicReference<Exception> error) {
+    String query = getPartitionQuery(partition);
+    Connection connection = null;
+    boolean complete = false;
+    long count = 0;
+    try {
+      connection = connections.get();
+      if (connection == null) {
+        throw new SQLException("Cannot create a JDBC connection for partition " + partition);
+      }
+      try (PreparedStatement stmt = connection.prepareStatement(query)) {
+        bind(stmt, partition);
+        if (fetchSize > 0) {
+          stmt.setFetchSize(fetchSize);
+        }
+        try (ResultSet resultSet = stmt.executeQuery()) {
+          JdbcUtils.ColumnConverter[] converters =
+              JdbcUtils.getColumnConverters(JdbcUtils.getColumnTypes(resultSet.getMetaData()));
+          while (resultSet.next()) {
+            put(rows, JdbcUtils.parseRowAsStrings(resultSet, converters), cancelled);
+            count++;
+          }
+        }
+      }
+      complete = true;
+      LOG.info("Read {} rows of partition {} of {}", count, partition, getPartitions());
+      put(rows, END, cancelled);
+    } catch (Exception e) {
+      if (!cancelled.get()) {
+        LOG.error("Error reading partition {}: {}", partition, e.getMessage());
+        error.compareAndSet(null, e);
+        cancelled.set(true);
+        // wake up the consumer
+        rows.offer(END);
+      }
+    } finally {
+      close(connection, complete);
+    }
+  }
+
+  private void bind(PreparedStatement stmt, int partition) throws SQLException {
+    int index = JdbcStatementTemplate.bind(stmt, parameters, 1);
+    if (boundaries.isEmpty()) {
+      return;
+    }
+    if (partition == 0) {
+      stmt.setObject(index, boundaries.get(0));
+    } else if (partition == boundaries.size()) {
+      stmt.setObject(index, boundaries.get(partition - 1));
+    } else {
+      stmt.setObject(index, boundaries.get(partition - 1));
+      stmt.setObject(index + 1, boundaries.get(partition));
+    }
+  }
+
+  private static void put(BlockingQueue<String[]> rows, String[] row, AtomicBoolean cancelled)
+      throws InterruptedException {
+    while (!rows.offer(row, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+      if (cancelled.get()) {
+        throw new CancellationException();
+      }
+    }
+  }
+
+  /**
+   * Close a connection, or abort it if its statement might still be running
+   */
+  private static void close(Connection connection, boolean complete) {
+    if (connection == null) {
+      return;
+    }
+    try {
+      if (!complete) {
+        connection.abort(Runnable::run);
+      }
+    } catch (SQLException e) {
+      LOG.debug("Cannot abort a partition connection: {}", e.getMessage());
+    }
+    try {
+      // some drivers don't close the connection on abort
+      if (!connection.isClosed()) {
+        connection.close();
+      }
+    } catch (SQLException e) {
+      LOG.debug("Error closing a partition connection", e);
+    }
+  }
+}
@@ -0,0 +1,229 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.gson.JsonArray;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+
+/**
+ * JdbcSchemaCache caches the columns and the schema of JDBC statements in the JVM, so that
+ * work units and pages that execute the same statement don't read the result set metadata
+ * again, which takes round trips to the server on some databases.
+ *
+ * A statement is keyed by its normalized SQL and the connection URL, and by the settings that
+ * change the schema. The SQL is normalized outside of quotes only, so that string literals and
+ * quoted identifiers that differ in whitespace are different statements. With ms.jdbc.bind.variables, the SQL has bind parameters in place of variables,
+ * so that all pages and work units of a job share one entry.
+ *
+ * An entry expires after the time to live of the job that reads it, so that changes of tables
+ * are picked up. Before that, an entry is used for an executed statement only if the column types
+ * of its result set are the cached column types.
+ */
+public class JdbcSchemaCache {
+  private static final int MAX_ENTRIES = 1000;
+  private static final JdbcSchemaCache INSTANCE = new JdbcSchemaCache(System::currentTimeMillis);
+
+  private final Cache<String, Entry> entries = CacheBuilder.newBuilder().maximumSize(MAX_ENTRIES).build();
+  private final LongSupplier clock;
+
+  /**
+   * The columns and the schema of a statement
+   */
+  public static class Entry {
+    private final List<String> columnNames;
+    private final int[] columnTypes;
+    private final boolean[] nullables;
+    private final int[] precisions;
+    private final int[] scales;
+    private final long rowBytes;
+    private final JsonArray schema;
+    private long created;
+
+    /**
+     * @param columnNames the column names, after the schema refactor function
+     * @param columnTypes java.sql.Types of the columns
+     * @param nullables whether the columns might have null values
+     * @param rowBytes the estimated number of bytes of a row
+     * @param schema the schema of the columns
+     */
+    public Entry(List<String> columnNames, int[] columnTypes, boolean[] nullables, long rowBytes, JsonArray schema) {
+      this(columnNames, columnTypes, nullables, null, null, rowBytes, schema);
+    }
+
+    /**
+     * @param columnNames the column names, after the schema refactor function
+     * @param columnTypes java.sql.Types of the columns
+     * @param nullables whether the columns might have null values
+     * @param precisions the precisions of the columns, or null if they are unknown
+     * @param scales the scales of the columns, or null if they are unknown
+     * @param rowBytes the estimated number of bytes of a row
+     * @param schema the schema of the columns
+     */
+    public Entry(List<String> columnNames, int[] columnTypes, boolean[] nullables, int[] precisions, int[] scales,
+        long rowBytes, JsonArray schema) {
+      this.columnNames = columnNames;
+      this.columnTypes = columnTypes;
+      this.nullables = nullables;
+      this.precisions = precisions;
+      this.scales = scales;
+      this.rowBytes = rowBytes;
+      this.schema = schema;
+    }
+
+    public List<String> getColumnNames() {
+      return columnNames;
+    }
+
+    public int[] getColumnTypes() {
+      return columnTypes;
+    }
+
+    public boolean[] getNullables() {
+      return nullables;
+    }
+
+    public int[] getPrecisions() {
+      return precisions;
+    }
+
+    public int[] getScales() {
+      return scales;
+    }
+
+    public long getRowBytes() {
+      return rowBytes;
+    }
+
+    public JsonArray getSchema() {
+      return schema;
+    }
+
+    /**
+     * @param columnTypes java.sql.Types of the columns of a result set
+     * @return true if the result set has the cached columns, by their number and types
+     */
+    public boolean matches(int[] columnTypes) {
+      return Arrays.equals(this.columnTypes, columnTypes);
+    }
+
+    /**
+     * @param columnTypes java.sql.Types of the columns of a result set
+     * @param precisions the precisions of the columns of a result set
+     * @param scales the scales of the columns of a result set
+     * @return true if the result set has the cached columns, by their number, types, precisions, and scales
+     */
+    public boolean matches(int[] columnTypes, int[] precisions, int[] scales) {
+      return matches(columnTypes)
+          && (this.precisions == null || Arrays.equals(this.precisions, precisions))
+          && (this.scales == null || Arrays.equals(this.scales, scales));
+    }
+  }
+
+  JdbcSchemaCache(LongSupplier clock) {
+    this.clock = clock;
+  }
+
+  /**
+   * @return the cache of the JVM
+   */
+  public static JdbcSchemaCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get the key of a statement, which ignores differences in whitespace outside of quotes,
+   * and trailing semicolons
+   *
+   * @param sql the SQL statement
+   * @param url the connection URL
+   * @param settings the settings that change the schema
+   * @return the key
+   */
+  public static String getKey(String sql, String url, Object... settings) {
+    StringBuilder key = new StringBuilder(String.valueOf(url));
+    for (Object setting : settings) {
+      key.append('\n').append(setting);
+    }
+    return key.append('\n').append(normalize(sql.trim().replaceAll(";+$", "").trim())).toString();
+  }
+
+  /**
+   * Collapse each run of whitespace outside of single and double quotes into a space
+   */
+  private static String normalize(String sql) {
+    StringBuilder normalized = new StringBuilder(sql.length());
+    char quote = 0;
+    boolean whitespace = false;
+    for (char c : sql.toCharArray()) {
+      if (quote == 0 && Character.isWhitespace(c)) {
+        whitespace = true;
+        continue;
+      }
+      if (whitespace) {
+        normalized.append(' ');
+        whitespace = false;
+      }
+      // an escaped quote, like '', closes and opens the quotes again
+      if (quote == 0 && (c == '\'' || c == '"')) {
+        quote = c;
+      } else if (c == quote) {
+        quote = 0;
+      }
+      normalized.append(c);
+    }
+    return normalized.toString();
+  }
+
+  /**
+   * @param key the key of the statement
+   * @param ttlMillis the time to live of entries
+   * @return the entry of the statement, or null if it is not cached, or it expired
+   */
+  public Entry get(String key, long ttlMillis) {
+    Entry entry = entries.getIfPresent(key);
+    if (entry != null && clock.getAsLong() - entry.created >= ttlMillis) {
+      entries.asMap().remove(key, entry);
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * @param key the key of the statement
+   * @param entry the columns and the schema of the statement
+   */
+  public void put(String key, Entry entry) {
+    entry.created = clock.getAsLong();
+    entries.put(key, entry);
+  }
+
+  /**
+   * Remove the entry of a statement, so that its columns are read again
+   *
+   * @param key the key of the statement
+   */
+  public void invalidate(String key) {
+    entries.invalidate(key);
+  }
+
+  /**
+   * Remove all entries
+   */
+  public void clear() {
+    entries.invalidateAll();
+  }
+
+  /**
+   * @return the number of entries
+   */
+  public long size() {
+    return entries.size();
+  }
+}
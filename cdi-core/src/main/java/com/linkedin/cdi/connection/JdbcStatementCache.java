@@ -0,0 +1,114 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * JdbcStatementCache keeps the prepared statements of a connection by their SQL, so that pages
+ * executing the same SQL with new bind values reuse the statement, whether or not the connection
+ * is pooled with a statement cache.
+ *
+ * A statement is not closed by its users, who close its result set instead, and it is executed
+ * again only after its prior result set is read. The least recently used statement is closed
+ * when the cache is full, and all statements are closed when the cache is closed.
+ */
+public class JdbcStatementCache implements AutoCloseable {
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcStatementCache.class);
+  private static final int DEFAULT_MAX_STATEMENTS = 16;
+
+  private final Connection connection;
+  private final Map<String, PreparedStatement> statements;
+  private long prepared = 0;
+
+  /**
+   * @param connection the connection of the statements
+   */
+  public JdbcStatementCache(Connection connection) {
+    this(connection, DEFAULT_MAX_STATEMENTS);
+  }
+
+  /**
+   * @param connection the connection of the statements
+   * @param maxStatements the maximum number of statements kept open
+   */
+  public JdbcStatementCache(Connection connection, int maxStatements) {
+    this.connection = connection;
+    this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+        if (size() > maxStatements) {
+          closeQuietly(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * @return the connection of the statements
+   */
+  public Connection getConnection() {
+    return connection;
+  }
+
+  /**
+   * Get the prepared statement of the SQL, preparing it if it is not cached
+   *
+   * @param sql the SQL with bind parameters
+   * @return the prepared statement, with its parameters cleared
+   * @throws SQLException if the statement cannot be prepared
+   */
+  public synchronized PreparedStatement prepare(String sql) throws SQLException {
+    PreparedStatement statement = statements.get(sql);
+    if (statement != null && !statement.isClosed()) {
+      statement.clearParameters();
+      return statement;
+    }
+    statement = connection.prepareStatement(sql);
+    statements.put(sql, statement);
+    prepared++;
+    return statement;
+  }
+
+  /**
+   * @return the number of statements prepared, including statements prepared again after they were closed
+   */
+  public synchronized long getPrepared() {
+    return prepared;
+  }
+
+  /**
+   * @return the number of statements kept open
+   */
+  public synchronized int size() {
+    return statements.size();
+  }
+
+  /**
+   * Close all statements
+   */
+  @Override
+  public synchronized void close() {
+    statements.values().forEach(JdbcStatementCache::closeQuietly);
+    statements.clear();
+  }
+
+  private static void closeQuietly(PreparedStatement statement) {
+    try {
+      statement.close();
+    } catch (SQLException e) {
+      LOG.debug("Error closing a prepared statement: {}", e.getMessage());
+    }
+  }
+}
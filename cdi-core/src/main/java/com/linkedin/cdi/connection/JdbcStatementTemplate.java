@@ -0,0 +1,220 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import com.linkedin.cdi.util.VariableUtils;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * JdbcStatementTemplate parses a JDBC statement template once, replacing its variables
+ * with bind parameters, so that the statement text stays the same for all pages and
+ * work units, and the prepared statement and its plan can be reused.
+ *
+ * A variable in a value position, like id > {{low}}, becomes a parameter that is typed by its
+ * value: numbers are bound as numbers, and other values as strings. A string literal that
+ * has variables, like '{{date}}' or 'user-{{id}}', becomes a string parameter. Variables in
+ * quoted identifiers and in comments cannot be parameters, and they are substituted in the text.
+ */
+public class JdbcStatementTemplate {
+  private static final Pattern INTEGER = Pattern.compile("-?\\d{1,18}");
+  private static final Pattern DECIMAL = Pattern.compile("-?\\d+(\\.\\d+)?");
+
+  private final String sql;
+  private final List<Parameter> parameters;
+
+  /**
+   * A bind parameter, either a variable, or a string literal with variables
+   */
+  private static class Parameter {
+    private final String template;
+    private final boolean literal;
+
+    private Parameter(String template, boolean literal) {
+      this.template = template;
+      this.literal = literal;
+    }
+  }
+
+  private JdbcStatementTemplate(String sql, List<Parameter> parameters) {
+    this.sql = sql;
+    this.parameters = parameters;
+  }
+
+  /**
+   * Parse a statement template, skipping string literals without variables, quoted identifiers, and comments
+   *
+   * @param template the statement with {{variables}}
+   * @return the parsed template
+   */
+  public static JdbcStatementTemplate parse(String template) {
+    StringBuilder sql = new StringBuilder();
+    List<Parameter> parameters = new ArrayList<>();
+    int i = 0;
+    while (i < template.length()) {
+      char c = template.charAt(i);
+      if (c == '\'') {
+        int end = endOfLiteral(template, i);
+        String literal = template.substring(i, end);
+        if (VariableUtils.hasVariable(literal)) {
+          String value = literal.substring(1, literal.length() - (literal.endsWith("'") ? 1 : 0));
+          parameters.add(new Parameter(value.replace("''", "'"), true));
+          sql.append('?');
+        } else {
+          sql.append(literal);
+        }
+        i = end;
+      } else if (c == '"') {
+        i = copy(template, i, template.indexOf('"', i + 1), 1, sql);
+      } else if (template.startsWith("--", i)) {
+        i = copy(template, i, template.indexOf('\n', i), 1, sql);
+      } else if (template.startsWith("/*", i)) {
+        i = copy(template, i, template.indexOf("*/", i + 2), 2, sql);
+      } else {
+        Matcher matcher = template.startsWith(VariableUtils.OPENING, i)
+            ? VariableUtils.PATTERN.matcher(template).region(i, template.length()) : null;
+        if (matcher != null && matcher.lookingAt()) {
+          parameters.add(new Parameter(matcher.group(), false));
+          sql.append('?');
+          i = matcher.end();
+        } else {
+          sql.append(c);
+          i++;
+        }
+      }
+    }
+    return new JdbcStatementTemplate(sql.toString(), parameters);
+  }
+
+  /**
+   * @return the index after the closing quote of the literal that starts at the index,
+   * where a doubled quote is an escaped quote
+   */
+  private static int endOfLiteral(String template, int start) {
+    int i = start + 1;
+    while (i < template.length()) {
+      if (template.charAt(i) == '\'') {
+        if (i + 1 < template.length() && template.charAt(i + 1) == '\'') {
+          i += 2;
+          continue;
+        }
+        return i + 1;
+      }
+      i++;
+    }
+    return template.length();
+  }
+
+  private static int copy(String template, int start, int end, int closing, StringBuilder sql) {
+    int next = end < 0 ? template.length() : end + closing;
+    sql.append(template, start, next);
+    return next;
+  }
+
+  /**
+   * @param parameters the values of variables
+   * @return the statement with bind parameters, and the variables that cannot be parameters substituted
+   */
+  public String getSql(JsonObject parameters) {
+    if (!VariableUtils.hasVariable(sql)) {
+      return sql;
+    }
+    try {
+      return VariableUtils.replaceWithTracking(sql, parameters).getKey();
+    } catch (Exception e) {
+      return sql;
+    }
+  }
+
+  /**
+   * @return the number of bind parameters
+   */
+  public int getParameterCount() {
+    return parameters.size();
+  }
+
+  /**
+   * Get the values of the bind parameters, in the order of the parameters
+   *
+   * @param values the values of variables
+   * @return a Long, a BigDecimal, a Boolean, a String, or null for each parameter
+   * @throws SQLException if a variable has no value
+   */
+  public List<Object> getValues(JsonObject values) throws SQLException {
+    if (parameters.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<Object> result = new ArrayList<>();
+    for (Parameter parameter : parameters) {
+      if (parameter.literal) {
+        try {
+          result.add(VariableUtils.replaceWithTracking(parameter.template, values).getKey());
+        } catch (Exception e) {
+          throw new SQLException(e);
+        }
+      } else {
+        String name = VariableUtils.getVariables(parameter.template).get(0);
+        if (!values.has(name)) {
+          throw new SQLException("No value for the statement variable " + name);
+        }
+        result.add(toValue(values.get(name)));
+      }
+    }
+    return result;
+  }
+
+  private static Object toValue(JsonElement value) {
+    if (value.isJsonNull()) {
+      return null;
+    }
+    if (!value.isJsonPrimitive()) {
+      return value.toString();
+    }
+    JsonPrimitive primitive = value.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean();
+    }
+    String string = primitive.getAsString();
+    if (INTEGER.matcher(string).matches()) {
+      return Long.valueOf(string);
+    }
+    if (primitive.isNumber() || DECIMAL.matcher(string).matches()) {
+      return new BigDecimal(string);
+    }
+    return string;
+  }
+
+  /**
+   * Bind values to the parameters of a prepared statement
+   *
+   * @param statement the prepared statement
+   * @param values the values, which can be null
+   * @param index the 1 based index of the first parameter
+   * @return the index of the parameter after the values
+   * @throws SQLException if a value cannot be bound
+   */
+  public static int bind(PreparedStatement statement, List<Object> values, int index) throws SQLException {
+    int next = index;
+    for (Object value : values) {
+      if (value == null) {
+        statement.setNull(next++, Types.NULL);
+      } else {
+        statement.setObject(next++, value);
+      }
+    }
+    return next;
+  }
+}
@@ -100,6 +100,31 @@ public class MultistageConnection implements Connection {
     return null;
   }
 
+  /**
+   * Create a new connection to the same source for the same work unit, so that
+   * requests can be made concurrently with this connection.
+   *
+   * @return a new connection, or null if concurrent requests are not supported
+   */
+  public MultistageConnection fork() {
+    ExtractorKeys keys = new ExtractorKeys();
+    keys.setSignature(extractorKeys.getSignature());
+    return fork(state, keys);
+  }
+
+  /**
+   * Create a new connection to the same source for another work unit state, like
+   * a unit of a work unit batch. The default implementation doesn't support
+   * concurrent requests.
+   *
+   * @param state the work unit state of the new connection
+   * @param extractorKeys the extractor keys of the new connection
+   * @return a new connection, or null if concurrent requests are not supported
+   */
+  public MultistageConnection fork(State state, ExtractorKeys extractorKeys) {
+    return null;
+  }
+
   /**
    * Default implementation of a multistage read connection
    * @param workUnitStatus prior work unit status
@@ -111,7 +136,7 @@ public class MultistageConnection implements Connection {
 
   public WorkUnitStatus executeNext(final WorkUnitStatus workUnitStatus) throws RetriableAuthenticationException {
     try {
-      Thread.sleep(jobKeys.getCallInterval());
+      Thread.sleep(getCallInterval());
     } catch (Exception e) {
       LOG.warn(e.getMessage());
     }
@@ -121,6 +146,13 @@ public class MultistageConnection implements Connection {
     return workUnitStatus;
   }
 
+  /**
+   * @return the minimum time, in milliseconds, to wait before requesting the next page
+   */
+  protected long getCallInterval() {
+    return jobKeys.getCallInterval();
+  }
+
   /**
    * This method applies the work unit parameters to string template, and
    * then return a work unit specific string
@@ -0,0 +1,209 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.exception.RetriableAuthenticationException;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * ParallelPageFetcher requests the pages of a work unit concurrently, and returns
+ * the responses in page order, so that the pages can be processed one by one
+ * as if they were requested one after another.
+ *
+ * Requests are made through connections forked from the work unit connection, each
+ * request taking an idle forked connection. At most parallelism pages are requested
+ * ahead of the page being processed, and the response content of each page is read
+ * into memory before its connection is reused.
+ *
+ * Requests are paced by the JVM-wide rate limiter and concurrency limiter of
+ * the connection when configured, or otherwise by the call interval.
+ */
+public class ParallelPageFetcher implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(ParallelPageFetcher.class);
+  private static final long TERMINATION_TIMEOUT_SECONDS = 10;
+
+  private final MultistageConnection connection;
+  private final Iterator<JsonObject> pageParameters;
+  private final int parallelism;
+  private final ExecutorService executor;
+  private final BlockingQueue<MultistageConnection> idleConnections = new LinkedBlockingQueue<>();
+  private final List<MultistageConnection> forkedConnections = Collections.synchronizedList(new ArrayList<>());
+  private final Deque<Page> pages = new ArrayDeque<>();
+  private final RequestRateLimiter pacer;
+
+  /**
+   * A page request and its pending response
+   */
+  private static class Page {
+    private final JsonObject parameters;
+    private Future<WorkUnitStatus> response;
+
+    private Page(JsonObject parameters) {
+      this.parameters = parameters;
+    }
+  }
+
+  private ParallelPageFetcher(MultistageConnection connection, MultistageConnection fork,
+      Iterator<JsonObject> pageParameters, int parallelism) {
+    this.connection = connection;
+    this.pageParameters = pageParameters;
+    this.parallelism = parallelism;
+    this.forkedConnections.add(fork);
+    this.idleConnections.offer(fork);
+    this.executor = Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("page-fetcher-%d").build());
+    long callInterval = connection.getCallInterval();
+    this.pacer = callInterval > 0 ? new RequestRateLimiter("pagination", 1000.0 / callInterval, 1, 0) : null;
+    requestPages();
+  }
+
+  /**
+   * Start requesting pages concurrently
+   *
+   * @param connection the work unit connection
+   * @param pageParameters the request parameters of each page, in page order, which are
+   *                       iterated as pages are requested
+   * @param parallelism the maximum number of concurrent requests
+   * @return the page fetcher, or null if the connection doesn't support concurrent requests
+   */
+  public static ParallelPageFetcher create(MultistageConnection connection, Iterator<JsonObject> pageParameters,
+      int parallelism) {
+    MultistageConnection fork = connection.fork();
+    return fork == null ? null : new ParallelPageFetcher(connection, fork, pageParameters, parallelism);
+  }
+
+  /**
+   * @return true if there are pages not yet returned
+   */
+  public boolean hasNext() {
+    return !pages.isEmpty();
+  }
+
+  /**
+   * @return the request parameters of the next page
+   */
+  public JsonObject getNextParameters() {
+    return pages.getFirst().parameters;
+  }
+
+  /**
+   * Wait for the response of the next page, and update the work unit status with it
+   *
+   * @param status the work unit status
+   * @return the updated work unit status, or null if the request failed
+   * @throws RetriableAuthenticationException if the request should be retried after
+   * refreshing the authentication, the next page is requested again in that case
+   */
+  public WorkUnitStatus next(WorkUnitStatus status) throws RetriableAuthenticationException {
+    Page page = pages.getFirst();
+    WorkUnitStatus response;
+    try {
+      response = page.response.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RetriableAuthenticationException) {
+        page.response = executor.submit(() -> fetch(page.parameters));
+        throw (RetriableAuthenticationException) e.getCause();
+      }
+      LOG.error("Error requesting page with parameters: {}", page.parameters, e.getCause());
+      response = null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      response = null;
+    }
+
+    pages.removeFirst();
+    requestPages();
+    if (response == null) {
+      return null;
+    }
+    status.setBuffer(response.getBuffer());
+    status.setMessages(response.getMessages());
+    return status;
+  }
+
+  /**
+   * Request the next pages until parallelism pages are pending
+   */
+  private void requestPages() {
+    while (pages.size() < parallelism && pageParameters.hasNext()) {
+      Page page = new Page(pageParameters.next());
+      page.response = executor.submit(() -> fetch(page.parameters));
+      pages.addLast(page);
+    }
+  }
+
+  /**
+   * Request a page through an idle forked connection
+   *
+   * @param parameters the request parameters
+   * @return the work unit status with the response content in memory
+   */
+  private WorkUnitStatus fetch(JsonObject parameters) throws Exception {
+    MultistageConnection fork = idleConnections.poll();
+    if (fork == null) {
+      fork = connection.fork();
+      forkedConnections.add(fork);
+    }
+    try {
+      if (pacer != null) {
+        pacer.acquireToken();
+      }
+      fork.getExtractorKeys().setDynamicParameters(parameters);
+      WorkUnitStatus status = fork.execute(WorkUnitStatus.builder().build());
+      if (status != null && status.getBuffer() != null) {
+        status.setBuffer(new ByteArrayInputStream(IOUtils.toByteArray(status.getBuffer())));
+      }
+      return status;
+    } finally {
+      fork.closeStream();
+      idleConnections.offer(fork);
+    }
+  }
+
+  /**
+   * Cancel pending requests and close the forked connections
+   */
+  @Override
+  public void close() {
+    for (Page page : pages) {
+      page.response.cancel(true);
+    }
+    pages.clear();
+    executor.shutdownNow();
+    try {
+      executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (forkedConnections) {
+      for (MultistageConnection fork : forkedConnections) {
+        fork.closeAll(StringUtils.EMPTY);
+      }
+      forkedConnections.clear();
+    }
+  }
+}
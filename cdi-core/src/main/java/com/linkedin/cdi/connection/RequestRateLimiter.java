@@ -0,0 +1,185 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A token bucket rate limiter shared by all connections in the JVM that
+ * request the same host, or the same named group of hosts.
+ *
+ * Tokens are added at the configured rate, up to the burst size, and each request
+ * takes one token. When there are no tokens, the request reserves the next token
+ * and waits until it is due, so that waiting requests are served in order and
+ * the achieved rate stays at the limit under any number of concurrent work units.
+ *
+ * The limiter can also cap the number of concurrent requests, a concurrency permit
+ * being held by a connection from the request until its response is closed.
+ *
+ * Limiters are created by the first connection using them, and connections
+ * configured with different limits for the same limiter share the existing limits.
+ */
+public class RequestRateLimiter {
+  private static final Logger LOG = LoggerFactory.getLogger(RequestRateLimiter.class);
+  private static final ConcurrentMap<String, RequestRateLimiter> LIMITERS = new ConcurrentHashMap<>();
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final String name;
+  private final double requestsPerSecond;
+  private final int burst;
+  private final int maxConcurrency;
+  private final Semaphore concurrency;
+  private final LongSupplier clock;
+  private double tokens;
+  private long refilledNanos;
+
+  RequestRateLimiter(String name, double requestsPerSecond, int burst, int maxConcurrency) {
+    this(name, requestsPerSecond, burst, maxConcurrency, System::nanoTime);
+  }
+
+  /**
+   * @param clock the source of the current time in nanoseconds, replaced in tests
+   */
+  RequestRateLimiter(String name, double requestsPerSecond, int burst, int maxConcurrency, LongSupplier clock) {
+    this.name = name;
+    this.requestsPerSecond = requestsPerSecond;
+    this.burst = burst;
+    this.maxConcurrency = maxConcurrency;
+    this.concurrency = maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+    this.clock = clock;
+    this.tokens = burst;
+    this.refilledNanos = clock.getAsLong();
+  }
+
+  /**
+   * Get the shared limiter of a name, creating it with the given limits if it doesn't exist
+   *
+   * @param name the limiter name, typically the host
+   * @param requestsPerSecond the maximum requests per second, 0 for no limit
+   * @param burst the maximum number of requests that can be made at once after idling
+   * @param maxConcurrency the maximum concurrent requests, 0 for no limit
+   * @return the shared limiter
+   */
+  public static RequestRateLimiter getInstance(String name, double requestsPerSecond, int burst, int maxConcurrency) {
+    RequestRateLimiter limiter = LIMITERS.computeIfAbsent(name,
+        k -> new RequestRateLimiter(k, requestsPerSecond, burst, maxConcurrency));
+    if (limiter.requestsPerSecond != requestsPerSecond || limiter.burst != burst
+        || limiter.maxConcurrency != maxConcurrency) {
+      LOG.warn("Rate limiter {} exists with {} requests per second, burst {}, and max concurrency {}, "
+              + "which are used instead of the configured limits",
+          name, limiter.requestsPerSecond, limiter.burst, limiter.maxConcurrency);
+    }
+    return limiter;
+  }
+
+  /**
+   * @param uri the request URI
+   * @return the limiter name of a URI, which is its host and port
+   */
+  public static String getHostKey(URI uri) {
+    String host = uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+    return uri.getPort() < 0 ? host : host + ":" + uri.getPort();
+  }
+
+  /**
+   * Take a token, waiting until one is available
+   */
+  public void acquireToken() throws InterruptedException {
+    long waitNanos = reserveToken();
+    if (waitNanos > 0) {
+      LOG.debug("Rate limiter {} delays the request by {} ms", name, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  /**
+   * Reserve a token, which is available right away, or after the returned wait
+   *
+   * @return the nanoseconds to wait until the reserved token is due
+   */
+  synchronized long reserveToken() {
+    if (requestsPerSecond <= 0) {
+      return 0;
+    }
+    refill();
+    // a negative balance reserves tokens that are not yet added
+    tokens -= 1;
+    return tokens >= 0 ? 0 : (long) (-tokens * NANOS_PER_SECOND / requestsPerSecond);
+  }
+
+  /**
+   * Take a token if one is available, without waiting
+   *
+   * @return true if a token is taken
+   */
+  public synchronized boolean tryAcquireToken() {
+    if (requestsPerSecond <= 0) {
+      return true;
+    }
+    refill();
+    if (tokens < 1) {
+      return false;
+    }
+    tokens -= 1;
+    return true;
+  }
+
+  /**
+   * Add the tokens of the time since the last refill, up to the burst size
+   */
+  private void refill() {
+    long now = clock.getAsLong();
+    tokens = Math.min(burst, tokens + (now - refilledNanos) * requestsPerSecond / NANOS_PER_SECOND);
+    refilledNanos = now;
+  }
+
+  /**
+   * Take a concurrency permit, waiting until one is available
+   */
+  public void acquirePermit() throws InterruptedException {
+    if (concurrency != null) {
+      concurrency.acquire();
+    }
+  }
+
+  /**
+   * Take a concurrency permit if one is available, without waiting
+   *
+   * @return true if a permit is taken
+   */
+  public boolean tryAcquirePermit() {
+    return concurrency == null || concurrency.tryAcquire();
+  }
+
+  /**
+   * Return a concurrency permit taken by {@link #acquirePermit()} or {@link #tryAcquirePermit()}
+   */
+  public void releasePermit() {
+    if (concurrency != null) {
+      concurrency.release();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public double getRequestsPerSecond() {
+    return requestsPerSecond;
+  }
+
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+}
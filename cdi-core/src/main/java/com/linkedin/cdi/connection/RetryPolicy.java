@@ -0,0 +1,26 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import org.apache.http.HttpResponse;
+
+
+/**
+ * A retry policy decides whether a failed HTTP request should be retried, and
+ * how long to wait before the retry.
+ *
+ * Implementations are configured through ms.http.retry, and they must have a
+ * public constructor taking a State parameter.
+ */
+public interface RetryPolicy {
+  /**
+   * @param attempt the number of attempts made so far, starting from 1
+   * @param response the unsuccessful response, or null if the request failed with an exception
+   * @param exception the exception of the failed request, or null if there is a response
+   * @return the delay in milliseconds before the next attempt, or a negative number
+   * if the request should not be retried
+   */
+  long getRetryDelayMillis(int attempt, HttpResponse response, Throwable exception);
+}
@@ -74,6 +74,11 @@ public class S3Connection extends MultistageConnection {
     s3SourceV2Keys = (S3Keys) jobKeys;
   }
 
+  @Override
+  public S3Connection fork(State state, ExtractorKeys extractorKeys) {
+    return new S3Connection(state, s3SourceV2Keys, extractorKeys);
+  }
+
   @Override
   public WorkUnitStatus execute(WorkUnitStatus status) {
     s3Client = getS3HttpClient(getState());
@@ -36,6 +36,11 @@ public class SftpConnection extends MultistageConnection {
     sftpSourceKeys = (SftpKeys) jobKeys;
   }
 
+  @Override
+  public SftpConnection fork(State state, ExtractorKeys extractorKeys) {
+    return new SftpConnection(state, sftpSourceKeys, extractorKeys);
+  }
+
   @Override
   public boolean closeAll(String message) {
     if (this.fsClient != null) {
@@ -0,0 +1,412 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.extractor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.connection.MultistageConnection;
+import com.linkedin.cdi.keys.JobKeys;
+import com.linkedin.cdi.util.EndecoUtils;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.source.extractor.WatermarkInterval;
+import org.apache.gobblin.source.extractor.extract.LongWatermark;
+import org.apache.gobblin.source.workunit.WorkUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * BatchExtractor extracts the units of a work unit batch, see ms.work.unit.batch.size.
+ *
+ * Each unit is extracted by an extractor of the configured extractor class, with a work
+ * unit state of its own, as if the unit were a work unit, and with a connection forked
+ * from the connection of the batch. Up to ms.work.unit.batch.parallelism units are
+ * extracted concurrently, and their records are merged into the output of the batch.
+ *
+ * With ms.work.unit.batch.request, the values of up to "size" units are coalesced into
+ * the activation parameters of one extractor, so that they are requested together. A failed
+ * request fails its units, and so the batch, and it is not retried in smaller requests, because
+ * the records of the other units would not be committed either. Records are split back to
+ * units by the "key" field for the record counts of units.
+ *
+ * The schema of the batch is the schema of its first unit. The high watermark of each
+ * unit is kept in ms.work.unit.batch.watermarks by unit signature, so that the following
+ * executions can decide the range of each unit independently.
+ *
+ * @param <S> the schema type of the extractor class
+ * @param <D> the record type of the extractor class
+ */
+public class BatchExtractor<S, D> extends MultistageExtractor<S, D> {
+  private static final Logger LOG = LoggerFactory.getLogger(BatchExtractor.class);
+  // marks the end of the records of a unit in the record queue
+  private static final Object END_OF_UNIT = new Object();
+  private static final int RECORD_QUEUE_CAPACITY = 1000;
+  private static final long TERMINATION_TIMEOUT_SECONDS = 10;
+
+  private final Function<WorkUnitState, MultistageExtractor<S, D>> extractorFactory;
+  private final JsonArray units;
+  private final int parallelism;
+  private final int requestSize;
+  private final String recordKey;
+  private final BlockingQueue<Object> records = new ArrayBlockingQueue<>(RECORD_QUEUE_CAPACITY);
+  private final CompletableFuture<S> schema = new CompletableFuture<>();
+  private final Map<String, Boolean> unitResults = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> unitRecords = new ConcurrentHashMap<>();
+  private final AtomicLong requests = new AtomicLong();
+  private ExecutorService executor = null;
+  private int completedUnits = 0;
+
+  /**
+   * @param state the work unit state of the batch
+   * @param jobKeys the job keys
+   * @param extractorFactory creates an extractor of the extractor class for the work unit state of a unit
+   */
+  public BatchExtractor(WorkUnitState state, JobKeys jobKeys,
+      Function<WorkUnitState, MultistageExtractor<S, D>> extractorFactory) {
+    super(state, jobKeys);
+    this.extractorFactory = extractorFactory;
+    this.units = MSTAGE_WORK_UNIT_BATCH_UNITS.get(state);
+    boolean batchRequest = MSTAGE_WORK_UNIT_BATCH_REQUEST.isEnabled(state);
+    this.requestSize = batchRequest ? MSTAGE_WORK_UNIT_BATCH_REQUEST.getSize(state) : 1;
+    this.recordKey = batchRequest ? MSTAGE_WORK_UNIT_BATCH_REQUEST.getKey(state) : StringUtils.EMPTY;
+    int requestCount = (units.size() + requestSize - 1) / requestSize;
+    this.parallelism = Math.min(MSTAGE_WORK_UNIT_BATCH_PARALLELISM.get(state), Math.max(requestCount, 1));
+    extractorKeys.setSignature(DATASET_URN.get(state));
+  }
+
+  /**
+   * @return the number of extractions, each of a unit or of the coalesced units of a request
+   */
+  public long getRequests() {
+    return requests.get();
+  }
+
+  /**
+   * @param signature the unit signature
+   * @return the number of records of the unit, or 0 if the records are not attributed to the unit
+   */
+  public long getUnitRecords(String signature) {
+    AtomicLong count = unitRecords.get(signature);
+    return count == null ? 0 : count.get();
+  }
+
+  @Override
+  public S getSchema() {
+    start();
+    try {
+      return schema.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  // the queue has records of type D and the end-of-unit marker only
+  @SuppressWarnings("unchecked")
+  @Nullable
+  @Override
+  public D readRecord(D reuse) {
+    start();
+    try {
+      while (completedUnits < units.size()) {
+        Object record = records.take();
+        if (record == END_OF_UNIT) {
+          completedUnits++;
+        } else {
+          return (D) record;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failWorkUnit("Interrupted while extracting work unit batch " + extractorKeys.getSignature());
+    }
+    return null;
+  }
+
+  /**
+   * Start extracting the units, the first units are started first so that the schema is available soon
+   */
+  private synchronized void start() {
+    if (executor != null) {
+      return;
+    }
+    LOG.info("Extracting {} units with parallelism {} and up to {} units per request in work unit batch {}",
+        units.size(), parallelism, requestSize, extractorKeys.getSignature());
+    executor = Executors.newFixedThreadPool(parallelism,
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("batch-extractor-%d").build());
+    for (int i = 0; i < units.size(); i += requestSize) {
+      JsonArray group = new JsonArray();
+      for (int j = i; j < Math.min(i + requestSize, units.size()); j++) {
+        group.add(units.get(j));
+      }
+      boolean first = i == 0;
+      executor.submit(() -> extractUnits(group, first));
+    }
+    if (units.size() == 0) {
+      schema.complete(null);
+    }
+  }
+
+  /**
+   * Extract units through an extractor of the extractor class, passing their records
+   * to the record queue, and record whether the extraction is successful.
+   *
+   * @param group the units, each with its unit partition, signature, and low watermark
+   * @param first true if the units include the first unit, which provides the schema of the batch
+   */
+  private void extractUnits(JsonArray group, boolean first) {
+    String signature = group.get(0).getAsJsonObject().get(KEY_WORD_SIGNATURE).getAsString();
+    WorkUnitState unitState = createUnitState(group);
+    Map<String, String> signatures = getSignaturesByKey(group);
+    MultistageExtractor<S, D> extractor = null;
+    boolean succeeded = false;
+    requests.incrementAndGet();
+    try {
+      extractor = extractorFactory.apply(unitState);
+      MultistageConnection unitConnection = connection == null ? null
+          : connection.fork(unitState, extractor.getExtractorKeys());
+      if (unitConnection == null) {
+        throw new UnsupportedOperationException("Work unit batches are not supported by the connection");
+      }
+      extractor.setConnection(unitConnection);
+
+      S unitSchema = extractor.getSchema();
+      if (first) {
+        schema.complete(unitSchema);
+      }
+      for (D record = extractor.readRecord(null); record != null; record = extractor.readRecord(null)) {
+        countRecord(record, signature, signatures);
+        records.put(record);
+      }
+      succeeded = unitState.getWorkingState() != WorkUnitState.WorkingState.FAILED;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      LOG.error("Error extracting units starting from {}", signature, e);
+    } finally {
+      unitState.setWorkingState(succeeded ? WorkUnitState.WorkingState.SUCCESSFUL
+          : WorkUnitState.WorkingState.FAILED);
+      if (extractor != null) {
+        try {
+          extractor.close();
+        } catch (Exception e) {
+          LOG.warn("Error closing the extractor of units starting from {}", signature, e);
+        }
+      }
+
+      completeUnits(group, succeeded, first);
+    }
+  }
+
+  /**
+   * Record the result of units and mark the end of their records
+   */
+  private void completeUnits(JsonArray group, boolean succeeded, boolean first) {
+    if (first) {
+      schema.completeExceptionally(new RuntimeException(
+          "Failed to extract the first unit of work unit batch " + extractorKeys.getSignature()));
+    }
+    for (JsonElement unit : group) {
+      String signature = unit.getAsJsonObject().get(KEY_WORD_SIGNATURE).getAsString();
+      unitResults.put(signature, succeeded);
+      LOG.info("Extraction of unit {} is {}", signature, succeeded ? "successful" : "failed");
+    }
+    if (!Thread.currentThread().isInterrupted()) {
+      try {
+        for (int i = 0; i < group.size(); i++) {
+          records.put(END_OF_UNIT);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Attribute a record to its unit, by the key field when units are coalesced
+   *
+   * @param record the record
+   * @param signature the signature of the first unit of the request
+   * @param signatures the unit signatures by unit value, when units are coalesced
+   */
+  private void countRecord(D record, String signature, Map<String, String> signatures) {
+    String unitSignature = signature;
+    if (signatures.size() > 1) {
+      Object value = record instanceof JsonObject && ((JsonObject) record).has(recordKey)
+          ? ((JsonObject) record).get(recordKey).getAsString()
+          : record instanceof GenericRecord && ((GenericRecord) record).getSchema().getField(recordKey) != null
+              ? ((GenericRecord) record).get(recordKey) : null;
+      unitSignature = value == null ? null : signatures.get(value.toString());
+    }
+    if (unitSignature != null) {
+      unitRecords.computeIfAbsent(unitSignature, x -> new AtomicLong()).incrementAndGet();
+    }
+  }
+
+  /**
+   * @param group the units
+   * @return the unit signatures by unit value, or by the unit signature if records are not split by key
+   */
+  private Map<String, String> getSignaturesByKey(JsonArray group) {
+    Map<String, String> signatures = new HashMap<>();
+    for (JsonElement element : group) {
+      JsonObject unit = element.getAsJsonObject();
+      String signature = unit.get(KEY_WORD_SIGNATURE).getAsString();
+      if (StringUtils.isBlank(recordKey) || group.size() == 1) {
+        signatures.put(signature, signature);
+        continue;
+      }
+      for (Map.Entry<String, JsonElement> entry : getUnitValues(unit).entrySet()) {
+        signatures.put(entry.getValue().getAsString(), signature);
+      }
+    }
+    return signatures;
+  }
+
+  /**
+   * @param unit the unit
+   * @return the activation parameters of the unit, which are the unit values
+   */
+  private JsonObject getUnitValues(JsonObject unit) {
+    try {
+      return GSON.fromJson(unit.get(KEY_WORD_UNIT).getAsString(), JsonObject.class);
+    } catch (Exception e) {
+      return new JsonObject();
+    }
+  }
+
+  /**
+   * Create the work unit state of units, which has the properties of the batch, the
+   * activation and the signature of the units, and the watermark range of the units.
+   * The unit values of coalesced units are joined per ms.work.unit.batch.request.
+   *
+   * @param group the units, each with its unit partition, signature, and low watermark
+   * @return the work unit state of the units
+   */
+  WorkUnitState createUnitState(JsonArray group) {
+    JsonObject first = group.get(0).getAsJsonObject();
+    long lowWatermark = Long.MAX_VALUE;
+    for (JsonElement unit : group) {
+      lowWatermark = Long.min(lowWatermark, unit.getAsJsonObject().get(KEY_WORD_LOW_WATERMARK).getAsLong());
+    }
+    String unitPartition = group.size() == 1 ? first.get(KEY_WORD_UNIT).getAsString() : joinUnitValues(group);
+
+    WorkUnit workUnit = WorkUnit.create(state.getExtract(),
+        new WatermarkInterval(
+            new LongWatermark(lowWatermark),
+            new LongWatermark(state.getWorkunit().getExpectedHighWatermark(LongWatermark.class).getValue())));
+    workUnit.addAll(state.getWorkunit());
+    workUnit.removeProp(MSTAGE_WORK_UNIT_BATCH_UNITS.getConfig());
+    if (group.size() == 1) {
+      // the batch request settings don't apply to a request of a single unit, which is not coalesced
+      workUnit.setProp(MSTAGE_WORK_UNIT_BATCH_REQUEST.getConfig(), new JsonObject().toString());
+    }
+    workUnit.setProp(DATASET_URN.getConfig(), EndecoUtils.getHadoopFsEncoded(first.get(KEY_WORD_SIGNATURE).getAsString()));
+    workUnit.setProp(MSTAGE_ACTIVATION_PROPERTY.getConfig(), unitPartition);
+    JsonArray watermarkGroups = MSTAGE_WATERMARK_GROUPS.get(state);
+    if (watermarkGroups.size() > 1) {
+      workUnit.setProp(watermarkGroups.get(1).getAsString(), unitPartition);
+    }
+    return new WorkUnitState(workUnit, state);
+  }
+
+  /**
+   * Join the unit values of units per activation parameter, into a string by the delimiter,
+   * or into a JSON array
+   *
+   * @param group the units
+   * @return the activation parameters of the coalesced units
+   */
+  private String joinUnitValues(JsonArray group) {
+    boolean arrayFormat = MSTAGE_WORK_UNIT_BATCH_REQUEST.isArrayFormat(state);
+    String delimiter = MSTAGE_WORK_UNIT_BATCH_REQUEST.getDelimiter(state);
+    Map<String, List<JsonElement>> values = new HashMap<>();
+    List<String> names = new ArrayList<>();
+    for (JsonElement unit : group) {
+      for (Map.Entry<String, JsonElement> entry : getUnitValues(unit.getAsJsonObject()).entrySet()) {
+        if (!values.containsKey(entry.getKey())) {
+          names.add(entry.getKey());
+        }
+        values.computeIfAbsent(entry.getKey(), x -> new ArrayList<>()).add(entry.getValue());
+      }
+    }
+    JsonObject activation = new JsonObject();
+    for (String name : names) {
+      if (arrayFormat) {
+        JsonArray array = new JsonArray();
+        values.get(name).forEach(array::add);
+        activation.add(name, array);
+      } else {
+        List<String> strings = new ArrayList<>();
+        values.get(name).forEach(x -> strings.add(x.getAsString()));
+        activation.addProperty(name, String.join(delimiter, strings));
+      }
+    }
+    return activation.toString();
+  }
+
+  /**
+   * Stop extracting, and record the high watermark of each unit. A failed unit fails
+   * the batch, and the high watermarks of the units of a failed batch are their low
+   * watermarks, because the records of a failed work unit are not committed.
+   */
+  @Override
+  public void close() {
+    if (executor != null) {
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    if (unitResults.size() < units.size() || unitResults.containsValue(false)) {
+      failWorkUnit(String.format("%d of %d units failed or didn't complete in work unit batch %s",
+          units.size() - unitResults.values().stream().filter(x -> x).count(), units.size(),
+          extractorKeys.getSignature()));
+    }
+    if (requestSize > 1 && StringUtils.isNotBlank(recordKey)) {
+      long unitsWithoutRecords = units.size() - unitRecords.size();
+      LOG.info("{} requests for {} units, {} units without records by key {}",
+          requests.get(), units.size(), unitsWithoutRecords, recordKey);
+    }
+
+    boolean successful = state.getWorkingState().equals(WorkUnitState.WorkingState.SUCCESSFUL);
+    long highWatermark = state.getWorkunit().getExpectedHighWatermark(LongWatermark.class).getValue();
+    JsonObject watermarks = new JsonObject();
+    for (JsonElement element : units) {
+      JsonObject unit = element.getAsJsonObject();
+      watermarks.addProperty(unit.get(KEY_WORD_SIGNATURE).getAsString(),
+          successful ? highWatermark : unit.get(KEY_WORD_LOW_WATERMARK).getAsLong());
+    }
+    state.setProp(MSTAGE_WORK_UNIT_BATCH_WATERMARKS.getConfig(), watermarks.toString());
+    super.close();
+  }
+}
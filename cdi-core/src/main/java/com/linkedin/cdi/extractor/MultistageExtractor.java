@@ -12,6 +12,7 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.linkedin.cdi.configuration.StaticConstants;
 import com.linkedin.cdi.connection.MultistageConnection;
+import com.linkedin.cdi.connection.ParallelPageFetcher;
 import com.linkedin.cdi.exception.RetriableAuthenticationException;
 import com.linkedin.cdi.filter.JsonSchemaBasedFilter;
 import com.linkedin.cdi.filter.MultistageSchemaBasedFilter;
@@ -30,6 +31,7 @@ import com.linkedin.cdi.util.SchemaBuilder;
 import com.linkedin.cdi.util.SecretManager;
 import com.linkedin.cdi.util.VariableUtils;
 import com.linkedin.cdi.util.WorkUnitStatus;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -89,6 +91,9 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
   JsonObject currentParameters = null;
   MultistageConnection connection = null;
   JobKeys jobKeys;
+  // requests the remaining pages concurrently, see ms.pagination.parallelism
+  ParallelPageFetcher pageFetcher = null;
+  private boolean pageFetcherChecked = false;
 
   public WorkUnitStatus getWorkUnitStatus() {
     return workUnitStatus;
@@ -211,13 +216,26 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
       state.setActualHighWatermark(state.getWorkunit().getLowWatermark(LongWatermark.class));
     }
 
+    closePageFetcher();
     if (connection != null) {
       connection.closeAll(StringUtils.EMPTY);
     }
 
+    // release resources, like buffers, held by preprocessors
+    for (StreamProcessor<?> processor : extractorKeys.getPreprocessors()) {
+      if (processor instanceof Closeable) {
+        try {
+          ((Closeable) processor).close();
+        } catch (IOException e) {
+          LOG.warn("Error closing preprocessor {}", processor.getClass().getName(), e);
+        }
+      }
+    }
+
     // reset counters for retrying
     extractorKeys.setProcessedCount(0);
     workUnitStatus = WorkUnitStatus.builder().build();
+    pageFetcherChecked = false;
   }
 
   /**
@@ -235,7 +253,18 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
       return false;
     }
 
-    currentParameters = isFirst(starting) ? getInitialWorkUnitParameters() : getCurrentWorkUnitParameters();
+    // once the total count is known, the remaining pages might be requested concurrently
+    if (!isFirst(starting) && !pageFetcherChecked) {
+      pageFetcherChecked = true;
+      pageFetcher = createPageFetcher(starting);
+    }
+    if (pageFetcher != null && !pageFetcher.hasNext()) {
+      // continue with sequential requests if the pages returned fewer records than expected
+      closePageFetcher();
+    }
+
+    currentParameters = isFirst(starting) ? getInitialWorkUnitParameters()
+        : pageFetcher != null ? pageFetcher.getNextParameters() : getCurrentWorkUnitParameters();
     extractorKeys.setDynamicParameters(currentParameters);
 
     WorkUnitStatus updatedStatus = null;
@@ -243,6 +272,7 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
     while (retryies > 0) {
       try {
         updatedStatus = connection == null ? null : isFirst(starting) ? connection.executeFirst(this.workUnitStatus)
+            : pageFetcher != null ? pageFetcher.next(this.workUnitStatus)
             : connection.executeNext(this.workUnitStatus);
         retryies = 0;
       } catch (RetriableAuthenticationException e) {
@@ -903,8 +933,16 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
   }
 
   protected JsonObject getCurrentWorkUnitParameters() {
+    return getWorkUnitParameters(this.getWorkUnitStatus());
+  }
+
+  /**
+   * @param wuStatus the work unit status after the prior request
+   * @return the parameters of the request following the work unit status
+   */
+  private JsonObject getWorkUnitParameters(WorkUnitStatus wuStatus) {
     JsonObject definedParameters = JsonParameter.getParametersAsJson(MSTAGE_PARAMETERS.get(state).toString(),
-        getUpdatedWorkUnitVariableValues(getInitialWorkUnitVariableValues()), state);
+        getUpdatedWorkUnitVariableValues(getInitialWorkUnitVariableValues(), wuStatus), state);
     JsonObject currentParameters = replaceVariablesInParameters(appendActivationParameter(definedParameters));
 
     if (payloadIterator != null && payloadIterator.hasNext()) {
@@ -932,11 +970,11 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
    *    b. return a specific status, such as "complete", in response
    *
    * @param initialVariableValues initial variable values
+   * @param wuStatus the work unit status after the prior request
    * @return the updated variable values
    */
-  private JsonObject getUpdatedWorkUnitVariableValues(JsonObject initialVariableValues) {
+  private JsonObject getUpdatedWorkUnitVariableValues(JsonObject initialVariableValues, WorkUnitStatus wuStatus) {
     JsonObject updatedVariableValues = JsonUtils.deepCopy(initialVariableValues).getAsJsonObject();
-    WorkUnitStatus wuStatus = this.getWorkUnitStatus();
 
     // if session key is used, the extractor has to provide it int its work unit status
     // in order for this to work
@@ -971,6 +1009,80 @@ public class MultistageExtractor<S, D> implements Extractor<S, D> {
     return updatedVariableValues;
   }
 
+  /**
+   * Create a fetcher that requests the remaining pages concurrently, when ms.pagination.parallelism
+   * is more than 1, the total count is known from the responses, and the pages are addressed by
+   * page start or page number. Pagination by session keys or by payloads is always sequential,
+   * because each request depends on the prior response.
+   *
+   * The remaining pages are assumed to be full pages, i.e. of the page size, and their parameters
+   * are made from the current work unit status as if the pages were requested one after another.
+   *
+   * @param starting the number of records processed
+   * @return the page fetcher, or null if the pages should be requested sequentially
+   */
+  private ParallelPageFetcher createPageFetcher(long starting) {
+    int parallelism = MSTAGE_PAGINATION_PARALLELISM.get(state);
+    if (parallelism <= 1 || connection == null || StringUtils.isBlank(jobKeys.getTotalCountField())
+        || workUnitStatus.getTotalCount() <= starting || jobKeys.isSessionStateEnabled()
+        || jobKeys.getSessionKeyField() != null && jobKeys.getSessionKeyField().entrySet().size() > 0
+        || extractorKeys.getPayloads().size() > 0 || !hasPageParameter()) {
+      return null;
+    }
+
+    long pageSize = workUnitStatus.getPageSize() > 0 ? workUnitStatus.getPageSize()
+        : jobKeys.getPaginationInitValues().getOrDefault(ParameterTypes.PAGESIZE, 0L);
+    if (pageSize <= 0) {
+      return null;
+    }
+
+    long pageCount = (workUnitStatus.getTotalCount() - starting + pageSize - 1) / pageSize;
+    WorkUnitStatus firstPage = workUnitStatus.toBuilder().build();
+    Iterator<JsonObject> pageParameters = new Iterator<JsonObject>() {
+      private long page = 0;
+
+      @Override
+      public boolean hasNext() {
+        return page < pageCount;
+      }
+
+      @Override
+      public JsonObject next() {
+        WorkUnitStatus pageStatus = firstPage.toBuilder().build()
+            .setPageStart(firstPage.getPageStart() + page * pageSize)
+            .setPageNumber(firstPage.getPageNumber() + page)
+            .setPageSize(pageSize);
+        page++;
+        return getWorkUnitParameters(pageStatus);
+      }
+    };
+    LOG.info("Requesting {} remaining pages of {} records with parallelism {}", pageCount, pageSize, parallelism);
+    return ParallelPageFetcher.create(connection, pageParameters, parallelism);
+  }
+
+  /**
+   * @return true if ms.parameters has a page start or a page number parameter
+   */
+  private boolean hasPageParameter() {
+    for (JsonElement parameter : MSTAGE_PARAMETERS.get(state)) {
+      if (parameter.isJsonObject() && parameter.getAsJsonObject().has(KEY_WORD_TYPE)) {
+        String type = parameter.getAsJsonObject().get(KEY_WORD_TYPE).getAsString();
+        if (type.equalsIgnoreCase(ParameterTypes.PAGESTART.toString())
+            || type.equalsIgnoreCase(ParameterTypes.PAGENO.toString())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private void closePageFetcher() {
+    if (pageFetcher != null) {
+      pageFetcher.close();
+      pageFetcher = null;
+    }
+  }
+
   /**
    * Read payload records from secondary input location. Subclasses might
    * override this to process payload differently.
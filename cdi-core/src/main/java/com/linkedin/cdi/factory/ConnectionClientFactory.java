@@ -4,6 +4,7 @@
 
 package com.linkedin.cdi.factory;
 
+import com.linkedin.cdi.factory.http.HttpRequestClient;
 import com.linkedin.cdi.factory.reader.SchemaReader;
 import com.linkedin.cdi.factory.sftp.SftpClient;
 import java.sql.Connection;
@@ -24,6 +25,15 @@ public interface ConnectionClientFactory {
    */
   HttpClient getHttpClient(State state);
 
+  /**
+   * Initiate an HTTP client that is not a classic HttpClient, like an HTTP/2 client
+   * @param state the State of execution environment
+   * @return an HTTP request client object, or null if HTTP sources use the client of getHttpClient
+   */
+  default HttpRequestClient getHttpRequestClient(State state) {
+    return null;
+  }
+
   /**
    * Initiate an S3 HTTP client
    * @param state the state of execution environment
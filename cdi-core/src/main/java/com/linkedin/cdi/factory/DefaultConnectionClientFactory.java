@@ -4,6 +4,9 @@
 
 package com.linkedin.cdi.factory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.linkedin.cdi.factory.jdbc.JdbcConnectionPool;
 import com.linkedin.cdi.factory.reader.JsonFileReader;
 import com.linkedin.cdi.factory.reader.SchemaReader;
 import com.linkedin.cdi.factory.sftp.SftpChannelClient;
@@ -11,6 +14,8 @@ import com.linkedin.cdi.factory.sftp.SftpClient;
 import com.linkedin.cdi.util.SecretManager;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.apache.gobblin.configuration.State;
 import org.apache.http.client.HttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
@@ -20,6 +25,7 @@ import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.utils.AttributeMap;
 
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
 import static software.amazon.awssdk.http.SdkHttpConfigurationOption.*;
 
 
@@ -28,6 +34,13 @@ import static software.amazon.awssdk.http.SdkHttpConfigurationOption.*;
  */
 public class DefaultConnectionClientFactory implements ConnectionClientFactory {
   private static final Logger LOG = LoggerFactory.getLogger(DefaultConnectionClientFactory.class);
+  private static final int DECRYPTED_MAX_ENTRIES = 100;
+  private static final long DECRYPTED_EXPIRY_MINUTES = 5;
+  // decrypted credentials by their encrypted values, which are kept for a few minutes rather than for the JVM
+  private static final Cache<String, String> DECRYPTED = CacheBuilder.newBuilder()
+      .maximumSize(DECRYPTED_MAX_ENTRIES)
+      .expireAfterWrite(DECRYPTED_EXPIRY_MINUTES, TimeUnit.MINUTES)
+      .build();
 
   /**
    * Initiate an HTTP client
@@ -36,7 +49,8 @@ public class DefaultConnectionClientFactory implements ConnectionClientFactory {
    */
   @Override
   public HttpClient getHttpClient(State state) {
-    return HttpClientBuilder.create().build();
+    // content is decoded by HttpConnection per ms.http.accept.encoding
+    return HttpClientBuilder.create().disableContentCompression().build();
   }
 
   /**
@@ -53,6 +67,12 @@ public class DefaultConnectionClientFactory implements ConnectionClientFactory {
   }
   /**
    * Initiate a JDBC Connection
+   *
+   * Connections are borrowed from a JVM-wide pool per URL, user, and pool settings when
+   * ms.jdbc.connection.pool is configured, and closing a connection returns it to the pool.
+   * Decrypted credentials are cached for a few minutes, so that the connections of a work
+   * unit don't decrypt them again.
+   *
    * @param jdbcUrl plain or encrypted URL
    * @param userId plain or encrypted user name
    * @param cryptedPassword plain or encrypted password
@@ -62,16 +82,33 @@ public class DefaultConnectionClientFactory implements ConnectionClientFactory {
   @Override
   public Connection getJdbcConnection(String jdbcUrl, String userId, String cryptedPassword, State state) {
     try {
-      return DriverManager.getConnection(
-          SecretManager.getInstance(state).decrypt(jdbcUrl),
-          SecretManager.getInstance(state).decrypt(userId),
-          SecretManager.getInstance(state).decrypt(cryptedPassword));
+      String url = decrypt(jdbcUrl, state);
+      String user = decrypt(userId, state);
+      String password = decrypt(cryptedPassword, state);
+      if (!MSTAGE_JDBC_CONNECTION_POOL.isEnabled(state)) {
+        return DriverManager.getConnection(url, user, password);
+      }
+      return JdbcConnectionPool.getInstance(url, user,
+          MSTAGE_JDBC_CONNECTION_POOL.getMaxSize(state),
+          MSTAGE_JDBC_CONNECTION_POOL.getMaxWaitSeconds(state),
+          MSTAGE_JDBC_CONNECTION_POOL.getIdleTimeoutSeconds(state),
+          MSTAGE_JDBC_CONNECTION_POOL.getValidationTimeoutSeconds(state),
+          MSTAGE_JDBC_CONNECTION_POOL.getLeakDetectionSeconds(state),
+          MSTAGE_JDBC_CONNECTION_POOL.getStatementCacheSize(state)).getConnection(password);
     } catch (Exception e) {
       LOG.error("Error creating JDBC connection", e);
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Decrypt a value, or get the decrypted value from the cache
+   */
+  private static String decrypt(String value, State state) throws ExecutionException {
+    return value == null ? null
+        : DECRYPTED.get(value, () -> SecretManager.getInstance(state).decrypt(value));
+  }
+
   /**
    * Initiate a Secure Channel client for SFTP Connection
    * @param state the state of execution environment
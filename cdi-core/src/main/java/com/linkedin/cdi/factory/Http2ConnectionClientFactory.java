@@ -0,0 +1,58 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory;
+
+import com.linkedin.cdi.factory.http.Http2AsyncClient;
+import com.linkedin.cdi.factory.http.HttpRequestClient;
+import com.linkedin.cdi.factory.network.KeyCertRetriever;
+import com.linkedin.cdi.factory.network.SecureNetworkUtil;
+import java.io.IOException;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.gobblin.configuration.State;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+
+
+/**
+ * This implementation executes HTTP requests over HTTP/2, multiplexing concurrent
+ * requests to the same host over a shared connection.
+ *
+ * It is selected by setting ms.connection.client.factory to this class. The source
+ * must support HTTP/2, through ALPN for "https" URIs, or with prior knowledge over
+ * cleartext (h2c) for "http" URIs.
+ *
+ * When ms.ssl has a key store, the key store and the trust store are loaded into the
+ * SSL context of the client, as with SecureConnectionClientFactory. Otherwise the default
+ * SSL context of the JVM is used.
+ *
+ * {@link #getHttpClient(State)} still returns the classic HTTP/1.1 client of the default
+ * factory, for callers that need a classic HttpClient.
+ */
+public class Http2ConnectionClientFactory extends DefaultConnectionClientFactory {
+
+  /**
+   * Initiate an HTTP/2 client
+   * @param state the State of execution environment
+   * @return an HTTP/2 client object
+   */
+  @Override
+  public HttpRequestClient getHttpRequestClient(State state) {
+    String keyStorePath = MSTAGE_SSL.getKeyStorePath(state);
+    if (StringUtils.isBlank(keyStorePath)) {
+      return new Http2AsyncClient(
+          MSTAGE_SSL.getConnectionTimeoutMillis(state),
+          MSTAGE_SSL.getSocketTimeoutMillis(state));
+    }
+    // clients with the same stores and version share a connection per host
+    String tlsName = String.join("|", keyStorePath, MSTAGE_SSL.getTrustStorePath(state), MSTAGE_SSL.getVersion(state));
+    return new Http2AsyncClient(tlsName, () -> {
+      try {
+        return SecureNetworkUtil.createSSLContext(new KeyCertRetriever(state), MSTAGE_SSL.getVersion(state));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }, MSTAGE_SSL.getConnectionTimeoutMillis(state), MSTAGE_SSL.getSocketTimeoutMillis(state));
+  }
+}
@@ -45,7 +45,7 @@ public class SecureConnectionClientFactory extends DefaultConnectionClientFactor
         MSTAGE_SSL.getConnectionTimeoutMillis(state),
         MSTAGE_SSL.getSocketTimeoutMillis(state),
         MSTAGE_SSL.getVersion(state),
-        null, -1).build();
+        null, -1).disableContentCompression().build();
   }
 
   /**
@@ -0,0 +1,351 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import javax.net.ssl.SSLContext;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.ssl.ClientTlsStrategyBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.apache.hc.core5.util.Timeout;
+import org.apache.http.Header;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.ProtocolVersion;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.message.BasicStatusLine;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An HttpClient that executes requests over HTTP/2 through a shared asynchronous client.
+ *
+ * All instances in the JVM share one asynchronous client, which multiplexes concurrent
+ * requests to the same host as streams over a single connection, so that page requests
+ * and work unit requests don't need a connection each. Plain "http" URIs are requested
+ * through HTTP/2 over cleartext (h2c) with prior knowledge, and "https" URIs through
+ * HTTP/2 negotiated by ALPN. Clients with different TLS settings, like the key store and
+ * the trust store of ms.ssl, share different asynchronous clients.
+ *
+ * This class adapts the asynchronous client to the HttpRequestClient interface, so that
+ * it can be used by HttpConnection. The response is returned as soon as the response
+ * headers are received, and the response content is streamed through a bounded buffer,
+ * with HTTP/2 flow control holding back the server when the reader is slower.
+ *
+ * Closing an instance doesn't close the shared client.
+ */
+public class Http2AsyncClient implements HttpRequestClient {
+  private static final Logger LOG = LoggerFactory.getLogger(Http2AsyncClient.class);
+  private static final ProtocolVersion HTTP_2 = new ProtocolVersion("HTTP", 2, 0);
+  private static final int BUFFER_SIZE = 64 * 1024;
+  // the shared asynchronous clients by the names of their TLS settings
+  private static final Map<String, CloseableHttpAsyncClient> SHARED_CLIENTS = new ConcurrentHashMap<>();
+  private static final String DEFAULT_TLS = "default";
+
+  private final String tlsName;
+  private final Supplier<SSLContext> sslContextSupplier;
+  private final int connectTimeoutMillis;
+  private final int responseTimeoutMillis;
+
+  /**
+   * A client with the default TLS settings of the JVM
+   *
+   * @param connectTimeoutMillis connection timeout in milliseconds
+   * @param responseTimeoutMillis timeout of waiting for response data in milliseconds
+   */
+  public Http2AsyncClient(int connectTimeoutMillis, int responseTimeoutMillis) {
+    this(DEFAULT_TLS, SSLContexts::createSystemDefault, connectTimeoutMillis, responseTimeoutMillis);
+  }
+
+  /**
+   * A client with its own TLS settings
+   *
+   * @param tlsName the name of the TLS settings, clients with the same name share an asynchronous client
+   * @param sslContextSupplier the supplier of the SSL context, called when no client of the name exists yet
+   * @param connectTimeoutMillis connection timeout in milliseconds
+   * @param responseTimeoutMillis timeout of waiting for response data in milliseconds
+   */
+  public Http2AsyncClient(String tlsName, Supplier<SSLContext> sslContextSupplier,
+      int connectTimeoutMillis, int responseTimeoutMillis) {
+    this.tlsName = tlsName;
+    this.sslContextSupplier = sslContextSupplier;
+    this.connectTimeoutMillis = connectTimeoutMillis;
+    this.responseTimeoutMillis = responseTimeoutMillis;
+  }
+
+  /**
+   * Get the shared asynchronous client of the TLS settings, and create it when it doesn't exist yet
+   */
+  private CloseableHttpAsyncClient getSharedClient() {
+    return SHARED_CLIENTS.computeIfAbsent(tlsName, name -> {
+      CloseableHttpAsyncClient client = HttpAsyncClients.customHttp2()
+          .useSystemProperties()
+          .setTlsStrategy(ClientTlsStrategyBuilder.create().setSslContext(sslContextSupplier.get()).build())
+          .build();
+      client.start();
+      return client;
+    });
+  }
+
+  /**
+   * Execute the request over HTTP/2
+   *
+   * @param request the HTTP request
+   * @return the response
+   * @throws IOException if the request fails
+   */
+  public CloseableHttpResponse execute(HttpUriRequest request) throws IOException {
+    return execute(request, null);
+  }
+
+  /**
+   * Execute the request over HTTP/2, and return the response once its headers are
+   * received; the context is not used
+   */
+  @Override
+  public CloseableHttpResponse execute(HttpUriRequest request, org.apache.http.protocol.HttpContext context)
+      throws IOException {
+    URI uri = request.getURI();
+    org.apache.hc.core5.http.message.BasicHttpRequest asyncRequest =
+        new org.apache.hc.core5.http.message.BasicHttpRequest(request.getRequestLine().getMethod(), uri);
+    for (Header header : request.getAllHeaders()) {
+      if (!isConnectionSpecific(header.getName())) {
+        asyncRequest.addHeader(header.getName(), header.getValue());
+      }
+    }
+
+    AsyncEntityProducer entityProducer = null;
+    if (request instanceof HttpEntityEnclosingRequest && ((HttpEntityEnclosingRequest) request).getEntity() != null) {
+      org.apache.http.HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+      entityProducer = AsyncEntityProducers.create(EntityUtils.toByteArray(entity),
+          entity.getContentType() == null ? null : ContentType.parse(entity.getContentType().getValue()));
+    }
+
+    HttpClientContext clientContext = HttpClientContext.create();
+    clientContext.setRequestConfig(RequestConfig.custom()
+        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+        .setResponseTimeout(Timeout.ofMilliseconds(responseTimeoutMillis))
+        .build());
+
+    StreamingResponseConsumer consumer = new StreamingResponseConsumer();
+    Future<Void> future = getSharedClient().execute(new BasicRequestProducer(asyncRequest, entityProducer),
+        consumer, null, clientContext, null);
+    try {
+      org.apache.hc.core5.http.HttpResponse head =
+          consumer.head.get(connectTimeoutMillis + (long) responseTimeoutMillis, TimeUnit.MILLISECONDS);
+      return toClassicResponse(head, consumer, future);
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(e.getMessage());
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      throw new IOException("Timed out waiting for response from " + uri, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new ClientProtocolException(e.getCause());
+    }
+  }
+
+  /**
+   * HTTP/2 doesn't allow connection specific headers
+   */
+  private boolean isConnectionSpecific(String name) {
+    switch (name.toLowerCase(Locale.ROOT)) {
+      case "connection":
+      case "content-length":
+      case "host":
+      case "keep-alive":
+      case "proxy-connection":
+      case "te":
+      case "transfer-encoding":
+      case "upgrade":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private CloseableHttpResponse toClassicResponse(org.apache.hc.core5.http.HttpResponse head,
+      StreamingResponseConsumer consumer, Future<Void> future) {
+    int status = head.getCode();
+    Http2Response response = new Http2Response(new BasicStatusLine(HTTP_2, status,
+        EnglishReasonPhraseCatalog.INSTANCE.getReason(status, Locale.ENGLISH)), consumer, future);
+    for (org.apache.hc.core5.http.Header header : head.getHeaders()) {
+      response.addHeader(header.getName(), header.getValue());
+    }
+    if (consumer.entityDetails != null) {
+      BasicHttpEntity entity = new BasicHttpEntity();
+      entity.setContent(new ContentStream(consumer));
+      entity.setContentLength(consumer.entityDetails.getContentLength());
+      entity.setContentType(response.getFirstHeader("Content-Type"));
+      entity.setContentEncoding(response.getFirstHeader("Content-Encoding"));
+      response.setEntity(entity);
+    }
+    return response;
+  }
+
+  /**
+   * The shared client is not closed, as it is used by other connections
+   */
+  @Override
+  public void close() {
+  }
+
+  /**
+   * Receives the response asynchronously, making the response headers available
+   * as soon as they arrive, and the content available through a shared buffer
+   */
+  private static class StreamingResponseConsumer implements AsyncResponseConsumer<Void> {
+    private final CompletableFuture<org.apache.hc.core5.http.HttpResponse> head = new CompletableFuture<>();
+    private final SharedInputBuffer buffer = new SharedInputBuffer(BUFFER_SIZE);
+    private volatile EntityDetails entityDetails = null;
+    private volatile Exception failure = null;
+    private FutureCallback<Void> resultCallback = null;
+
+    @Override
+    public void consumeResponse(org.apache.hc.core5.http.HttpResponse response, EntityDetails entityDetails,
+        HttpContext context, FutureCallback<Void> resultCallback) {
+      this.entityDetails = entityDetails;
+      this.resultCallback = resultCallback;
+      if (entityDetails == null) {
+        buffer.markEndStream();
+        resultCallback.completed(null);
+      }
+      head.complete(response);
+    }
+
+    @Override
+    public void informationResponse(org.apache.hc.core5.http.HttpResponse response, HttpContext context) {
+    }
+
+    @Override
+    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+      buffer.updateCapacity(capacityChannel);
+    }
+
+    @Override
+    public void consume(ByteBuffer src) {
+      buffer.fill(src);
+    }
+
+    @Override
+    public void streamEnd(List<? extends org.apache.hc.core5.http.Header> trailers)
+        throws HttpException, IOException {
+      buffer.markEndStream();
+      if (resultCallback != null) {
+        resultCallback.completed(null);
+      }
+    }
+
+    @Override
+    public void failed(Exception cause) {
+      failure = cause;
+      head.completeExceptionally(cause);
+      buffer.abort();
+    }
+
+    @Override
+    public void releaseResources() {
+    }
+  }
+
+  /**
+   * Reads the response content from the shared buffer, raising the failure of the
+   * exchange, if any, instead of a silent end of stream
+   */
+  private static class ContentStream extends InputStream {
+    private final StreamingResponseConsumer consumer;
+
+    ContentStream(StreamingResponseConsumer consumer) {
+      this.consumer = consumer;
+    }
+
+    @Override
+    public int read() throws IOException {
+      return check(consumer.buffer.read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      return check(consumer.buffer.read(b, off, len));
+    }
+
+    @Override
+    public int available() {
+      return consumer.buffer.length();
+    }
+
+    private int check(int result) throws IOException {
+      if (result < 0 && consumer.failure != null) {
+        throw new IOException("Error receiving response content", consumer.failure);
+      }
+      return result;
+    }
+  }
+
+  /**
+   * A response whose content is streamed from an HTTP/2 stream. Closing the response
+   * before the content is fully read resets the stream.
+   */
+  private static class Http2Response extends BasicHttpResponse implements CloseableHttpResponse {
+    private final StreamingResponseConsumer consumer;
+    private final Future<Void> future;
+
+    Http2Response(BasicStatusLine statusLine, StreamingResponseConsumer consumer, Future<Void> future) {
+      super(statusLine);
+      this.consumer = consumer;
+      this.future = future;
+    }
+
+    @Override
+    public void close() {
+      if (!future.isDone()) {
+        LOG.debug("Cancelling unfinished HTTP/2 stream");
+        future.cancel(true);
+        consumer.buffer.abort();
+      }
+    }
+  }
+}
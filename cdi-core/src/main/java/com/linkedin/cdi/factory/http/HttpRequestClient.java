@@ -0,0 +1,50 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.http;
+
+import java.io.Closeable;
+import java.io.IOException;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.HttpContext;
+
+
+/**
+ * The interface of HTTP clients as used by HttpConnection, which executes a request and
+ * returns a closeable response.
+ *
+ * Clients that are not classic HttpClient implementations, like the HTTP/2 client, implement
+ * this interface instead of the classic HttpClient interface, whose connection manager and
+ * parameters they don't have. Classic clients are adapted through {@link #of(HttpClient)}.
+ */
+public interface HttpRequestClient extends Closeable {
+  /**
+   * Execute a request
+   *
+   * @param request the HTTP request
+   * @param context the execution context
+   * @return the response, which must be closed by the caller
+   * @throws IOException if the request fails
+   */
+  CloseableHttpResponse execute(HttpUriRequest request, HttpContext context) throws IOException;
+
+  /**
+   * Release the resources of the client, the default client has no resources of its own
+   */
+  @Override
+  default void close() throws IOException {
+  }
+
+  /**
+   * Adapt a classic HttpClient, which is closed by its owner rather than by the adapter
+   *
+   * @param httpClient the classic HttpClient
+   * @return a client executing requests through the classic HttpClient
+   */
+  static HttpRequestClient of(HttpClient httpClient) {
+    return (request, context) -> (CloseableHttpResponse) httpClient.execute(request, context);
+  }
+}
@@ -6,16 +6,12 @@ package com.linkedin.cdi.factory.http;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.linkedin.cdi.util.JsonUtils;
-import com.linkedin.cdi.util.VariableUtils;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import org.apache.commons.lang3.tuple.Pair;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpDelete;
@@ -27,8 +23,6 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.message.BasicNameValuePair;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 
 /**
@@ -59,105 +53,91 @@ public enum HttpRequestMethod {
    * Note: This works when the URI template has all the variable parameters.
    * If there are any additional parameters, then URIBuilder encodes all parameters while building.
    */
-  GET_XE("GET_XE") {
+  GET_XE("GET_XE", false) {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
-        JsonObject parameters, JsonObject payloads)
-        throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = VariableUtils.replaceWithTracking(uriTemplate, parameters, false);
+    protected HttpUriRequest getHttpRequestContentJson(String uri,
+        JsonObject parameters, JsonObject payloads) {
       //ignore payloads
-      return new HttpGet(appendParameters(replaced.getKey(), replaced.getValue()));
+      return new HttpGet(appendParameters(uri, parameters));
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
-        throws UnsupportedEncodingException {
-      return getHttpRequestContentJson(uriTemplate, parameters, new JsonObject());
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uri, JsonObject parameters) {
+      return getHttpRequestContentJson(uri, parameters, new JsonObject());
     }
   },
 
   GET("GET") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
-        JsonObject parameters, JsonObject payloads)
-        throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
+    protected HttpUriRequest getHttpRequestContentJson(String uri,
+        JsonObject parameters, JsonObject payloads) {
       //ignore payloads
-      return new HttpGet(appendParameters(replaced.getKey(), replaced.getValue()));
+      return new HttpGet(appendParameters(uri, parameters));
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
-        throws UnsupportedEncodingException {
-      return getHttpRequestContentJson(uriTemplate, parameters, new JsonObject());
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uri, JsonObject parameters) {
+      return getHttpRequestContentJson(uri, parameters, new JsonObject());
     }
   },
 
   POST("POST") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+    protected HttpUriRequest getHttpRequestContentJson(String uri,
         JsonObject parameters, JsonObject payloads)
         throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
       for (Map.Entry<String, JsonElement> entry: payloads.entrySet()) {
-        replaced.getValue().add(entry.getKey(), entry.getValue());
+        parameters.add(entry.getKey(), entry.getValue());
       }
-      return setEntity(new HttpPost(replaced.getKey()), replaced.getValue().toString());
+      return setEntity(new HttpPost(uri), parameters.toString());
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
-        throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
-      return setEntity(new HttpPost(replaced.getKey()), jsonToUrlEncodedEntity(replaced.getValue()));
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uri, JsonObject parameters) {
+      return setEntity(new HttpPost(uri), jsonToUrlEncodedEntity(parameters));
     }
   },
 
   PUT("PUT") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+    protected HttpUriRequest getHttpRequestContentJson(String uri,
         JsonObject parameters, JsonObject payloads)
         throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
       for (Map.Entry<String, JsonElement> entry: payloads.entrySet()) {
-        replaced.getValue().add(entry.getKey(), entry.getValue());
+        parameters.add(entry.getKey(), entry.getValue());
       }
-      return setEntity(new HttpPut(replaced.getKey()), replaced.getValue().toString());
+      return setEntity(new HttpPut(uri), parameters.toString());
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
-        throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
-      return setEntity(new HttpPut(replaced.getKey()), jsonToUrlEncodedEntity(replaced.getValue()));
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uri, JsonObject parameters) {
+      return setEntity(new HttpPut(uri), jsonToUrlEncodedEntity(parameters));
     }
   },
 
   DELETE("DELETE") {
     @Override
-    protected HttpUriRequest getHttpRequestContentJson(String uriTemplate,
-        JsonObject parameters, JsonObject payloads)
-        throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
-      for (Map.Entry<String, JsonElement> entry: payloads.entrySet()) {
-        replaced.getValue().add(entry.getKey(), entry.getValue());
-      }
-      return new HttpDelete(replaced.getKey());
+    protected HttpUriRequest getHttpRequestContentJson(String uri,
+        JsonObject parameters, JsonObject payloads) {
+      return new HttpDelete(uri);
     }
 
     @Override
-    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
-        throws UnsupportedEncodingException {
-      Pair<String, JsonObject> replaced = replaceVariables(uriTemplate, parameters);
-      return new HttpDelete(replaced.getKey());
+    protected HttpUriRequest getHttpRequestContentUrlEncoded(String uri, JsonObject parameters) {
+      return new HttpDelete(uri);
     }
   };
 
-  private static final Logger LOG = LoggerFactory.getLogger(HttpRequestMethod.class);
   private final String name;
+  private final boolean encodeVariables;
 
   HttpRequestMethod(String name) {
+    this(name, true);
+  }
+
+  HttpRequestMethod(String name, boolean encodeVariables) {
     this.name = name;
+    this.encodeVariables = encodeVariables;
   }
 
   @Override
@@ -165,6 +145,13 @@ public enum HttpRequestMethod {
     return name;
   }
 
+  /**
+   * @return true if the values of URI variables are URL encoded when they are substituted
+   */
+  public boolean isEncodeVariables() {
+    return encodeVariables;
+  }
+
   /**
    * This is the public method to generate HttpUriRequest for each type of Http Method
    * @param uriTemplate input URI, which might contain place holders
@@ -178,7 +165,11 @@ public enum HttpRequestMethod {
   }
 
   /**
-   * This is the public method to generate HttpUriRequest for each type of Http Method
+   * This is the public method to generate HttpUriRequest for each type of Http Method.
+   *
+   * The templates are compiled on each call; callers making many requests from the same
+   * templates should compile a {@link RequestTemplate} once and reuse it.
+   *
    * @param uriTemplate input URI, which might contain place holders
    * @param parameters parameters to be add to URI or to request Entity
    * @param headers Http header tags
@@ -190,66 +181,35 @@ public enum HttpRequestMethod {
       final Map<String, String> headers,
       final JsonObject payloads)
       throws UnsupportedEncodingException {
-    HttpUriRequest request;
-
-    // substitute variables in headers
-    Map<String, String> headersCopy = new HashMap<>();
-    JsonObject parametersCopy = JsonUtils.deepCopy(parameters).getAsJsonObject();
-    for (Map.Entry<String, String> entry: headers.entrySet()) {
-      Pair<String, JsonObject> replaced = VariableUtils.replaceWithTracking(entry.getValue(), parameters);
-      if (!replaced.getLeft().equals(entry.getValue())) {
-        parametersCopy = JsonUtils.deepCopy(replaced.getRight()).getAsJsonObject();
-        headersCopy.put(entry.getKey(), replaced.getLeft());
-        LOG.info("Substituted header string: {} = {}", entry.getKey(), replaced.getLeft());
-      } else {
-        headersCopy.put(entry.getKey(), entry.getValue());
-      }
-    }
-
-    LOG.info("Final parameters for HttpRequest: {}", parametersCopy.toString());
-    if (headersCopy.containsKey("Content-Type")
-        && headersCopy.get("Content-Type").equals("application/x-www-form-urlencoded")) {
-      request = getHttpRequestContentUrlEncoded(uriTemplate, parametersCopy);
-    } else {
-      request = getHttpRequestContentJson(uriTemplate, parametersCopy, payloads);
-    }
-
-    for (Map.Entry<String, String> entry: headersCopy.entrySet()) {
-      request.addHeader(entry.getKey(), entry.getValue());
-    }
-    return request;
+    return RequestTemplate.compile(this, uriTemplate, headers).getHttpRequest(parameters, payloads);
   }
 
   /**
    * This method shall be overwritten by each enum element.
-   * @param uriTemplate input URI, which might contain place holders
-   * @param parameters parameters to be add to URI or to request Entity
+   * @param uri the URI, with variables substituted
+   * @param parameters the remaining parameters to be add to URI or to request Entity,
+   *                   which can be modified by the method
    * @param payloads additional payloads to be included in the body of the Http request
    * @return HttpUriRequest object where content is set per application/json
    */
-  protected abstract HttpUriRequest getHttpRequestContentJson(String uriTemplate,
+  protected abstract HttpUriRequest getHttpRequestContentJson(String uri,
       JsonObject parameters, JsonObject payloads)
       throws UnsupportedEncodingException;
 
   /**
    * This method shall be overwritten by each enum element.
-   * @param uriTemplate input URI, which might contain place holders
-   * @param parameters parameters to be add to URI or to request Entity
+   * @param uri the URI, with variables substituted
+   * @param parameters the remaining parameters to be add to URI or to request Entity
    * @return HttpUriRequest object where content is set per application/x-www-form-urlencoded
    */
-  protected abstract HttpUriRequest getHttpRequestContentUrlEncoded(String uriTemplate, JsonObject parameters)
+  protected abstract HttpUriRequest getHttpRequestContentUrlEncoded(String uri, JsonObject parameters)
       throws UnsupportedEncodingException;
 
-  protected Pair<String, JsonObject> replaceVariables(String uriTemplate, JsonObject parameters)
-      throws UnsupportedEncodingException {
-    return VariableUtils.replaceWithTracking(uriTemplate, parameters, true);
-  }
-
   protected String appendParameters(String uri, JsonObject parameters) {
     try {
       URIBuilder builder = new URIBuilder(new URI(uri));
       for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
-        if (!entry.getKey().matches("tmp.*")) {
+        if (!entry.getKey().startsWith("tmp")) {
           builder.addParameter(entry.getKey(), entry.getValue().getAsString());
         }
       }
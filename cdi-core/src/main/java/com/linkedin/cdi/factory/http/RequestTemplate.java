@@ -0,0 +1,209 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.util.VariableUtils;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+/**
+ * A compiled form of the URI and header templates of HTTP requests, which can be
+ * built once per work unit and used for every request of the work unit.
+ *
+ * Each template is split into literal and variable segments when it is compiled,
+ * so that a request is made in a single pass over the segments and the parameters,
+ * without copying the parameters and without matching regular expressions.
+ *
+ * The substitution follows {@link HttpRequestMethod#getHttpRequest(String, JsonObject, Map, JsonObject)}:
+ * <ul>
+ *   <li>headers are substituted with all parameters, and the parameters used by a header
+ *   are not available to the URI and the request entity</li>
+ *   <li>the URI is substituted with the rest of the parameters, URL encoding the values
+ *   except for GET_XE</li>
+ *   <li>the parameters that are not used go to the URI query string of GET requests, or
+ *   the request entity of POST and PUT requests</li>
+ *   <li>variables without a parameter are left as they are</li>
+ * </ul>
+ */
+public class RequestTemplate {
+  private static final Logger LOG = LoggerFactory.getLogger(RequestTemplate.class);
+  private static final String CONTENT_TYPE = "Content-Type";
+  private static final String CONTENT_TYPE_URL_ENCODED = "application/x-www-form-urlencoded";
+
+  private final HttpRequestMethod method;
+  private final String uriTemplate;
+  private final Map<String, String> headerTemplates;
+  private final Segments uri;
+  private final String[] headerNames;
+  private final String[] headerValues;
+  private final Segments[] headers;
+  private final Set<String> uriVariables;
+
+  /**
+   * A template split into literals and variables, with literals[i] preceding variables[i],
+   * and the last literal following the last variable
+   */
+  private static class Segments {
+    private final String[] literals;
+    private final String[] variables;
+
+    private Segments(String template) {
+      List<String> literalList = new ArrayList<>();
+      List<String> variableList = new ArrayList<>();
+      Matcher matcher = VariableUtils.PATTERN.matcher(template);
+      int position = 0;
+      while (matcher.find()) {
+        literalList.add(template.substring(position, matcher.start()));
+        variableList.add(matcher.group(1));
+        position = matcher.end();
+      }
+      literalList.add(template.substring(position));
+      literals = literalList.toArray(new String[0]);
+      variables = variableList.toArray(new String[0]);
+    }
+
+    /**
+     * @return true if any of the variables has a parameter
+     */
+    private boolean isSubstitutedBy(JsonObject parameters) {
+      for (String variable : variables) {
+        if (parameters.has(variable)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /**
+     * Substitute the variables with the parameters, skipping parameters that are excluded
+     */
+    private String substitute(JsonObject parameters, Set<String> excluded, boolean encode)
+        throws UnsupportedEncodingException {
+      if (variables.length == 0) {
+        return literals[0];
+      }
+      StringBuilder builder = new StringBuilder(literals[0]);
+      for (int i = 0; i < variables.length; i++) {
+        JsonElement value = excluded.contains(variables[i]) ? null : parameters.get(variables[i]);
+        if (value == null) {
+          builder.append(VariableUtils.OPENING).append(variables[i]).append(VariableUtils.CLOSING);
+        } else {
+          builder.append(encode ? URLEncoder.encode(value.getAsString(), "UTF-8") : value.getAsString());
+        }
+        builder.append(literals[i + 1]);
+      }
+      return builder.toString();
+    }
+  }
+
+  private RequestTemplate(HttpRequestMethod method, String uriTemplate, Map<String, String> headerTemplates) {
+    this.method = method;
+    this.uriTemplate = uriTemplate;
+    this.headerTemplates = headerTemplates;
+    this.uri = new Segments(uriTemplate);
+    this.uriVariables = new HashSet<>(Arrays.asList(uri.variables));
+    this.headerNames = headerTemplates.keySet().toArray(new String[0]);
+    this.headerValues = new String[headerNames.length];
+    this.headers = new Segments[headerNames.length];
+    for (int i = 0; i < headerNames.length; i++) {
+      headerValues[i] = headerTemplates.get(headerNames[i]);
+      headers[i] = new Segments(headerValues[i]);
+    }
+  }
+
+  /**
+   * Compile the URI and header templates of a HTTP request method
+   *
+   * @param method the HTTP request method
+   * @param uriTemplate the URI, which might contain place holders
+   * @param headerTemplates the headers, which might contain place holders
+   * @return the compiled template
+   */
+  public static RequestTemplate compile(HttpRequestMethod method, String uriTemplate,
+      Map<String, String> headerTemplates) {
+    return new RequestTemplate(method, uriTemplate, new LinkedHashMap<>(headerTemplates));
+  }
+
+  /**
+   * @param method the HTTP request method
+   * @param uriTemplate the URI template
+   * @param headerTemplates the header templates
+   * @return true if this template was compiled from the same method and templates
+   */
+  public boolean isCompiledFrom(HttpRequestMethod method, String uriTemplate, Map<String, String> headerTemplates) {
+    return this.method == method && this.uriTemplate.equals(uriTemplate) && this.headerTemplates.equals(headerTemplates);
+  }
+
+  /**
+   * Make a request from parameters that include the payloads under the key word "payload"
+   *
+   * @param parameters parameters to be add to URI or to request Entity, and the payloads
+   * @return HttpUriRequest ready for connection
+   */
+  public HttpUriRequest getHttpRequest(JsonObject parameters) throws UnsupportedEncodingException {
+    return getHttpRequest(parameters, null);
+  }
+
+  /**
+   * Make a request from parameters and payloads. The parameters and the payloads are not modified.
+   *
+   * @param parameters parameters to be add to URI or to request Entity
+   * @param payloads additional payloads to be included in the body of the Http request, or null if
+   *                 the payloads are in the parameters under the key word "payload"
+   * @return HttpUriRequest ready for connection
+   */
+  public HttpUriRequest getHttpRequest(JsonObject parameters, JsonObject payloads) throws UnsupportedEncodingException {
+    // substitute variables in headers
+    Set<String> headerVariables = new HashSet<>();
+    String[] values = headerValues.clone();
+    boolean urlEncoded = false;
+    for (int i = 0; i < headers.length; i++) {
+      if (headers[i].isSubstitutedBy(parameters)) {
+        values[i] = headers[i].substitute(parameters, Collections.emptySet(), false);
+        headerVariables.addAll(Arrays.asList(headers[i].variables));
+        LOG.debug("Substituted header string: {} = {}", headerNames[i], values[i]);
+      }
+      urlEncoded |= headerNames[i].equals(CONTENT_TYPE) && values[i].equals(CONTENT_TYPE_URL_ENCODED);
+    }
+
+    // substitute variables in the URI, and collect the parameters that are not used
+    String requestUri = uri.substitute(parameters, headerVariables, method.isEncodeVariables());
+    JsonObject remaining = new JsonObject();
+    JsonObject requestPayloads = payloads == null ? new JsonObject() : payloads;
+    for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
+      if (payloads == null && entry.getKey().equalsIgnoreCase(KEY_WORD_PAYLOAD)) {
+        requestPayloads = entry.getValue().getAsJsonObject();
+      } else if (!headerVariables.contains(entry.getKey()) && !uriVariables.contains(entry.getKey())) {
+        remaining.add(entry.getKey(), entry.getValue());
+      }
+    }
+
+    LOG.debug("Final parameters for HttpRequest: {}", remaining);
+    HttpUriRequest request = urlEncoded
+        ? method.getHttpRequestContentUrlEncoded(requestUri, remaining)
+        : method.getHttpRequestContentJson(requestUri, remaining, requestPayloads);
+    for (int i = 0; i < headers.length; i++) {
+      request.addHeader(headerNames[i], values[i]);
+    }
+    return request;
+  }
+}
@@ -0,0 +1,594 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.jdbc;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A pool of physical JDBC connections to a database URL as a user, shared by all
+ * work units in the JVM.
+ *
+ * A borrowed connection is returned to the pool when it is closed, after its transaction
+ * is rolled back and its auto commit and read only modes are restored. An idle connection
+ * is validated before it is borrowed again, and it is closed after it is idle for longer than
+ * the idle timeout. A connection that is borrowed for longer than the leak detection threshold
+ * is reported in the log, with the stack trace of where it was borrowed.
+ *
+ * Aborting a borrowed connection closes the physical connection instead of returning it,
+ * which is how a connection with a statement that might still be running is discarded.
+ *
+ * Each physical connection caches its prepared statements by SQL, up to the statement cache
+ * size, the least recently used being closed first. Preparing a statement that is cached and
+ * not in use returns the cached statement, and closing it returns it to the cache, after its
+ * result set is closed, its parameters are cleared, and its settings are restored. So a statement
+ * with bind parameters is parsed once per physical connection, rather than for each page and work unit.
+ */
+public class JdbcConnectionPool {
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcConnectionPool.class);
+  private static final ConcurrentMap<String, JdbcConnectionPool> POOLS = new ConcurrentHashMap<>();
+  private static final ScheduledExecutorService HOUSEKEEPER = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("jdbc-pool-housekeeper").build());
+
+  static {
+    HOUSEKEEPER.scheduleWithFixedDelay(() -> POOLS.values().forEach(JdbcConnectionPool::maintain),
+        1, 1, TimeUnit.SECONDS);
+  }
+
+  private final String url;
+  private final String user;
+  private final int maxSize;
+  private final long maxWaitMillis;
+  private final long idleTimeoutMillis;
+  private final int validationTimeoutSeconds;
+  private final long leakDetectionMillis;
+  private final int statementCacheSize;
+  private volatile String password = null;
+
+  // idle connections, the most recently used first
+  private final Deque<PhysicalConnection> idle = new ArrayDeque<>();
+  private final Set<Lease> borrowed = new HashSet<>();
+  // the number of physical connections, including those being created
+  private int size = 0;
+  private long created = 0;
+  private long leaks = 0;
+  private long prepared = 0;
+
+  /**
+   * A physical connection and its initial session settings
+   */
+  private static class PhysicalConnection {
+    private final Connection connection;
+    private final boolean autoCommit;
+    private final boolean readOnly;
+    private long lastUsedMillis = System.currentTimeMillis();
+    // cached prepared statements by SQL, the least recently used first, guarded by the physical connection
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    private PhysicalConnection(Connection connection) throws SQLException {
+      this.connection = connection;
+      this.autoCommit = connection.getAutoCommit();
+      this.readOnly = connection.isReadOnly();
+    }
+  }
+
+  /**
+   * A borrowed connection, which returns the physical connection to the pool when it is closed
+   */
+  private class Lease implements InvocationHandler {
+    private final PhysicalConnection physical;
+    private final long borrowedMillis = System.currentTimeMillis();
+    private final Exception borrower = new Exception("The connection was borrowed here");
+    private boolean closed = false;
+    private boolean reported = false;
+
+    private Lease(PhysicalConnection physical) {
+      this.physical = physical;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (close()) {
+            release(this);
+          }
+          return null;
+        case "abort":
+          if (close()) {
+            discard(this);
+          }
+          return null;
+        case "prepareStatement":
+          if (statementCacheSize > 0 && args.length == 1 && !isClosed()) {
+            return prepare(physical, (Connection) proxy, (String) args[0]);
+          }
+          return invokePhysical(method, args);
+        case "isClosed":
+          return isClosed() || physical.connection.isClosed();
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Pooled " + physical.connection;
+        default:
+          return invokePhysical(method, args);
+      }
+    }
+
+    private Object invokePhysical(Method method, Object[] args) throws Throwable {
+      if (isClosed()) {
+        throw new SQLException("Connection is closed");
+      }
+      try {
+        return method.invoke(physical.connection, args);
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    private synchronized boolean close() {
+      boolean wasOpen = !closed;
+      closed = true;
+      return wasOpen;
+    }
+
+    private synchronized boolean isClosed() {
+      return closed;
+    }
+  }
+
+  /**
+   * A prepared statement of a physical connection, and its initial settings
+   */
+  private static class CachedStatement {
+    private final String sql;
+    private final PreparedStatement statement;
+    private final int fetchSize;
+    private final int maxRows;
+    private final int queryTimeout;
+    // guarded by the physical connection
+    private boolean inUse = true;
+    private boolean cached = false;
+
+    private CachedStatement(String sql, PreparedStatement statement) throws SQLException {
+      this.sql = sql;
+      this.statement = statement;
+      this.fetchSize = statement.getFetchSize();
+      this.maxRows = statement.getMaxRows();
+      this.queryTimeout = statement.getQueryTimeout();
+    }
+  }
+
+  /**
+   * A borrowed prepared statement, which returns the statement to the cache when it is closed
+   */
+  private class StatementLease implements InvocationHandler {
+    private final PhysicalConnection physical;
+    private final CachedStatement cached;
+    private final Connection connection;
+    private boolean closed = false;
+
+    private StatementLease(PhysicalConnection physical, CachedStatement cached, Connection connection) {
+      this.physical = physical;
+      this.cached = cached;
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close":
+          if (close()) {
+            release(physical, cached);
+          }
+          return null;
+        case "isClosed":
+          return isClosed() || cached.statement.isClosed();
+        case "getConnection":
+          return connection;
+        case "equals":
+          return proxy == args[0];
+        case "hashCode":
+          return System.identityHashCode(proxy);
+        case "toString":
+          return "Cached " + cached.statement;
+        default:
+          if (isClosed()) {
+            throw new SQLException("Statement is closed");
+          }
+          try {
+            return method.invoke(cached.statement, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+
+    private synchronized boolean close() {
+      boolean wasOpen = !closed;
+      closed = true;
+      return wasOpen;
+    }
+
+    private synchronized boolean isClosed() {
+      return closed;
+    }
+  }
+
+  @VisibleForTesting
+  JdbcConnectionPool(String url, String user, int maxSize, long maxWaitSeconds, long idleTimeoutSeconds,
+      int validationTimeoutSeconds, long leakDetectionSeconds, int statementCacheSize) {
+    this.url = url;
+    this.user = user;
+    this.maxSize = maxSize;
+    this.maxWaitMillis = TimeUnit.SECONDS.toMillis(maxWaitSeconds);
+    this.idleTimeoutMillis = TimeUnit.SECONDS.toMillis(idleTimeoutSeconds);
+    this.validationTimeoutSeconds = validationTimeoutSeconds;
+    this.leakDetectionMillis = TimeUnit.SECONDS.toMillis(leakDetectionSeconds);
+    this.statementCacheSize = statementCacheSize;
+  }
+
+  /**
+   * Get the shared pool of a URL, a user, and the given parameters, creating it if it doesn't exist,
+   * so that work units with different parameters don't share a pool
+   *
+   * @param url the decrypted JDBC URL
+   * @param user the decrypted user name
+   * @param maxSize the maximum number of physical connections
+   * @param maxWaitSeconds the time to wait for a connection when all connections are in use
+   * @param idleTimeoutSeconds the time after which an idle connection is closed, 0 to keep idle connections
+   * @param validationTimeoutSeconds the time allowed for validating an idle connection
+   * @param leakDetectionSeconds the time after which a borrowed connection is reported, 0 to disable
+   * @param statementCacheSize the number of prepared statements cached per connection, 0 to disable
+   * @return the shared pool
+   */
+  public static JdbcConnectionPool getInstance(String url, String user, int maxSize, long maxWaitSeconds,
+      long idleTimeoutSeconds, int validationTimeoutSeconds, long leakDetectionSeconds, int statementCacheSize) {
+    String key = String.join("|", user + "@" + url, String.valueOf(maxSize), String.valueOf(maxWaitSeconds),
+        String.valueOf(idleTimeoutSeconds), String.valueOf(validationTimeoutSeconds),
+        String.valueOf(leakDetectionSeconds), String.valueOf(statementCacheSize));
+    return POOLS.computeIfAbsent(key,
+        k -> new JdbcConnectionPool(url, user, maxSize, maxWaitSeconds, idleTimeoutSeconds,
+            validationTimeoutSeconds, leakDetectionSeconds, statementCacheSize));
+  }
+
+  /**
+   * Borrow a connection, reusing an idle connection if there is a valid one,
+   * or creating a physical connection if the pool is not full
+   *
+   * @param password the decrypted password, which is used for new physical connections
+   * @return a connection that returns to the pool when it is closed
+   * @throws SQLException if a connection cannot be created, or none is available within the maximum wait
+   */
+  public Connection getConnection(String password) throws SQLException {
+    this.password = password;
+    long deadline = System.currentTimeMillis() + maxWaitMillis;
+    while (true) {
+      PhysicalConnection physical;
+      synchronized (this) {
+        while (idle.isEmpty() && size >= maxSize) {
+          long remaining = deadline - System.currentTimeMillis();
+          if (remaining <= 0) {
+            throw new SQLException(String.format("No JDBC connection to %s is available after %d ms, all %d are in use",
+                url, maxWaitMillis, maxSize));
+          }
+          try {
+            wait(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a JDBC connection", e);
+          }
+        }
+        physical = idle.pollFirst();
+        if (physical == null) {
+          size++;
+        }
+      }
+
+      if (physical == null) {
+        physical = connect();
+      } else if (!isValid(physical)) {
+        LOG.info("Closing an invalid JDBC connection to {}", url);
+        close(physical);
+        continue;
+      }
+      return lease(physical);
+    }
+  }
+
+  /**
+   * @return the number of physical connections created
+   */
+  public synchronized long getCreated() {
+    return created;
+  }
+
+  /**
+   * @return the number of open physical connections
+   */
+  public synchronized int getSize() {
+    return size;
+  }
+
+  /**
+   * @return the number of idle connections
+   */
+  public synchronized int getIdle() {
+    return idle.size();
+  }
+
+  /**
+   * @return the number of borrowed connections
+   */
+  public synchronized int getBorrowed() {
+    return borrowed.size();
+  }
+
+  /**
+   * @return the number of borrowed connections that were reported as possible leaks
+   */
+  public synchronized long getLeaks() {
+    return leaks;
+  }
+
+  /**
+   * @return the number of statements prepared on physical connections, excluding the reuses of cached statements
+   */
+  public synchronized long getPrepared() {
+    return prepared;
+  }
+
+  /**
+   * Close connections that are idle for too long, and report connections that are borrowed for too long
+   */
+  @VisibleForTesting
+  void maintain() {
+    long now = System.currentTimeMillis();
+    List<PhysicalConnection> expired = new ArrayList<>();
+    synchronized (this) {
+      if (idleTimeoutMillis > 0) {
+        Iterator<PhysicalConnection> oldest = idle.descendingIterator();
+        while (oldest.hasNext()) {
+          PhysicalConnection physical = oldest.next();
+          if (now - physical.lastUsedMillis < idleTimeoutMillis) {
+            break;
+          }
+          oldest.remove();
+          expired.add(physical);
+        }
+      }
+      if (leakDetectionMillis > 0) {
+        for (Lease lease : borrowed) {
+          if (!lease.reported && now - lease.borrowedMillis > leakDetectionMillis) {
+            lease.reported = true;
+            leaks++;
+            LOG.warn(String.format("A JDBC connection to %s has been borrowed for %d seconds, it might be leaked",
+                url, TimeUnit.MILLISECONDS.toSeconds(now - lease.borrowedMillis)), lease.borrower);
+          }
+        }
+      }
+    }
+    for (PhysicalConnection physical : expired) {
+      LOG.debug("Closing an idle JDBC connection to {}", url);
+      close(physical);
+    }
+  }
+
+  private PhysicalConnection connect() throws SQLException {
+    try {
+      PhysicalConnection physical = new PhysicalConnection(DriverManager.getConnection(url, user, password));
+      synchronized (this) {
+        created++;
+      }
+      LOG.info("Created JDBC connection {} of {} to {}", getSize(), maxSize, url);
+      return physical;
+    } catch (SQLException | RuntimeException e) {
+      synchronized (this) {
+        size--;
+        notifyAll();
+      }
+      throw e;
+    }
+  }
+
+  private Connection lease(PhysicalConnection physical) {
+    Lease lease = new Lease(physical);
+    synchronized (this) {
+      borrowed.add(lease);
+    }
+    return (Connection) Proxy.newProxyInstance(JdbcConnectionPool.class.getClassLoader(),
+        new Class<?>[]{Connection.class}, lease);
+  }
+
+  /**
+   * Borrow the cached prepared statement of the SQL, or prepare and cache it
+   */
+  private PreparedStatement prepare(PhysicalConnection physical, Connection connection, String sql)
+      throws SQLException {
+    CachedStatement cached;
+    synchronized (physical) {
+      cached = physical.statements.get(sql);
+      if (cached != null && !cached.inUse) {
+        cached.inUse = true;
+      } else {
+        cached = null;
+      }
+    }
+    if (cached == null) {
+      cached = new CachedStatement(sql, physical.connection.prepareStatement(sql));
+      synchronized (this) {
+        prepared++;
+      }
+      List<CachedStatement> evicted = new ArrayList<>();
+      synchronized (physical) {
+        // a statement that is in use by another caller is not replaced
+        if (!physical.statements.containsKey(sql)) {
+          cached.cached = true;
+          physical.statements.put(sql, cached);
+          Iterator<CachedStatement> eldest = physical.statements.values().iterator();
+          while (physical.statements.size() > statementCacheSize && eldest.hasNext()) {
+            CachedStatement statement = eldest.next();
+            eldest.remove();
+            statement.cached = false;
+            if (!statement.inUse) {
+              evicted.add(statement);
+            }
+          }
+        }
+      }
+      evicted.forEach(JdbcConnectionPool::close);
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(JdbcConnectionPool.class.getClassLoader(),
+        new Class<?>[]{PreparedStatement.class}, new StatementLease(physical, cached, connection));
+  }
+
+  /**
+   * Return a prepared statement to the cache after restoring its settings,
+   * or close it if it is no longer cached or its settings cannot be restored
+   */
+  private static void release(PhysicalConnection physical, CachedStatement cached) {
+    boolean reusable = true;
+    try {
+      ResultSet resultSet = cached.statement.getResultSet();
+      if (resultSet != null) {
+        resultSet.close();
+      }
+      cached.statement.clearParameters();
+      if (cached.statement.getFetchSize() != cached.fetchSize) {
+        cached.statement.setFetchSize(cached.fetchSize);
+      }
+      if (cached.statement.getMaxRows() != cached.maxRows) {
+        cached.statement.setMaxRows(cached.maxRows);
+      }
+      if (cached.statement.getQueryTimeout() != cached.queryTimeout) {
+        cached.statement.setQueryTimeout(cached.queryTimeout);
+      }
+      cached.statement.clearWarnings();
+    } catch (SQLException e) {
+      LOG.debug("Closing a prepared statement that cannot be reset: {}", e.getMessage());
+      reusable = false;
+    }
+    synchronized (physical) {
+      cached.inUse = false;
+      if (!reusable && cached.cached) {
+        physical.statements.remove(cached.sql);
+        cached.cached = false;
+      }
+      reusable = cached.cached;
+    }
+    if (!reusable) {
+      close(cached);
+    }
+  }
+
+  private static void close(CachedStatement cached) {
+    try {
+      cached.statement.close();
+    } catch (SQLException e) {
+      LOG.debug("Error closing a prepared statement", e);
+    }
+  }
+
+  private boolean isValid(PhysicalConnection physical) {
+    try {
+      return physical.connection.isValid(validationTimeoutSeconds);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Return a connection to the pool after restoring its session settings,
+   * or close it if the settings cannot be restored
+   */
+  private void release(Lease lease) {
+    PhysicalConnection physical = lease.physical;
+    List<CachedStatement> unclosed = new ArrayList<>();
+    synchronized (physical) {
+      // statements that were not closed by the borrower are not reused
+      Iterator<CachedStatement> statements = physical.statements.values().iterator();
+      while (statements.hasNext()) {
+        CachedStatement statement = statements.next();
+        if (statement.inUse) {
+          statements.remove();
+          statement.cached = false;
+          unclosed.add(statement);
+        }
+      }
+    }
+    unclosed.forEach(JdbcConnectionPool::close);
+    try {
+      if (!physical.connection.getAutoCommit()) {
+        physical.connection.rollback();
+      }
+      if (physical.connection.getAutoCommit() != physical.autoCommit) {
+        physical.connection.setAutoCommit(physical.autoCommit);
+      }
+      if (physical.connection.isReadOnly() != physical.readOnly) {
+        physical.connection.setReadOnly(physical.readOnly);
+      }
+      physical.connection.clearWarnings();
+    } catch (SQLException e) {
+      LOG.warn("Closing a JDBC connection that cannot be reset: {}", e.getMessage());
+      discard(lease);
+      return;
+    }
+    synchronized (this) {
+      borrowed.remove(lease);
+      physical.lastUsedMillis = System.currentTimeMillis();
+      idle.addFirst(physical);
+      notifyAll();
+    }
+  }
+
+  private void discard(Lease lease) {
+    synchronized (this) {
+      borrowed.remove(lease);
+    }
+    close(lease.physical);
+  }
+
+  private void close(PhysicalConnection physical) {
+    synchronized (physical) {
+      physical.statements.clear();
+    }
+    try {
+      physical.connection.close();
+    } catch (SQLException e) {
+      LOG.debug("Error closing a JDBC connection", e);
+    }
+    synchronized (this) {
+      size--;
+      notifyAll();
+    }
+  }
+}
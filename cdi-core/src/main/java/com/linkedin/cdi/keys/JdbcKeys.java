@@ -4,11 +4,14 @@
 
 package com.linkedin.cdi.keys;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import org.apache.gobblin.configuration.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
 
 
 /**
@@ -29,6 +32,49 @@ public class JdbcKeys extends JobKeys {
     LOG.debug("Initial values of dynamic parameters: {}", initialParameterValues);
   }
 
+  /**
+   * Each statement of ms.jdbc.statements is a unit of the work units, therefore the statements
+   * cannot be combined with a unit watermark, or with work unit batches, which extract
+   * their units with one schema.
+   *
+   * AvroExtractor reads rows through their typed getters, which partitioned, keyset, and
+   * egress reads don't use, therefore it cannot be combined with them.
+   *
+   * @param state source state
+   * @return true if the parameters are valid
+   */
+  @Override
+  public boolean validate(State state) {
+    if (MSTAGE_JDBC_STATEMENTS.isEnabled(state)) {
+      for (JsonElement watermark : MSTAGE_WATERMARK.get(state)) {
+        if (watermark.isJsonObject() && watermark.getAsJsonObject().has(KEY_WORD_TYPE)
+            && watermark.getAsJsonObject().get(KEY_WORD_TYPE).getAsString().equalsIgnoreCase(KEY_WORD_UNIT)) {
+          LOG.error("ms.jdbc.statements cannot be used with a unit watermark");
+          return false;
+        }
+      }
+      if (MSTAGE_WORK_UNIT_BATCH_SIZE.get(state) > 1 || MSTAGE_WORK_UNIT_BATCH_REQUEST.isEnabled(state)) {
+        LOG.error("ms.jdbc.statements cannot be used with work unit batches");
+        return false;
+      }
+    }
+    if (MSTAGE_EXTRACTOR_CLASS.get(state).matches(".*AvroExtractor.*")) {
+      if (MSTAGE_JDBC_PARTITION.isEnabled(state)) {
+        LOG.error("AvroExtractor cannot be used with ms.jdbc.partition");
+        return false;
+      }
+      if (MSTAGE_JDBC_KEYSET.isValidNonblank(state)) {
+        LOG.error("AvroExtractor cannot be used with ms.jdbc.keyset");
+        return false;
+      }
+      if (MSTAGE_JDBC_EGRESS.isEnabled(state)) {
+        LOG.error("AvroExtractor cannot be used with ms.jdbc.egress");
+        return false;
+      }
+    }
+    return super.validate(state);
+  }
+
   public String getJdbcStatement() {
     return jdbcStatement;
   }
@@ -12,15 +12,13 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.linkedin.cdi.configuration.PropertyCollection;
 import com.linkedin.cdi.util.JsonUtils;
-import java.io.File;
-import java.io.FileOutputStream;
+import com.linkedin.cdi.util.SpillableBuffer;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.Arrays;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -33,8 +31,9 @@ import static com.linkedin.cdi.configuration.StaticConstants.*;
  * Preprocessor to inflate aggregated JSON so that extractor can process
  *
  */
-public class AggregatedJsonProcessor extends InputStreamProcessor {
+public class AggregatedJsonProcessor extends InputStreamProcessor implements Closeable {
   private static final Logger LOG = LoggerFactory.getLogger(AggregatedJsonProcessor.class);
+  private SpillableBuffer buffer = null;
 
   /**
    * @param params See {@link PropertyCollection}
@@ -56,10 +55,9 @@ public class AggregatedJsonProcessor extends InputStreamProcessor {
     String[] otherFields = parameters.has("fields")
         ? parameters.get("fields").getAsString().split(KEY_WORD_COMMA) : new String[0];
 
-    Path path = Files.createTempFile(null, null);
-    File file = path.toFile();
-    file.deleteOnExit();
-    file.setReadable(true, true);
+    // the stream of the prior page has been processed when the next page comes
+    close();
+    buffer = new SpillableBuffer(SpillableBuffer.DEFAULT_THRESHOLD, false);
     if(inputStream != null) {
       JsonObject processed = new JsonObject();
       JsonElement input = new JsonParser().parse(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
@@ -104,12 +102,23 @@ public class AggregatedJsonProcessor extends InputStreamProcessor {
       } else if(input.isJsonArray()) {
         // TODO
       }
-      OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(path.toFile()), StandardCharsets.UTF_8);
+      OutputStreamWriter writer = new OutputStreamWriter(buffer.getOutputStream(), StandardCharsets.UTF_8);
       writer.write(processed.toString());
       writer.flush();
       writer.close();
     }
-    return Files.newInputStream(path);
+    return buffer.getInputStream();
+  }
+
+  /**
+   * Release the buffer of the last processed stream
+   */
+  @Override
+  public void close() {
+    if (buffer != null) {
+      buffer.close();
+      buffer = null;
+    }
   }
 
   /**
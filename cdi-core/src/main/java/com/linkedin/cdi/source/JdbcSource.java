@@ -4,29 +4,41 @@
 
 package com.linkedin.cdi.source;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.linkedin.cdi.connection.JdbcConnection;
 import com.linkedin.cdi.extractor.MultistageExtractor;
 import com.linkedin.cdi.keys.JdbcKeys;
+import com.linkedin.cdi.util.WatermarkDefinition;
 import java.sql.Connection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import org.apache.avro.Schema;
 import org.apache.avro.generic.GenericRecord;
+import org.apache.gobblin.configuration.SourceState;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.configuration.WorkUnitState;
 import org.apache.gobblin.source.extractor.Extractor;
+import org.apache.gobblin.source.workunit.WorkUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static com.linkedin.cdi.configuration.PropertyCollection.*;
+import static com.linkedin.cdi.configuration.StaticConstants.*;
 
 
 /***
  * JdbcSource handles JDBC protocol
  *
+ * With ms.jdbc.statements, each statement is a unit of a unit watermark named "statement",
+ * so that each statement is extracted by work units of its own, with its own watermarks and
+ * schema, and a failed statement doesn't fail the work units of other statements.
  */
 public class JdbcSource extends MultistageSource<Schema, GenericRecord> {
   private static final Logger LOG = LoggerFactory.getLogger(JdbcSource.class);
+  private static final String STATEMENT_WATERMARK_NAME = "statement";
 
   public ConcurrentMap<MultistageExtractor, Connection> getMemberConnections() {
     return memberConnections;
@@ -60,6 +72,54 @@ public class JdbcSource extends MultistageSource<Schema, GenericRecord> {
     jdbcSourceKeys.logDebugAll();
   }
 
+  /**
+   * Generate the work units, and with ms.jdbc.statements, set the statement, and the
+   * output schema if the statement has one, in the work units of each statement
+   *
+   * @param state source state
+   * @return the work units
+   */
+  @Override
+  public List<WorkUnit> getWorkunits(SourceState state) {
+    List<WorkUnit> workUnits = super.getWorkunits(state);
+    if (MSTAGE_JDBC_STATEMENTS.isEnabled(state)) {
+      Map<String, JsonObject> statements = MSTAGE_JDBC_STATEMENTS.getStatements(state);
+      for (WorkUnit workUnit : workUnits) {
+        String name = GSON.fromJson(workUnit.getProp(MSTAGE_ACTIVATION_PROPERTY.toString()), JsonObject.class)
+            .get(STATEMENT_WATERMARK_NAME).getAsString();
+        JsonObject statement = statements.get(name);
+        workUnit.setProp(MSTAGE_JDBC_STATEMENT.getConfig(), MSTAGE_JDBC_STATEMENTS.getStatement(statement));
+        JsonArray schema = MSTAGE_JDBC_STATEMENTS.getSchema(statement);
+        if (schema != null) {
+          workUnit.setProp(MSTAGE_OUTPUT_SCHEMA.getConfig(), schema.toString());
+        }
+        LOG.info("Work unit {} extracts statement {}", workUnit.getProp(DATASET_URN.toString()), name);
+      }
+    }
+    return workUnits;
+  }
+
+  /**
+   * Add a unit watermark of the names of ms.jdbc.statements, so that the work units and the
+   * watermarks of each statement are separated
+   *
+   * @return the watermark definitions
+   */
+  @Override
+  protected List<WatermarkDefinition> getWatermarkDefinitions() {
+    List<WatermarkDefinition> definitions = super.getWatermarkDefinitions();
+    if (MSTAGE_JDBC_STATEMENTS.isEnabled(sourceState)) {
+      JsonArray units = new JsonArray();
+      for (String name : MSTAGE_JDBC_STATEMENTS.getStatements(sourceState).keySet()) {
+        JsonObject unit = new JsonObject();
+        unit.addProperty(STATEMENT_WATERMARK_NAME, name);
+        units.add(unit);
+      }
+      definitions.add(new WatermarkDefinition(STATEMENT_WATERMARK_NAME, units));
+    }
+    return definitions;
+  }
+
   /**
    * Create extractor based on the input WorkUnitState, the extractor.class
    * configuration, and a new JdbcConnection
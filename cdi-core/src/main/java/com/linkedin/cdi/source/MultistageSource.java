@@ -12,6 +12,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.linkedin.cdi.event.EventHelper;
+import com.linkedin.cdi.extractor.BatchExtractor;
 import com.linkedin.cdi.extractor.MultistageExtractor;
 import com.linkedin.cdi.factory.producer.EventReporter;
 import com.linkedin.cdi.factory.producer.EventReporterFactory;
@@ -127,12 +128,7 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
     jobKeys.logUsage(state);
 
     // Parse watermark settings if defined
-    List<WatermarkDefinition> definedWatermarks = Lists.newArrayList();
-    for (JsonElement definitionJson : jobKeys.getWatermarkDefinition()) {
-      definedWatermarks.add(new WatermarkDefinition(
-          definitionJson.getAsJsonObject(), jobKeys.getIsPartialPartition(),
-          jobKeys.getWorkUnitPartitionType()));
-    }
+    List<WatermarkDefinition> definedWatermarks = getWatermarkDefinitions();
 
     Map<String, JsonArray> secondaryInputs = MSTAGE_SECONDARY_INPUT.readAllContext(sourceState);
     JsonArray authentications = secondaryInputs.get(KEY_WORD_AUTHENTICATION);
@@ -187,6 +183,20 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
     return wuList;
   }
 
+  /**
+   * Parse the watermarks defined by ms.watermark, a protocol can add a watermark of its own
+   * @return the watermark definitions
+   */
+  protected List<WatermarkDefinition> getWatermarkDefinitions() {
+    List<WatermarkDefinition> definedWatermarks = Lists.newArrayList();
+    for (JsonElement definitionJson : jobKeys.getWatermarkDefinition()) {
+      definedWatermarks.add(new WatermarkDefinition(
+          definitionJson.getAsJsonObject(), jobKeys.getIsPartialPartition(),
+          jobKeys.getWorkUnitPartitionType()));
+    }
+    return definedWatermarks;
+  }
+
   /**
    * Default multi-stage source behavior, each protocol shall override this with more concrete function
    * @param state WorkUnitState passed in from Gobblin framework
@@ -194,15 +204,27 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
    */
   @Override
   public Extractor<S, D> getExtractor(WorkUnitState state) {
+    // a work unit batch extracts each of its units through an extractor of the extractor class
+    MultistageExtractor<S, D> extractor = MSTAGE_WORK_UNIT_BATCH_UNITS.isValidNonblank(state)
+        ? new BatchExtractor<>(state, this.jobKeys, this::createExtractor)
+        : createExtractor(state);
+    extractorState.put(extractor, state);
+    extractor.setConnection(null);
+    return extractor;
+  }
+
+  /**
+   * Create an instance of the extractor class per ms.extractor.class
+   * @param state WorkUnitState of a work unit, or of a unit of a work unit batch
+   * @return an MultistageExtractor instance
+   */
+  private MultistageExtractor<S, D> createExtractor(WorkUnitState state) {
     try {
       ClassLoader loader = this.getClass().getClassLoader();
       Class<?> extractorClass = loader.loadClass(MSTAGE_EXTRACTOR_CLASS.get(state));
       Constructor<MultistageExtractor<?, ?>> constructor = (Constructor<MultistageExtractor<?, ?>>)
           extractorClass.getConstructor(WorkUnitState.class, JobKeys.class);
-      MultistageExtractor<S, D> extractor = (MultistageExtractor<S, D>) constructor.newInstance(state, this.jobKeys);
-      extractorState.put(extractor, state);
-      extractor.setConnection(null);
-      return extractor;
+      return (MultistageExtractor<S, D>) constructor.newInstance(state, this.jobKeys);
     } catch (Exception e) {
       throw new RuntimeException(e);
     }
@@ -280,6 +302,15 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
         - MSTAGE_GRACE_PERIOD_DAYS.getMillis(sourceState);
     LOG.debug("Overall cutoff time: {}", cutoffTime);
 
+    // with ms.work.unit.batch.size, unit partitions of the same date time partition are
+    // grouped into batches, and each batch forms one work unit
+    // with ms.work.unit.batch.request, a batch has at least the unit values of a request
+    int batchSize = MSTAGE_WORK_UNIT_BATCH_SIZE.get(sourceState);
+    if (MSTAGE_WORK_UNIT_BATCH_REQUEST.isEnabled(sourceState)) {
+      batchSize = Math.max(batchSize, MSTAGE_WORK_UNIT_BATCH_REQUEST.getSize(sourceState));
+    }
+    JsonArray batch = new JsonArray();
+
     for (ImmutablePair<Long, Long> dtPartition : datetimePartitions) {
       LOG.debug("dtPartition: {}", dtPartition);
       for (String unitPartition: unitPartitions) {
@@ -328,49 +359,124 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
                 dtPartitionModified.left, dtPartitionModified.right));
             continue;
           }
-          WorkUnit workUnit = WorkUnit.create(extract,
-              new WatermarkInterval(
-                  new LongWatermark(dtPartitionModified.getLeft()),
-                  new LongWatermark(dtPartitionModified.getRight())));
+          if (batchSize > 1) {
+            JsonObject unit = new JsonObject();
+            unit.addProperty(KEY_WORD_UNIT, unitPartition);
+            unit.addProperty(KEY_WORD_SIGNATURE, wuSignature);
+            unit.addProperty(KEY_WORD_LOW_WATERMARK, dtPartitionModified.getLeft());
+            batch.add(unit);
+            if (batch.size() == batchSize) {
+              workUnits.add(createBatchWorkUnit(extract, dtPartition, batch,
+                  datetimeWatermarkName, unitWatermarkName, watermarkGroups, workUnits.size()));
+              batch = new JsonArray();
+            }
+            continue;
+          }
 
-          // save work unit signature for identification
-          // because each dataset URN key will have a state file on Hadoop, it cannot contain path separator
-          workUnit.setProp(MSTAGE_WATERMARK_GROUPS.toString(),
-              watermarkGroups.toString());
-          workUnit.setProp(DATASET_URN.toString(), EndecoUtils.getHadoopFsEncoded(wuSignature));
+          WorkUnit workUnit = createWorkUnit(extract, dtPartitionModified, wuSignature,
+              watermarkGroups, workUnits.size());
 
           // save the lower number of datetime watermark partition and the unit watermark partition
           workUnit.setProp(datetimeWatermarkName, dtPartition.getLeft());
           workUnit.setProp(unitWatermarkName, unitPartition);
 
           workUnit.setProp(MSTAGE_ACTIVATION_PROPERTY.toString(), unitPartition);
-          workUnit.setProp(MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME.toString(),
-              DateTime.now().getMillis()
-                  + workUnits.size() * MSTAGE_WORK_UNIT_PACING_SECONDS.getMillis(sourceState));
-
-          if (!MSTAGE_OUTPUT_SCHEMA.isValidNonblank(sourceState)
-            && this.jobKeys.hasOutputSchema()) {
-            // populate the output schema read from URN reader to sub tasks
-            // so that the URN reader will not be called again
-            LOG.info("Populating output schema to work units:");
-            LOG.info("Output schema: {}", this.jobKeys.getOutputSchema().toString());
-            workUnit.setProp(MSTAGE_OUTPUT_SCHEMA.getConfig(),
-                this.jobKeys.getOutputSchema().toString());
-
-            // populate the target schema read from URN reader to sub tasks
-            // so that the URN reader will not be called again
-            LOG.info("Populating target schema to work units:");
-            LOG.info("Target schema: {}", jobKeys.getTargetSchema().toString());
-            workUnit.setProp(MSTAGE_TARGET_SCHEMA.getConfig(),
-                jobKeys.getTargetSchema().toString());
-          }
           workUnits.add(workUnit);
         }
       }
+
+      // the last batch of a date time partition can be partial
+      if (batch.size() > 0) {
+        workUnits.add(createBatchWorkUnit(extract, dtPartition, batch,
+            datetimeWatermarkName, unitWatermarkName, watermarkGroups, workUnits.size()));
+        batch = new JsonArray();
+      }
     }
     return workUnits;
   }
 
+  /**
+   * Create a work unit with the properties common to single unit work units and
+   * work unit batches
+   *
+   * @param extract the extract of the work unit
+   * @param range the low and high watermarks
+   * @param wuSignature the work unit signature
+   * @param watermarkGroups the watermark names
+   * @param index the sequence number of the work unit
+   * @return the work unit
+   */
+  private WorkUnit createWorkUnit(Extract extract, ImmutablePair<Long, Long> range, String wuSignature,
+      JsonArray watermarkGroups, int index) {
+    WorkUnit workUnit = WorkUnit.create(extract,
+        new WatermarkInterval(
+            new LongWatermark(range.getLeft()),
+            new LongWatermark(range.getRight())));
+
+    // save work unit signature for identification
+    // because each dataset URN key will have a state file on Hadoop, it cannot contain path separator
+    workUnit.setProp(MSTAGE_WATERMARK_GROUPS.toString(),
+        watermarkGroups.toString());
+    workUnit.setProp(DATASET_URN.toString(), EndecoUtils.getHadoopFsEncoded(wuSignature));
+
+    workUnit.setProp(MSTAGE_WORK_UNIT_SCHEDULING_STARTTIME.toString(),
+        DateTime.now().getMillis()
+            + index * MSTAGE_WORK_UNIT_PACING_SECONDS.getMillis(sourceState));
+
+    if (!MSTAGE_OUTPUT_SCHEMA.isValidNonblank(sourceState)
+      && this.jobKeys.hasOutputSchema()) {
+      // populate the output schema read from URN reader to sub tasks
+      // so that the URN reader will not be called again
+      LOG.info("Populating output schema to work units:");
+      LOG.info("Output schema: {}", this.jobKeys.getOutputSchema().toString());
+      workUnit.setProp(MSTAGE_OUTPUT_SCHEMA.getConfig(),
+          this.jobKeys.getOutputSchema().toString());
+
+      // populate the target schema read from URN reader to sub tasks
+      // so that the URN reader will not be called again
+      LOG.info("Populating target schema to work units:");
+      LOG.info("Target schema: {}", jobKeys.getTargetSchema().toString());
+      workUnit.setProp(MSTAGE_TARGET_SCHEMA.getConfig(),
+          jobKeys.getTargetSchema().toString());
+    }
+    return workUnit;
+  }
+
+  /**
+   * Create a work unit that extracts a batch of unit partitions. The units are passed
+   * to the extractor through ms.work.unit.batch.units, each with its own signature and
+   * low watermark, so that the high watermark of each unit can be tracked separately.
+   *
+   * The work unit covers the lowest low watermark of the units, and its signature is
+   * made from the first unit, which doesn't conflict with the signature of the unit.
+   *
+   * @param extract the extract of the work unit
+   * @param dtPartition the date time partition
+   * @param batch the units, each having the unit partition, the signature, and the low watermark
+   * @param datetimeWatermarkName the date time watermark name
+   * @param unitWatermarkName the unit watermark name
+   * @param watermarkGroups the watermark names
+   * @param index the sequence number of the work unit
+   * @return the work unit
+   */
+  private WorkUnit createBatchWorkUnit(Extract extract, ImmutablePair<Long, Long> dtPartition, JsonArray batch,
+      String datetimeWatermarkName, String unitWatermarkName, JsonArray watermarkGroups, int index) {
+    long lowWatermark = dtPartition.getRight();
+    for (JsonElement unit : batch) {
+      lowWatermark = Long.min(lowWatermark, unit.getAsJsonObject().get(KEY_WORD_LOW_WATERMARK).getAsLong());
+    }
+    String batchSignature = getWorkUnitSignature(datetimeWatermarkName, dtPartition.getLeft(),
+        unitWatermarkName + PROPERTY_SEPARATOR + KEY_WORD_BATCH,
+        batch.get(0).getAsJsonObject().get(KEY_WORD_UNIT).getAsString());
+    LOG.info("Batching {} units in work unit {}", batch.size(), batchSignature);
+
+    WorkUnit workUnit = createWorkUnit(extract, new ImmutablePair<>(lowWatermark, dtPartition.getRight()),
+        batchSignature, watermarkGroups, index);
+    workUnit.setProp(datetimeWatermarkName, dtPartition.getLeft());
+    workUnit.setProp(MSTAGE_WORK_UNIT_BATCH_UNITS.getConfig(), batch.toString());
+    return workUnit;
+  }
+
   /**
    * breaks a date time range to smaller partitions per WORK_UNIT_PARTITION property setting
    * if too many partitions created, truncate to the maximum partitions allowed
@@ -408,6 +514,13 @@ public class MultistageSource<S, D> extends AbstractSource<S, D> {
       // work unit signatures
       LOG.debug("Dataset Signature: {}, High Watermark: {}", EndecoUtils.getHadoopFsDecoded(entry.getKey()), highWatermark);
       watermarks.put(EndecoUtils.getHadoopFsDecoded(entry.getKey()), highWatermark);
+
+      // work unit batches keep the high watermarks of their units by unit signature
+      for (WorkUnitState wuState : entry.getValue()) {
+        for (Map.Entry<String, JsonElement> unit : MSTAGE_WORK_UNIT_BATCH_WATERMARKS.get(wuState).entrySet()) {
+          watermarks.merge(unit.getKey(), unit.getValue().getAsLong(), Long::max);
+        }
+      }
     }
     return ImmutableMap.copyOf(watermarks);
   }
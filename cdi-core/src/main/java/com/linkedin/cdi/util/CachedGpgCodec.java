@@ -0,0 +1,495 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.hash.Hashing;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.codec.StreamCodec;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.bouncycastle.bcpg.CompressionAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPCompressedData;
+import org.bouncycastle.openpgp.PGPCompressedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPEncryptedDataList;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPBEEncryptedData;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyEncryptedData;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPPublicKeyRingCollection;
+import org.bouncycastle.openpgp.PGPSecretKey;
+import org.bouncycastle.openpgp.PGPSecretKeyRingCollection;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.jcajce.JcaPGPObjectFactory;
+import org.bouncycastle.openpgp.operator.jcajce.JcaKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPDigestCalculatorProviderBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBEDataDecryptorFactoryBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBESecretKeyDecryptorBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePublicKeyDataDecryptorFactoryBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcePublicKeyKeyEncryptionMethodGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A GPG codec for key ring based encryption and decryption.
+ *
+ * Unlike the Gobblin GPGCodec, which opens and parses the key file for every
+ * stream, this codec keeps parsed key rings, and private keys extracted from them,
+ * in a JVM scoped cache. Cache entries are keyed by the key file location, and
+ * they are reloaded when the modification time of the key file changes.
+ *
+ * Encoded and decoded streams are wrapped in buffers of a configurable size,
+ * so that the many small reads and writes of the PGP packet layer
+ * don't go directly to the underlying source or destination stream.
+ *
+ * When compression is configured for encryption, it is skipped for data that
+ * is already compressed, as detected from the first block of the data.
+ */
+public class CachedGpgCodec implements StreamCodec {
+  private static final Logger LOG = LoggerFactory.getLogger(CachedGpgCodec.class);
+  private static final String PROVIDER_NAME = BouncyCastleProvider.PROVIDER_NAME;
+  private static final String PAYLOAD_NAME = "payload.file";
+  private static final String TAG = "gpg";
+  public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+  private static final ConcurrentMap<String, KeyRing> KEY_RINGS = new ConcurrentHashMap<>();
+  private static final AtomicLong KEY_RING_LOADS = new AtomicLong(0);
+
+  static {
+    if (Security.getProvider(PROVIDER_NAME) == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+  }
+
+  private final Path keystorePath;
+  private final String password;
+  private final long keyId;
+  private final String cipher;
+  private final int bufferSize;
+  private final int compressionAlgorithm;
+  private final int compressionLevel;
+  private FileSystem fileSystem = null;
+
+  /**
+   * @param keystorePath the location of the public key ring for encryption, or the secret key ring for decryption
+   * @param password the passphrase of the secret key, or the password of password based encryption
+   * @param keyId the id of the public key for encryption, 0 to use the first encryption key in the key ring
+   * @param cipher the symmetric cipher name, null to default to CAST5
+   * @param bufferSize the size of I/O buffers around encoded and decoded streams
+   */
+  public CachedGpgCodec(Path keystorePath, String password, long keyId, String cipher, int bufferSize) {
+    this(keystorePath, password, keyId, cipher, bufferSize, null, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param keystorePath the location of the public key ring for encryption, or the secret key ring for decryption
+   * @param password the passphrase of the secret key, or the password of password based encryption
+   * @param keyId the id of the public key for encryption, 0 to use the first encryption key in the key ring
+   * @param cipher the symmetric cipher name, null to default to CAST5
+   * @param bufferSize the size of I/O buffers around encoded and decoded streams
+   * @param compression the compression algorithm name for encryption, like ZIP, ZLIB, or BZIP2,
+   *                    null to default to UNCOMPRESSED
+   * @param compressionLevel the compression level for ZIP and ZLIB, from 0 to 9, or -1 for the default level
+   */
+  public CachedGpgCodec(Path keystorePath, String password, long keyId, String cipher, int bufferSize,
+      String compression, int compressionLevel) {
+    this.keystorePath = keystorePath;
+    this.password = password == null ? "" : password;
+    this.keyId = keyId;
+    this.cipher = cipher;
+    this.bufferSize = bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE;
+    this.compressionAlgorithm = getCompressionAlgorithm(compression);
+    this.compressionLevel = compressionLevel;
+  }
+
+  public Path getKeystorePath() {
+    return keystorePath;
+  }
+
+  public long getKeyId() {
+    return keyId;
+  }
+
+  public String getCipher() {
+    return cipher;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public int getCompressionAlgorithm() {
+    return compressionAlgorithm;
+  }
+
+  public int getCompressionLevel() {
+    return compressionLevel;
+  }
+
+  /**
+   * Encrypt the output stream with the public key of the configured key id.
+   *
+   * The returned stream holds the first block of data, up to the buffer size, in
+   * memory, and checks whether the data is already compressed before deciding
+   * whether PGP compression should be applied.
+   *
+   * @param origStream the destination stream
+   * @return a stream that encrypts data written to it into the destination stream
+   */
+  @Override
+  public OutputStream encodeOutputStream(OutputStream origStream) throws IOException {
+    try {
+      PGPEncryptedDataGenerator encryptedDataGenerator = new PGPEncryptedDataGenerator(
+          new JcePGPDataEncryptorBuilder(getSymmetricKeyAlgorithm(cipher))
+              .setWithIntegrityPacket(true)
+              .setSecureRandom(new SecureRandom())
+              .setProvider(PROVIDER_NAME));
+      encryptedDataGenerator.addMethod(
+          new JcePublicKeyKeyEncryptionMethodGenerator(getPublicKey()).setProvider(PROVIDER_NAME));
+      return new EncryptedOutputStream(origStream, encryptedDataGenerator);
+    } catch (PGPException e) {
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Decrypt the input stream, using the cached secret key ring if the data was
+   * encrypted with a public key, or using the password if the data was encrypted
+   * with a password
+   *
+   * @param origStream the encrypted stream
+   * @return the decrypted stream
+   */
+  @Override
+  public InputStream decodeInputStream(InputStream origStream) throws IOException {
+    try {
+      JcaPGPObjectFactory objectFactory = new JcaPGPObjectFactory(
+          PGPUtil.getDecoderStream(new BufferedInputStream(origStream, bufferSize)));
+      Object object = objectFactory.nextObject();
+      // the first object might be a PGP marker packet
+      PGPEncryptedDataList encryptedDataList = object instanceof PGPEncryptedDataList
+          ? (PGPEncryptedDataList) object : (PGPEncryptedDataList) objectFactory.nextObject();
+
+      InputStream clearStream = null;
+      Iterator<?> iterator = encryptedDataList.getEncryptedDataObjects();
+      while (clearStream == null && iterator.hasNext()) {
+        Object encryptedData = iterator.next();
+        if (encryptedData instanceof PGPPublicKeyEncryptedData) {
+          PGPPublicKeyEncryptedData publicKeyEncryptedData = (PGPPublicKeyEncryptedData) encryptedData;
+          PGPPrivateKey privateKey = getPrivateKey(publicKeyEncryptedData.getKeyID());
+          if (privateKey != null) {
+            clearStream = publicKeyEncryptedData.getDataStream(
+                new JcePublicKeyDataDecryptorFactoryBuilder().setProvider(PROVIDER_NAME).build(privateKey));
+          }
+        } else if (encryptedData instanceof PGPPBEEncryptedData) {
+          clearStream = ((PGPPBEEncryptedData) encryptedData).getDataStream(
+              new JcePBEDataDecryptorFactoryBuilder(
+                  new JcaPGPDigestCalculatorProviderBuilder().setProvider(PROVIDER_NAME).build())
+                  .setProvider(PROVIDER_NAME).build(password.toCharArray()));
+        }
+      }
+      if (clearStream == null) {
+        throw new PGPException("Cannot find a secret key in " + keystorePath + " to decrypt the data");
+      }
+      return new BufferedInputStream(getLiteralDataStream(clearStream), bufferSize);
+    } catch (PGPException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public String getTag() {
+    return TAG;
+  }
+
+  /**
+   * Unwrap the optional compressed data packet and return the literal data
+   */
+  private InputStream getLiteralDataStream(InputStream clearStream) throws IOException, PGPException {
+    JcaPGPObjectFactory objectFactory = new JcaPGPObjectFactory(clearStream);
+    Object message = objectFactory.nextObject();
+    if (message instanceof PGPCompressedData) {
+      objectFactory = new JcaPGPObjectFactory(((PGPCompressedData) message).getDataStream());
+      message = objectFactory.nextObject();
+    }
+    if (message instanceof PGPLiteralData) {
+      return ((PGPLiteralData) message).getInputStream();
+    }
+    throw new PGPException("Unsupported PGP message type: " + (message == null ? null : message.getClass().getName()));
+  }
+
+  /**
+   * Retrieve the private key from the cache, or extract it from the secret key ring.
+   * Extracting a private key involves hashing the passphrase many times, therefore
+   * the extracted key is kept along with the key ring.
+   */
+  private PGPPrivateKey getPrivateKey(long id) throws IOException, PGPException {
+    KeyRing keyRing = getKeyRing();
+    String cacheKey = Long.toHexString(id) + ":" + Hashing.sha256().hashString(password, StandardCharsets.UTF_8);
+    PGPPrivateKey privateKey = keyRing.privateKeys.get(cacheKey);
+    if (privateKey == null) {
+      PGPSecretKey secretKey = keyRing.getSecretKeyRings().getSecretKey(id);
+      if (secretKey == null) {
+        return null;
+      }
+      privateKey = secretKey.extractPrivateKey(
+          new JcePBESecretKeyDecryptorBuilder().setProvider(PROVIDER_NAME).build(password.toCharArray()));
+      keyRing.privateKeys.putIfAbsent(cacheKey, privateKey);
+    }
+    return privateKey;
+  }
+
+  /**
+   * Retrieve the public key of the configured key id, or the first encryption key
+   * if the key id is 0
+   */
+  private PGPPublicKey getPublicKey() throws IOException, PGPException {
+    PGPPublicKeyRingCollection publicKeyRings = getKeyRing().getPublicKeyRings();
+    if (keyId != 0) {
+      PGPPublicKey publicKey = publicKeyRings.getPublicKey(keyId);
+      if (publicKey == null) {
+        throw new PGPException("Cannot find public key " + Long.toHexString(keyId) + " in " + keystorePath);
+      }
+      return publicKey;
+    }
+    Iterator<PGPPublicKeyRing> rings = publicKeyRings.getKeyRings();
+    while (rings.hasNext()) {
+      Iterator<PGPPublicKey> keys = rings.next().getPublicKeys();
+      while (keys.hasNext()) {
+        PGPPublicKey publicKey = keys.next();
+        if (publicKey.isEncryptionKey()) {
+          return publicKey;
+        }
+      }
+    }
+    throw new PGPException("Cannot find an encryption key in " + keystorePath);
+  }
+
+  /**
+   * Retrieve the key ring from the JVM scoped cache, the key file is read
+   * only if it is not cached yet, or its modification time has changed.
+   */
+  private KeyRing getKeyRing() throws IOException {
+    if (fileSystem == null) {
+      fileSystem = keystorePath.getFileSystem(new Configuration());
+    }
+    String location = fileSystem.makeQualified(keystorePath).toString();
+    long modificationTime = fileSystem.getFileStatus(keystorePath).getModificationTime();
+    KeyRing keyRing = KEY_RINGS.get(location);
+    if (keyRing == null || keyRing.modificationTime != modificationTime) {
+      synchronized (KEY_RINGS) {
+        keyRing = KEY_RINGS.get(location);
+        if (keyRing == null || keyRing.modificationTime != modificationTime) {
+          try (InputStream keyStream = fileSystem.open(keystorePath)) {
+            keyRing = new KeyRing(modificationTime, IOUtils.toByteArray(keyStream));
+          }
+          KEY_RINGS.put(location, keyRing);
+          KEY_RING_LOADS.incrementAndGet();
+          LOG.info("Loaded GPG key ring from {}, modification time {}", location, modificationTime);
+        }
+      }
+    }
+    return keyRing;
+  }
+
+  /**
+   * Convert a cipher name, like AES_256, to a symmetric key algorithm tag
+   */
+  private static int getSymmetricKeyAlgorithm(String cipherName) {
+    if (cipherName == null) {
+      return SymmetricKeyAlgorithmTags.CAST5;
+    }
+    try {
+      return SymmetricKeyAlgorithmTags.class.getField(cipherName).getInt(null);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new IllegalArgumentException("Unsupported cipher: " + cipherName, e);
+    }
+  }
+
+  /**
+   * Convert a compression algorithm name, like ZIP, to a compression algorithm tag
+   */
+  private static int getCompressionAlgorithm(String compressionName) {
+    if (compressionName == null) {
+      return CompressionAlgorithmTags.UNCOMPRESSED;
+    }
+    try {
+      return CompressionAlgorithmTags.class.getField(compressionName.toUpperCase()).getInt(null);
+    } catch (NoSuchFieldException | IllegalAccessException e) {
+      throw new IllegalArgumentException("Unsupported compression: " + compressionName, e);
+    }
+  }
+
+  @VisibleForTesting
+  static long getKeyRingLoads() {
+    return KEY_RING_LOADS.get();
+  }
+
+  @VisibleForTesting
+  static void clearCache() {
+    KEY_RINGS.clear();
+  }
+
+  /**
+   * An output stream that samples the first block of data before opening the PGP packets,
+   * so that PGP compression can be turned off when the data is already compressed
+   */
+  public class EncryptedOutputStream extends OutputStream {
+    private final OutputStream origStream;
+    private final PGPEncryptedDataGenerator encryptedDataGenerator;
+    private final byte[] firstBlock;
+    private int firstBlockLength = 0;
+    private int chosenCompressionAlgorithm = -1;
+    private OutputStream encryptedStream = null;
+    private PGPCompressedDataGenerator compressedDataGenerator = null;
+    private OutputStream literalStream = null;
+    private boolean closed = false;
+
+    EncryptedOutputStream(OutputStream origStream, PGPEncryptedDataGenerator encryptedDataGenerator) {
+      this.origStream = origStream;
+      this.encryptedDataGenerator = encryptedDataGenerator;
+      this.firstBlock = new byte[bufferSize];
+    }
+
+    /**
+     * @return the compression algorithm tag applied to the stream, or -1 if not decided yet
+     */
+    public int getChosenCompressionAlgorithm() {
+      return chosenCompressionAlgorithm;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (literalStream == null) {
+        firstBlock[firstBlockLength++] = (byte) b;
+        if (firstBlockLength == firstBlock.length) {
+          open();
+        }
+      } else {
+        literalStream.write(b);
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (literalStream == null) {
+        int sampled = Math.min(len, firstBlock.length - firstBlockLength);
+        System.arraycopy(b, off, firstBlock, firstBlockLength, sampled);
+        firstBlockLength += sampled;
+        if (firstBlockLength < firstBlock.length) {
+          return;
+        }
+        open();
+        off += sampled;
+        len -= sampled;
+      }
+      literalStream.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (literalStream != null) {
+        literalStream.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      if (literalStream == null) {
+        open();
+      }
+      // closing the PGP streams only finishes the PGP packets
+      literalStream.close();
+      if (compressedDataGenerator != null) {
+        compressedDataGenerator.close();
+      }
+      encryptedStream.close();
+      origStream.close();
+    }
+
+    private void open() throws IOException {
+      chosenCompressionAlgorithm = compressionAlgorithm;
+      if (compressionAlgorithm != CompressionAlgorithmTags.UNCOMPRESSED
+          && CompressionUtils.isCompressed(firstBlock, firstBlockLength)) {
+        LOG.info("Data is already compressed, PGP compression is turned off");
+        chosenCompressionAlgorithm = CompressionAlgorithmTags.UNCOMPRESSED;
+      }
+      try {
+        encryptedStream = encryptedDataGenerator.open(origStream, new byte[bufferSize]);
+        OutputStream payloadStream = encryptedStream;
+        if (chosenCompressionAlgorithm != CompressionAlgorithmTags.UNCOMPRESSED) {
+          compressedDataGenerator = new PGPCompressedDataGenerator(chosenCompressionAlgorithm, compressionLevel);
+          payloadStream = compressedDataGenerator.open(encryptedStream, new byte[bufferSize]);
+        }
+        literalStream = new BufferedOutputStream(new PGPLiteralDataGenerator().open(payloadStream,
+            PGPLiteralData.BINARY, PAYLOAD_NAME, new Date(), new byte[bufferSize]), bufferSize);
+      } catch (PGPException e) {
+        throw new IOException(e);
+      }
+      literalStream.write(firstBlock, 0, firstBlockLength);
+    }
+  }
+
+  /**
+   * A key file's content, and the key rings and private keys parsed from it
+   */
+  private static class KeyRing {
+    private final long modificationTime;
+    private final byte[] content;
+    private final ConcurrentMap<String, PGPPrivateKey> privateKeys = new ConcurrentHashMap<>();
+    private PGPSecretKeyRingCollection secretKeyRings = null;
+    private PGPPublicKeyRingCollection publicKeyRings = null;
+
+    KeyRing(long modificationTime, byte[] content) {
+      this.modificationTime = modificationTime;
+      this.content = content;
+    }
+
+    synchronized PGPSecretKeyRingCollection getSecretKeyRings() throws IOException, PGPException {
+      if (secretKeyRings == null) {
+        secretKeyRings = new PGPSecretKeyRingCollection(
+            PGPUtil.getDecoderStream(new ByteArrayInputStream(content)), new JcaKeyFingerprintCalculator());
+      }
+      return secretKeyRings;
+    }
+
+    synchronized PGPPublicKeyRingCollection getPublicKeyRings() throws IOException, PGPException {
+      if (publicKeyRings == null) {
+        publicKeyRings = new PGPPublicKeyRingCollection(
+            PGPUtil.getDecoderStream(new ByteArrayInputStream(content)), new JcaKeyFingerprintCalculator());
+      }
+      return publicKeyRings;
+    }
+  }
+}
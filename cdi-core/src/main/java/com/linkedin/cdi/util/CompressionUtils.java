@@ -0,0 +1,147 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Utilities to detect whether a block of data is already compressed
+ */
+public interface CompressionUtils {
+  // the gzip magic followed by the deflate method, the only method in use
+  byte[] MAGIC_GZIP = {(byte) 0x1f, (byte) 0x8b, 0x08};
+  byte[] MAGIC_ZSTD = {(byte) 0x28, (byte) 0xb5, (byte) 0x2f, (byte) 0xfd};
+  // "BZh" is followed by the block size digit, and then the magic of the first block, or of the end of an empty stream
+  byte[] MAGIC_BZIP2 = {'B', 'Z', 'h'};
+  byte[] MAGIC_BZIP2_BLOCK = {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+  byte[] MAGIC_BZIP2_END = {0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90};
+  byte[] MAGIC_XZ = {(byte) 0xfd, '7', 'z', 'X', 'Z', 0x00};
+  byte[] MAGIC_ZIP = {'P', 'K', 0x03, 0x04};
+  byte[] MAGIC_LZ4 = {(byte) 0x04, (byte) 0x22, (byte) 0x4d, (byte) 0x18};
+  byte[] MAGIC_SNAPPY = {(byte) 0xff, 0x06, 0x00, 0x00, 's', 'N', 'a', 'P', 'p', 'Y'};
+  // "PAR1" is followed by the page header of the first column chunk, which starts with its i32 field 1
+  byte[] MAGIC_PARQUET = {'P', 'A', 'R', '1', 0x15};
+  byte[] MAGIC_AVRO = {'O', 'b', 'j', 0x01};
+  byte[] AVRO_CODEC_KEY = "avro.codec".getBytes(StandardCharsets.UTF_8);
+  byte[][] COMPRESSED_MAGICS = {MAGIC_GZIP, MAGIC_ZSTD, MAGIC_XZ, MAGIC_ZIP, MAGIC_LZ4, MAGIC_SNAPPY, MAGIC_PARQUET};
+
+  // entropy, in bits per byte, above which data is considered not compressible
+  double ENTROPY_THRESHOLD = 7.5;
+  // entropy of smaller samples is not a reliable indicator
+  int MIN_ENTROPY_SAMPLE_SIZE = 1024;
+
+  /**
+   * Check whether a block of data, typically the first block of a file, is already
+   * compressed. Data is considered compressed if it starts with the full signature of a
+   * compressed format, or if it is an Avro file with a compression codec, or if its
+   * entropy is close to 8 bits per byte.
+   *
+   * Signatures are matched in full, so that text which happens to start with the same
+   * letters, like "BZh", is not taken as compressed. ORC files have no signature longer
+   * than "ORC", and are judged by entropy.
+   *
+   * @param data the data block
+   * @param length the number of valid bytes in the data block
+   * @return true if the data is already compressed
+   */
+  static boolean isCompressed(byte[] data, int length) {
+    for (byte[] magic : COMPRESSED_MAGICS) {
+      if (startsWith(data, length, magic)) {
+        return true;
+      }
+    }
+    if (isBzip2(data, length)) {
+      return true;
+    }
+    if (startsWith(data, length, MAGIC_AVRO)) {
+      return isCompressedAvro(data, length);
+    }
+    return length >= MIN_ENTROPY_SAMPLE_SIZE && getEntropy(data, length) > ENTROPY_THRESHOLD;
+  }
+
+  /**
+   * Calculate the Shannon entropy of a block of data
+   *
+   * @param data the data block
+   * @param length the number of valid bytes in the data block
+   * @return the entropy in bits per byte, between 0 and 8
+   */
+  static double getEntropy(byte[] data, int length) {
+    if (length <= 0) {
+      return 0;
+    }
+    int[] counts = new int[256];
+    for (int i = 0; i < length; i++) {
+      counts[data[i] & 0xff]++;
+    }
+    double entropy = 0;
+    for (int count : counts) {
+      if (count > 0) {
+        double probability = (double) count / length;
+        entropy -= probability * Math.log(probability) / Math.log(2);
+      }
+    }
+    return entropy;
+  }
+
+  /**
+   * An Avro container file is compressed when its header metadata has an
+   * "avro.codec" entry other than "null"
+   */
+  static boolean isCompressedAvro(byte[] data, int length) {
+    int position = indexOf(data, length, AVRO_CODEC_KEY);
+    if (position < 0 || position + AVRO_CODEC_KEY.length >= length) {
+      return false;
+    }
+    // the value is a string prefixed with its zig-zag encoded length
+    int start = position + AVRO_CODEC_KEY.length + 1;
+    int valueLength = (data[start - 1] & 0xff) >> 1;
+    if (start + valueLength > length) {
+      return false;
+    }
+    return !new String(data, start, valueLength, StandardCharsets.UTF_8).equals("null");
+  }
+
+  /**
+   * A bzip2 stream is "BZh", a block size digit from 1 to 9, and the magic of a block or
+   * of the end of the stream
+   */
+  static boolean isBzip2(byte[] data, int length) {
+    int offset = MAGIC_BZIP2.length + 1;
+    return startsWith(data, length, MAGIC_BZIP2)
+        && length > MAGIC_BZIP2.length && data[MAGIC_BZIP2.length] >= '1' && data[MAGIC_BZIP2.length] <= '9'
+        && (startsWith(data, length, offset, MAGIC_BZIP2_BLOCK) || startsWith(data, length, offset, MAGIC_BZIP2_END));
+  }
+
+  static boolean startsWith(byte[] data, int length, byte[] prefix) {
+    return startsWith(data, length, 0, prefix);
+  }
+
+  static boolean startsWith(byte[] data, int length, int offset, byte[] prefix) {
+    if (length < offset + prefix.length) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (data[offset + i] != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  static int indexOf(byte[] data, int length, byte[] target) {
+    for (int i = 0; i <= length - target.length; i++) {
+      int j = 0;
+      while (j < target.length && data[i + j] == target[j]) {
+        j++;
+      }
+      if (j == target.length) {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,120 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Utilities to negotiate and decode HTTP content encodings
+ *
+ * gzip and deflate are always supported. br and zstd are supported when their
+ * decoders, org.brotli:dec and com.github.luben:zstd-jni, are on the class path.
+ */
+public interface ContentEncodingUtils {
+  Logger LOG = LoggerFactory.getLogger(ContentEncodingUtils.class);
+  String IDENTITY = "identity";
+  String GZIP = "gzip";
+  String DEFLATE = "deflate";
+  String BROTLI = "br";
+  String ZSTD = "zstd";
+  Map<String, String> OPTIONAL_DECODERS = ImmutableMap.of(
+      BROTLI, "org.brotli.dec.BrotliInputStream",
+      ZSTD, "com.github.luben.zstd.ZstdInputStream");
+
+  /**
+   * @param encoding a content coding name
+   * @return true if the content coding is known, whether or not its decoder is available
+   */
+  static boolean isKnown(String encoding) {
+    String name = encoding.trim().toLowerCase(Locale.ROOT);
+    return name.equals(IDENTITY) || name.equals(GZIP) || name.equals(DEFLATE) || OPTIONAL_DECODERS.containsKey(name);
+  }
+
+  /**
+   * @param encoding a content coding name
+   * @return true if the content coding can be decoded
+   */
+  static boolean isSupported(String encoding) {
+    String name = encoding.trim().toLowerCase(Locale.ROOT);
+    if (OPTIONAL_DECODERS.containsKey(name)) {
+      try {
+        Class.forName(OPTIONAL_DECODERS.get(name));
+        return true;
+      } catch (ClassNotFoundException e) {
+        return false;
+      }
+    }
+    return isKnown(name);
+  }
+
+  /**
+   * Build the Accept-Encoding header value from a list of preferred content codings,
+   * leaving out codings that cannot be decoded
+   *
+   * @param encodings comma separated content coding names
+   * @return the Accept-Encoding header value, or an empty string if nothing can be accepted
+   */
+  static String getAcceptEncoding(String encodings) {
+    List<String> accepted = new ArrayList<>();
+    for (String encoding : StringUtils.split(StringUtils.defaultString(encodings), ',')) {
+      String name = encoding.trim().toLowerCase(Locale.ROOT);
+      if (isSupported(name)) {
+        accepted.add(name);
+      } else if (StringUtils.isNotBlank(name)) {
+        LOG.warn("Content encoding {} is not supported and will not be accepted", name);
+      }
+    }
+    return StringUtils.join(accepted, ", ");
+  }
+
+  /**
+   * Decode a content stream by its Content-Encoding header value. When multiple codings
+   * are listed, they are decoded in the reverse order of application. Unknown codings are
+   * left as they are, with a warning.
+   *
+   * @param content the encoded content stream
+   * @param contentEncoding the Content-Encoding header value, can be null
+   * @return the decoded content stream
+   */
+  static InputStream decode(InputStream content, String contentEncoding) throws IOException {
+    if (StringUtils.isBlank(contentEncoding)) {
+      return content;
+    }
+    String[] encodings = StringUtils.split(contentEncoding, ',');
+    InputStream decoded = content;
+    for (int i = encodings.length - 1; i >= 0; i--) {
+      String name = encodings[i].trim().toLowerCase(Locale.ROOT);
+      if (name.equals(GZIP) || name.equals("x-gzip")) {
+        decoded = new GZIPInputStream(decoded, 64 * 1024);
+      } else if (name.equals(DEFLATE)) {
+        // handles both zlib wrapped and raw deflate streams, as servers differ
+        decoded = new DeflateInputStream(decoded);
+      } else if (OPTIONAL_DECODERS.containsKey(name) && isSupported(name)) {
+        try {
+          decoded = (InputStream) Class.forName(OPTIONAL_DECODERS.get(name))
+              .getConstructor(InputStream.class).newInstance(decoded);
+        } catch (ReflectiveOperationException e) {
+          throw new IOException("Cannot create decoder for content encoding " + name, e);
+        }
+      } else if (!name.equals(IDENTITY)) {
+        LOG.warn("Content encoding {} is not supported, content is not decoded", name);
+        return decoded;
+      }
+    }
+    return decoded;
+  }
+}
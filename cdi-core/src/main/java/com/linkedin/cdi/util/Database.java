@@ -6,21 +6,33 @@ package com.linkedin.cdi.util;
 
 import com.google.common.base.Preconditions;
 import java.net.URI;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 /**
  * a list of databases
+ *
+ * Each database also defines how a connection and its statements are configured to stream
+ * result sets through server-side cursors, so that drivers fetch rows in batches of the fetch
+ * size, rather than reading the whole result set into memory when a statement is executed.
  */
 public enum Database {
   MYSQL("MySql", "com.mysql.cj.jdbc.Driver"),
   SQLSERVER("SqlServer", "com.microsoft.sqlserver.jdbc.SQLServerDriver"),
   ORACLE("Oracle", "oracle.jdbc.driver.OracleDriver"),
-  HSQLDB("HSqlDb", "org.hsqldb.jdbcDriver");
+  HSQLDB("HSqlDb", "org.hsqldb.jdbcDriver"),
+  POSTGRESQL("PostgreSql", "org.postgresql.Driver"),
+  H2("H2", "org.h2.Driver");
 
   private static final Logger LOG = LoggerFactory.getLogger(Database.class);
   final static String PROTOCOL_PREFIX = "jdbc:";
+  final static Pattern SUB_PROTOCOL = Pattern.compile("jdbc:(mysql|sqlserver|oracle|hsqldb|postgresql|h2):.*");
+  final static Pattern MYSQL_CURSOR_FETCH = Pattern.compile("(?i).*[?&]useCursorFetch=true(&.*)?");
 
   private String name;
   private String dbType;
@@ -45,8 +57,51 @@ public enum Database {
   }
 
   static public Database fromUrl(String jdbcUrl) {
-    Preconditions.checkArgument(jdbcUrl.matches("jdbc:(mysql|sqlserver|oracle|hsqldb):.*"), "jdbcUrl");
+    Preconditions.checkArgument(SUB_PROTOCOL.matcher(jdbcUrl).matches(), "jdbcUrl");
     String uri = jdbcUrl.substring(PROTOCOL_PREFIX.length());
     return Database.valueOf(URI.create(uri).getScheme().toUpperCase());
   }
+
+  /**
+   * @param jdbcUrl the JDBC URL
+   * @return the database of the URL, or null if the database is not in the list
+   */
+  static public Database find(String jdbcUrl) {
+    Matcher matcher = SUB_PROTOCOL.matcher(jdbcUrl == null ? "" : jdbcUrl);
+    return matcher.matches() ? Database.valueOf(matcher.group(1).toUpperCase()) : null;
+  }
+
+  /**
+   * Configure a connection so that the result sets of its statements can be streamed
+   *
+   * PostgreSQL uses a cursor, and fetches rows in batches of the fetch size, only when
+   * auto commit is off, otherwise it reads all rows when the statement is executed.
+   *
+   * @param connection the connection
+   * @throws SQLException if the connection cannot be configured
+   */
+  public void prepareForStreaming(Connection connection) throws SQLException {
+    if (this == POSTGRESQL && connection.getAutoCommit()) {
+      LOG.debug("Turning off auto commit for cursor based fetching");
+      connection.setAutoCommit(false);
+    }
+  }
+
+  /**
+   * Get the fetch size that makes the driver stream rows, rather than reading all rows at once
+   *
+   * MySQL Connector/J reads all rows unless the connection uses cursor fetch, by useCursorFetch=true
+   * in the URL, in which case rows are fetched in batches of the fetch size, or the fetch size
+   * is Integer.MIN_VALUE, in which case rows are streamed one by one.
+   *
+   * @param jdbcUrl the JDBC URL
+   * @param fetchSize the number of rows to fetch in a batch
+   * @return the fetch size to set on statements
+   */
+  public int getStreamingFetchSize(String jdbcUrl, int fetchSize) {
+    if (this == MYSQL && !MYSQL_CURSOR_FETCH.matcher(jdbcUrl).matches()) {
+      return Integer.MIN_VALUE;
+    }
+    return fetchSize;
+  }
 }
@@ -5,6 +5,7 @@
 package com.linkedin.cdi.util;
 
 import com.google.gson.JsonObject;
+import java.util.zip.Deflater;
 import org.apache.gobblin.codec.StreamCodec;
 import org.apache.gobblin.configuration.State;
 import org.apache.gobblin.crypto.EncryptionConfigParser;
@@ -18,6 +19,9 @@ import org.apache.hadoop.fs.Path;
  */
 public interface EncryptionUtils {
   String PATTERN = "^ENC\\(.*\\)$";
+  String GPG_BUFFER_SIZE_KEY = "buffer_size";
+  String GPG_COMPRESSION_KEY = "compression";
+  String GPG_COMPRESSION_LEVEL_KEY = "compression_level";
   /**
    * Decrypt the encrypted string using Gobblin utility
    * @param input the encrypted string
@@ -49,7 +53,8 @@ public interface EncryptionUtils {
    * Create a Gpg Codec per given parameters
    *
    * @param parameters the GPG decryption or encryption parameters
-   * @return A StreamCodec object, in this case, returns a @GPGCodec object
+   * @return A StreamCodec object, a @GPGCodec object for password based encryption,
+   * or a @CachedGpgCodec object for key based encryption
    */
   static StreamCodec getGpgCodec(JsonObject parameters) {
 
@@ -90,13 +95,34 @@ public interface EncryptionUtils {
       cipherName = parameters.get(EncryptionConfigParser.ENCRYPTION_CIPHER_KEY).getAsString();
     }
 
+    // buffer_size, optional, the size of I/O buffers around the encoded and decoded streams
+    int bufferSize = CachedGpgCodec.DEFAULT_BUFFER_SIZE;
+    if (parameters.has(GPG_BUFFER_SIZE_KEY)) {
+      bufferSize = parameters.get(GPG_BUFFER_SIZE_KEY).getAsInt();
+    }
+
+    // compression, optional, the compression algorithm for encryption, default to UNCOMPRESSED
+    // compression is skipped when the data is already compressed
+    String compression = null;
+    if (parameters.has(GPG_COMPRESSION_KEY)) {
+      compression = parameters.get(GPG_COMPRESSION_KEY).getAsString();
+    }
+
+    // compression_level, optional, the compression level of ZIP and ZLIB compression
+    int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    if (parameters.has(GPG_COMPRESSION_LEVEL_KEY)) {
+      compressionLevel = parameters.get(GPG_COMPRESSION_LEVEL_KEY).getAsInt();
+    }
+
     // if not using a keystore then use password based encryption
     if (keystorePathStr == null) {
       return new GPGCodec(password, cipherName);
     }
-    // if a key name is not present then use a key id of 0. A GPGCodec may be configured without a key name
-    // when used only for decryption where the key name is retrieved from the encrypted file
-    return new GPGCodec(new Path(keystorePathStr), password,
-        keyName == null ? 0 : Long.parseUnsignedLong(keyName, 16), cipherName);
+    // if a key name is not present then use a key id of 0. A codec may be configured without a key name
+    // when used only for decryption where the key name is retrieved from the encrypted file.
+    // Key based codecs share parsed key rings through a JVM scoped cache
+    return new CachedGpgCodec(new Path(keystorePathStr), password,
+        keyName == null ? 0 : Long.parseUnsignedLong(keyName, 16), cipherName, bufferSize,
+        compression, compressionLevel);
   }
 }
@@ -5,6 +5,11 @@
 package com.linkedin.cdi.util;
 
 import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.ResultSet;
@@ -13,6 +18,7 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.Map;
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Base64OutputStream;
 import org.apache.commons.lang.StringUtils;
 
 
@@ -48,23 +54,184 @@ public interface JdbcUtils {
 
       .build();
 
+  /**
+   * A converter of column values to strings, which is chosen once per column by the type of the column,
+   * so that the type is not checked for every value
+   */
+  interface ColumnConverter {
+    String convert(ResultSet resultSet, int index) throws SQLException;
+  }
+
   static String parseColumnAsString(final ResultSet resultset, final ResultSetMetaData resultsetMetadata, int i)
       throws SQLException {
+    return getColumnConverter(resultsetMetadata.getColumnType(i)).convert(resultset, i);
+  }
 
-    if (isBlob(resultsetMetadata.getColumnType(i))) {
-      return readBlobAsString(resultset.getBlob(i));
+  /**
+   * @param columnType java.sql.Types
+   * @return the converter of values of the column type
+   */
+  static ColumnConverter getColumnConverter(final int columnType) {
+    if (isBlob(columnType)) {
+      return (resultSet, index) -> readBlobAsString(resultSet.getBlob(index));
+    }
+    if (isClob(columnType)) {
+      return (resultSet, index) -> readClobAsString(resultSet.getClob(index));
     }
-    if (isClob(resultsetMetadata.getColumnType(i))) {
-      return readClobAsString(resultset.getClob(i));
+    if ((columnType == Types.BIT || columnType == Types.BOOLEAN) && convertBitToBoolean()) {
+      return (resultSet, index) -> {
+        String columnValue = Boolean.toString(resultSet.getBoolean(index));
+        // https://docs.oracle.com/javase/7/docs/api/java/sql/ResultSet.html#wasNull()
+        return resultSet.wasNull() ? null : columnValue;
+      };
+    }
+    return ResultSet::getString;
+  }
+
+  /**
+   * @param columnTypes java.sql.Types of the columns
+   * @return the converters of the columns, in the order of the columns
+   */
+  static ColumnConverter[] getColumnConverters(final int[] columnTypes) {
+    ColumnConverter[] converters = new ColumnConverter[columnTypes.length];
+    for (int i = 0; i < columnTypes.length; i++) {
+      converters[i] = getColumnConverter(columnTypes[i]);
     }
-    if ((resultsetMetadata.getColumnType(i) == Types.BIT
-        || resultsetMetadata.getColumnType(i) == Types.BOOLEAN)
-        && convertBitToBoolean()) {
-      String columnValue = Boolean.toString(resultset.getBoolean(i));
-      // https://docs.oracle.com/javase/7/docs/api/java/sql/ResultSet.html#wasNull()
-      return resultset.wasNull() ? null : columnValue;
+    return converters;
+  }
+
+  /**
+   * @param resultSetMetadata the result set metadata
+   * @return java.sql.Types of the columns, in the order of the columns
+   * @throws SQLException if the metadata cannot be read
+   */
+  static int[] getColumnTypes(final ResultSetMetaData resultSetMetadata) throws SQLException {
+    int[] columnTypes = new int[resultSetMetadata.getColumnCount()];
+    for (int i = 0; i < columnTypes.length; i++) {
+      columnTypes[i] = resultSetMetadata.getColumnType(i + 1);
     }
-    return resultset.getString(i);
+    return columnTypes;
+  }
+
+  /**
+   * @param resultSetMetadata the result set metadata
+   * @return the precisions of the columns, in the order of the columns
+   * @throws SQLException if the metadata cannot be read
+   */
+  static int[] getColumnPrecisions(final ResultSetMetaData resultSetMetadata) throws SQLException {
+    int[] precisions = new int[resultSetMetadata.getColumnCount()];
+    for (int i = 0; i < precisions.length; i++) {
+      precisions[i] = resultSetMetadata.getPrecision(i + 1);
+    }
+    return precisions;
+  }
+
+  /**
+   * @param resultSetMetadata the result set metadata
+   * @return the scales of the columns, in the order of the columns
+   * @throws SQLException if the metadata cannot be read
+   */
+  static int[] getColumnScales(final ResultSetMetaData resultSetMetadata) throws SQLException {
+    int[] scales = new int[resultSetMetadata.getColumnCount()];
+    for (int i = 0; i < scales.length; i++) {
+      scales[i] = resultSetMetadata.getScale(i + 1);
+    }
+    return scales;
+  }
+
+  /**
+   * Convert the current row of a result set to strings
+   *
+   * @param resultSet the result set
+   * @param converters the converters of the columns
+   * @return the column values as strings
+   * @throws SQLException if a value cannot be read
+   */
+  static String[] parseRowAsStrings(final ResultSet resultSet, final ColumnConverter[] converters)
+      throws SQLException {
+    String[] row = new String[converters.length];
+    for (int i = 0; i < converters.length; i++) {
+      row[i] = converters[i].convert(resultSet, i + 1);
+    }
+    return row;
+  }
+
+  /**
+   * Estimate the size of a row in memory from the types and the declared sizes of its columns.
+   * Variable length columns are counted by their declared size up to a limit, because
+   * values rarely fill very wide columns.
+   *
+   * @param resultSetMetadata the result set metadata
+   * @return the estimated number of bytes of a row
+   * @throws SQLException if the metadata cannot be read
+   */
+  static long estimateRowBytes(final ResultSetMetaData resultSetMetadata) throws SQLException {
+    long bytes = 0;
+    for (int i = 1; i <= resultSetMetadata.getColumnCount(); i++) {
+      // the overhead of a column value object
+      bytes += 16;
+      switch (resultSetMetadata.getColumnType(i)) {
+        case Types.BIT:
+        case Types.BOOLEAN:
+        case Types.TINYINT:
+          bytes += 1;
+          break;
+        case Types.SMALLINT:
+          bytes += 2;
+          break;
+        case Types.INTEGER:
+        case Types.REAL:
+          bytes += 4;
+          break;
+        case Types.BIGINT:
+        case Types.DOUBLE:
+        case Types.FLOAT:
+        case Types.DATE:
+        case Types.TIME:
+        case Types.TIMESTAMP:
+          bytes += 8;
+          break;
+        case Types.BLOB:
+        case Types.CLOB:
+        case Types.NCLOB:
+        case Types.LONGVARBINARY:
+        case Types.LONGVARCHAR:
+        case Types.LONGNVARCHAR:
+          bytes += 4096;
+          break;
+        default:
+          int size = Math.max(resultSetMetadata.getPrecision(i), resultSetMetadata.getColumnDisplaySize(i));
+          bytes += size <= 0 ? 32 : Math.min(size, 1024) * 2L;
+      }
+    }
+    return Math.max(bytes, 1);
+  }
+
+  /**
+   * Derive a fetch size, so that a batch of rows takes about the given amount of memory
+   *
+   * @param resultSetMetadata the result set metadata
+   * @param fetchBytes the target size of a batch of rows in bytes
+   * @param maxFetchSize the maximum fetch size
+   * @return the fetch size, between 10 and the maximum fetch size
+   * @throws SQLException if the metadata cannot be read
+   */
+  static int getFetchSize(final ResultSetMetaData resultSetMetadata, long fetchBytes, int maxFetchSize)
+      throws SQLException {
+    return getFetchSize(estimateRowBytes(resultSetMetadata), fetchBytes, maxFetchSize);
+  }
+
+  /**
+   * Derive a fetch size from an estimated row size
+   *
+   * @param rowBytes the estimated number of bytes of a row
+   * @param fetchBytes the target size of a batch of rows in bytes
+   * @param maxFetchSize the maximum fetch size
+   * @return the fetch size, between 10 and the maximum fetch size
+   */
+  static int getFetchSize(long rowBytes, long fetchBytes, int maxFetchSize) {
+    long rows = fetchBytes / Math.max(rowBytes, 1);
+    return (int) Math.max(Math.min(rows, maxFetchSize), Math.min(10, maxFetchSize));
   }
 
   static boolean isBlob(int columnType) {
@@ -75,6 +242,92 @@ public interface JdbcUtils {
     return columnType == Types.CLOB;
   }
 
+  /**
+   * @param columnType java.sql.Types
+   * @return true if values of the column can be read as a binary stream of any length
+   */
+  static boolean isBinaryLob(int columnType) {
+    return columnType == Types.BLOB || isBlob(columnType);
+  }
+
+  /**
+   * @param columnType java.sql.Types
+   * @return true if values of the column can be read as a character stream of any length
+   */
+  static boolean isCharacterLob(int columnType) {
+    return isClob(columnType) || columnType == Types.NCLOB
+        || columnType == Types.LONGVARCHAR || columnType == Types.LONGNVARCHAR;
+  }
+
+  /**
+   * Copy a binary stream, such as the value of a BLOB column, through a bounded buffer
+   *
+   * @param in the binary stream, which is not closed
+   * @param out the output stream
+   * @param buffer the buffer, which bounds the memory of the copy
+   * @return the number of bytes copied
+   * @throws IOException if the stream cannot be read or written
+   */
+  static long copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+    long count = 0;
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      out.write(buffer, 0, read);
+      count += read;
+    }
+    return count;
+  }
+
+  /**
+   * Copy a character stream, such as the value of a CLOB column, through a bounded buffer
+   *
+   * @param in the character stream, which is not closed
+   * @param out the writer
+   * @param buffer the buffer, which bounds the memory of the copy
+   * @return the number of characters copied
+   * @throws IOException if the stream cannot be read or written
+   */
+  static long copy(Reader in, Writer out, char[] buffer) throws IOException {
+    long count = 0;
+    for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+      out.write(buffer, 0, read);
+      count += read;
+    }
+    return count;
+  }
+
+  /**
+   * Copy a binary stream to a writer as Base64 text, the same text as {@link #readBlobAsString(Blob)},
+   * without reading the stream into memory
+   *
+   * @param in the binary stream, which is not closed
+   * @param out the writer, which is not closed
+   * @param buffer the buffer, which bounds the memory of the copy
+   * @return the number of bytes copied
+   * @throws IOException if the stream cannot be read or written
+   */
+  static long copyAsBase64(InputStream in, Writer out, byte[] buffer) throws IOException {
+    // Base64 text is ASCII, so that the encoded bytes are the characters
+    OutputStream ascii = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+      }
+
+      @Override
+      public void write(byte[] bytes, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+          out.write(bytes[i]);
+        }
+      }
+    };
+    // a line length of 0 writes the text in one line
+    Base64OutputStream base64 = new Base64OutputStream(ascii, true, 0, null);
+    long count = copy(in, base64, buffer);
+    // closing writes the final padding, and doesn't close the writer
+    base64.close();
+    return count;
+  }
+
   /**
    * For Blob data, need to get the bytes and use base64 encoding to encode the byte[]
    * When reading from the String, need to use base64 decoder
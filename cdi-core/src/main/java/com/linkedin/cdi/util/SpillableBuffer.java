@@ -0,0 +1,202 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * A hybrid buffer that holds data in memory up to a threshold, and spills
+ * the data to a local temporary file when it grows beyond the threshold.
+ * The spill file can optionally be LZ4 compressed.
+ *
+ * Data is written once through {@link #getOutputStream()}, and then it can be
+ * read as many times as needed through {@link #getInputStream()}, each call
+ * returning a new stream that starts from the beginning of the data. Reading
+ * ends the writing, no more data can be written after that.
+ *
+ * The buffer must be closed to release the memory and delete the spill file.
+ */
+public class SpillableBuffer implements Closeable {
+  private static final Logger LOG = LoggerFactory.getLogger(SpillableBuffer.class);
+  private static final int IO_BUFFER_SIZE = 64 * 1024;
+  public static final long DEFAULT_THRESHOLD = 16L * 1024 * 1024;
+
+  private final long threshold;
+  private final boolean compressed;
+  private final SpillingOutputStream outputStream = new SpillingOutputStream();
+  private MemoryBuffer memory = new MemoryBuffer();
+  private File file = null;
+  private long size = 0;
+  private boolean closed = false;
+
+  /**
+   * @param threshold the maximum number of bytes to hold in memory
+   * @param compressed whether the spill file is LZ4 compressed
+   */
+  public SpillableBuffer(long threshold, boolean compressed) {
+    this.threshold = threshold;
+    this.compressed = compressed;
+  }
+
+  /**
+   * Create a buffer and fill it with the content of an input stream, the input
+   * stream is fully consumed and closed
+   *
+   * @param input the input stream
+   * @param threshold the maximum number of bytes to hold in memory
+   * @param compressed whether the spill file is LZ4 compressed
+   * @return the filled buffer
+   */
+  public static SpillableBuffer of(InputStream input, long threshold, boolean compressed) throws IOException {
+    SpillableBuffer buffer = new SpillableBuffer(threshold, compressed);
+    try (InputStream in = input; OutputStream out = buffer.getOutputStream()) {
+      IOUtils.copy(in, out, IO_BUFFER_SIZE);
+    } catch (IOException e) {
+      buffer.close();
+      throw e;
+    }
+    return buffer;
+  }
+
+  /**
+   * @return the stream to write data into the buffer, it must be closed before reading
+   */
+  public OutputStream getOutputStream() {
+    return outputStream;
+  }
+
+  /**
+   * @return a new stream that reads the buffered data from the beginning
+   */
+  public InputStream getInputStream() throws IOException {
+    if (closed) {
+      throw new IOException("Buffer is closed");
+    }
+    outputStream.close();
+    if (file == null) {
+      return memory.toInputStream();
+    }
+    InputStream in = new BufferedInputStream(new FileInputStream(file), IO_BUFFER_SIZE);
+    return compressed ? new LZ4BlockInputStream(in) : in;
+  }
+
+  /**
+   * @return the number of bytes written into the buffer
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * @return true if the data has been spilled to a file
+   */
+  public boolean isSpilled() {
+    return file != null;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    memory = null;
+    try {
+      outputStream.close();
+    } catch (IOException e) {
+      LOG.warn("Error closing the buffer output stream", e);
+    }
+    if (file != null && !file.delete()) {
+      LOG.warn("Cannot delete buffer file {}", file.getAbsolutePath());
+    }
+  }
+
+  /**
+   * Move data from memory to a temporary file, and direct further writes to the file
+   */
+  private OutputStream spill() throws IOException {
+    file = Files.createTempFile("cdi-buffer-", compressed ? ".lz4" : ".tmp").toFile();
+    file.deleteOnExit();
+    LOG.info("Buffer exceeded {} bytes, spilling to {}", threshold, file.getAbsolutePath());
+    OutputStream out = new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE);
+    if (compressed) {
+      out = new LZ4BlockOutputStream(out, IO_BUFFER_SIZE);
+    }
+    memory.writeTo(out);
+    memory = null;
+    return out;
+  }
+
+  /**
+   * ByteArrayOutputStream that can be read without copying its content
+   */
+  private static class MemoryBuffer extends ByteArrayOutputStream {
+    InputStream toInputStream() {
+      return new ByteArrayInputStream(buf, 0, count);
+    }
+  }
+
+  private class SpillingOutputStream extends OutputStream {
+    private OutputStream fileStream = null;
+    private boolean finished = false;
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (closed || finished) {
+        throw new IOException("Buffer is closed for writing");
+      }
+      if (fileStream == null && size + len > threshold) {
+        fileStream = spill();
+      }
+      if (fileStream == null) {
+        memory.write(b, off, len);
+      } else {
+        fileStream.write(b, off, len);
+      }
+      size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (fileStream != null) {
+        fileStream.flush();
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      finished = true;
+      if (fileStream != null) {
+        fileStream.close();
+      }
+    }
+  }
+}
@@ -0,0 +1,351 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import net.jpountz.lz4.LZ4BlockInputStream;
+import net.jpountz.lz4.LZ4BlockOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.xxhash.XXHashFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * An input stream that reads data from a local spool file while the data is
+ * still being written into the spool file by a producer in a background thread.
+ *
+ * The spool file can be LZ4 compressed on the fly, reducing local disk usage
+ * and disk I/O by the compression ratio. The consumer can start reading as soon
+ * as the first block is written, without waiting for the producer to finish.
+ *
+ * When the consumer reaches the end of the written data, it waits until more
+ * data is written, or the producer finishes. If the producer fails, the failure
+ * is raised to the consumer as an IOException after all written data is read.
+ *
+ * Closing the stream cancels the producer if it is still running, and deletes
+ * the spool file.
+ */
+public class SpoolingInputStream extends InputStream {
+  private static final Logger LOG = LoggerFactory.getLogger(SpoolingInputStream.class);
+  // the number of bytes written before they are visible to the consumer
+  public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+  // the default seed of LZ4 block stream checksums
+  private static final int LZ4_CHECKSUM_SEED = 0x9747b28c;
+
+  /**
+   * The producer writes all its data into the given output stream, the output
+   * stream is closed by the spooler after the producer returns
+   */
+  public interface Producer {
+    void produce(OutputStream outputStream) throws Exception;
+  }
+
+  private final File file;
+  private final boolean compressed;
+  private final int blockSize;
+  private final Spool spool = new Spool();
+  private final Thread producerThread;
+  private InputStream reader = null;
+  private boolean closed = false;
+
+  private SpoolingInputStream(File file, boolean compressed, int blockSize, Producer producer) {
+    this.file = file;
+    this.compressed = compressed;
+    this.blockSize = blockSize;
+    this.producerThread = new Thread(() -> produce(producer), "spooler-" + file.getName());
+    this.producerThread.setDaemon(true);
+  }
+
+  /**
+   * Start the producer in a background thread and return a stream reading
+   * its output
+   *
+   * @param producer the producer
+   * @param compressed whether the spool file is LZ4 compressed
+   * @return the input stream of the produced data
+   */
+  public static SpoolingInputStream start(Producer producer, boolean compressed) throws IOException {
+    return start(producer, compressed, DEFAULT_BLOCK_SIZE);
+  }
+
+  /**
+   * Start the producer in a background thread and return a stream reading
+   * its output
+   *
+   * @param producer the producer
+   * @param compressed whether the spool file is LZ4 compressed
+   * @param blockSize the number of bytes buffered, and compressed, before they are written to the spool file
+   * @return the input stream of the produced data
+   */
+  public static SpoolingInputStream start(Producer producer, boolean compressed, int blockSize) throws IOException {
+    File file = Files.createTempFile("cdi-spool-", compressed ? ".lz4" : ".tmp").toFile();
+    file.deleteOnExit();
+    file.setReadable(true, true);
+    SpoolingInputStream stream = new SpoolingInputStream(file, compressed, blockSize, producer);
+    stream.producerThread.start();
+    return stream;
+  }
+
+  @Override
+  public int read() throws IOException {
+    byte[] b = new byte[1];
+    int n = read(b, 0, 1);
+    return n < 0 ? -1 : b[0] & 0xff;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream is closed");
+    }
+    if (reader == null) {
+      InputStream in = new TailingInputStream(new FileInputStream(file));
+      reader = compressed ? new LZ4BlockInputStream(in) : in;
+    }
+    return reader.read(b, off, len);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    spool.cancel();
+    if (reader != null) {
+      reader.close();
+    }
+    if (!file.delete()) {
+      LOG.warn("Cannot delete spool file {}", file.getAbsolutePath());
+    }
+  }
+
+  /**
+   * @return true if the producer has finished, successfully or not
+   */
+  public boolean isFinished() {
+    return spool.isFinished();
+  }
+
+  /**
+   * @return the number of bytes written into the spool file
+   */
+  public long getSpoolSize() {
+    return spool.getCommitted();
+  }
+
+  /**
+   * @return the number of bytes written by the producer, before compression
+   */
+  public long getDataSize() {
+    return spool.getProduced();
+  }
+
+  private void produce(Producer producer) {
+    Throwable error = null;
+    try (OutputStream out = newOutputStream()) {
+      producer.produce(out);
+    } catch (Throwable t) {
+      error = t;
+    }
+    if (error != null && !spool.isCancelled()) {
+      LOG.error("Error writing spool file " + file.getAbsolutePath(), error);
+    }
+    spool.finish(error);
+    LOG.info("Spooled {} bytes into {} bytes in file {}", spool.getProduced(), spool.getCommitted(),
+        file.getAbsolutePath());
+  }
+
+  private OutputStream newOutputStream() throws IOException {
+    OutputStream out = new CommittingOutputStream(new FileOutputStream(file));
+    // with sync flush, flushing writes out the partial block so that it can be read by the consumer
+    out = compressed
+        ? new LZ4BlockOutputStream(out, blockSize, LZ4Factory.fastestInstance().fastCompressor(),
+            XXHashFactory.fastestInstance().newStreamingHash32(LZ4_CHECKSUM_SEED).asChecksum(), true)
+        : new BufferedOutputStream(out, blockSize);
+    return new CountingOutputStream(out);
+  }
+
+  /**
+   * The state shared between the producer and the consumer
+   */
+  private static class Spool {
+    private long committed = 0;
+    private long produced = 0;
+    private boolean finished = false;
+    private boolean cancelled = false;
+    private Throwable error = null;
+
+    synchronized void commit(long bytes) {
+      committed += bytes;
+      notifyAll();
+    }
+
+    synchronized void finish(Throwable error) {
+      this.error = error;
+      finished = true;
+      notifyAll();
+    }
+
+    synchronized void cancel() {
+      cancelled = true;
+      notifyAll();
+    }
+
+    /**
+     * Wait until there are bytes available after the position, or the producer finishes
+     * @return the number of bytes available for reading, or -1 at the end of the stream
+     */
+    synchronized long await(long position) throws IOException {
+      while (committed <= position && !finished && !cancelled) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted while waiting for spool data", e);
+        }
+      }
+      if (committed > position) {
+        return committed - position;
+      }
+      if (error != null) {
+        throw new IOException("Error producing spool data", error);
+      }
+      return -1;
+    }
+
+    synchronized long getCommitted() {
+      return committed;
+    }
+
+    synchronized long getProduced() {
+      return produced;
+    }
+
+    synchronized void addProduced(long bytes) {
+      produced += bytes;
+    }
+
+    synchronized boolean isFinished() {
+      return finished;
+    }
+
+    synchronized boolean isCancelled() {
+      return cancelled;
+    }
+  }
+
+  /**
+   * Writes into the spool file and makes the written bytes visible to the consumer
+   */
+  private class CommittingOutputStream extends OutputStream {
+    private final OutputStream out;
+
+    CommittingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      if (spool.isCancelled()) {
+        throw new IOException("Spool is cancelled");
+      }
+      out.write(b, off, len);
+      spool.commit(len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Counts the bytes written by the producer
+   */
+  private class CountingOutputStream extends OutputStream {
+    private final OutputStream out;
+
+    CountingOutputStream(OutputStream out) {
+      this.out = out;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      spool.addProduced(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      spool.addProduced(len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+      out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  /**
+   * Reads the spool file up to the committed position, waiting for more data
+   * at the end of the file until the producer finishes
+   */
+  private class TailingInputStream extends InputStream {
+    private final InputStream in;
+    private long position = 0;
+
+    TailingInputStream(InputStream in) {
+      this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int n = read(b, 0, 1);
+      return n < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      long available = spool.await(position);
+      if (available < 0) {
+        return -1;
+      }
+      int n = in.read(b, off, (int) Math.min(len, available));
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+}
@@ -8,6 +8,8 @@ import com.google.common.collect.Lists;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.linkedin.cdi.keys.JobKeys;
+import java.util.ArrayList;
+import java.util.Map;
 import org.apache.gobblin.configuration.SourceState;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -287,6 +289,70 @@ public class MultistagePropertiesIndividualTest {
     Assert.assertFalse(MSTAGE_WORK_UNIT_PARALLELISM_MAX.isValid(state));
   }
 
+  @Test
+  public void testPaginationParallelism() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_PAGINATION_PARALLELISM.isValid(state));
+    Assert.assertEquals(MSTAGE_PAGINATION_PARALLELISM.get(state).intValue(), 1);
+
+    state.setProp("ms.pagination.parallelism", "8");
+    Assert.assertTrue(MSTAGE_PAGINATION_PARALLELISM.isValid(state));
+    Assert.assertEquals(MSTAGE_PAGINATION_PARALLELISM.get(state).intValue(), 8);
+
+    state.setProp("ms.pagination.parallelism", "0");
+    Assert.assertFalse(MSTAGE_PAGINATION_PARALLELISM.isValid(state));
+
+    state.setProp("ms.pagination.parallelism", "100");
+    Assert.assertFalse(MSTAGE_PAGINATION_PARALLELISM.isValid(state));
+  }
+
+  @Test
+  public void testWorkUnitBatch() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_WORK_UNIT_BATCH_SIZE.isValid(state));
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_SIZE.get(state).intValue(), 1);
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_PARALLELISM.get(state).intValue(), 4);
+
+    state.setProp("ms.work.unit.batch.size", "100");
+    state.setProp("ms.work.unit.batch.parallelism", "8");
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_SIZE.get(state).intValue(), 100);
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_PARALLELISM.get(state).intValue(), 8);
+
+    state.setProp("ms.work.unit.batch.size", "0");
+    Assert.assertFalse(MSTAGE_WORK_UNIT_BATCH_SIZE.isValid(state));
+
+    state.setProp("ms.work.unit.batch.parallelism", "100");
+    Assert.assertFalse(MSTAGE_WORK_UNIT_BATCH_PARALLELISM.isValid(state));
+  }
+
+  @Test
+  public void testWorkUnitBatchRequest() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_WORK_UNIT_BATCH_REQUEST.isValid(state));
+    Assert.assertFalse(MSTAGE_WORK_UNIT_BATCH_REQUEST.isEnabled(state));
+
+    state.setProp("ms.work.unit.batch.request", "{\"size\": 100, \"key\": \"id\"}");
+    Assert.assertTrue(MSTAGE_WORK_UNIT_BATCH_REQUEST.isEnabled(state));
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_REQUEST.getSize(state).intValue(), 100);
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_REQUEST.getKey(state), "id");
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_REQUEST.getDelimiter(state), ",");
+    Assert.assertFalse(MSTAGE_WORK_UNIT_BATCH_REQUEST.isArrayFormat(state));
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_REQUEST.getMaxUriLength(state).intValue(), 2048);
+
+    state.setProp("ms.work.unit.batch.request", "{\"size\": 10, \"format\": \"array\", \"maxUriLength\": 0}");
+    Assert.assertTrue(MSTAGE_WORK_UNIT_BATCH_REQUEST.isArrayFormat(state));
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_REQUEST.getMaxUriLength(state).intValue(), 0);
+
+    state.setProp("ms.work.unit.batch.request", "{\"key\": \"id\"}");
+    Assert.assertFalse(MSTAGE_WORK_UNIT_BATCH_REQUEST.isValid(state));
+
+    state.setProp("ms.work.unit.batch.request", "{\"size\": 10, \"format\": \"xml\"}");
+    Assert.assertFalse(MSTAGE_WORK_UNIT_BATCH_REQUEST.isValid(state));
+
+    state.setProp("ms.work.unit.batch.request", "{\"size\": 10, \"ids\": \"all\"}");
+    Assert.assertFalse(MSTAGE_WORK_UNIT_BATCH_REQUEST.isValid(state));
+  }
+
   @Test
   public void testSecondaryInput() throws Exception {
     SourceState state = new SourceState();
@@ -308,4 +374,384 @@ public class MultistagePropertiesIndividualTest {
     state.setProp("ms.derived.fields", "[{\"name\": \"dummy\", \"formula\": {\"type\": \"epoc\", \"source\": \"CURRENTDATE\", \"timezone\": \"nozone\"}}]");
     Assert.assertFalse(MSTAGE_DERIVED_FIELDS.isValid(state));
   }
+
+  @Test
+  public void testMsResponseBuffer() {
+    SourceState state = new SourceState();
+    Assert.assertFalse(MSTAGE_RESPONSE_BUFFER.isEnabled(state));
+
+    state.setProp("ms.response.buffer", "{\"thresholdBytes\": 1024, \"compression\": \"lz4\"}");
+    Assert.assertTrue(MSTAGE_RESPONSE_BUFFER.isEnabled(state));
+    Assert.assertEquals(MSTAGE_RESPONSE_BUFFER.getThresholdBytes(state).longValue(), 1024L);
+    Assert.assertTrue(MSTAGE_RESPONSE_BUFFER.isCompressed(state));
+
+    state.setProp("ms.response.buffer", "{\"compression\": \"none\"}");
+    Assert.assertTrue(MSTAGE_RESPONSE_BUFFER.isEnabled(state));
+    Assert.assertEquals(MSTAGE_RESPONSE_BUFFER.getThresholdBytes(state).longValue(), 16L * 1024 * 1024);
+    Assert.assertFalse(MSTAGE_RESPONSE_BUFFER.isCompressed(state));
+
+    state.setProp("ms.response.buffer", "{\"compression\": \"gzip\"}");
+    Assert.assertFalse(MSTAGE_RESPONSE_BUFFER.isValid(state));
+    Assert.assertFalse(MSTAGE_RESPONSE_BUFFER.isEnabled(state));
+
+    state.setProp("ms.response.buffer", "{\"threshold\": 1024}");
+    Assert.assertFalse(MSTAGE_RESPONSE_BUFFER.isValid(state));
+  }
+
+  @Test
+  public void testMsHttpAdaptiveConcurrency() {
+    SourceState state = new SourceState();
+    Assert.assertFalse(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isEnabled(state));
+
+    state.setProp("ms.http.adaptive.concurrency", "{}");
+    Assert.assertFalse(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isEnabled(state));
+
+    state.setProp("ms.http.adaptive.concurrency", "{\"maxLimit\": 16}");
+    Assert.assertTrue(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getInitialLimit(state).intValue(), 4);
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getMinLimit(state).intValue(), 1);
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getMaxLimit(state).intValue(), 16);
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getDecreaseFactor(state), 0.5);
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getLatencyThreshold(state), 2.0);
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getName(state), "");
+
+    state.setProp("ms.http.adaptive.concurrency", "{\"name\": \"vendor\", \"initialLimit\": 10, \"maxLimit\": 8}");
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getInitialLimit(state).intValue(), 8);
+    Assert.assertEquals(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.getName(state), "vendor");
+
+    state.setProp("ms.http.adaptive.concurrency", "{\"minLimit\": 10, \"maxLimit\": 8}");
+    Assert.assertFalse(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isValid(state));
+
+    state.setProp("ms.http.adaptive.concurrency", "{\"decreaseFactor\": 1.5}");
+    Assert.assertFalse(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isValid(state));
+
+    state.setProp("ms.http.adaptive.concurrency", "{\"latencyThreshold\": 0.5}");
+    Assert.assertFalse(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isValid(state));
+
+    state.setProp("ms.http.adaptive.concurrency", "{\"limit\": 4}");
+    Assert.assertFalse(MSTAGE_HTTP_ADAPTIVE_CONCURRENCY.isValid(state));
+  }
+
+  @Test
+  public void testMsHttpHedging() {
+    SourceState state = new SourceState();
+    Assert.assertFalse(MSTAGE_HTTP_HEDGING.isEnabled(state));
+
+    state.setProp("ms.http.hedging", "{\"percentile\": 99}");
+    Assert.assertTrue(MSTAGE_HTTP_HEDGING.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getPercentile(state), 99.0);
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getInitialDelayMillis(state).longValue(), 1000L);
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getMinDelayMillis(state).longValue(), 10L);
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getWindow(state).intValue(), 100);
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getBudget(state), 0.1);
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getName(state), "");
+
+    state.setProp("ms.http.hedging", "{\"name\": \"vendor\", \"window\": 50, \"budget\": 0.05}");
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getName(state), "vendor");
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getWindow(state).intValue(), 50);
+    Assert.assertEquals(MSTAGE_HTTP_HEDGING.getBudget(state), 0.05);
+
+    state.setProp("ms.http.hedging", "{\"percentile\": 100}");
+    Assert.assertFalse(MSTAGE_HTTP_HEDGING.isValid(state));
+
+    state.setProp("ms.http.hedging", "{\"budget\": 2}");
+    Assert.assertFalse(MSTAGE_HTTP_HEDGING.isValid(state));
+
+    state.setProp("ms.http.hedging", "{\"window\": 0}");
+    Assert.assertFalse(MSTAGE_HTTP_HEDGING.isValid(state));
+
+    state.setProp("ms.http.hedging", "{\"delay\": 100}");
+    Assert.assertFalse(MSTAGE_HTTP_HEDGING.isValid(state));
+  }
+
+  @Test
+  public void testMsJdbcConnectionPool() {
+    SourceState state = new SourceState();
+    Assert.assertFalse(MSTAGE_JDBC_CONNECTION_POOL.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getMaxSize(state).intValue(), 10);
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getMaxWaitSeconds(state).longValue(), 60L);
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getIdleTimeoutSeconds(state).longValue(), 300L);
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getValidationTimeoutSeconds(state).intValue(), 5);
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getLeakDetectionSeconds(state).longValue(), 3600L);
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getStatementCacheSize(state).intValue(), 50);
+
+    state.setProp("ms.jdbc.connection.pool",
+        "{\"maxSize\": 4, \"leakDetectionSeconds\": 0, \"statementCacheSize\": 0}");
+    Assert.assertTrue(MSTAGE_JDBC_CONNECTION_POOL.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getMaxSize(state).intValue(), 4);
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getLeakDetectionSeconds(state).longValue(), 0L);
+    Assert.assertEquals(MSTAGE_JDBC_CONNECTION_POOL.getStatementCacheSize(state).intValue(), 0);
+
+    state.setProp("ms.jdbc.connection.pool", "{\"maxSize\": 0}");
+    Assert.assertFalse(MSTAGE_JDBC_CONNECTION_POOL.isEnabled(state));
+
+    state.setProp("ms.jdbc.connection.pool", "{\"maxSize\": -1}");
+    Assert.assertFalse(MSTAGE_JDBC_CONNECTION_POOL.isValid(state));
+
+    state.setProp("ms.jdbc.connection.pool", "{\"minSize\": 1}");
+    Assert.assertFalse(MSTAGE_JDBC_CONNECTION_POOL.isValid(state));
+  }
+
+  @Test
+  public void testMsJdbcEgress() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_JDBC_EGRESS.isValid(state));
+    Assert.assertFalse(MSTAGE_JDBC_EGRESS.isEnabled(state));
+
+    state.setProp("ms.jdbc.egress", "{}");
+    Assert.assertFalse(MSTAGE_JDBC_EGRESS.isEnabled(state));
+
+    state.setProp("ms.jdbc.egress", "{\"threads\": 1}");
+    Assert.assertTrue(MSTAGE_JDBC_EGRESS.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_EGRESS.getBatchSize(state).intValue(), 1000);
+    Assert.assertEquals(MSTAGE_JDBC_EGRESS.getCommitInterval(state).intValue(), 10000);
+    Assert.assertEquals(MSTAGE_JDBC_EGRESS.getThreads(state).intValue(), 1);
+
+    state.setProp("ms.jdbc.egress", "{\"batchSize\": 500, \"commitInterval\": 0, \"threads\": 4}");
+    Assert.assertTrue(MSTAGE_JDBC_EGRESS.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_EGRESS.getBatchSize(state).intValue(), 500);
+    Assert.assertEquals(MSTAGE_JDBC_EGRESS.getCommitInterval(state).intValue(), 0);
+    Assert.assertEquals(MSTAGE_JDBC_EGRESS.getThreads(state).intValue(), 4);
+
+    state.setProp("ms.jdbc.egress", "{\"batchSize\": 0}");
+    Assert.assertFalse(MSTAGE_JDBC_EGRESS.isValid(state));
+
+    state.setProp("ms.jdbc.egress", "{\"batchSize\": \"many\"}");
+    Assert.assertFalse(MSTAGE_JDBC_EGRESS.isValid(state));
+
+    state.setProp("ms.jdbc.egress", "{\"threads\": 100}");
+    Assert.assertFalse(MSTAGE_JDBC_EGRESS.isValid(state));
+
+    state.setProp("ms.jdbc.egress", "{\"commitInterval\": -1}");
+    Assert.assertFalse(MSTAGE_JDBC_EGRESS.isValid(state));
+
+    state.setProp("ms.jdbc.egress", "{\"batch\": 10}");
+    Assert.assertFalse(MSTAGE_JDBC_EGRESS.isValid(state));
+  }
+
+  @Test
+  public void testMsJdbcLob() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_JDBC_LOB.isValid(state));
+    Assert.assertFalse(MSTAGE_JDBC_LOB.isEnabled(state));
+
+    state.setProp("ms.jdbc.lob", "{\"mode\": \"inline\"}");
+    Assert.assertTrue(MSTAGE_JDBC_LOB.isEnabled(state));
+    Assert.assertFalse(MSTAGE_JDBC_LOB.isFileMode(state));
+    Assert.assertEquals(MSTAGE_JDBC_LOB.getBufferSize(state).intValue(), 65536);
+
+    state.setProp("ms.jdbc.lob", "{\"mode\": \"file\", \"path\": \"/tmp/lobs\", \"bufferSize\": 4096}");
+    Assert.assertTrue(MSTAGE_JDBC_LOB.isEnabled(state));
+    Assert.assertTrue(MSTAGE_JDBC_LOB.isFileMode(state));
+    Assert.assertEquals(MSTAGE_JDBC_LOB.getPath(state), "/tmp/lobs");
+    Assert.assertEquals(MSTAGE_JDBC_LOB.getBufferSize(state).intValue(), 4096);
+
+    // side files need a directory
+    state.setProp("ms.jdbc.lob", "{\"mode\": \"file\"}");
+    Assert.assertFalse(MSTAGE_JDBC_LOB.isValid(state));
+
+    state.setProp("ms.jdbc.lob", "{\"mode\": \"memory\"}");
+    Assert.assertFalse(MSTAGE_JDBC_LOB.isValid(state));
+
+    state.setProp("ms.jdbc.lob", "{\"bufferSize\": 0}");
+    Assert.assertFalse(MSTAGE_JDBC_LOB.isValid(state));
+  }
+
+  @Test
+  public void testMsJdbcPartition() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_JDBC_PARTITION.isValid(state));
+    Assert.assertFalse(MSTAGE_JDBC_PARTITION.isEnabled(state));
+
+    state.setProp("ms.jdbc.partition", "{\"column\": \"id\"}");
+    Assert.assertTrue(MSTAGE_JDBC_PARTITION.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_PARTITION.getColumn(state), "id");
+    Assert.assertEquals(MSTAGE_JDBC_PARTITION.getPartitions(state).intValue(), 4);
+    Assert.assertFalse(MSTAGE_JDBC_PARTITION.hasBounds(state));
+
+    state.setProp("ms.jdbc.partition",
+        "{\"column\": \"created\", \"partitions\": 8, \"lowerBound\": \"2021-01-01 00:00:00\", "
+            + "\"upperBound\": \"2022-01-01 00:00:00\"}");
+    Assert.assertTrue(MSTAGE_JDBC_PARTITION.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_PARTITION.getPartitions(state).intValue(), 8);
+    Assert.assertTrue(MSTAGE_JDBC_PARTITION.hasBounds(state));
+    Assert.assertEquals(MSTAGE_JDBC_PARTITION.getLowerBound(state).getAsString(), "2021-01-01 00:00:00");
+
+    state.setProp("ms.jdbc.partition", "{\"partitions\": 8}");
+    Assert.assertFalse(MSTAGE_JDBC_PARTITION.isValid(state));
+
+    state.setProp("ms.jdbc.partition", "{\"column\": \"id\", \"partitions\": 0}");
+    Assert.assertFalse(MSTAGE_JDBC_PARTITION.isValid(state));
+
+    state.setProp("ms.jdbc.partition", "{\"column\": \"id\", \"lowerBound\": 1}");
+    Assert.assertFalse(MSTAGE_JDBC_PARTITION.isValid(state));
+  }
+
+  @Test
+  public void testMsJdbcSchemaCacheSeconds() {
+    SourceState state = new SourceState();
+    Assert.assertEquals(MSTAGE_JDBC_SCHEMA_CACHE_SECONDS.getMillis(state).longValue(), 0L);
+
+    state.setProp("ms.jdbc.schema.cache.seconds", 600);
+    Assert.assertTrue(MSTAGE_JDBC_SCHEMA_CACHE_SECONDS.isValid(state));
+    Assert.assertEquals(MSTAGE_JDBC_SCHEMA_CACHE_SECONDS.getMillis(state).longValue(), 600000L);
+
+    state.setProp("ms.jdbc.schema.cache.seconds", -1);
+    Assert.assertFalse(MSTAGE_JDBC_SCHEMA_CACHE_SECONDS.isValid(state));
+  }
+
+  @Test
+  public void testMsJdbcStatements() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_JDBC_STATEMENTS.isValid(state));
+    Assert.assertFalse(MSTAGE_JDBC_STATEMENTS.isEnabled(state));
+
+    state.setProp("ms.jdbc.statements", "[{\"name\": \"orders\", \"statement\": \"select * from orders\"}, "
+        + "{\"name\": \"users\", \"statement\": \"select id from users\", \"schema\": [{\"columnName\": \"id\"}]}]");
+    Assert.assertTrue(MSTAGE_JDBC_STATEMENTS.isEnabled(state));
+    Map<String, JsonObject> statements = MSTAGE_JDBC_STATEMENTS.getStatements(state);
+    Assert.assertEquals(new ArrayList<>(statements.keySet()), Lists.newArrayList("orders", "users"));
+    Assert.assertEquals(MSTAGE_JDBC_STATEMENTS.getStatement(statements.get("orders")), "select * from orders");
+    Assert.assertNull(MSTAGE_JDBC_STATEMENTS.getSchema(statements.get("orders")));
+    Assert.assertEquals(MSTAGE_JDBC_STATEMENTS.getSchema(statements.get("users")).size(), 1);
+
+    state.setProp("ms.jdbc.statements", "[{\"name\": \"orders\"}]");
+    Assert.assertFalse(MSTAGE_JDBC_STATEMENTS.isValid(state));
+
+    state.setProp("ms.jdbc.statements", "[{\"statement\": \"select * from orders\"}]");
+    Assert.assertFalse(MSTAGE_JDBC_STATEMENTS.isValid(state));
+
+    state.setProp("ms.jdbc.statements", "[{\"name\": \"a\", \"statement\": \"select 1\", \"table\": \"a\"}]");
+    Assert.assertFalse(MSTAGE_JDBC_STATEMENTS.isValid(state));
+
+    state.setProp("ms.jdbc.statements", "[{\"name\": \"a\", \"statement\": \"select 1\", \"schema\": \"a\"}]");
+    Assert.assertFalse(MSTAGE_JDBC_STATEMENTS.isValid(state));
+
+    state.setProp("ms.jdbc.statements", "[\"select 1\"]");
+    Assert.assertFalse(MSTAGE_JDBC_STATEMENTS.isValid(state));
+  }
+
+  @Test
+  public void testMsJdbcStreaming() {
+    SourceState state = new SourceState();
+    Assert.assertTrue(MSTAGE_JDBC_STREAMING.isValid(state));
+    Assert.assertFalse(MSTAGE_JDBC_STREAMING.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_STREAMING.getFetchSize(state).intValue(), 0);
+    Assert.assertEquals(MSTAGE_JDBC_STREAMING.getFetchBytes(state).longValue(), 4L * 1024 * 1024);
+    Assert.assertEquals(MSTAGE_JDBC_STREAMING.getMaxFetchSize(state).intValue(), 10000);
+
+    state.setProp("ms.jdbc.streaming", "{\"fetchSize\": 500}");
+    Assert.assertTrue(MSTAGE_JDBC_STREAMING.isEnabled(state));
+    Assert.assertEquals(MSTAGE_JDBC_STREAMING.getFetchSize(state).intValue(), 500);
+
+    state.setProp("ms.jdbc.streaming", "{\"enabled\": true}");
+    Assert.assertTrue(MSTAGE_JDBC_STREAMING.isEnabled(state));
+
+    state.setProp("ms.jdbc.streaming", "{\"enabled\": false}");
+    Assert.assertFalse(MSTAGE_JDBC_STREAMING.isEnabled(state));
+
+    state.setProp("ms.jdbc.streaming", "{\"fetchSize\": -1}");
+    Assert.assertFalse(MSTAGE_JDBC_STREAMING.isValid(state));
+    Assert.assertFalse(MSTAGE_JDBC_STREAMING.isEnabled(state));
+
+    state.setProp("ms.jdbc.streaming", "{\"fetchBytes\": 0}");
+    Assert.assertFalse(MSTAGE_JDBC_STREAMING.isValid(state));
+  }
+
+  @Test
+  public void testMsHttpRateLimiter() {
+    SourceState state = new SourceState();
+    Assert.assertFalse(MSTAGE_HTTP_RATE_LIMITER.isEnabled(state));
+
+    state.setProp("ms.http.rate.limiter", "{\"requestsPerSecond\": 2.5}");
+    Assert.assertTrue(MSTAGE_HTTP_RATE_LIMITER.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_RATE_LIMITER.getRequestsPerSecond(state), 2.5);
+    Assert.assertEquals(MSTAGE_HTTP_RATE_LIMITER.getBurst(state).intValue(), 1);
+    Assert.assertEquals(MSTAGE_HTTP_RATE_LIMITER.getMaxConcurrency(state).intValue(), 0);
+    Assert.assertEquals(MSTAGE_HTTP_RATE_LIMITER.getName(state), "");
+
+    state.setProp("ms.http.rate.limiter", "{\"name\": \"vendor\", \"maxConcurrency\": 4}");
+    Assert.assertTrue(MSTAGE_HTTP_RATE_LIMITER.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_RATE_LIMITER.getName(state), "vendor");
+    Assert.assertEquals(MSTAGE_HTTP_RATE_LIMITER.getRequestsPerSecond(state), 0.0);
+
+    state.setProp("ms.http.rate.limiter", "{\"name\": \"vendor\"}");
+    Assert.assertFalse(MSTAGE_HTTP_RATE_LIMITER.isValid(state));
+
+    state.setProp("ms.http.rate.limiter", "{\"requestsPerSecond\": 0}");
+    Assert.assertFalse(MSTAGE_HTTP_RATE_LIMITER.isValid(state));
+  }
+
+  @Test
+  public void testMsHttpRetry() {
+    SourceState state = new SourceState();
+    Assert.assertFalse(MSTAGE_HTTP_RETRY.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getMaxRetries(state).longValue(), 5L);
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getBudgetMillis(state).longValue(), 600000L);
+
+    state.setProp("ms.http.retry", "{\"maxRetries\": 3, \"baseDelayMillis\": 500, \"budgetSeconds\": 60, "
+        + "\"exceptions\": [\"java.net.SocketTimeoutException\"]}");
+    Assert.assertTrue(MSTAGE_HTTP_RETRY.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getMaxRetries(state).longValue(), 3L);
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getBaseDelayMillis(state).longValue(), 500L);
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getMaxDelayMillis(state).longValue(), 60000L);
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getBudgetMillis(state).longValue(), 60000L);
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getExceptions(state), Lists.newArrayList("java.net.SocketTimeoutException"));
+    Assert.assertEquals(MSTAGE_HTTP_RETRY.getPolicy(state), "com.linkedin.cdi.connection.ExponentialBackoffRetryPolicy");
+
+    state.setProp("ms.http.retry", "{\"baseDelayMillis\": 0}");
+    Assert.assertFalse(MSTAGE_HTTP_RETRY.isValid(state));
+
+    state.setProp("ms.http.retry", "{\"retries\": 3}");
+    Assert.assertFalse(MSTAGE_HTTP_RETRY.isValid(state));
+  }
+
+  @Test
+  public void testMsHttpAcceptEncoding() {
+    SourceState state = new SourceState();
+    Assert.assertEquals(MSTAGE_HTTP_ACCEPT_ENCODING.get(state), "gzip, deflate");
+
+    state.setProp("ms.http.accept.encoding", "gzip, deflate, br, zstd");
+    Assert.assertTrue(MSTAGE_HTTP_ACCEPT_ENCODING.isValid(state));
+
+    state.setProp("ms.http.accept.encoding", "identity");
+    Assert.assertTrue(MSTAGE_HTTP_ACCEPT_ENCODING.isValid(state));
+    Assert.assertEquals(MSTAGE_HTTP_ACCEPT_ENCODING.get(state), "identity");
+
+    state.setProp("ms.http.accept.encoding", "gzip, lzw");
+    Assert.assertFalse(MSTAGE_HTTP_ACCEPT_ENCODING.isValid(state));
+    Assert.assertEquals(MSTAGE_HTTP_ACCEPT_ENCODING.get(state), "gzip, deflate");
+  }
+
+  @Test
+  public void testMsHttpResponseCache() {
+    SourceState state = new SourceState();
+    Assert.assertFalse(MSTAGE_HTTP_RESPONSE_CACHE.isEnabled(state));
+
+    state.setProp("ms.http.response.cache", "{\"path\": \"/tmp/cache\"}");
+    Assert.assertTrue(MSTAGE_HTTP_RESPONSE_CACHE.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_RESPONSE_CACHE.getTtlMillis(state).longValue(), 24 * 3600 * 1000L);
+    Assert.assertEquals(MSTAGE_HTTP_RESPONSE_CACHE.getMethods(state), Lists.newArrayList("GET"));
+    Assert.assertTrue(MSTAGE_HTTP_RESPONSE_CACHE.getHeaders(state).isEmpty());
+
+    state.setProp("ms.http.response.cache",
+        "{\"path\": \"/tmp/cache\", \"ttlSeconds\": 60, \"maxBytes\": 1000, \"maxEntries\": 10, "
+            + "\"methods\": [\"get\", \"post\"], \"headers\": [\"Accept\"]}");
+    Assert.assertTrue(MSTAGE_HTTP_RESPONSE_CACHE.isEnabled(state));
+    Assert.assertEquals(MSTAGE_HTTP_RESPONSE_CACHE.getTtlMillis(state).longValue(), 60000L);
+    Assert.assertEquals(MSTAGE_HTTP_RESPONSE_CACHE.getMaxBytes(state).longValue(), 1000L);
+    Assert.assertEquals(MSTAGE_HTTP_RESPONSE_CACHE.getMaxEntries(state).longValue(), 10L);
+    Assert.assertEquals(MSTAGE_HTTP_RESPONSE_CACHE.getMethods(state), Lists.newArrayList("GET", "POST"));
+    Assert.assertEquals(MSTAGE_HTTP_RESPONSE_CACHE.getHeaders(state), Lists.newArrayList("Accept"));
+
+    // path is required
+    state.setProp("ms.http.response.cache", "{\"ttlSeconds\": 60}");
+    Assert.assertFalse(MSTAGE_HTTP_RESPONSE_CACHE.isValid(state));
+
+    state.setProp("ms.http.response.cache", "{\"path\": \"/tmp/cache\", \"maxEntries\": 0}");
+    Assert.assertFalse(MSTAGE_HTTP_RESPONSE_CACHE.isValid(state));
+
+    state.setProp("ms.http.response.cache", "{\"path\": \"/tmp/cache\", \"methods\": \"GET\"}");
+    Assert.assertFalse(MSTAGE_HTTP_RESPONSE_CACHE.isValid(state));
+  }
 }
@@ -0,0 +1,269 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HttpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class AdaptiveConcurrencyLimiterTest {
+  private static final long LATENCY_MILLIS = 100;
+  private HttpServer server;
+  private final AtomicInteger capacity = new AtomicInteger();
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private final AtomicInteger throttled = new AtomicInteger();
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    // a simulated server that throttles requests beyond its capacity
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newFixedThreadPool(32));
+    server.createContext("/", exchange -> {
+      int status = 200;
+      try {
+        int requests = active.incrementAndGet();
+        maxActive.accumulateAndGet(requests, Math::max);
+        if (requests > capacity.get()) {
+          status = 429;
+          throttled.incrementAndGet();
+        } else {
+          Thread.sleep(LATENCY_MILLIS);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        active.decrementAndGet();
+      }
+      byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  /**
+   * Test the additive increase and the multiplicative decrease of the limit
+   */
+  @Test
+  public void testIncreaseAndDecrease() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("aimd", 4, 1, 6, 0.5, 100);
+    List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      permits.add(limiter.acquire());
+    }
+    Assert.assertEquals(limiter.getInFlight(), 4);
+
+    // a round of healthy responses increases the limit by about 1
+    for (int i = 0; i < 5; i++) {
+      limiter.onResponse(permits.get(i % 4), 1000, false);
+    }
+    Assert.assertEquals(limiter.getLimit(), 5);
+    permits.add(limiter.acquire());
+
+    // the limit doesn't grow beyond the maximum
+    for (int i = 0; i < 100; i++) {
+      limiter.onResponse(permits.get(0), 1000, false);
+    }
+    Assert.assertEquals(limiter.getLimit(), 6);
+
+    // permits acquired before the decrease don't decrease the limit again
+    AdaptiveConcurrencyLimiter.Permit newer = limiter.acquire();
+    limiter.onResponse(newer, 1000, true);
+    Assert.assertEquals(limiter.getLimit(), 3);
+    for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+      limiter.onResponse(permit, 1000, true);
+    }
+    Assert.assertEquals(limiter.getLimit(), 3);
+
+    // the limit doesn't fall below the minimum
+    permits.add(newer);
+    for (AdaptiveConcurrencyLimiter.Permit permit : permits) {
+      limiter.release(permit);
+    }
+    for (int i = 0; i < 5; i++) {
+      AdaptiveConcurrencyLimiter.Permit permit = limiter.acquire();
+      limiter.onResponse(permit, 1000, true);
+      limiter.release(permit);
+    }
+    Assert.assertEquals(limiter.getLimit(), 1);
+    Assert.assertEquals(limiter.getInFlight(), 0);
+  }
+
+  /**
+   * Test that latency spikes decrease the limit, and that requests wait for permits beyond the limit
+   */
+  @Test
+  public void testLatencySpike() throws Exception {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("latency", 2, 1, 10, 0.5, 2.0);
+    AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+    limiter.onResponse(first, 1000, false);
+    limiter.onResponse(first, 1500, false);
+    Assert.assertEquals(limiter.getLimit(), 2);
+    AdaptiveConcurrencyLimiter.Permit second = limiter.acquire();
+    limiter.onResponse(second, 5000, false);
+    Assert.assertEquals(limiter.getLimit(), 1);
+
+    limiter.release(first);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<AdaptiveConcurrencyLimiter.Permit> waiting = executor.submit(limiter::acquire);
+    Thread.sleep(100);
+    Assert.assertFalse(waiting.isDone());
+    limiter.release(second);
+    Assert.assertNotNull(waiting.get(5, TimeUnit.SECONDS));
+    executor.shutdown();
+  }
+
+  /**
+   * Test that the concurrency limit holds when requests are also paced by the rate limiter
+   */
+  @Test
+  public void testWithRateLimiter() throws Exception {
+    capacity.set(100);
+    maxActive.set(0);
+    int workers = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < workers; i++) {
+      futures.add(executor.submit(() -> {
+        SourceState state = new SourceState();
+        state.setProp("ms.http.adaptive.concurrency",
+            "{\"name\": \"rated\", \"initialLimit\": 2, \"minLimit\": 2, \"maxLimit\": 2}");
+        state.setProp("ms.http.rate.limiter", "{\"name\": \"rated\", \"requestsPerSecond\": 1000}");
+        HttpKeys httpKeys = new HttpKeys();
+        httpKeys.setSourceUri("http://localhost:" + server.getAddress().getPort() + "/data");
+        httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+        HttpConnection conn = new HttpConnection(state, httpKeys, new ExtractorKeys());
+        for (int request = 0; request < 5; request++) {
+          WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+          Assert.assertNotNull(status);
+          IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8);
+          conn.closeStream();
+        }
+        conn.closeAll("");
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    Assert.assertEquals(maxActive.get(), 2);
+    Assert.assertEquals(AdaptiveConcurrencyLimiter.getInstance("rated", 2, 2, 2, 0.5, 2.0).getInFlight(), 0);
+  }
+
+  /**
+   * Test that the limit follows the capacity of a server that changes over time, in rounds
+   * of requests that are throttled beyond the capacity, on a manual clock
+   */
+  @Test
+  public void testShiftingCapacity() throws Exception {
+    AtomicLong clock = new AtomicLong();
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("shifting", 2, 1, 64, 0.5, 2.0, clock::get);
+    int[] capacities = {8, 3, 8};
+    int[] maxLimits = new int[capacities.length];
+    int[] lateMaxLimits = new int[capacities.length];
+    for (int phase = 0; phase < capacities.length; phase++) {
+      for (int round = 0; round < 40; round++) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire()) != null) {
+          permits.add(permit);
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(LATENCY_MILLIS));
+        for (int i = 0; i < permits.size(); i++) {
+          limiter.onResponse(permits.get(i), TimeUnit.MILLISECONDS.toNanos(LATENCY_MILLIS), i >= capacities[phase]);
+        }
+        permits.forEach(limiter::release);
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        maxLimits[phase] = Math.max(maxLimits[phase], limiter.getLimit());
+        if (round >= 20) {
+          lateMaxLimits[phase] = Math.max(lateMaxLimits[phase], limiter.getLimit());
+        }
+      }
+    }
+
+    // the limit grows beyond the capacity until requests are throttled, stays around
+    // the capacity when the capacity drops, and grows again when the capacity recovers
+    String limits = Arrays.toString(maxLimits) + " " + Arrays.toString(lateMaxLimits);
+    Assert.assertEquals(maxLimits[0], capacities[0] + 1, limits);
+    Assert.assertEquals(lateMaxLimits[1], capacities[1] + 1, limits);
+    Assert.assertEquals(lateMaxLimits[2], capacities[2] + 1, limits);
+    Assert.assertEquals(limiter.getInFlight(), 0);
+  }
+
+  /**
+   * Test that connections decrease the shared limit when the server throttles their requests
+   */
+  @Test
+  public void testThrottledConnections() throws Exception {
+    capacity.set(2);
+    throttled.set(0);
+    int workers = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(workers);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < workers; i++) {
+      futures.add(executor.submit(() -> {
+        SourceState state = new SourceState();
+        state.setProp("ms.http.adaptive.concurrency",
+            "{\"name\": \"throttled\", \"initialLimit\": 8, \"maxLimit\": 8}");
+        HttpKeys httpKeys = new HttpKeys();
+        httpKeys.setSourceUri("http://localhost:" + server.getAddress().getPort() + "/data");
+        httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+        HttpConnection conn = new HttpConnection(state, httpKeys, new ExtractorKeys());
+        for (int request = 0; request < 5; request++) {
+          WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+          if (status != null && status.getBuffer() != null) {
+            IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8);
+          }
+          conn.closeStream();
+        }
+        conn.closeAll("");
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // whenever a request is throttled, the limit is decreased below its maximum
+    AdaptiveConcurrencyLimiter limiter = AdaptiveConcurrencyLimiter.getInstance("throttled", 8, 1, 8, 0.5, 2.0);
+    Assert.assertTrue(throttled.get() == 0 || limiter.getLimit() < 8,
+        throttled.get() + " throttled, limit " + limiter.getLimit());
+    Assert.assertEquals(limiter.getInFlight(), 0);
+  }
+}
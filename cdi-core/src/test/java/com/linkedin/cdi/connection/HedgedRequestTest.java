@@ -0,0 +1,151 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HttpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class HedgedRequestTest {
+  private static final long FAST_MILLIS = 10;
+  private static final long SLOW_MILLIS = 800;
+  private static final int SLOW_EVERY = 20;
+  private static final int REQUESTS = 100;
+  private HttpServer server;
+  private final AtomicInteger received = new AtomicInteger();
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    // a simulated server with a bimodal latency, where every 20th request is slow
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newFixedThreadPool(8));
+    server.createContext("/", exchange -> {
+      try {
+        Thread.sleep(received.incrementAndGet() % SLOW_EVERY == 0 ? SLOW_MILLIS : FAST_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      byte[] body = "{\"status\": \"ok\"}".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      } catch (Exception e) {
+        // the client aborted the request
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  /**
+   * Test that hedging cuts the tail latency, and that a duplicate request is only sent for slow requests
+   */
+  @Test
+  public void testTailLatency() throws Exception {
+    long unhedged = getP99Millis(new SourceState());
+    Assert.assertTrue(unhedged >= SLOW_MILLIS, String.valueOf(unhedged));
+
+    SourceState state = new SourceState();
+    state.setProp("ms.http.hedging",
+        "{\"name\": \"bimodal\", \"percentile\": 90, \"initialDelayMillis\": 100, \"minDelayMillis\": 50, \"budget\": 0.2}");
+    long hedged = getP99Millis(state);
+    HedgedRequestExecutor executor = HedgedRequestExecutor.getInstance("bimodal", 90, 100, 50, 100, 0.2);
+    Assert.assertTrue(hedged < SLOW_MILLIS / 2, hedged + " vs " + unhedged);
+    Assert.assertTrue(executor.getHedges() > 0);
+    Assert.assertTrue(executor.getHedges() <= REQUESTS / 5);
+    Assert.assertTrue(executor.getHedgeWins() > 0);
+    Assert.assertTrue(executor.getDelayMillis() >= 50);
+  }
+
+  /**
+   * Test that requests other than GET are not duplicated
+   */
+  @Test
+  public void testPostNotHedged() throws Exception {
+    SourceState state = new SourceState();
+    state.setProp("ms.http.hedging", "{\"name\": \"post\", \"initialDelayMillis\": 0, \"budget\": 1}");
+    HttpKeys httpKeys = getHttpKeys();
+    httpKeys.setHttpRequestMethod("POST");
+    HttpConnection conn = new HttpConnection(state, httpKeys, new ExtractorKeys());
+    for (int i = 0; i < 5; i++) {
+      WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+      Assert.assertNotNull(status);
+      conn.closeStream();
+    }
+    conn.closeAll("");
+    Assert.assertEquals(HedgedRequestExecutor.getInstance("post", 95, 0, 10, 100, 1).getHedges(), 0);
+  }
+
+  /**
+   * Test that a duplicate request is not sent without the permits of the rate limiter and
+   * the adaptive concurrency limiter, which are held by the request
+   */
+  @Test
+  public void testHedgesWithinPermits() throws Exception {
+    SourceState state = new SourceState();
+    state.setProp("ms.http.hedging", "{\"name\": \"unlimited\", \"initialDelayMillis\": 0, \"budget\": 1}");
+    getP99Millis(state);
+    Assert.assertTrue(HedgedRequestExecutor.getInstance("unlimited", 95, 0, 10, 100, 1).getHedges() > 0);
+
+    state.setProp("ms.http.hedging", "{\"name\": \"rated\", \"initialDelayMillis\": 0, \"budget\": 1}");
+    state.setProp("ms.http.rate.limiter", "{\"name\": \"hedged\", \"maxConcurrency\": 1}");
+    getP99Millis(state);
+    Assert.assertEquals(HedgedRequestExecutor.getInstance("rated", 95, 0, 10, 100, 1).getHedges(), 0);
+
+    state.removeProp("ms.http.rate.limiter");
+    state.setProp("ms.http.hedging", "{\"name\": \"limited\", \"initialDelayMillis\": 0, \"budget\": 1}");
+    state.setProp("ms.http.adaptive.concurrency",
+        "{\"name\": \"hedged\", \"initialLimit\": 1, \"minLimit\": 1, \"maxLimit\": 1}");
+    getP99Millis(state);
+    Assert.assertEquals(HedgedRequestExecutor.getInstance("limited", 95, 0, 10, 100, 1).getHedges(), 0);
+    Assert.assertEquals(AdaptiveConcurrencyLimiter.getInstance("hedged", 1, 1, 1, 0.5, 2.0).getInFlight(), 0);
+  }
+
+  private long getP99Millis(SourceState state) throws Exception {
+    HttpConnection conn = new HttpConnection(state, getHttpKeys(), new ExtractorKeys());
+    long[] latencies = new long[REQUESTS];
+    for (int i = 0; i < REQUESTS; i++) {
+      long start = System.nanoTime();
+      WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+      Assert.assertNotNull(status);
+      Assert.assertEquals(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), "{\"status\": \"ok\"}");
+      latencies[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+      conn.closeStream();
+    }
+    conn.closeAll("");
+    Arrays.sort(latencies);
+    return latencies[REQUESTS * 99 / 100 - 1];
+  }
+
+  private HttpKeys getHttpKeys() {
+    HttpKeys httpKeys = new HttpKeys();
+    httpKeys.setSourceUri("http://localhost:" + server.getAddress().getPort() + "/data");
+    httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+    return httpKeys;
+  }
+}
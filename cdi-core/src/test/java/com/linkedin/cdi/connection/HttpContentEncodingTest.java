@@ -0,0 +1,217 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HttpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class HttpContentEncodingTest {
+  private HttpServer server;
+  private String content;
+  private volatile String acceptEncoding;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    StringBuilder builder = new StringBuilder("[");
+    for (int i = 0; i < 2000; i++) {
+      builder.append(i == 0 ? "" : ",").append("{\"id\": ").append(i).append(", \"status\": \"active\"}");
+    }
+    content = builder.append("]").toString();
+
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+      String encoding = exchange.getRequestURI().getPath().substring(1);
+      byte[] body = encode(content.getBytes(StandardCharsets.UTF_8), encoding);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      if (!encoding.equals("identity")) {
+        // "corrupt" responses claim gzip, but are not encoded
+        exchange.getResponseHeaders().add("Content-Encoding", encoding.equals("raw") ? "deflate"
+            : encoding.equals("corrupt") ? "gzip" : encoding);
+      }
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  /**
+   * Test that gzip responses are decoded, and compressed bytes are counted
+   */
+  @Test
+  public void testGzip() throws Exception {
+    HttpConnection conn = getConnection("gzip", new SourceState());
+    Assert.assertEquals(read(conn), content);
+    Assert.assertEquals(acceptEncoding, "gzip, deflate");
+    Assert.assertEquals(conn.getDecodedBytes(), content.length());
+    Assert.assertTrue(conn.getEncodedBytes() * 5 < conn.getDecodedBytes());
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that both zlib wrapped and raw deflate responses are decoded
+   */
+  @Test
+  public void testDeflate() throws Exception {
+    for (String encoding : Lists.newArrayList("deflate", "raw")) {
+      HttpConnection conn = getConnection(encoding, new SourceState());
+      Assert.assertEquals(read(conn), content);
+      Assert.assertTrue(conn.getEncodedBytes() * 5 < conn.getDecodedBytes());
+      conn.closeAll("");
+    }
+  }
+
+  /**
+   * Test that uncompressed responses pass through, and byte counts accumulate across responses
+   */
+  @Test
+  public void testIdentity() throws Exception {
+    HttpConnection conn = getConnection("identity", new SourceState());
+    Assert.assertEquals(read(conn), content);
+    Assert.assertEquals(read(conn), content);
+    Assert.assertEquals(conn.getEncodedBytes(), 2L * content.length());
+    Assert.assertEquals(conn.getDecodedBytes(), 2L * content.length());
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that the byte counts are published in the state when the connection is closed, and that
+   * connections sharing the state, like forked connections, add their counts
+   */
+  @Test
+  public void testPublishedMetrics() throws Exception {
+    SourceState state = new SourceState();
+    HttpConnection conn = getConnection("gzip", state);
+    Assert.assertEquals(read(conn), content);
+    Assert.assertFalse(state.contains(HttpConnection.METRIC_RESPONSE_ENCODED_BYTES));
+    conn.closeAll("");
+    long encoded = conn.getEncodedBytes();
+    Assert.assertEquals(state.getPropAsLong(HttpConnection.METRIC_RESPONSE_ENCODED_BYTES), encoded);
+    Assert.assertEquals(state.getPropAsLong(HttpConnection.METRIC_RESPONSE_DECODED_BYTES), content.length());
+
+    // closing again doesn't count the bytes twice
+    conn.closeAll("");
+    Assert.assertEquals(state.getPropAsLong(HttpConnection.METRIC_RESPONSE_ENCODED_BYTES), encoded);
+
+    HttpConnection fork = getConnection("identity", state);
+    Assert.assertEquals(read(fork), content);
+    fork.closeAll("");
+    Assert.assertEquals(state.getPropAsLong(HttpConnection.METRIC_RESPONSE_ENCODED_BYTES), encoded + content.length());
+    Assert.assertEquals(state.getPropAsLong(HttpConnection.METRIC_RESPONSE_DECODED_BYTES), 2L * content.length());
+  }
+
+  /**
+   * Test that the accepted encodings are configurable
+   */
+  @Test
+  public void testAcceptEncoding() throws Exception {
+    SourceState state = new SourceState();
+    state.setProp("ms.http.accept.encoding", "deflate");
+    HttpConnection conn = getConnection("deflate", state);
+    Assert.assertEquals(read(conn), content);
+    Assert.assertEquals(acceptEncoding, "deflate");
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that a response whose content cannot be read fails the request, rather than
+   * returning a status without content
+   */
+  @Test
+  public void testUnreadableContent() throws Exception {
+    SourceState state = new SourceState();
+    state.setProp("ms.response.buffer", "{\"thresholdBytes\": 1024}");
+    for (SourceState sourceState : Lists.newArrayList(new SourceState(), state)) {
+      HttpConnection conn = getConnection("corrupt", sourceState);
+      Assert.assertNull(conn.execute(WorkUnitStatus.builder().build()));
+      conn.closeAll("");
+    }
+  }
+
+  /**
+   * Test that compressed responses are cached as they are received, and decoded on replay
+   */
+  @Test
+  public void testCachedGzip() throws Exception {
+    File cacheDir = Files.createTempDirectory("http-cache").toFile();
+    try {
+      SourceState state = new SourceState();
+      state.setProp("ms.http.response.cache", "{\"path\": \"" + cacheDir.getAbsolutePath() + "\"}");
+      for (int i = 0; i < 2; i++) {
+        HttpConnection conn = getConnection("gzip", state);
+        Assert.assertEquals(read(conn), content);
+        conn.closeAll("");
+      }
+      Assert.assertTrue(FileUtils.sizeOfDirectory(cacheDir) * 5 < content.length());
+    } finally {
+      FileUtils.deleteDirectory(cacheDir);
+    }
+  }
+
+  private HttpConnection getConnection(String encoding, SourceState state) {
+    HttpKeys httpKeys = new HttpKeys();
+    httpKeys.setSourceUri("http://localhost:" + server.getAddress().getPort() + "/" + encoding);
+    httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+    return new HttpConnection(state, httpKeys, new ExtractorKeys());
+  }
+
+  private String read(HttpConnection conn) throws Exception {
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    String result = IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8);
+    conn.closeStream();
+    return result;
+  }
+
+  private static byte[] encode(byte[] data, String encoding) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    OutputStream out;
+    switch (encoding) {
+      case "gzip":
+        out = new GZIPOutputStream(bytes);
+        break;
+      case "deflate":
+        out = new DeflaterOutputStream(bytes);
+        break;
+      case "raw":
+        out = new DeflaterOutputStream(bytes, new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+        break;
+      default:
+        out = bytes;
+    }
+    out.write(data);
+    out.close();
+    return bytes.toByteArray();
+  }
+}
@@ -0,0 +1,217 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HttpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.HttpClients;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class HttpResponseCacheTest {
+  private HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+  private File cacheDir;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      requests.incrementAndGet();
+      byte[] body = ("{\"path\": \"" + exchange.getRequestURI() + "\"}").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @BeforeMethod
+  public void prepare() throws Exception {
+    cacheDir = Files.createTempDirectory("http-cache").toFile();
+    requests.set(0);
+  }
+
+  @AfterMethod
+  public void cleanUp() throws Exception {
+    FileUtils.deleteDirectory(cacheDir);
+  }
+
+  /**
+   * Test that a rerun replays all pages from the cache without network calls
+   */
+  @Test
+  public void testReplay() throws Exception {
+    String cache = "{\"path\": \"" + cacheDir.getAbsolutePath() + "\"}";
+    for (int page = 0; page < 3; page++) {
+      Assert.assertEquals(fetch(cache, page), "{\"path\": \"/data?page=" + page + "\"}");
+    }
+    Assert.assertEquals(requests.get(), 3);
+
+    requests.set(0);
+    for (int page = 0; page < 3; page++) {
+      Assert.assertEquals(fetch(cache, page), "{\"path\": \"/data?page=" + page + "\"}");
+    }
+    Assert.assertEquals(requests.get(), 0);
+  }
+
+  /**
+   * Test that expired entries are fetched again
+   */
+  @Test
+  public void testTtl() throws Exception {
+    String cache = "{\"path\": \"" + cacheDir.getAbsolutePath() + "\", \"ttlSeconds\": 1}";
+    fetch(cache, 0);
+    fetch(cache, 0);
+    Assert.assertEquals(requests.get(), 1);
+    Thread.sleep(1100);
+    fetch(cache, 0);
+    Assert.assertEquals(requests.get(), 2);
+  }
+
+  /**
+   * Test that requests are not cached when the method is not enabled
+   */
+  @Test
+  public void testMethods() throws Exception {
+    String cache = "{\"path\": \"" + cacheDir.getAbsolutePath() + "\", \"methods\": [\"POST\"]}";
+    fetch(cache, 0);
+    fetch(cache, 0);
+    Assert.assertEquals(requests.get(), 2);
+  }
+
+  /**
+   * Test that the least recently used entries are evicted beyond the size limits
+   */
+  @Test
+  public void testEviction() throws Exception {
+    HttpResponseCache cache = new HttpResponseCache(cacheDir.getAbsolutePath(), 60000L, Long.MAX_VALUE, 2L,
+        Lists.newArrayList("GET"), Lists.newArrayList());
+    String base = "http://localhost:" + server.getAddress().getPort() + "/data?page=";
+    String key0 = cache.getKey(new HttpGet(base + 0));
+    String key1 = cache.getKey(new HttpGet(base + 1));
+    String key2 = cache.getKey(new HttpGet(base + 2));
+    Assert.assertNotEquals(key0, key1);
+
+    cache.put(key0, execute(base + 0)).close();
+    Thread.sleep(10);
+    cache.put(key1, execute(base + 1)).close();
+    Thread.sleep(10);
+    // access the first entry, so that the second entry is the least recently used
+    cache.get(key0).close();
+    Thread.sleep(10);
+    cache.put(key2, execute(base + 2)).close();
+
+    Assert.assertNotNull(cache.get(key0));
+    Assert.assertNull(cache.get(key1));
+    Assert.assertNotNull(cache.get(key2));
+
+    // a new cache picks up the entries in the directory, and evicts by size
+    long entryBytes = new File(cacheDir, key0 + ".cache").length();
+    cache = new HttpResponseCache(cacheDir.getAbsolutePath(), 60000L, entryBytes * 2 + 1, 10L,
+        Lists.newArrayList("GET"), Lists.newArrayList());
+    cache.get(key0).close();
+    cache.put(key1, execute(base + 1)).close();
+    Assert.assertNotNull(cache.get(key0));
+    Assert.assertNull(cache.get(key2));
+    Assert.assertNotNull(cache.get(key1));
+    Assert.assertEquals(cacheDir.list((dir, name) -> name.endsWith(".cache")).length, 2);
+  }
+
+  /**
+   * Test that connections using the same directory share one cache, whose limits apply to all of them
+   */
+  @Test
+  public void testSharedInstance() throws Exception {
+    HttpResponseCache first = HttpResponseCache.getInstance(cacheDir.getAbsolutePath(), 60000L, Long.MAX_VALUE, 2L,
+        Lists.newArrayList("GET"), Lists.newArrayList());
+    HttpResponseCache second = HttpResponseCache.getInstance(cacheDir.getAbsolutePath() + "/", 60000L,
+        Long.MAX_VALUE, 2L, Lists.newArrayList("GET"), Lists.newArrayList());
+    Assert.assertSame(second, first);
+
+    String base = "http://localhost:" + server.getAddress().getPort() + "/data?page=";
+    for (int page = 0; page < 4; page++) {
+      HttpResponseCache cache = page % 2 == 0 ? first : second;
+      cache.put(cache.getKey(new HttpGet(base + page)), execute(base + page)).close();
+    }
+    Assert.assertEquals(cacheDir.list((dir, name) -> name.endsWith(".cache")).length, 2);
+    Assert.assertNotNull(first.get(first.getKey(new HttpGet(base + 3))));
+
+    // the cache of another directory is another cache
+    Assert.assertNotSame(HttpResponseCache.getInstance(new File(cacheDir, "other").getAbsolutePath(), 60000L,
+        Long.MAX_VALUE, 2L, Lists.newArrayList("GET"), Lists.newArrayList()), first);
+  }
+
+  /**
+   * Test that selected headers are part of the cache key
+   */
+  @Test
+  public void testKeyHeaders() throws Exception {
+    HttpResponseCache cache = new HttpResponseCache(cacheDir.getAbsolutePath(), 60000L, Long.MAX_VALUE, 10L,
+        Lists.newArrayList("GET"), Lists.newArrayList("Accept"));
+    HttpGet json = new HttpGet("http://localhost/data");
+    json.addHeader("Accept", "application/json");
+    json.addHeader("Authorization", "token1");
+    HttpGet jsonWithNewToken = new HttpGet("http://localhost/data");
+    jsonWithNewToken.addHeader("Accept", "application/json");
+    jsonWithNewToken.addHeader("Authorization", "token2");
+    HttpGet csv = new HttpGet("http://localhost/data");
+    csv.addHeader("Accept", "text/csv");
+    Assert.assertEquals(cache.getKey(json), cache.getKey(jsonWithNewToken));
+    Assert.assertNotEquals(cache.getKey(json), cache.getKey(csv));
+  }
+
+  private String fetch(String cache, int page) throws Exception {
+    SourceState state = new SourceState();
+    state.setProp("ms.http.response.cache", cache);
+    HttpKeys httpKeys = new HttpKeys();
+    httpKeys.setSourceUri("http://localhost:" + server.getAddress().getPort() + "/data");
+    httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+    ExtractorKeys extractorKeys = new ExtractorKeys();
+    JsonObject parameters = new JsonObject();
+    parameters.addProperty("page", page);
+    extractorKeys.setDynamicParameters(parameters);
+    HttpConnection conn = new HttpConnection(state, httpKeys, extractorKeys);
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    Assert.assertEquals(status.getMessages().get("contentType"), "application/json");
+    String content = IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8);
+    conn.closeStream();
+    conn.closeAll("");
+    return content;
+  }
+
+  private CloseableHttpResponse execute(String uri) throws Exception {
+    return HttpClients.createDefault().execute(new HttpGet(uri));
+  }
+}
@@ -0,0 +1,207 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HttpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.message.BasicHttpResponse;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class HttpRetryTest {
+  private HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+  // the scripted statuses and Retry-After values, 200 is returned when the script is exhausted
+  private final Queue<String[]> script = new ConcurrentLinkedQueue<>();
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", exchange -> {
+      requests.incrementAndGet();
+      String[] next = script.poll();
+      int status = next == null ? 200 : Integer.parseInt(next[0]);
+      if (next != null && next.length > 1) {
+        exchange.getResponseHeaders().add("Retry-After", next[1]);
+      }
+      byte[] body = (status == 200 ? "{\"result\": \"ok\"}" : "{\"error\": " + status + "}")
+          .getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(status, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @BeforeMethod
+  public void prepare() {
+    requests.set(0);
+    script.clear();
+  }
+
+  /**
+   * Test that the Retry-After header of 429 responses is honored
+   */
+  @Test
+  public void testTooManyRequestsWithRetryAfter() throws Exception {
+    script.add(new String[]{"429", "1"});
+    SourceState state = new SourceState();
+    state.setProp("ms.http.retry", "{\"baseDelayMillis\": 10}");
+    HttpConnection conn = getConnection(state);
+    Assert.assertEquals(fetch(conn), "{\"result\": \"ok\"}");
+    Assert.assertEquals(requests.get(), 2);
+    Assert.assertEquals(conn.getRetryMillis(), 1000L);
+  }
+
+  /**
+   * Test that a sequence of 503 responses without Retry-After is retried with exponential backoff
+   */
+  @Test
+  public void testServiceUnavailableBackoff() throws Exception {
+    script.add(new String[]{"503"});
+    script.add(new String[]{"503"});
+    script.add(new String[]{"429"});
+    SourceState state = new SourceState();
+    state.setProp("ms.http.retry", "{\"baseDelayMillis\": 20}");
+    HttpConnection conn = getConnection(state);
+    Assert.assertEquals(fetch(conn), "{\"result\": \"ok\"}");
+    Assert.assertEquals(requests.get(), 4);
+    Assert.assertTrue(conn.getRetryMillis() <= 20 + 40 + 80);
+  }
+
+  /**
+   * Test that the request fails after the maximum number of retries
+   */
+  @Test
+  public void testMaxRetries() throws Exception {
+    for (int i = 0; i < 5; i++) {
+      script.add(new String[]{"503", "0"});
+    }
+    SourceState state = new SourceState();
+    state.setProp("ms.http.retry", "{\"maxRetries\": 2}");
+    HttpConnection conn = getConnection(state);
+    Assert.assertNull(conn.execute(WorkUnitStatus.builder().build()));
+    Assert.assertEquals(requests.get(), 3);
+  }
+
+  /**
+   * Test that retries stop when the waiting time would exceed the retry budget
+   */
+  @Test
+  public void testRetryBudget() throws Exception {
+    script.add(new String[]{"429", "1"});
+    script.add(new String[]{"429", "1"});
+    SourceState state = new SourceState();
+    state.setProp("ms.http.retry", "{\"budgetSeconds\": 1}");
+    HttpConnection conn = getConnection(state);
+    Assert.assertNull(conn.execute(WorkUnitStatus.builder().build()));
+    Assert.assertEquals(requests.get(), 2);
+    Assert.assertEquals(conn.getRetryMillis(), 1000L);
+  }
+
+  /**
+   * Test that only the statuses in the retry list of ms.http.statuses are retried
+   */
+  @Test
+  public void testRetryStatuses() throws Exception {
+    script.add(new String[]{"500"});
+    SourceState state = new SourceState();
+    state.setProp("ms.http.retry", "{\"baseDelayMillis\": 10}");
+    Assert.assertNull(getConnection(state).execute(WorkUnitStatus.builder().build()));
+    Assert.assertEquals(requests.get(), 1);
+
+    requests.set(0);
+    script.add(new String[]{"500"});
+    state = new SourceState();
+    state.setProp("ms.http.statuses", "{\"success\": [200], \"retry\": [500]}");
+    Assert.assertEquals(fetch(getConnection(state)), "{\"result\": \"ok\"}");
+    Assert.assertEquals(requests.get(), 2);
+  }
+
+  /**
+   * Test that failures are not retried without a retry configuration
+   */
+  @Test
+  public void testNoRetry() throws Exception {
+    script.add(new String[]{"429", "0"});
+    Assert.assertNull(getConnection(new SourceState()).execute(WorkUnitStatus.builder().build()));
+    Assert.assertEquals(requests.get(), 1);
+  }
+
+  /**
+   * Test the delays of the default retry policy
+   */
+  @Test
+  public void testExponentialBackoffRetryPolicy() {
+    SourceState state = new SourceState();
+    state.setProp("ms.http.retry", "{\"baseDelayMillis\": 100, \"maxDelayMillis\": 300, \"maxRetries\": 4, "
+        + "\"exceptions\": [\"java.net.ConnectException\"]}");
+    RetryPolicy policy = new ExponentialBackoffRetryPolicy(state);
+    BasicHttpResponse unavailable = new BasicHttpResponse(HttpVersion.HTTP_1_1, 503, null);
+    for (int i = 0; i < 100; i++) {
+      long delay = policy.getRetryDelayMillis(1, unavailable, null);
+      Assert.assertTrue(delay >= 0 && delay <= 100);
+      delay = policy.getRetryDelayMillis(2, unavailable, null);
+      Assert.assertTrue(delay >= 0 && delay <= 200);
+      delay = policy.getRetryDelayMillis(4, unavailable, null);
+      Assert.assertTrue(delay >= 0 && delay <= 300);
+    }
+    Assert.assertEquals(policy.getRetryDelayMillis(5, unavailable, null), -1L);
+    Assert.assertEquals(policy.getRetryDelayMillis(1, new BasicHttpResponse(HttpVersion.HTTP_1_1, 500, null), null), -1L);
+
+    // exceptions are matched through their causes
+    Assert.assertTrue(policy.getRetryDelayMillis(1, null, new RuntimeException(new ConnectException())) >= 0);
+    Assert.assertEquals(policy.getRetryDelayMillis(1, null, new RuntimeException(new IllegalStateException())), -1L);
+
+    // Retry-After as a HTTP date
+    BasicHttpResponse throttled = new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, null);
+    throttled.addHeader("Retry-After", DateUtils.formatDate(new Date(System.currentTimeMillis() + 60000)));
+    long delay = policy.getRetryDelayMillis(1, throttled, null);
+    Assert.assertTrue(delay > 55000 && delay <= 60000);
+  }
+
+  private HttpConnection getConnection(SourceState state) {
+    HttpKeys httpKeys = new HttpKeys();
+    httpKeys.setSourceUri("http://localhost:" + server.getAddress().getPort() + "/data");
+    httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+    return new HttpConnection(state, httpKeys, new ExtractorKeys());
+  }
+
+  private String fetch(HttpConnection conn) throws Exception {
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    String content = IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8);
+    conn.closeStream();
+    conn.closeAll("");
+    return content;
+  }
+}
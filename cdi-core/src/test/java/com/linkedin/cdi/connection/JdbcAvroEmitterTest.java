@@ -0,0 +1,267 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.linkedin.cdi.util.JdbcUtils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JdbcAvroEmitterTest {
+  private static final String URL = "jdbc:h2:mem:jdbcAvroEmitterTest";
+  private Connection connection;
+  private File directory;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection(URL);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE types (id INT NOT NULL, flag BOOLEAN, tiny TINYINT, small SMALLINT, "
+          + "big BIGINT, amount DECIMAL(10, 2), ratio DOUBLE, score REAL, day DATE, clock TIME, "
+          + "created TIMESTAMP, name VARCHAR(16), code CHAR(4), raw VARBINARY(8), data BLOB, content CLOB, "
+          + "\"user name\" VARCHAR(16), \"1st\" INT)");
+      statement.execute("INSERT INTO types VALUES (1, true, 7, -300, 12345678901, 1234.56, 0.25, 1.5, "
+          + "DATE '2021-02-03', TIME '04:05:06', TIMESTAMP '2021-02-03 04:05:06.789', 'text', 'ab', X'0a0b', "
+          + "X'0102', 'long text', 'u', 9)");
+      statement.execute("INSERT INTO types (id) VALUES (2)");
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws Exception {
+    if (directory != null) {
+      FileUtils.deleteDirectory(directory);
+      directory = null;
+    }
+  }
+
+  /**
+   * Test the schema, which follows the types of columns, and nullable columns are unions with null
+   */
+  @Test
+  public void testSchema() throws Exception {
+    Schema schema = emit("SELECT * FROM types", new ArrayList<>()).getSchema();
+    Assert.assertEquals(schema.getName(), "types");
+    Assert.assertEquals(schema.getField("ID").schema().getType(), Schema.Type.INT);
+    Assert.assertEquals(type(schema, "FLAG"), Schema.Type.BOOLEAN);
+    Assert.assertEquals(type(schema, "TINY"), Schema.Type.INT);
+    Assert.assertEquals(type(schema, "SMALL"), Schema.Type.INT);
+    Assert.assertEquals(type(schema, "BIG"), Schema.Type.LONG);
+    Assert.assertEquals(type(schema, "AMOUNT"), Schema.Type.BYTES);
+    Assert.assertEquals(fieldType(schema, "AMOUNT").getLogicalType(), LogicalTypes.decimal(10, 2));
+    Assert.assertEquals(type(schema, "RATIO"), Schema.Type.DOUBLE);
+    Assert.assertEquals(type(schema, "SCORE"), Schema.Type.DOUBLE);
+    Assert.assertEquals(type(schema, "DAY"), Schema.Type.LONG);
+    Assert.assertEquals(type(schema, "CLOCK"), Schema.Type.STRING);
+    Assert.assertEquals(type(schema, "CREATED"), Schema.Type.LONG);
+    Assert.assertEquals(type(schema, "NAME"), Schema.Type.STRING);
+    Assert.assertEquals(type(schema, "CODE"), Schema.Type.STRING);
+    Assert.assertEquals(type(schema, "RAW"), Schema.Type.BYTES);
+    Assert.assertEquals(type(schema, "DATA"), Schema.Type.BYTES);
+    Assert.assertEquals(type(schema, "CONTENT"), Schema.Type.STRING);
+
+    // column names are made valid Avro names
+    Assert.assertNotNull(schema.getField("user_name"));
+    Assert.assertNotNull(schema.getField("_1st"));
+  }
+
+  /**
+   * Test the values of all types, and null values
+   */
+  @Test
+  public void testValues() throws Exception {
+    List<GenericRecord> records = new ArrayList<>();
+    emit("SELECT * FROM types ORDER BY id", records);
+    Assert.assertEquals(records.size(), 2);
+
+    GenericRecord record = records.get(0);
+    Assert.assertEquals(record.get("ID"), 1);
+    Assert.assertEquals(record.get("FLAG"), true);
+    Assert.assertEquals(record.get("TINY"), 7);
+    Assert.assertEquals(record.get("SMALL"), -300);
+    Assert.assertEquals(record.get("BIG"), 12345678901L);
+    Assert.assertEquals(decimal(record, "AMOUNT"), new BigDecimal("1234.56"));
+    Assert.assertEquals(record.get("RATIO"), 0.25);
+    Assert.assertEquals(record.get("SCORE"), 1.5);
+    Assert.assertEquals(record.get("DAY"), java.sql.Date.valueOf("2021-02-03").getTime());
+    Assert.assertEquals(record.get("CLOCK").toString(), "04:05:06");
+    Assert.assertEquals(record.get("CREATED"), Timestamp.valueOf("2021-02-03 04:05:06.789").getTime());
+    Assert.assertEquals(record.get("NAME").toString(), "text");
+    // H2 trims the padding of CHAR values, other databases might not
+    Assert.assertEquals(record.get("CODE").toString().trim(), "ab");
+    Assert.assertEquals(record.get("RAW"), ByteBuffer.wrap(new byte[]{10, 11}));
+    Assert.assertEquals(record.get("DATA"), ByteBuffer.wrap(new byte[]{1, 2}));
+    Assert.assertEquals(record.get("CONTENT").toString(), "long text");
+    Assert.assertEquals(record.get("_1st"), 9);
+
+    // every column except the key is null
+    record = records.get(1);
+    Assert.assertEquals(record.get("ID"), 2);
+    for (Schema.Field field : record.getSchema().getFields()) {
+      if (!field.name().equals("ID")) {
+        Assert.assertNull(record.get(field.name()), field.name());
+      }
+    }
+  }
+
+  /**
+   * Test decimals, which have the precision and scale of the columns, including negative values
+   * and values that are not exact as doubles, and decimals without a precision, which are doubles
+   */
+  @Test
+  public void testDecimals() throws Exception {
+    List<GenericRecord> records = new ArrayList<>();
+    String sql = "SELECT CAST(-0.05 AS DECIMAL(10, 2)) AS a, CAST(123456789.123 AS NUMERIC(15, 3)) AS b, "
+        + "CAST(42 AS DECIMAL(5, 0)) AS c, CAST(12345678901234567890.12345678 AS DECIMAL(28, 8)) AS d, "
+        + "CAST(1.5 AS DECIMAL(10, 4)) AS e";
+    Schema schema = emit(sql, records).getSchema();
+    Assert.assertEquals(fieldType(schema, "B").getLogicalType(), LogicalTypes.decimal(15, 3));
+    Assert.assertEquals(decimal(records.get(0), "A"), new BigDecimal("-0.05"));
+    Assert.assertEquals(decimal(records.get(0), "B"), new BigDecimal("123456789.123"));
+    Assert.assertEquals(decimal(records.get(0), "C"), new BigDecimal("42"));
+    Assert.assertEquals(decimal(records.get(0), "D"), new BigDecimal("12345678901234567890.12345678"));
+    Assert.assertEquals(decimal(records.get(0), "E"), new BigDecimal("1.5000"));
+
+    // the columns of a cache entry without precisions and scales
+    try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+      JdbcSchemaCache.Entry columns = getColumns(resultSet.getMetaData());
+      schema = JdbcAvroEmitter.create("types", new JdbcSchemaCache.Entry(columns.getColumnNames(),
+          columns.getColumnTypes(), columns.getNullables(), 0, null)).getSchema();
+      Assert.assertEquals(fieldType(schema, "A").getType(), Schema.Type.DOUBLE);
+      Assert.assertNull(fieldType(schema, "A").getLogicalType());
+    }
+  }
+
+  /**
+   * Test that LOB columns are the paths of side files when a handler writes LOB values to files
+   */
+  @Test
+  public void testLobFiles() throws Exception {
+    directory = Files.createTempDirectory("jdbc-lob").toFile();
+    List<GenericRecord> records = new ArrayList<>();
+    String sql = "SELECT id, data, content FROM types ORDER BY id";
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    JdbcAvroEmitter emitter;
+    try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+      JdbcSchemaCache.Entry columns = getColumns(resultSet.getMetaData());
+      JdbcLobHandler handler = new JdbcLobHandler(columns.getColumnTypes(), 1024,
+          new File(directory, "lobs").getAbsolutePath(), "statement");
+      emitter = JdbcAvroEmitter.create("types", columns, handler);
+      Assert.assertEquals(emitter.write(resultSet, output), 2L);
+      Assert.assertEquals(handler.getFiles(), 2L);
+    }
+    Assert.assertEquals(type(emitter.getSchema(), "DATA"), Schema.Type.STRING);
+    Assert.assertEquals(type(emitter.getSchema(), "CONTENT"), Schema.Type.STRING);
+    try (DataFileStream<GenericRecord> stream = new DataFileStream<>(
+        new ByteArrayInputStream(output.toByteArray()), new GenericDatumReader<>())) {
+      while (stream.hasNext()) {
+        records.add(stream.next());
+      }
+    }
+    String data = records.get(0).get("DATA").toString();
+    String content = records.get(0).get("CONTENT").toString();
+    Assert.assertEquals(Files.readAllBytes(Paths.get(data.replaceFirst("^file:", ""))), new byte[]{1, 2});
+    Assert.assertEquals(new String(Files.readAllBytes(Paths.get(content.replaceFirst("^file:", ""))),
+        StandardCharsets.UTF_8), "long text");
+    Assert.assertNull(records.get(1).get("DATA"));
+    Assert.assertNull(records.get(1).get("CONTENT"));
+  }
+
+  /**
+   * Test a statement without rows, which writes an Avro file with the schema only
+   */
+  @Test
+  public void testEmpty() throws Exception {
+    List<GenericRecord> records = new ArrayList<>();
+    JdbcAvroEmitter emitter = emit("SELECT * FROM types WHERE id < 0", records);
+    Assert.assertTrue(records.isEmpty());
+    Assert.assertEquals(emitter.getSchema().getFields().size(), 18);
+  }
+
+  private JdbcAvroEmitter emit(String sql, List<GenericRecord> records) throws Exception {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    JdbcAvroEmitter emitter;
+    try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(sql)) {
+      emitter = JdbcAvroEmitter.create("types", getColumns(resultSet.getMetaData()));
+      Assert.assertEquals(emitter.write(resultSet, output), (long) countRows(sql));
+    }
+    try (DataFileStream<GenericRecord> stream = new DataFileStream<>(
+        new ByteArrayInputStream(output.toByteArray()), new GenericDatumReader<>())) {
+      Assert.assertEquals(stream.getSchema(), emitter.getSchema());
+      while (stream.hasNext()) {
+        records.add(stream.next());
+      }
+    }
+    return emitter;
+  }
+
+  private int countRows(String sql) throws Exception {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM (" + sql + ") counted")) {
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+  }
+
+  private static JdbcSchemaCache.Entry getColumns(ResultSetMetaData metaData) throws Exception {
+    List<String> names = new ArrayList<>();
+    boolean[] nullables = new boolean[metaData.getColumnCount()];
+    for (int i = 0; i < nullables.length; i++) {
+      names.add(metaData.getColumnName(i + 1));
+      nullables[i] = metaData.isNullable(i + 1) != ResultSetMetaData.columnNoNulls;
+    }
+    return new JdbcSchemaCache.Entry(names, JdbcUtils.getColumnTypes(metaData), nullables,
+        JdbcUtils.getColumnPrecisions(metaData), JdbcUtils.getColumnScales(metaData), 0, null);
+  }
+
+  private static Schema.Type type(Schema schema, String field) {
+    return fieldType(schema, field).getType();
+  }
+
+  private static Schema fieldType(Schema schema, String field) {
+    Schema fieldSchema = schema.getField(field).schema();
+    Assert.assertEquals(fieldSchema.getType(), Schema.Type.UNION, field);
+    Assert.assertEquals(fieldSchema.getTypes().get(0).getType(), Schema.Type.NULL);
+    return fieldSchema.getTypes().get(1);
+  }
+
+  private static BigDecimal decimal(GenericRecord record, String field) {
+    Schema schema = fieldType(record.getSchema(), field);
+    return new Conversions.DecimalConversion().fromBytes((ByteBuffer) record.get(field), schema,
+        schema.getLogicalType());
+  }
+}
@@ -0,0 +1,159 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JdbcBatchWriterTest {
+  private static final String URL = "jdbc:h2:mem:jdbcBatchWriterTest";
+  private static final String INSERT = "INSERT INTO accounts (id, name) VALUES (?, ?)";
+  private Connection connection;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection(URL);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE accounts (id BIGINT PRIMARY KEY, name VARCHAR(32))");
+    }
+  }
+
+  @BeforeMethod
+  public void truncate() throws Exception {
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("TRUNCATE TABLE accounts");
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  /**
+   * Test that rows are written in batches of the batch size, and committed
+   */
+  @Test
+  public void testBatches() throws Exception {
+    JdbcBatchWriter writer = new JdbcBatchWriter(INSERT + ";", 1000, 0);
+    Assert.assertEquals(writer.write(connection, getRows(1, 2500)), 2500);
+    Assert.assertEquals(writer.getBatches(), 3);
+    Assert.assertEquals(writer.getCommitted(), 2500);
+    Assert.assertTrue(connection.getAutoCommit());
+    Assert.assertEquals(count(), 2500);
+    Assert.assertEquals(name(2500), "account 2500");
+
+    // null values are bound as NULL
+    List<List<Object>> rows = new ArrayList<>();
+    rows.add(Arrays.asList(5000L, null));
+    new JdbcBatchWriter(INSERT, 1000, 0).write(connection, rows);
+    Assert.assertNull(name(5000));
+  }
+
+  /**
+   * Test that a failed batch rolls back the rows after the last commit, and keeps the committed rows
+   */
+  @Test
+  public void testFailureMidBatch() throws Exception {
+    List<List<Object>> rows = getRows(1, 2500);
+    // the duplicate key fails the 15th batch, after 2 commits of 500 rows
+    rows.set(1449, Arrays.asList(7L, "duplicate"));
+    JdbcBatchWriter writer = new JdbcBatchWriter(INSERT, 100, 500);
+    SQLException e = Assert.expectThrows(SQLException.class, () -> writer.write(connection, rows));
+    Assert.assertTrue(e.getMessage().contains("the first 1000 of its 2500 rows were committed"), e.getMessage());
+    Assert.assertEquals(writer.getCommitted(), 1000);
+    Assert.assertEquals(writer.getBatches(), 14);
+    Assert.assertEquals(count(), 1000);
+    Assert.assertEquals(name(7), "account 7");
+    Assert.assertTrue(connection.getAutoCommit());
+
+    // the write can be resumed from the first uncommitted row
+    rows.set(1449, Arrays.asList(1450L, "account 1450"));
+    new JdbcBatchWriter(INSERT, 100, 500).write(connection, rows.subList(1000, rows.size()));
+    Assert.assertEquals(count(), 2500);
+  }
+
+  /**
+   * Test that concurrent writers write all rows, each on its own connection
+   */
+  @Test
+  public void testConcurrentWriters() throws Exception {
+    List<Connection> connections = Collections.synchronizedList(new ArrayList<>());
+    JdbcBatchWriter writer = new JdbcBatchWriter(INSERT, 500, 1000);
+    Assert.assertEquals(writer.write(connection, () -> {
+      Connection connection = DriverManager.getConnection(URL);
+      connections.add(connection);
+      return connection;
+    }, getRows(1, 4000), 4), 4000);
+    Assert.assertEquals(writer.getBatches(), 8);
+    Assert.assertEquals(count(), 4000);
+    Assert.assertEquals(connections.size(), 3);
+    for (Connection connection : connections) {
+      Assert.assertTrue(connection.isClosed());
+    }
+
+    // a small write takes no more writers than batches
+    truncate();
+    Assert.assertEquals(writer.write(connection, () -> {
+      throw new SQLException("no connection expected");
+    }, getRows(1, 400), 4), 400);
+    Assert.assertEquals(count(), 400);
+  }
+
+  /**
+   * Test that a failed writer rolls back the uncommitted rows of all writers
+   */
+  @Test
+  public void testConcurrentFailure() throws Exception {
+    List<List<Object>> rows = getRows(1, 4000);
+    // the last slice fails in its first batch
+    rows.set(3010, Arrays.asList(3001L, "duplicate"));
+    JdbcBatchWriter writer = new JdbcBatchWriter(INSERT, 100, 0);
+    Assert.expectThrows(SQLException.class,
+        () -> writer.write(connection, () -> DriverManager.getConnection(URL), rows, 4));
+    // each writer commits once at the end, so that the committed rows are whole slices
+    Assert.assertEquals(count(), writer.getCommitted());
+    Assert.assertEquals(writer.getCommitted() % 1000, 0);
+    Assert.assertTrue(writer.getCommitted() < 4000);
+  }
+
+  private static List<List<Object>> getRows(long from, long to) {
+    List<List<Object>> rows = new ArrayList<>();
+    for (long id = from; id <= to; id++) {
+      rows.add(Arrays.asList(id, "account " + id));
+    }
+    return rows;
+  }
+
+  private long count() throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM accounts")) {
+      resultSet.next();
+      return resultSet.getLong(1);
+    }
+  }
+
+  private String name(long id) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT name FROM accounts WHERE id = " + id)) {
+      resultSet.next();
+      return resultSet.getString(1);
+    }
+  }
+}
@@ -0,0 +1,526 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.JdbcKeys;
+import com.linkedin.cdi.util.ParameterTypes;
+import com.linkedin.cdi.util.SpoolingInputStream;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import com.opencsv.CSVReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.avro.file.DataFileStream;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+@Test
+public class JdbcConnectionTest {
+  private static final int ROWS = 100000;
+  private static final String URL = "jdbc:h2:mem:jdbcConnectionTest;LAZY_QUERY_EXECUTION=1;DB_CLOSE_DELAY=-1";
+  private Connection connection;
+  private File directory;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection(URL);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, name VARCHAR(64), email VARCHAR(128))");
+      statement.execute("INSERT INTO users SELECT x, 'user ' || x, 'user' || x || '@example.com' "
+          + "FROM SYSTEM_RANGE(1, " + ROWS + ")");
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws Exception {
+    if (directory != null) {
+      FileUtils.deleteDirectory(directory);
+      directory = null;
+    }
+  }
+
+  /**
+   * Test that CSV output is spooled with compression in many blocks, and rows are read intact
+   */
+  @Test
+  public void testCsvSpooling() throws Exception {
+    JdbcConnection conn = getConnection("select * from users order by id");
+    conn.setSpoolBlockSize(4096);
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    Assert.assertNotNull(status.getMessages().get("schema"));
+
+    InputStream buffer = status.getBuffer();
+    Assert.assertTrue(buffer instanceof SpoolingInputStream);
+    SpoolingInputStream spool = (SpoolingInputStream) buffer;
+
+    CSVReader reader = new CSVReader(new InputStreamReader(buffer, StandardCharsets.UTF_8));
+    String[] row = reader.readNext();
+    Assert.assertEquals(row, new String[]{"1", "user 1", "user1@example.com"});
+
+    long rows = 1;
+    while ((row = reader.readNext()) != null) {
+      rows++;
+      Assert.assertEquals(row[0], String.valueOf(rows));
+    }
+    Assert.assertEquals(rows, ROWS);
+    Assert.assertTrue(spool.getSpoolSize() < spool.getDataSize() / 2);
+    reader.close();
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that closing the connection stops an unfinished spool
+   */
+  @Test
+  public void testCloseUnfinishedSpool() throws Exception {
+    JdbcConnection conn = getConnection("select * from users order by id");
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    SpoolingInputStream spool = (SpoolingInputStream) status.getBuffer();
+    Assert.assertEquals(spool.read(), '"');
+    conn.setJdbcConnection(null);
+    Assert.assertTrue(conn.closeAll(""));
+    Assert.assertThrows(IOException.class, spool::read);
+  }
+
+  /**
+   * Test that a partitioned read returns every row exactly once, in CSV and in JSON
+   */
+  @Test
+  public void testPartitionedRead() throws Exception {
+    JdbcConnection conn = getConnection("select * from users");
+    conn.getState().setProp("ms.jdbc.partition", "{\"column\": \"id\", \"partitions\": 4}");
+    conn.getJdbcSourceKeys().setSourceUri(URL);
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    Assert.assertNotNull(status.getMessages().get("schema"));
+
+    CSVReader reader = new CSVReader(new InputStreamReader(status.getBuffer(), StandardCharsets.UTF_8));
+    BitSet ids = new BitSet(ROWS + 1);
+    String[] row;
+    long rows = 0;
+    while ((row = reader.readNext()) != null) {
+      int id = Integer.parseInt(row[0]);
+      Assert.assertFalse(ids.get(id), "duplicate row " + id);
+      Assert.assertEquals(row[1], "user " + id);
+      ids.set(id);
+      rows++;
+    }
+    reader.close();
+    Assert.assertEquals(rows, ROWS);
+    Assert.assertEquals(ids.cardinality(), ROWS);
+    conn.closeAll("");
+
+    // configured bounds that don't cover all rows
+    conn = getConnection("select id, name from users where id <= 1000");
+    conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+    conn.getState().setProp("ms.jdbc.partition",
+        "{\"column\": \"id\", \"partitions\": 3, \"lowerBound\": 100, \"upperBound\": 400}");
+    conn.getJdbcSourceKeys().setSourceUri(URL);
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    status = conn.execute(WorkUnitStatus.builder().build());
+    JsonArray records = GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), JsonArray.class);
+    Assert.assertEquals(records.size(), 1000);
+    Set<String> names = new HashSet<>();
+    records.forEach(record -> names.add(record.getAsJsonObject().get("NAME").getAsString()));
+    Assert.assertEquals(names.size(), 1000);
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that keyset pagination reads every row once, page by page, and ends with an empty page,
+   * and that the statement is described once, without the schema cache
+   */
+  @Test
+  public void testKeysetPagination() throws Exception {
+    JdbcConnection conn = getConnection("select id, name from users where id <= 1000");
+    conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+    conn.getState().setProp("ms.jdbc.keyset", "[\"id\"]");
+    Map<ParameterTypes, Long> pagination = new HashMap<>();
+    pagination.put(ParameterTypes.PAGESIZE, 300L);
+    conn.getJdbcSourceKeys().setPaginationInitValues(pagination);
+    List<String> executions = new ArrayList<>();
+    conn.setJdbcConnection(getRecordingConnection(DriverManager.getConnection(URL), new ArrayList<>(),
+        new ArrayList<>(), executions));
+
+    Set<String> names = new HashSet<>();
+    int pages = 0;
+    WorkUnitStatus status = conn.executeFirst(WorkUnitStatus.builder().build());
+    while (true) {
+      JsonArray records = GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), JsonArray.class);
+      if (records.size() == 0) {
+        break;
+      }
+      Assert.assertTrue(records.size() <= 300);
+      records.forEach(record -> Assert.assertTrue(names.add(record.getAsJsonObject().get("NAME").getAsString())));
+      pages++;
+      status = conn.executeNext(status);
+    }
+    Assert.assertEquals(pages, 4);
+    Assert.assertEquals(names.size(), 1000);
+    Assert.assertEquals(executions.stream().filter(sql -> sql.contains(" described ")).count(), 1L);
+    Assert.assertEquals(executions.stream().filter(sql -> sql.contains(" keyset ")).count(), 4L);
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that statements are streamed as the database of the source URI requires, which is
+   * a forward only result set with the fetch size, on a connection without auto commit for PostgreSQL
+   */
+  @Test
+  public void testStreaming() throws Exception {
+    List<Integer> fetchSizes = new ArrayList<>();
+    List<Integer> resultSetTypes = new ArrayList<>();
+    Connection recording = getRecordingConnection(DriverManager.getConnection(URL), fetchSizes, resultSetTypes,
+        new ArrayList<>());
+    JdbcConnection conn = getConnection("select x as id, repeat('x', 100) as padding from system_range(1, 100000)");
+    conn.getState().setProp("ms.jdbc.streaming", "{\"fetchSize\": 500}");
+    // the connection is H2, and the source URI decides that streaming is done as for PostgreSQL
+    conn.getJdbcSourceKeys().setSourceUri("jdbc:postgresql://localhost:5432/db");
+    conn.setJdbcConnection(recording);
+
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    CSVReader reader = new CSVReader(new InputStreamReader(status.getBuffer(), StandardCharsets.UTF_8));
+    String[] row;
+    long rows = 0;
+    while ((row = reader.readNext()) != null) {
+      Assert.assertEquals(row[0], String.valueOf(++rows));
+    }
+    reader.close();
+    Assert.assertEquals(rows, 100000);
+    Assert.assertFalse(recording.getAutoCommit());
+    Assert.assertEquals(fetchSizes, Collections.singletonList(500));
+    Assert.assertEquals(resultSetTypes, Collections.singletonList(ResultSet.TYPE_FORWARD_ONLY));
+    conn.closeAll("");
+
+    // without ms.jdbc.streaming, the fetch size and the auto commit of the driver are kept
+    fetchSizes.clear();
+    recording = getRecordingConnection(DriverManager.getConnection(URL), fetchSizes, resultSetTypes,
+        new ArrayList<>());
+    conn = getConnection("select x as id from system_range(1, 100)");
+    conn.getJdbcSourceKeys().setSourceUri("jdbc:postgresql://localhost:5432/db");
+    conn.setJdbcConnection(recording);
+    IOUtils.toString(conn.execute(WorkUnitStatus.builder().build()).getBuffer(), StandardCharsets.UTF_8);
+    Assert.assertTrue(recording.getAutoCommit());
+    Assert.assertTrue(fetchSizes.isEmpty());
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that the columns of a statement, including BLOB and CLOB columns, are cached,
+   * and that they are read again when the columns of the result set change, or they expire
+   */
+  @Test
+  public void testSchemaCache() throws Exception {
+    try (Connection setup = DriverManager.getConnection(URL); Statement statement = setup.createStatement()) {
+      statement.execute("CREATE TABLE documents (id BIGINT, content CLOB, data BLOB, archived BOOLEAN)");
+      statement.execute("INSERT INTO documents VALUES (1, 'text 1', X'0102', true), (2, NULL, NULL, NULL)");
+    }
+    for (int run = 0; run < 2; run++) {
+      JdbcConnection conn = getConnection("select * from documents order by id");
+      conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+      conn.getState().setProp("ms.jdbc.schema.cache.seconds", 600);
+      conn.setJdbcConnection(DriverManager.getConnection(URL));
+      WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+      Assert.assertEquals(GSON.fromJson(status.getMessages().get("schema"), JsonArray.class).size(), 4);
+      JsonArray records = GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), JsonArray.class);
+      Assert.assertEquals(records.size(), 2);
+      JsonObject record = records.get(0).getAsJsonObject();
+      Assert.assertEquals(record.get("CONTENT").getAsString(), "text 1");
+      Assert.assertEquals(record.get("DATA").getAsString(), "0102");
+      Assert.assertEquals(record.get("ARCHIVED").getAsString(), "true");
+      Assert.assertEquals(records.get(1).getAsJsonObject().get("CONTENT").getAsString(), "");
+      Assert.assertTrue(records.get(1).getAsJsonObject().get("ARCHIVED").isJsonNull());
+      conn.closeAll("");
+    }
+
+    // the cached columns are used while the result set has the same column types
+    try (Connection setup = DriverManager.getConnection(URL); Statement statement = setup.createStatement()) {
+      statement.execute("ALTER TABLE documents ADD COLUMN note VARCHAR(16) DEFAULT 'new'");
+    }
+    JdbcConnection conn = getConnection("select * from documents order by id");
+    conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+    conn.getState().setProp("ms.jdbc.schema.cache.seconds", 600);
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    Assert.assertEquals(GSON.fromJson(status.getMessages().get("schema"), JsonArray.class).size(), 5);
+    JsonArray records = GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), JsonArray.class);
+    Assert.assertEquals(records.get(0).getAsJsonObject().get("NOTE").getAsString(), "new");
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that rows are written as Avro records with AvroExtractor
+   */
+  @Test
+  public void testAvroOutput() throws Exception {
+    JdbcConnection conn = getConnection("select id, name from users where id <= 1000 order by id");
+    conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.AvroExtractor");
+    conn.getState().setProp("extract.table.name", "users");
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    Assert.assertEquals(GSON.fromJson(status.getMessages().get("schema"), JsonArray.class).size(), 2);
+    long count = 0;
+    try (DataFileStream<GenericRecord> stream = new DataFileStream<>(status.getBuffer(),
+        new GenericDatumReader<>())) {
+      Assert.assertEquals(stream.getSchema().getName(), "users");
+      while (stream.hasNext()) {
+        GenericRecord record = stream.next();
+        Assert.assertEquals(((Number) record.get("ID")).longValue(), ++count);
+        Assert.assertEquals(record.get("NAME").toString(), "user " + count);
+      }
+    }
+    Assert.assertEquals(count, 1000);
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that a statement with bind parameters returns the same rows as the substituted statement
+   */
+  @Test
+  public void testBindVariables() throws Exception {
+    String statement = "select id, name from users where id > {{low}} and name <> '{{excluded}}' and id <= {{high}}";
+    for (String bind : new String[]{"false", "true"}) {
+      JdbcConnection conn = getConnection(statement);
+      conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+      conn.getState().setProp("ms.jdbc.bind.variables", bind);
+      conn.setJdbcConnection(DriverManager.getConnection(URL));
+      for (int page = 0; page < 3; page++) {
+        conn.getExtractorKeys().setDynamicParameters(GSON.fromJson(String.format(
+            "{\"low\": %d, \"high\": \"%d\", \"excluded\": \"user %d\"}", page * 100, page * 100 + 50,
+            page * 100 + 10), JsonObject.class));
+        WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+        JsonArray records = GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), JsonArray.class);
+        Assert.assertEquals(records.size(), 49);
+        Assert.assertEquals(records.get(0).getAsJsonObject().get("ID").getAsLong(), page * 100 + 1);
+      }
+      conn.closeAll("");
+    }
+  }
+
+  /**
+   * Test that the prepared statement is kept on the connection and executed again for each page,
+   * including pages spooled as CSV, and that it is closed with the connection
+   */
+  @Test
+  public void testPreparedStatementReuse() throws Exception {
+    String statement = "select id, name from users where id > {{low}} and id <= {{high}}";
+    for (String extractor : new String[]{"JsonExtractor", "CsvExtractor"}) {
+      JdbcConnection conn = getConnection(statement);
+      conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor." + extractor);
+      conn.getState().setProp("ms.jdbc.bind.variables", true);
+      conn.setJdbcConnection(DriverManager.getConnection(URL));
+      for (int page = 0; page < 3; page++) {
+        conn.getExtractorKeys().setDynamicParameters(GSON.fromJson(String.format(
+            "{\"low\": %d, \"high\": %d}", page * 100, page * 100 + 50), JsonObject.class));
+        WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+        String buffer = IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8);
+        Assert.assertEquals(extractor.equals("JsonExtractor")
+            ? GSON.fromJson(buffer, JsonArray.class).size() : buffer.split("\n").length, 50, extractor);
+      }
+      JdbcStatementCache statements = conn.getStatementCache();
+      Assert.assertEquals(statements.getPrepared(), 1L, extractor);
+      Assert.assertEquals(statements.size(), 1, extractor);
+      conn.closeAll("");
+      Assert.assertEquals(statements.size(), 0, extractor);
+    }
+  }
+
+  /**
+   * Test that LOB values are streamed to CSV output, and written to side files with JSON output
+   */
+  @Test
+  public void testLobs() throws Exception {
+    try (Connection setup = DriverManager.getConnection(URL); Statement statement = setup.createStatement()) {
+      statement.execute("CREATE TABLE attachments (id INT, data BLOB, content CLOB)");
+      statement.execute("INSERT INTO attachments SELECT x, CAST(REPEAT('ab', 500000) AS BLOB), "
+          + "REPEAT('\"text\" ', 200000) FROM SYSTEM_RANGE(1, 20)");
+      statement.execute("INSERT INTO attachments VALUES (21, NULL, NULL)");
+    }
+    JdbcConnection conn = getConnection("select * from attachments order by id");
+    conn.getState().setProp("ms.jdbc.lob", "{\"mode\": \"inline\", \"bufferSize\": 8192}");
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    CSVReader reader = new CSVReader(new InputStreamReader(status.getBuffer(), StandardCharsets.UTF_8));
+    String[] row;
+    int rows = 0;
+    while ((row = reader.readNext()) != null) {
+      rows++;
+      if (rows <= 20) {
+        // the binary string of hexadecimal digits is 500000 bytes
+        Assert.assertEquals(row[1].length(), 500000 / 3 * 4 + 4);
+        Assert.assertEquals(row[2].length(), 1400000);
+        Assert.assertTrue(row[2].startsWith("\"text\" "));
+      } else {
+        Assert.assertEquals(row[1], "");
+      }
+    }
+    reader.close();
+    Assert.assertEquals(rows, 21);
+    conn.closeAll("");
+
+    directory = Files.createTempDirectory("jdbc-lob").toFile();
+    conn = getConnection("select * from attachments where id in (1, 21) order by id");
+    conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+    conn.getState().setProp("ms.jdbc.lob", "{\"mode\": \"file\", \"path\": \"" + directory.getAbsolutePath() + "\"}");
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    status = conn.execute(WorkUnitStatus.builder().build());
+    JsonArray records = GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), JsonArray.class);
+    Assert.assertEquals(records.size(), 2);
+    String reference = records.get(0).getAsJsonObject().get("CONTENT").getAsString();
+    Assert.assertTrue(reference.contains(directory.getAbsolutePath()), reference);
+    Assert.assertEquals(new File(reference.replaceFirst("^file:", "")).length(), 1400000);
+    Assert.assertTrue(records.get(1).getAsJsonObject().get("CONTENT").isJsonNull());
+    conn.closeAll("");
+  }
+
+  /**
+   * Test that payload records are written in batches by concurrent writers, and that a failed
+   * batch fails the work unit
+   */
+  @Test
+  public void testEgress() throws Exception {
+    try (Connection setup = DriverManager.getConnection(URL); Statement statement = setup.createStatement()) {
+      statement.execute("CREATE TABLE payments (id BIGINT PRIMARY KEY, amount DECIMAL(10, 2), note VARCHAR(32))");
+    }
+    JsonArray payloads = new JsonArray();
+    for (int i = 1; i <= 3000; i++) {
+      payloads.add(GSON.fromJson(String.format("{\"id\": %d, \"amount\": %d.25}", i, i), JsonObject.class));
+    }
+    JdbcConnection conn = getConnection(
+        "insert into payments (id, amount, note) values ({{id}}, {{amount}}, '{{batch}}-{{id}}')");
+    conn.getState().setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+    conn.getState().setProp("ms.jdbc.egress", "{\"batchSize\": 500, \"commitInterval\": 1000, \"threads\": 2}");
+    conn.getJdbcSourceKeys().setSourceUri(URL);
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    conn.getExtractorKeys().setPayloads(payloads);
+    conn.getExtractorKeys().setDynamicParameters(GSON.fromJson("{\"batch\": \"b1\"}", JsonObject.class));
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    Assert.assertEquals(GSON.fromJson(status.getMessages().get("schema"), JsonArray.class).size(), 2);
+    JsonArray records = GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), JsonArray.class);
+    Assert.assertEquals(records.size(), 1);
+    Assert.assertEquals(records.get(0).getAsJsonObject().get("records").getAsLong(), 3000);
+    Assert.assertEquals(records.get(0).getAsJsonObject().get("batches").getAsLong(), 6);
+    try (Connection check = DriverManager.getConnection(URL); Statement statement = check.createStatement();
+        ResultSet resultSet = statement.executeQuery(
+            "SELECT COUNT(*), SUM(amount), MAX(note) FROM payments WHERE note LIKE 'b1-%'")) {
+      resultSet.next();
+      Assert.assertEquals(resultSet.getLong(1), 3000);
+      Assert.assertEquals(resultSet.getDouble(2), 3000 * 3001 / 2 + 3000 * 0.25);
+      Assert.assertEquals(resultSet.getString(3), "b1-999");
+    }
+
+    // the records are written once, and the following requests are empty
+    status = conn.execute(WorkUnitStatus.builder().build());
+    Assert.assertEquals(GSON.fromJson(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8),
+        JsonArray.class).size(), 0);
+    conn.closeAll("");
+
+    // a duplicate key fails the work unit, and the uncommitted records are rolled back
+    JsonArray duplicates = new JsonArray();
+    for (int i = 2001; i <= 4000; i++) {
+      duplicates.add(GSON.fromJson(String.format("{\"id\": %d, \"amount\": 1}", i == 2100 ? 1 : i),
+          JsonObject.class));
+    }
+    conn = getConnection("insert into payments (id, amount, note) values ({{id}}, {{amount}}, 'b2')");
+    conn.getState().setProp("ms.jdbc.egress", "{\"batchSize\": 100, \"commitInterval\": 0}");
+    conn.setJdbcConnection(DriverManager.getConnection(URL));
+    conn.getExtractorKeys().setPayloads(duplicates);
+    Assert.assertNull(conn.execute(WorkUnitStatus.builder().build()));
+    try (Connection check = DriverManager.getConnection(URL); Statement statement = check.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM payments WHERE note = 'b2'")) {
+      resultSet.next();
+      Assert.assertEquals(resultSet.getLong(1), 0);
+    }
+    conn.closeAll("");
+  }
+
+  /**
+   * A connection whose statements record their fetch sizes and result set types
+   */
+  /**
+   * A connection that records the fetch sizes and result set types of its statements, and the SQL
+   * of each execution
+   */
+  private static Connection getRecordingConnection(Connection connection, List<Integer> fetchSizes,
+      List<Integer> resultSetTypes, List<String> executions) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+        (proxy, method, args) -> {
+          Object result = invoke(connection, method, args);
+          if (!(result instanceof Statement)) {
+            return result;
+          }
+          Statement statement = (Statement) result;
+          String prepared = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+          resultSetTypes.add(statement.getResultSetType());
+          Class<?> type = statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+          return Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type},
+              (statementProxy, statementMethod, statementArgs) -> {
+                if (statementMethod.getName().equals("setFetchSize")) {
+                  fetchSizes.add((Integer) statementArgs[0]);
+                } else if (statementMethod.getName().startsWith("execute")) {
+                  executions.add(statementArgs != null && statementArgs.length > 0
+                      ? String.valueOf(statementArgs[0]) : prepared);
+                }
+                return invoke(statement, statementMethod, statementArgs);
+              });
+        });
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  private JdbcConnection getConnection(String query) {
+    SourceState state = new SourceState();
+    state.setProp("ms.extractor.class", "com.linkedin.cdi.extractor.CsvExtractor");
+    JdbcKeys jdbcKeys = new JdbcKeys();
+    jdbcKeys.setJdbcStatement(query);
+    JdbcConnection conn = new JdbcConnection(state, jdbcKeys, new ExtractorKeys());
+    conn.setJdbcConnection(connection);
+    return conn;
+  }
+}
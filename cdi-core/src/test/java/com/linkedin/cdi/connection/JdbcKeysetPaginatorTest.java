@@ -0,0 +1,149 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.Lists;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JdbcKeysetPaginatorTest {
+  private static final String URL = "jdbc:h2:mem:jdbcKeysetPaginatorTest";
+  private static final List<Object> NO_PARAMETERS = Collections.emptyList();
+  private Connection connection;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection(URL);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE orders (id BIGINT, region VARCHAR(8), seq INT, customer INT)");
+      statement.execute("INSERT INTO orders SELECT x, 'r' || MOD(x, 3), CAST(x / 3 AS INT), CAST(x / 7 AS INT) "
+          + "FROM SYSTEM_RANGE(1, 1000)");
+      // a customer with more rows than a page
+      statement.execute("INSERT INTO orders SELECT 1000 + x, 'r9', x, 500 FROM SYSTEM_RANGE(1, 25)");
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  /**
+   * Test the page queries, which start after the last key
+   */
+  @Test
+  public void testPageQuery() {
+    JdbcKeysetPaginator paginator = new JdbcKeysetPaginator(Lists.newArrayList("region", "seq"), 10);
+    Assert.assertEquals(paginator.getPageQuery("SELECT * FROM orders;"),
+        "SELECT * FROM (SELECT * FROM orders) keyset ORDER BY region, seq");
+    Assert.assertEquals(paginator.getKeyQuery("SELECT * FROM orders"),
+        "SELECT * FROM (SELECT * FROM orders) keyset WHERE region = ? AND seq = ?");
+  }
+
+  /**
+   * Test reading a unique key, including a page size that divides the number of rows
+   */
+  @Test
+  public void testUniqueKey() throws Exception {
+    List<Long> ids = readAll(new JdbcKeysetPaginator(Lists.newArrayList("id"), 100));
+    Assert.assertEquals(ids.size(), 1025);
+    for (int i = 0; i < ids.size(); i++) {
+      Assert.assertEquals(ids.get(i).longValue(), i + 1L);
+    }
+    assertOnce(readAll(new JdbcKeysetPaginator(Lists.newArrayList("id"), 25)));
+    assertOnce(readAll(new JdbcKeysetPaginator(Lists.newArrayList("id"), 2000)));
+  }
+
+  /**
+   * Test reading a composite key, which is unique but not unique in its first column
+   */
+  @Test
+  public void testCompositeKey() throws Exception {
+    assertOnce(readAll(new JdbcKeysetPaginator(Lists.newArrayList("region", "seq"), 64)));
+    assertOnce(readAll(new JdbcKeysetPaginator(Lists.newArrayList("REGION", "SEQ"), 7)));
+  }
+
+  /**
+   * Test reading a key that is not unique, with duplicates across page boundaries,
+   * and a key that has more rows than a page
+   */
+  @Test
+  public void testDuplicateKey() throws Exception {
+    for (int pageSize : new int[]{7, 10, 24, 25, 26, 100}) {
+      assertOnce(readAll(new JdbcKeysetPaginator(Lists.newArrayList("customer"), pageSize)));
+    }
+
+    // every row of a customer is in the same page
+    JdbcKeysetPaginator paginator = new JdbcKeysetPaginator(Lists.newArrayList("customer"), 10);
+    List<Integer> previous = new ArrayList<>();
+    while (!paginator.isExhausted()) {
+      List<Integer> customers = new ArrayList<>();
+      paginator.readPage(connection, "SELECT id, customer FROM orders", NO_PARAMETERS,
+          row -> customers.add(Integer.valueOf(row[1])));
+      if (!previous.isEmpty() && !customers.isEmpty()) {
+        Assert.assertTrue(customers.get(0) > previous.get(previous.size() - 1));
+      }
+      previous = customers.isEmpty() ? previous : customers;
+    }
+  }
+
+  /**
+   * Test that the pages after the first page execute the same cached statement again
+   */
+  @Test
+  public void testStatementReuse() throws Exception {
+    JdbcKeysetPaginator paginator = new JdbcKeysetPaginator(Lists.newArrayList("id"), 100);
+    List<Long> ids = new ArrayList<>();
+    try (JdbcStatementCache statements = new JdbcStatementCache(connection)) {
+      while (!paginator.isExhausted()) {
+        paginator.readPage(statements, "SELECT * FROM orders", NO_PARAMETERS, row -> ids.add(Long.valueOf(row[0])));
+      }
+      Assert.assertEquals(statements.getPrepared(), 2L);
+    }
+    assertOnce(ids);
+  }
+
+  /**
+   * Test that a key column must be in the result of the statement
+   */
+  @Test
+  public void testMissingKey() {
+    JdbcKeysetPaginator paginator = new JdbcKeysetPaginator(Lists.newArrayList("missing"), 10);
+    Assert.assertThrows(SQLException.class,
+        () -> paginator.readPage(connection, "SELECT id FROM orders", NO_PARAMETERS, row -> { }));
+  }
+
+  private List<Long> readAll(JdbcKeysetPaginator paginator) throws Exception {
+    List<Long> ids = new ArrayList<>();
+    int pages = 0;
+    while (!paginator.isExhausted()) {
+      paginator.readPage(connection, "SELECT * FROM orders;", NO_PARAMETERS, row -> ids.add(Long.valueOf(row[0])));
+      Assert.assertTrue(++pages <= 1025);
+    }
+    Assert.assertEquals(paginator.readPage(connection, "SELECT * FROM orders", NO_PARAMETERS, row -> ids.add(0L)),
+        0);
+    return ids;
+  }
+
+  private static void assertOnce(List<Long> ids) {
+    List<Long> sorted = new ArrayList<>(ids);
+    Collections.sort(sorted);
+    Assert.assertEquals(sorted.size(), 1025);
+    for (int i = 0; i < sorted.size(); i++) {
+      Assert.assertEquals(sorted.get(i).longValue(), i + 1L);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.linkedin.cdi.util.JdbcUtils;
+import com.opencsv.CSVWriter;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Random;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JdbcLobHandlerTest {
+  private static final String URL = "jdbc:h2:mem:jdbcLobHandlerTest";
+  private static final String QUERY = "SELECT id, data, content FROM documents ORDER BY id";
+  private static final int BUFFER_SIZE = 1024;
+  // sizes around the buffer size and the Base64 block size, and a value much larger than the buffer
+  private static final int[] SIZES = {0, 1, 2, 3, 4, BUFFER_SIZE - 1, BUFFER_SIZE, BUFFER_SIZE + 1, 3 * BUFFER_SIZE,
+      3 * 1024 * 1024};
+  private Connection connection;
+  private byte[][] data;
+  private String[] content;
+  private File directory;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection(URL);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE documents (id INT, data BLOB, content CLOB)");
+    }
+    Random random = new Random(1);
+    data = new byte[SIZES.length][];
+    content = new String[SIZES.length];
+    try (PreparedStatement statement = connection.prepareStatement("INSERT INTO documents VALUES (?, ?, ?)")) {
+      for (int i = 0; i < SIZES.length; i++) {
+        data[i] = new byte[SIZES[i]];
+        random.nextBytes(data[i]);
+        // the text has quotes, escapes, separators, line breaks, and characters of more than one byte
+        content[i] = StringUtils.left(StringUtils.repeat("a\"b\\c,d\ne\u00e9f\u4e2d", SIZES[i] / 10 + 1), SIZES[i]);
+        statement.setInt(1, i);
+        statement.setBytes(2, data[i]);
+        statement.setString(3, content[i]);
+        statement.executeUpdate();
+      }
+      statement.setInt(1, SIZES.length);
+      statement.setNull(2, java.sql.Types.BLOB);
+      statement.setNull(3, java.sql.Types.CLOB);
+      statement.executeUpdate();
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  @AfterMethod
+  public void deleteDirectory() throws Exception {
+    if (directory != null) {
+      FileUtils.deleteDirectory(directory);
+      directory = null;
+    }
+  }
+
+  /**
+   * Test that LOB values read through the buffer are the Base64 text of BLOB values and the text of CLOB values
+   */
+  @Test
+  public void testInline() throws Exception {
+    try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(QUERY)) {
+      int[] columnTypes = JdbcUtils.getColumnTypes(resultSet.getMetaData());
+      Assert.assertTrue(JdbcLobHandler.hasLobs(columnTypes));
+      Assert.assertFalse(JdbcLobHandler.hasLobs(new int[]{java.sql.Types.INTEGER, java.sql.Types.VARCHAR}));
+      JdbcLobHandler handler = new JdbcLobHandler(columnTypes, BUFFER_SIZE);
+      JdbcUtils.ColumnConverter[] converters = handler.getColumnConverters();
+      for (int i = 0; i < SIZES.length; i++) {
+        Assert.assertTrue(resultSet.next());
+        String[] row = JdbcUtils.parseRowAsStrings(resultSet, converters);
+        Assert.assertEquals(row[0], String.valueOf(i));
+        Assert.assertEquals(row[1], Base64.encodeBase64String(data[i]), "size " + SIZES[i]);
+        Assert.assertEquals(row[2], content[i], "size " + SIZES[i]);
+      }
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(JdbcUtils.parseRowAsStrings(resultSet, converters), new String[]{"10", null, null});
+    }
+  }
+
+  /**
+   * Test that CSV lines with streamed LOB values are the lines of CSVWriter with the values read into strings
+   */
+  @Test
+  public void testCsvRow() throws Exception {
+    for (char escape : new char[]{'\\', '"', '\u0000'}) {
+      try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(QUERY)) {
+        int[] columnTypes = JdbcUtils.getColumnTypes(resultSet.getMetaData());
+        JdbcLobHandler handler = new JdbcLobHandler(columnTypes, BUFFER_SIZE);
+        JdbcUtils.ColumnConverter[] converters = handler.getColumnConverters();
+        for (int i = 0; i <= SIZES.length; i++) {
+          Assert.assertTrue(resultSet.next());
+          StringWriter streamed = new StringWriter();
+          handler.writeCsvRow(resultSet, converters, streamed, ',', '"', escape);
+
+          StringWriter expected = new StringWriter();
+          CSVWriter csvWriter = new CSVWriter(expected, ',', '"', escape);
+          csvWriter.writeNext(i < SIZES.length
+              ? new String[]{String.valueOf(i), Base64.encodeBase64String(data[i]), content[i]}
+              : new String[]{String.valueOf(i), null, null});
+          csvWriter.flush();
+          Assert.assertEquals(streamed.toString(), expected.toString(), "row " + i + " escape " + (int) escape);
+        }
+      }
+    }
+    Assert.assertFalse(JdbcLobHandler.canStreamCsv('\u0000'));
+  }
+
+  /**
+   * Test that LOB values are written to side files, and the columns have the paths of the files
+   */
+  @Test
+  public void testFiles() throws Exception {
+    directory = Files.createTempDirectory("jdbc-lob").toFile();
+    try (Statement statement = connection.createStatement(); ResultSet resultSet = statement.executeQuery(QUERY)) {
+      int[] columnTypes = JdbcUtils.getColumnTypes(resultSet.getMetaData());
+      JdbcLobHandler handler = new JdbcLobHandler(columnTypes, BUFFER_SIZE,
+          new File(directory, "lobs").getAbsolutePath(), "statement");
+      Assert.assertTrue(handler.isFileMode());
+      JdbcUtils.ColumnConverter[] converters = handler.getColumnConverters();
+      for (int i = 0; i < SIZES.length; i++) {
+        Assert.assertTrue(resultSet.next());
+        String[] row = JdbcUtils.parseRowAsStrings(resultSet, converters);
+        Assert.assertTrue(row[1].endsWith(".bin"), row[1]);
+        Assert.assertTrue(row[2].endsWith(".txt"), row[2]);
+        Assert.assertTrue(Arrays.equals(Files.readAllBytes(Paths.get(row[1].replaceFirst("^file:", ""))), data[i]));
+        Assert.assertEquals(new String(Files.readAllBytes(Paths.get(row[2].replaceFirst("^file:", ""))),
+            StandardCharsets.UTF_8), content[i]);
+      }
+      Assert.assertTrue(resultSet.next());
+      Assert.assertEquals(JdbcUtils.parseRowAsStrings(resultSet, converters), new String[]{"10", null, null});
+      Assert.assertEquals(handler.getFiles(), 2 * SIZES.length);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.gson.JsonPrimitive;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JdbcPartitionReaderTest {
+  private static final String URL = "jdbc:h2:mem:jdbcPartitionReaderTest";
+  private static final List<Object> NO_PARAMETERS = Collections.emptyList();
+  private Connection connection;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection(URL);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE events (id BIGINT, created TIMESTAMP)");
+      statement.execute("INSERT INTO events SELECT x, DATEADD('MINUTE', x, TIMESTAMP '2021-01-01 00:00:00') "
+          + "FROM SYSTEM_RANGE(1, 10000)");
+      statement.execute("INSERT INTO events VALUES (NULL, NULL)");
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  /**
+   * Test splitting numeric and timestamp ranges
+   */
+  @Test
+  public void testSplit() {
+    Assert.assertEquals(JdbcPartitionReader.split(1L, 100L, 4),
+        toList(new BigDecimal(26), new BigDecimal(51), new BigDecimal(76)));
+    Assert.assertEquals(JdbcPartitionReader.split(0.0, 1.0, 2).size(), 1);
+    Assert.assertEquals(((BigDecimal) JdbcPartitionReader.split(0.0, 1.0, 2).get(0)).doubleValue(), 0.5);
+
+    // a narrow range has fewer sub-ranges than requested
+    Assert.assertEquals(JdbcPartitionReader.split(1, 3, 8), toList(new BigDecimal(2), new BigDecimal(3)));
+    Assert.assertEquals(JdbcPartitionReader.split(5, 5, 8), Collections.emptyList());
+    Assert.assertEquals(JdbcPartitionReader.split(null, null, 8), Collections.emptyList());
+
+    List<Object> timestamps = JdbcPartitionReader.split(
+        Timestamp.valueOf("2021-01-01 00:00:00"), Timestamp.valueOf("2021-01-03 00:00:00"), 2);
+    Assert.assertEquals(timestamps, toList(Timestamp.valueOf("2021-01-02 00:00:00")));
+
+    Assert.assertEquals(JdbcPartitionReader.parseBound(new JsonPrimitive(10)), new BigDecimal(10));
+    Assert.assertEquals(JdbcPartitionReader.parseBound(new JsonPrimitive("2021-01-01 00:00:00")),
+        Timestamp.valueOf("2021-01-01 00:00:00"));
+  }
+
+  /**
+   * Test that sub-ranges read every row once, including rows outside the bounds and NULL values
+   */
+  @Test
+  public void testCompleteness() throws Exception {
+    String query = "SELECT id, created FROM events;";
+    Object[] bounds = JdbcPartitionReader.queryBounds(connection, query, NO_PARAMETERS, "id");
+    Assert.assertEquals(((Number) bounds[0]).longValue(), 1L);
+    Assert.assertEquals(((Number) bounds[1]).longValue(), 10000L);
+    assertComplete(new JdbcPartitionReader(query, NO_PARAMETERS, "id",
+        JdbcPartitionReader.split(bounds[0], bounds[1], 8), 100), 8);
+
+    // bounds that don't cover all values
+    assertComplete(new JdbcPartitionReader(query, NO_PARAMETERS, "id", JdbcPartitionReader.split(2000, 3000, 4), 0), 4);
+
+    // timestamp bounds
+    bounds = JdbcPartitionReader.queryBounds(connection, query, NO_PARAMETERS, "created");
+    assertComplete(new JdbcPartitionReader(query, NO_PARAMETERS, "created",
+        JdbcPartitionReader.split(bounds[0], bounds[1], 5), 0), 5);
+
+    // no boundaries
+    assertComplete(new JdbcPartitionReader(query, NO_PARAMETERS, "id", Collections.emptyList(), 0), 1);
+  }
+
+  /**
+   * Test that a failure of a sub-range fails the read, and closes all connections
+   */
+  @Test
+  public void testFailure() {
+    JdbcPartitionReader reader = new JdbcPartitionReader("SELECT id FROM events", NO_PARAMETERS, "id",
+        JdbcPartitionReader.split(1, 10000, 4), 0);
+    AtomicInteger connections = new AtomicInteger();
+    List<Connection> opened = Collections.synchronizedList(new ArrayList<>());
+    Assert.assertThrows(SQLException.class, () -> reader.read(() -> {
+      if (connections.incrementAndGet() == 3) {
+        throw new SQLException("Connection refused");
+      }
+      Connection conn = DriverManager.getConnection(URL);
+      opened.add(conn);
+      return conn;
+    }, row -> { }));
+
+    // a failure of the consumer cancels the reading
+    Assert.assertThrows(IllegalStateException.class, () -> reader.read(() -> {
+      Connection conn = DriverManager.getConnection(URL);
+      opened.add(conn);
+      return conn;
+    }, row -> {
+      throw new IllegalStateException();
+    }));
+    long deadline = System.currentTimeMillis() + 10000;
+    while (opened.stream().anyMatch(this::isOpen) && System.currentTimeMillis() < deadline) {
+      Thread.yield();
+    }
+    Assert.assertFalse(opened.stream().anyMatch(this::isOpen));
+  }
+
+  private void assertComplete(JdbcPartitionReader reader, int partitions) throws Exception {
+    Assert.assertEquals(reader.getPartitions(), partitions);
+    List<String> ids = Collections.synchronizedList(new ArrayList<>());
+    AtomicInteger connections = new AtomicInteger();
+    reader.read(() -> {
+      connections.incrementAndGet();
+      return DriverManager.getConnection(URL);
+    }, row -> ids.add(row[0]));
+    Assert.assertEquals(connections.get(), partitions);
+    Assert.assertEquals(ids.size(), 10001);
+    Assert.assertEquals(ids.stream().filter(id -> id == null).count(), 1);
+    Assert.assertEquals(ids.stream().filter(id -> id != null).distinct().count(), 10000);
+  }
+
+  private boolean isOpen(Connection conn) {
+    try {
+      return !conn.isClosed();
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  private static List<Object> toList(Object... values) {
+    List<Object> list = new ArrayList<>();
+    Collections.addAll(list, values);
+    return list;
+  }
+}
@@ -0,0 +1,74 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.Lists;
+import com.google.gson.JsonArray;
+import java.sql.Types;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JdbcSchemaCacheTest {
+
+  /**
+   * Test that keys ignore whitespace and trailing semicolons, but not the URL or the settings
+   */
+  @Test
+  public void testKey() {
+    String key = JdbcSchemaCache.getKey("SELECT id,\n  name FROM users WHERE id > ?", "jdbc:h2:mem:a", "none");
+    Assert.assertEquals(JdbcSchemaCache.getKey(" SELECT id, name  FROM users\tWHERE id > ?;", "jdbc:h2:mem:a", "none"),
+        key);
+    Assert.assertNotEquals(JdbcSchemaCache.getKey("SELECT id, name FROM users WHERE id > ?", "jdbc:h2:mem:b", "none"),
+        key);
+    Assert.assertNotEquals(JdbcSchemaCache.getKey("SELECT id, name FROM users WHERE id > ?", "jdbc:h2:mem:a", "toupper"),
+        key);
+    Assert.assertNotEquals(JdbcSchemaCache.getKey("SELECT id, name FROM users WHERE id > 1", "jdbc:h2:mem:a", "none"),
+        key);
+
+    // whitespace in string literals and quoted identifiers is kept
+    String literal = JdbcSchemaCache.getKey("SELECT 'a  b', \"x  y\" FROM t  WHERE s = 'it''s  ok'", "jdbc:h2:mem:a");
+    Assert.assertEquals(literal, "jdbc:h2:mem:a\nSELECT 'a  b', \"x  y\" FROM t WHERE s = 'it''s  ok'");
+    Assert.assertNotEquals(JdbcSchemaCache.getKey("SELECT 'a b', \"x  y\" FROM t WHERE s = 'it''s  ok'", "jdbc:h2:mem:a"),
+        literal);
+    Assert.assertNotEquals(JdbcSchemaCache.getKey("SELECT 'a  b', \"x y\" FROM t WHERE s = 'it''s  ok'", "jdbc:h2:mem:a"),
+        literal);
+  }
+
+  /**
+   * Test that entries expire after the time to live, and that they can be invalidated
+   */
+  @Test
+  public void testExpiry() {
+    AtomicLong clock = new AtomicLong(1000);
+    JdbcSchemaCache cache = new JdbcSchemaCache(clock::get);
+    JdbcSchemaCache.Entry entry = new JdbcSchemaCache.Entry(Lists.newArrayList("id", "content"),
+        new int[]{Types.BIGINT, Types.CLOB}, new boolean[]{false, true}, 4136, new JsonArray());
+    cache.put("a", entry);
+    cache.put("b", entry);
+    Assert.assertEquals(cache.size(), 2);
+
+    clock.addAndGet(59999);
+    Assert.assertSame(cache.get("a", 60000), entry);
+    // the time to live is decided by the reader
+    Assert.assertNull(cache.get("a", 30000));
+    Assert.assertNull(cache.get("a", 60000));
+
+    cache.put("a", entry);
+    clock.addAndGet(60000);
+    Assert.assertSame(cache.get("a", 60000), null);
+    Assert.assertNull(cache.get("b", 60000));
+    Assert.assertEquals(cache.size(), 0);
+
+    cache.put("a", entry);
+    cache.invalidate("a");
+    Assert.assertNull(cache.get("a", 60000));
+    cache.put("b", entry);
+    cache.clear();
+    Assert.assertNull(cache.get("b", 60000));
+  }
+}
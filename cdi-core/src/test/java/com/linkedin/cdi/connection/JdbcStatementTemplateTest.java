@@ -0,0 +1,145 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static com.linkedin.cdi.configuration.StaticConstants.*;
+
+
+@Test
+public class JdbcStatementTemplateTest {
+  private static final String URL = "jdbc:h2:mem:jdbcStatementTemplateTest";
+  private Connection connection;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection(URL);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE events (id BIGINT, amount DECIMAL(10, 2), name VARCHAR(32), "
+          + "created TIMESTAMP, active BOOLEAN)");
+      statement.execute("INSERT INTO events SELECT x, x / 4.0, 'event ' || x, "
+          + "DATEADD('HOUR', x, TIMESTAMP '2021-01-01 00:00:00'), MOD(x, 2) = 0 FROM SYSTEM_RANGE(1, 500)");
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    connection.close();
+  }
+
+  /**
+   * Test that variables become parameters, except those in quoted identifiers and comments
+   */
+  @Test
+  public void testParse() throws Exception {
+    JdbcStatementTemplate template = JdbcStatementTemplate.parse(
+        "SELECT * FROM \"{{table}}\" WHERE id > {{low}} AND name LIKE 'it''s {{name}}%' "
+            + "AND note = 'no {variables}' -- {{comment}}\n AND created < '{{high}}' /* {{block}} */");
+    Assert.assertEquals(template.getParameterCount(), 3);
+
+    JsonObject parameters = GSON.fromJson(
+        "{\"table\": \"events\", \"low\": \"10\", \"name\": \"x\", \"high\": \"2021-01-02\", \"comment\": \"c\"}",
+        JsonObject.class);
+    String sql = template.getSql(parameters);
+    Assert.assertEquals(sql, "SELECT * FROM \"events\" WHERE id > ? AND name LIKE ? "
+        + "AND note = 'no {variables}' -- c\n AND created < ? /* {{block}} */");
+    Assert.assertEquals(template.getValues(parameters), Arrays.asList(10L, "it's x%", "2021-01-02"));
+
+    // the text stays the same for different values, so the statement can be reused
+    parameters.addProperty("low", 20);
+    Assert.assertEquals(template.getSql(parameters), sql);
+    Assert.assertEquals(template.getValues(parameters).get(0), 20L);
+
+    // a variable without a value cannot be bound
+    parameters.remove("low");
+    Assert.assertThrows(SQLException.class, () -> template.getValues(parameters));
+  }
+
+  /**
+   * Test the types of bind values
+   */
+  @Test
+  public void testTyping() throws Exception {
+    JdbcStatementTemplate template = JdbcStatementTemplate.parse(
+        "SELECT {{a}}, {{b}}, {{c}}, {{d}}, {{e}}, {{f}}, {{g}}, '{{a}}'");
+    JsonObject parameters = GSON.fromJson(
+        "{\"a\": 42, \"b\": \"-7\", \"c\": 1.25, \"d\": \"0.5\", \"e\": true, \"f\": \"text\", \"g\": null}",
+        JsonObject.class);
+    List<Object> values = template.getValues(parameters);
+    Assert.assertEquals(values, Arrays.asList(42L, -7L, new BigDecimal("1.25"), new BigDecimal("0.5"), true,
+        "text", null, "42"));
+
+    // a number too large for a long is a decimal
+    parameters.addProperty("a", "123456789012345678901");
+    Assert.assertEquals(template.getValues(parameters).get(0), new BigDecimal("123456789012345678901"));
+  }
+
+  /**
+   * Test that the bound statement returns the same rows as the substituted statement
+   */
+  @Test
+  public void testEquivalence() throws Exception {
+    String statement = "SELECT id, amount, name FROM events WHERE id > {{low}} AND amount <= {{amount}} "
+        + "AND created >= '{{from}}' AND name <> '{{excluded}}' AND active = {{active}} ORDER BY id";
+    JdbcStatementTemplate template = JdbcStatementTemplate.parse(statement);
+    String[][] cases = {
+        {"10", "50.5", "2021-01-01 12:00:00", "event 20", "true"},
+        {"0", "125", "2021-01-10 00:00:00", "none", "false"},
+        {"490", "1000", "2020-01-01 00:00:00", "event 499", "true"}
+    };
+    try (PreparedStatement prepared = connection.prepareStatement(template.getSql(new JsonObject()))) {
+      for (String[] values : cases) {
+        JsonObject parameters = new JsonObject();
+        parameters.addProperty("low", values[0]);
+        parameters.addProperty("amount", values[1]);
+        parameters.addProperty("from", values[2]);
+        parameters.addProperty("excluded", values[3]);
+        parameters.addProperty("active", Boolean.valueOf(values[4]));
+
+        String substituted = statement;
+        for (Map.Entry<String, JsonElement> entry : parameters.entrySet()) {
+          substituted = substituted.replace("{{" + entry.getKey() + "}}", entry.getValue().getAsString());
+        }
+        List<String> expected;
+        try (Statement plain = connection.createStatement()) {
+          expected = read(plain.executeQuery(substituted));
+        }
+        Assert.assertFalse(expected.isEmpty());
+
+        Assert.assertEquals(JdbcStatementTemplate.bind(prepared, template.getValues(parameters), 1), 6);
+        Assert.assertEquals(read(prepared.executeQuery()), expected);
+      }
+    }
+  }
+
+  private static List<String> read(ResultSet resultSet) throws SQLException {
+    List<String> rows = new ArrayList<>();
+    try {
+      while (resultSet.next()) {
+        rows.add(resultSet.getLong(1) + "," + resultSet.getBigDecimal(2) + "," + resultSet.getString(3));
+      }
+    } finally {
+      resultSet.close();
+    }
+    return rows;
+  }
+}
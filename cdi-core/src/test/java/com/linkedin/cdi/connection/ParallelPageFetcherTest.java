@@ -0,0 +1,171 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.extractor.JsonExtractor;
+import com.linkedin.cdi.source.HttpSource;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.gobblin.configuration.SourceState;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.source.workunit.WorkUnit;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+
+
+@Test
+public class ParallelPageFetcherTest {
+  private static final int TOTAL = 95;
+  private static final Pattern OFFSET = Pattern.compile("offset=(\\d+)");
+  private static final Pattern LIMIT = Pattern.compile("limit=(\\d+)");
+  private HttpServer server;
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private final AtomicInteger requests = new AtomicInteger();
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    // a simulated API returning a page of records by offset and limit, along with
+    // the total count, where later pages respond faster than earlier pages
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newFixedThreadPool(16));
+    server.createContext("/items", exchange -> {
+      String query = exchange.getRequestURI().getQuery();
+      Matcher offsetMatcher = OFFSET.matcher(query);
+      Matcher limitMatcher = LIMIT.matcher(query);
+      int offset = offsetMatcher.find() ? Integer.parseInt(offsetMatcher.group(1)) : 0;
+      int limit = limitMatcher.find() ? Integer.parseInt(limitMatcher.group(1)) : TOTAL;
+      requests.incrementAndGet();
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(200 - offset);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        active.decrementAndGet();
+      }
+
+      JsonArray items = new JsonArray();
+      for (int i = offset; i < Math.min(offset + limit, TOTAL); i++) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", i);
+        items.add(item);
+      }
+      JsonObject page = new JsonObject();
+      page.addProperty("total", TOTAL);
+      page.add("items", items);
+      byte[] body = page.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @BeforeMethod
+  public void resetCounters() {
+    active.set(0);
+    maxActive.set(0);
+    requests.set(0);
+  }
+
+  /**
+   * Test that the remaining pages are requested concurrently, up to the parallelism,
+   * once the total count is known, and the records are returned in page order
+   */
+  @Test
+  public void testParallelPagination() {
+    SourceState sourceState = getSourceState();
+    sourceState.setProp(MSTAGE_PAGINATION_PARALLELISM.getConfig(), "4");
+
+    List<Integer> ids = extract(sourceState);
+    Assert.assertEquals(ids.size(), TOTAL);
+    for (int i = 0; i < TOTAL; i++) {
+      Assert.assertEquals(ids.get(i).intValue(), i);
+    }
+    Assert.assertEquals(requests.get(), 10);
+    Assert.assertTrue(maxActive.get() > 1, "max concurrent requests: " + maxActive.get());
+    Assert.assertTrue(maxActive.get() <= 4, "max concurrent requests: " + maxActive.get());
+  }
+
+  /**
+   * Test that pages are requested one after another by default
+   */
+  @Test
+  public void testSequentialPagination() {
+    List<Integer> ids = extract(getSourceState());
+    Assert.assertEquals(ids.size(), TOTAL);
+    Assert.assertEquals(ids.get(TOTAL - 1).intValue(), TOTAL - 1);
+    Assert.assertEquals(requests.get(), 10);
+    Assert.assertEquals(maxActive.get(), 1);
+  }
+
+  /**
+   * Test that pagination by page number, without a page size parameter, is sequential,
+   * because the number of remaining pages is unknown
+   */
+  @Test
+  public void testSequentialWithoutPageSize() {
+    SourceState sourceState = getSourceState();
+    sourceState.setProp(MSTAGE_PAGINATION_PARALLELISM.getConfig(), "4");
+    sourceState.setProp(MSTAGE_SOURCE_URI.getConfig(),
+        "http://localhost:" + server.getAddress().getPort() + "/items?limit=10&offset={{pageNo}}0");
+    sourceState.setProp(MSTAGE_PARAMETERS.getConfig(), "[{\"name\": \"pageNo\", \"type\": \"pageno\"}]");
+    sourceState.setProp(MSTAGE_PAGINATION.getConfig(), "{\"initialvalues\": [0, 0, 0]}");
+
+    List<Integer> ids = extract(sourceState);
+    Assert.assertEquals(ids.size(), TOTAL);
+    Assert.assertEquals(maxActive.get(), 1);
+  }
+
+  private SourceState getSourceState() {
+    SourceState sourceState = new SourceState();
+    sourceState.setProp("extract.table.name", "items");
+    sourceState.setProp(MSTAGE_EXTRACTOR_CLASS.getConfig(), JsonExtractor.class.getName());
+    sourceState.setProp(MSTAGE_SOURCE_URI.getConfig(), "http://localhost:" + server.getAddress().getPort() + "/items");
+    sourceState.setProp(MSTAGE_HTTP_REQUEST_METHOD.getConfig(), "GET");
+    sourceState.setProp(MSTAGE_PARAMETERS.getConfig(),
+        "[{\"name\": \"offset\", \"type\": \"pagestart\"}, {\"name\": \"limit\", \"type\": \"pagesize\"}]");
+    sourceState.setProp(MSTAGE_PAGINATION.getConfig(), "{\"initialvalues\": [0, 10]}");
+    sourceState.setProp(MSTAGE_TOTAL_COUNT_FIELD.getConfig(), "total");
+    sourceState.setProp(MSTAGE_DATA_FIELD.getConfig(), "items");
+    return sourceState;
+  }
+
+  private List<Integer> extract(SourceState sourceState) {
+    HttpSource source = new HttpSource();
+    List<WorkUnit> workUnits = source.getWorkunits(sourceState);
+    WorkUnitState state = new WorkUnitState(workUnits.get(0), sourceState);
+    JsonExtractor extractor = (JsonExtractor) (Object) source.getExtractor(state);
+    List<Integer> ids = new ArrayList<>();
+    for (JsonObject record = extractor.readRecord(null); record != null; record = extractor.readRecord(null)) {
+      ids.add(record.get("id").getAsInt());
+    }
+    extractor.close();
+    return ids;
+  }
+}
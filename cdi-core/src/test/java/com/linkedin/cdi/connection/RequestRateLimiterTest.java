@@ -0,0 +1,207 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.connection;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HttpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.commons.io.IOUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+@Test
+public class RequestRateLimiterTest {
+  private HttpServer server;
+  private final List<Long> requestTimes = Collections.synchronizedList(new ArrayList<>());
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newFixedThreadPool(8));
+    server.createContext("/", exchange -> {
+      requestTimes.add(System.nanoTime());
+      byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  /**
+   * Test that tokens reserved concurrently are due at the limit rate, one after another
+   */
+  @Test
+  public void testRateUnderConcurrency() throws Exception {
+    AtomicLong clock = new AtomicLong();
+    RequestRateLimiter limiter = new RequestRateLimiter("rate", 50, 1, 0, clock::get);
+    int threads = 8;
+    int requestsPerThread = 10;
+    List<Long> waits = Collections.synchronizedList(new ArrayList<>());
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      futures.add(executor.submit(() -> {
+        for (int j = 0; j < requestsPerThread; j++) {
+          waits.add(limiter.reserveToken());
+        }
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    // the first token is available right away, the others are due 20 ms apart
+    List<Long> sorted = new ArrayList<>(waits);
+    Collections.sort(sorted);
+    Assert.assertEquals(sorted.size(), threads * requestsPerThread);
+    for (int i = 0; i < sorted.size(); i++) {
+      Assert.assertEquals(sorted.get(i), TimeUnit.MILLISECONDS.toNanos(20 * i), 1000.0);
+    }
+
+    // the time passed pays for reserved tokens
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    Assert.assertEquals(limiter.reserveToken(), TimeUnit.MILLISECONDS.toNanos(20 * 80 - 1000), 1000.0);
+  }
+
+  /**
+   * Test that idle time accumulates tokens up to the burst size
+   */
+  @Test
+  public void testBurst() throws Exception {
+    AtomicLong clock = new AtomicLong();
+    RequestRateLimiter limiter = new RequestRateLimiter("burst", 10, 5, 0, clock::get);
+    for (int i = 0; i < 5; i++) {
+      Assert.assertTrue(limiter.tryAcquireToken());
+    }
+    Assert.assertFalse(limiter.tryAcquireToken());
+
+    // 600 ms add 6 tokens, of which 5 are kept
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+    for (int i = 0; i < 5; i++) {
+      Assert.assertEquals(limiter.reserveToken(), 0L);
+    }
+    Assert.assertEquals(limiter.reserveToken(), TimeUnit.MILLISECONDS.toNanos(100), 1000.0);
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+    Assert.assertFalse(limiter.tryAcquireToken());
+
+    // a token that is not yet due is waited for
+    long start = System.nanoTime();
+    limiter.acquireToken();
+    Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+  }
+
+  /**
+   * Test that the number of concurrent permits is capped
+   */
+  @Test
+  public void testConcurrency() throws Exception {
+    RequestRateLimiter limiter = new RequestRateLimiter("concurrency", 0, 1, 3);
+    AtomicInteger active = new AtomicInteger();
+    AtomicInteger maxActive = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(10);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      futures.add(executor.submit(() -> {
+        limiter.acquirePermit();
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        Thread.sleep(50);
+        active.decrementAndGet();
+        limiter.releasePermit();
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+    Assert.assertEquals(maxActive.get(), 3);
+  }
+
+  /**
+   * Test that limiters are shared by name, and keyed by host and port
+   */
+  @Test
+  public void testSharedInstances() throws Exception {
+    Assert.assertSame(RequestRateLimiter.getInstance("shared", 10, 1, 0),
+        RequestRateLimiter.getInstance("shared", 20, 1, 0));
+    Assert.assertEquals(RequestRateLimiter.getInstance("shared", 20, 1, 0).getRequestsPerSecond(), 10.0);
+    Assert.assertEquals(RequestRateLimiter.getHostKey(new URI("https://API.example.com/v1/data?page=1")),
+        "api.example.com");
+    Assert.assertEquals(RequestRateLimiter.getHostKey(new URI("http://localhost:8080/data")), "localhost:8080");
+  }
+
+  /**
+   * Test that concurrent connections to the same host are paced by one shared limiter
+   */
+  @Test
+  public void testConnectionsSharingHost() throws Exception {
+    requestTimes.clear();
+    int threads = 4;
+    int requestsPerThread = 5;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      futures.add(executor.submit(() -> {
+        SourceState state = new SourceState();
+        state.setProp("ms.http.rate.limiter", "{\"requestsPerSecond\": 20, \"maxConcurrency\": 2}");
+        state.setProp("ms.call.interval.millis", 1000);
+        HttpKeys httpKeys = new HttpKeys();
+        httpKeys.setSourceUri("http://localhost:" + server.getAddress().getPort() + "/data");
+        httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+        httpKeys.setCallInterval(1000);
+        HttpConnection conn = new HttpConnection(state, httpKeys, new ExtractorKeys());
+        Assert.assertEquals(conn.getCallInterval(), 0L);
+        for (int j = 0; j < requestsPerThread; j++) {
+          WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+          Assert.assertEquals(IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8), "{}");
+          conn.closeStream();
+        }
+        conn.closeAll("");
+        return null;
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get(30, TimeUnit.SECONDS);
+    }
+    executor.shutdown();
+
+    Assert.assertEquals(requestTimes.size(), threads * requestsPerThread);
+    List<Long> times = new ArrayList<>(requestTimes);
+    Collections.sort(times);
+    // the server records requests after they are sent, so a late first request shortens the span
+    double seconds = (times.get(times.size() - 1) - times.get(0)) / 1e9;
+    Assert.assertTrue((times.size() - 1) / seconds <= 20 * 1.5, "achieved rate " + (times.size() - 1) / seconds);
+  }
+}
@@ -0,0 +1,309 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.extractor;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.source.HttpSource;
+import com.sun.net.httpserver.HttpServer;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.gobblin.configuration.SourceState;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.source.extractor.extract.LongWatermark;
+import org.apache.gobblin.source.workunit.WorkUnit;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static com.linkedin.cdi.configuration.PropertyCollection.*;
+
+
+@Test
+public class BatchExtractorTest {
+  private static final String FAILING_ID = "13";
+  private HttpServer server;
+  private final AtomicInteger active = new AtomicInteger();
+  private final AtomicInteger maxActive = new AtomicInteger();
+  private final AtomicInteger requests = new AtomicInteger();
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    // a simulated API returning 2 records of an ID, or an error for the failing ID
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newFixedThreadPool(8));
+    server.createContext("/items", exchange -> {
+      String path = exchange.getRequestURI().getPath();
+      String id = path.substring(path.lastIndexOf('/') + 1);
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(200);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        active.decrementAndGet();
+      }
+
+      if (id.equals(FAILING_ID)) {
+        exchange.sendResponseHeaders(400, -1);
+        exchange.close();
+        return;
+      }
+      JsonArray items = new JsonArray();
+      for (int i = 0; i < 2; i++) {
+        JsonObject item = new JsonObject();
+        item.addProperty("id", Integer.parseInt(id));
+        item.addProperty("seq", i);
+        items.add(item);
+      }
+      byte[] body = items.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    // a simulated API returning 2 records of each ID in a list, or an error if the failing ID is in the list
+    server.createContext("/batch", exchange -> {
+      String[] ids = exchange.getRequestURI().getQuery().replace("ids=", "").split(",");
+      requests.incrementAndGet();
+      if (Arrays.asList(ids).contains(FAILING_ID)) {
+        exchange.sendResponseHeaders(400, -1);
+        exchange.close();
+        return;
+      }
+      JsonArray items = new JsonArray();
+      for (String id : ids) {
+        for (int i = 0; i < 2; i++) {
+          JsonObject item = new JsonObject();
+          item.addProperty("id", Integer.parseInt(id));
+          item.addProperty("seq", i);
+          items.add(item);
+        }
+      }
+      byte[] body = items.toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    });
+    server.start();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  @BeforeMethod
+  public void resetCounters() {
+    active.set(0);
+    maxActive.set(0);
+    requests.set(0);
+  }
+
+  /**
+   * Test that the units of a batch are extracted concurrently into the batch output, and the
+   * high watermark of each unit is recorded when the batch is successful
+   */
+  @Test
+  public void testBatchExtraction() {
+    SourceState sourceState = getSourceState("1,2,3,4,5,6");
+    HttpSource source = new HttpSource();
+    List<WorkUnit> workUnits = source.getWorkunits(sourceState);
+    Assert.assertEquals(workUnits.size(), 2);
+
+    WorkUnitState state = new WorkUnitState(workUnits.get(0), sourceState);
+    List<Integer> ids = extract(source, state);
+    Assert.assertEquals(ids.size(), 6);
+    Assert.assertEquals(ids.stream().distinct().sorted().toArray(), new Integer[]{1, 2, 3});
+    Assert.assertTrue(maxActive.get() > 1, "max concurrent requests: " + maxActive.get());
+
+    Assert.assertEquals(state.getWorkingState(), WorkUnitState.WorkingState.SUCCESSFUL);
+    long highWatermark = workUnits.get(0).getExpectedHighWatermark(LongWatermark.class).getValue();
+    JsonObject watermarks = MSTAGE_WORK_UNIT_BATCH_WATERMARKS.get(state);
+    Assert.assertEquals(watermarks.entrySet().size(), 3);
+    for (Map.Entry<String, JsonElement> entry : watermarks.entrySet()) {
+      Assert.assertEquals(entry.getValue().getAsLong(), highWatermark);
+    }
+  }
+
+  /**
+   * Test that a failed unit fails the batch, and the high watermarks of all units in
+   * the batch stay at their low watermarks
+   */
+  @Test
+  public void testBatchFailure() {
+    SourceState sourceState = getSourceState("1," + FAILING_ID);
+    HttpSource source = new HttpSource();
+    List<WorkUnit> workUnits = source.getWorkunits(sourceState);
+    Assert.assertEquals(workUnits.size(), 1);
+
+    WorkUnitState state = new WorkUnitState(workUnits.get(0), sourceState);
+    List<Integer> ids = extract(source, state);
+    Assert.assertEquals(ids.size(), 2);
+
+    Assert.assertEquals(state.getWorkingState(), WorkUnitState.WorkingState.FAILED);
+    JsonObject watermarks = MSTAGE_WORK_UNIT_BATCH_WATERMARKS.get(state);
+    Assert.assertEquals(watermarks.entrySet().size(), 2);
+    for (JsonElement unit : MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(0))) {
+      String signature = unit.getAsJsonObject().get("signature").getAsString();
+      Assert.assertEquals(watermarks.get(signature).getAsLong(),
+          unit.getAsJsonObject().get("lowWatermark").getAsLong());
+    }
+  }
+
+  /**
+   * Test that unit values are coalesced into requests of up to the request size, and the records
+   * are split back to units by the key field
+   */
+  @Test
+  public void testBatchRequests() {
+    SourceState sourceState = getBatchRequestSourceState("1,2,3,4,5,6,7", "{\"size\": 3, \"key\": \"id\"}");
+    HttpSource source = new HttpSource();
+    List<WorkUnit> workUnits = source.getWorkunits(sourceState);
+    Assert.assertEquals(workUnits.size(), 1);
+
+    WorkUnitState state = new WorkUnitState(workUnits.get(0), sourceState);
+    BatchExtractor<?, JsonObject> extractor = getExtractor(source, state);
+    List<Integer> ids = extract(extractor, state);
+    Assert.assertEquals(ids.size(), 14);
+    Assert.assertEquals(ids.stream().distinct().sorted().toArray(), new Integer[]{1, 2, 3, 4, 5, 6, 7});
+    Assert.assertEquals(requests.get(), 3);
+    Assert.assertEquals(state.getWorkingState(), WorkUnitState.WorkingState.SUCCESSFUL);
+    for (JsonElement unit : MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(0))) {
+      Assert.assertEquals(extractor.getUnitRecords(unit.getAsJsonObject().get("signature").getAsString()), 2);
+    }
+  }
+
+  /**
+   * Test that the request size decides the batch size when the batch size is not configured
+   */
+  @Test
+  public void testBatchRequestBoundaries() {
+    SourceState sourceState = getBatchRequestSourceState("1,2,3,4,5,6,7", "{\"size\": 3}");
+    sourceState.removeProp(MSTAGE_WORK_UNIT_BATCH_SIZE.getConfig());
+    List<WorkUnit> workUnits = new HttpSource().getWorkunits(sourceState);
+    Assert.assertEquals(workUnits.size(), 3);
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(0)).size(), 3);
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(2)).size(), 1);
+  }
+
+  /**
+   * Test that a failed request fails the batch without being retried in smaller requests,
+   * and the watermarks of all units stay
+   */
+  @Test
+  public void testBatchRequestPartialFailure() {
+    SourceState sourceState = getBatchRequestSourceState("1,2," + FAILING_ID + ",4", "{\"size\": 2, \"key\": \"id\"}");
+    HttpSource source = new HttpSource();
+    List<WorkUnit> workUnits = source.getWorkunits(sourceState);
+    WorkUnitState state = new WorkUnitState(workUnits.get(0), sourceState);
+    BatchExtractor<?, JsonObject> extractor = getExtractor(source, state);
+    List<Integer> ids = extract(extractor, state);
+
+    // [1, 2], [13, 4]
+    Assert.assertEquals(requests.get(), 2);
+    Assert.assertEquals(ids.stream().sorted().toArray(), new Integer[]{1, 1, 2, 2});
+    Assert.assertEquals(state.getWorkingState(), WorkUnitState.WorkingState.FAILED);
+    JsonObject watermarks = MSTAGE_WORK_UNIT_BATCH_WATERMARKS.get(state);
+    for (JsonElement unit : MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(0))) {
+      String signature = unit.getAsJsonObject().get("signature").getAsString();
+      Assert.assertEquals(watermarks.get(signature).getAsLong(),
+          unit.getAsJsonObject().get("lowWatermark").getAsLong());
+    }
+  }
+
+  /**
+   * Test that requests of coalesced unit values with URIs longer than the limit are not sent,
+   * and requests of a single unit value are not limited
+   */
+  @Test
+  public void testBatchRequestUriLength() {
+    String baseUri = "http://localhost:" + server.getAddress().getPort() + "/batch?ids=";
+    // 4 URL encoded IDs "1%2C2%2C3%2C4" fit in the limit, but 5 don't
+    int maxUriLength = baseUri.length() + 15;
+    SourceState sourceState = getBatchRequestSourceState("1,2,3,4,5,6,7,8",
+        "{\"size\": 4, \"maxUriLength\": " + maxUriLength + "}");
+    HttpSource source = new HttpSource();
+    List<WorkUnit> workUnits = source.getWorkunits(sourceState);
+    WorkUnitState state = new WorkUnitState(workUnits.get(0), sourceState);
+    List<Integer> ids = extract(getExtractor(source, state), state);
+    Assert.assertEquals(ids.size(), 16);
+    Assert.assertEquals(requests.get(), 2);
+    Assert.assertEquals(state.getWorkingState(), WorkUnitState.WorkingState.SUCCESSFUL);
+
+    // every URI is longer than the limit, [1, 2] is not sent, and [3] is sent
+    requests.set(0);
+    sourceState = getBatchRequestSourceState("1,2,3", "{\"size\": 2, \"maxUriLength\": " + baseUri.length() + "}");
+    workUnits = source.getWorkunits(sourceState);
+    state = new WorkUnitState(workUnits.get(0), sourceState);
+    BatchExtractor<?, JsonObject> extractor = getExtractor(source, state);
+    ids = extract(extractor, state);
+    Assert.assertEquals(ids.toArray(), new Integer[]{3, 3});
+    Assert.assertEquals(requests.get(), 1);
+    Assert.assertEquals(extractor.getRequests(), 2);
+    Assert.assertEquals(state.getWorkingState(), WorkUnitState.WorkingState.FAILED);
+  }
+
+  private SourceState getBatchRequestSourceState(String ids, String batchRequest) {
+    SourceState sourceState = getSourceState(ids);
+    sourceState.setProp(MSTAGE_SOURCE_URI.getConfig(),
+        "http://localhost:" + server.getAddress().getPort() + "/batch?ids={{id}}");
+    sourceState.setProp(MSTAGE_WORK_UNIT_BATCH_SIZE.getConfig(), "10");
+    sourceState.setProp(MSTAGE_WORK_UNIT_BATCH_REQUEST.getConfig(), batchRequest);
+    return sourceState;
+  }
+
+  private SourceState getSourceState(String ids) {
+    SourceState sourceState = new SourceState();
+    sourceState.setProp("extract.table.name", "items");
+    sourceState.setProp(MSTAGE_EXTRACTOR_CLASS.getConfig(), JsonExtractor.class.getName());
+    sourceState.setProp(MSTAGE_SOURCE_URI.getConfig(),
+        "http://localhost:" + server.getAddress().getPort() + "/items/{{id}}");
+    sourceState.setProp(MSTAGE_HTTP_REQUEST_METHOD.getConfig(), "GET");
+    sourceState.setProp(MSTAGE_WATERMARK.getConfig(),
+        "[{\"name\": \"id\", \"type\": \"unit\", \"units\": \"" + ids + "\"}]");
+    sourceState.setProp(MSTAGE_OUTPUT_SCHEMA.getConfig(),
+        "[{\"columnName\": \"id\", \"isNullable\": false, \"dataType\": {\"type\": \"int\"}},"
+            + "{\"columnName\": \"seq\", \"isNullable\": false, \"dataType\": {\"type\": \"int\"}}]");
+    sourceState.setProp(MSTAGE_WORK_UNIT_BATCH_SIZE.getConfig(), "3");
+    sourceState.setProp(MSTAGE_WORK_UNIT_BATCH_PARALLELISM.getConfig(), "3");
+    return sourceState;
+  }
+
+  private BatchExtractor<?, JsonObject> getExtractor(HttpSource source, WorkUnitState state) {
+    MultistageExtractor<?, ?> extractor = (MultistageExtractor<?, ?>) source.getExtractor(state);
+    Assert.assertTrue(extractor instanceof BatchExtractor);
+    return (BatchExtractor<?, JsonObject>) extractor;
+  }
+
+  private List<Integer> extract(HttpSource source, WorkUnitState state) {
+    return extract(getExtractor(source, state), state);
+  }
+
+  private List<Integer> extract(BatchExtractor<?, JsonObject> batchExtractor, WorkUnitState state) {
+    batchExtractor.getSchema();
+    List<Integer> ids = new ArrayList<>();
+    for (JsonObject record = batchExtractor.readRecord(null); record != null; record = batchExtractor.readRecord(null)) {
+      ids.add(record.get("id").getAsInt());
+    }
+    // the task marks the work unit successful after extraction, before closing the extractor
+    state.setWorkingState(WorkUnitState.WorkingState.SUCCESSFUL);
+    batchExtractor.close();
+    return ids;
+  }
+}
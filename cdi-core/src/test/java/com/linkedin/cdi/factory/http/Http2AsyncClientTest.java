@@ -0,0 +1,221 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.http;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.connection.HttpConnection;
+import com.linkedin.cdi.factory.Http2ConnectionClientFactory;
+import com.linkedin.cdi.keys.ExtractorKeys;
+import com.linkedin.cdi.keys.HttpKeys;
+import com.linkedin.cdi.util.WorkUnitStatus;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.gobblin.configuration.SourceState;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.StringAsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class Http2AsyncClientTest {
+  private static final int DELAY_MILLIS = 300;
+  private static final byte[] LARGE_CONTENT = new byte[4 * 1024 * 1024];
+  private final Set<SocketAddress> connections = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+  private HttpAsyncServer server;
+  private String baseUri;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    new Random(1).nextBytes(LARGE_CONTENT);
+    server = H2ServerBootstrap.bootstrap()
+        .setVersionPolicy(HttpVersionPolicy.FORCE_HTTP_2)
+        .register("*", new AsyncServerRequestHandler<Message<HttpRequest, String>>() {
+          @Override
+          public AsyncRequestConsumer<Message<HttpRequest, String>> prepare(HttpRequest request,
+              EntityDetails entityDetails, HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new StringAsyncEntityConsumer());
+          }
+
+          @Override
+          public void handle(Message<HttpRequest, String> message, ResponseTrigger responseTrigger,
+              HttpContext context) {
+            connections.add(HttpCoreContext.adapt(context).getEndpointDetails().getRemoteAddress());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            String path = message.getHead().getPath();
+            // hold the response for a while so that concurrent requests overlap
+            scheduler.schedule(() -> {
+              inFlight.decrementAndGet();
+              try {
+                responseTrigger.submitResponse(AsyncResponseBuilder.create(200)
+                    .setEntity(path.startsWith("/large")
+                        ? AsyncEntityProducers.create(LARGE_CONTENT, ContentType.APPLICATION_OCTET_STREAM)
+                        : AsyncEntityProducers.create(path + (message.getBody() == null ? "" : " " + message.getBody()),
+                            ContentType.APPLICATION_JSON))
+                    .build(), context);
+              } catch (Exception e) {
+                throw new RuntimeException(e);
+              }
+            }, DELAY_MILLIS, TimeUnit.MILLISECONDS);
+          }
+        })
+        .create();
+    server.start();
+    InetSocketAddress address = (InetSocketAddress) server.listen(new InetSocketAddress("localhost", 0))
+        .get().getAddress();
+    baseUri = "http://localhost:" + address.getPort();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    server.close(CloseMode.IMMEDIATE);
+    scheduler.shutdownNow();
+  }
+
+  @BeforeMethod
+  public void reset() {
+    maxInFlight.set(0);
+    connections.clear();
+  }
+
+  /**
+   * Test that concurrent requests from several connections are multiplexed as streams
+   * over one HTTP/2 connection
+   */
+  @Test
+  public void testMultiplexing() throws Exception {
+    int concurrency = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < concurrency; i++) {
+      int page = i;
+      results.add(executor.submit(() -> fetch(page)));
+    }
+    for (int i = 0; i < concurrency; i++) {
+      Assert.assertEquals(results.get(i).get(30, TimeUnit.SECONDS), "/data?page=" + i);
+    }
+    executor.shutdown();
+    Assert.assertEquals(maxInFlight.get(), concurrency);
+    Assert.assertEquals(connections.size(), 1);
+  }
+
+  /**
+   * Test that a large response is streamed intact through the flow controlled buffer
+   */
+  @Test
+  public void testLargeResponse() throws Exception {
+    Http2AsyncClient client = new Http2AsyncClient(10000, 10000);
+    try (CloseableHttpResponse response = client.execute(new HttpGet(baseUri + "/large"))) {
+      Assert.assertEquals(response.getStatusLine().getStatusCode(), 200);
+      Assert.assertEquals(response.getStatusLine().getProtocolVersion().getMajor(), 2);
+      Assert.assertEquals(response.getEntity().getContentType().getValue(), "application/octet-stream");
+      Assert.assertEquals(IOUtils.toByteArray(response.getEntity().getContent()), LARGE_CONTENT);
+    }
+  }
+
+  /**
+   * Test that closing a response before reading its content cancels the stream
+   */
+  @Test
+  public void testCloseUnreadResponse() throws Exception {
+    Http2AsyncClient client = new Http2AsyncClient(10000, 10000);
+    CloseableHttpResponse response = client.execute(new HttpGet(baseUri + "/large"));
+    Assert.assertEquals(response.getEntity().getContent().read(), LARGE_CONTENT[0] & 0xff);
+    response.close();
+    try (CloseableHttpResponse next = client.execute(new HttpGet(baseUri + "/data"))) {
+      Assert.assertEquals(IOUtils.toString(next.getEntity().getContent(), StandardCharsets.UTF_8), "/data");
+    }
+  }
+
+  /**
+   * Test that request payloads are sent
+   */
+  @Test
+  public void testPost() throws IOException {
+    Http2AsyncClient client = new Http2AsyncClient(10000, 10000);
+    HttpPost post = new HttpPost(baseUri + "/post");
+    post.setEntity(new StringEntity("{\"id\": 1}", org.apache.http.entity.ContentType.APPLICATION_JSON));
+    try (CloseableHttpResponse response = client.execute(post)) {
+      Assert.assertEquals(IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8),
+          "/post {\"id\": 1}");
+    }
+  }
+
+  /**
+   * Test that the key store of ms.ssl is loaded into the client, rather than ignored
+   */
+  @Test
+  public void testSslSettings() {
+    SourceState state = new SourceState();
+    state.setProp("ms.ssl", "{\"keyStorePath\": \"/no/such/keystore.p12\", \"keyStorePassword\": \"secret\"}");
+    HttpRequestClient client = new Http2ConnectionClientFactory().getHttpRequestClient(state);
+    Assert.assertTrue(client instanceof Http2AsyncClient);
+    RuntimeException e = Assert.expectThrows(RuntimeException.class,
+        () -> client.execute(new HttpGet(baseUri + "/data"), null));
+    Assert.assertTrue(ExceptionUtils.getRootCause(e) instanceof FileNotFoundException, e.toString());
+  }
+
+  private String fetch(int page) throws Exception {
+    SourceState state = new SourceState();
+    state.setProp("ms.connection.client.factory", "com.linkedin.cdi.factory.Http2ConnectionClientFactory");
+    HttpKeys httpKeys = new HttpKeys();
+    httpKeys.setSourceUri(baseUri + "/data");
+    httpKeys.setHttpStatuses(ImmutableMap.of("success", Lists.newArrayList(200)));
+    ExtractorKeys extractorKeys = new ExtractorKeys();
+    JsonObject parameters = new JsonObject();
+    parameters.addProperty("page", page);
+    extractorKeys.setDynamicParameters(parameters);
+    HttpConnection conn = new HttpConnection(state, httpKeys, extractorKeys);
+    Assert.assertTrue(conn.getHttpRequestClient() instanceof Http2AsyncClient);
+    Assert.assertNull(conn.getHttpClient());
+    WorkUnitStatus status = conn.execute(WorkUnitStatus.builder().build());
+    String content = IOUtils.toString(status.getBuffer(), StandardCharsets.UTF_8);
+    conn.closeStream();
+    conn.closeAll("");
+    return content;
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.http;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link RequestTemplate}
+ */
+@Test
+public class RequestTemplateTest {
+  private static final Gson GSON = new Gson();
+  private static final String URI_TEMPLATE = "https://domain/{{version}}/calls/{{id}}";
+
+  private static JsonObject toJson(String json) {
+    return GSON.fromJson(json, JsonObject.class);
+  }
+
+  private static String getEntity(HttpUriRequest request) throws IOException {
+    return EntityUtils.toString(((HttpEntityEnclosingRequest) request).getEntity());
+  }
+
+  @Test
+  public void testGet() throws IOException {
+    RequestTemplate template = RequestTemplate.compile(HttpRequestMethod.GET, URI_TEMPLATE, new HashMap<>());
+    JsonObject parameters = toJson("{\"version\": \"v2\", \"id\": \"a b\", \"limit\": 10, \"tmpCursor\": \"x\"}");
+    String before = parameters.toString();
+
+    HttpUriRequest request = template.getHttpRequest(parameters);
+    Assert.assertEquals(request.getMethod(), "GET");
+    Assert.assertEquals(request.getURI().toString(), "https://domain/v2/calls/a+b?limit=10");
+    Assert.assertEquals(parameters.toString(), before);
+
+    // the same template makes requests from different parameters
+    request = template.getHttpRequest(toJson("{\"version\": \"v3\", \"id\": \"1\"}"));
+    Assert.assertEquals(request.getURI().toString(), "https://domain/v3/calls/1");
+  }
+
+  @Test
+  public void testGetXeDoesNotEncodeVariables() throws IOException {
+    RequestTemplate template = RequestTemplate.compile(HttpRequestMethod.GET_XE,
+        "https://domain/calls?from={{from}}", new HashMap<>());
+    HttpUriRequest request = template.getHttpRequest(toJson("{\"from\": \"2019-10-25\"}"));
+    Assert.assertEquals(request.getURI().toString(), "https://domain/calls?from=2019-10-25");
+  }
+
+  @Test
+  public void testMissingVariables() throws IOException {
+    RequestTemplate template = RequestTemplate.compile(HttpRequestMethod.DELETE, URI_TEMPLATE,
+        ImmutableMap.of("X-Request", "{{requestId}}-{{sequence}}"));
+    HttpUriRequest request = template.getHttpRequest(toJson("{\"version\": \"v2\", \"id\": 1, \"requestId\": 7}"));
+    Assert.assertEquals(request.getURI().toString(), "https://domain/v2/calls/1");
+    Assert.assertEquals(request.getFirstHeader("X-Request").getValue(), "7-{{sequence}}");
+  }
+
+  @Test
+  public void testPostWithPayloads() throws IOException {
+    RequestTemplate template = RequestTemplate.compile(HttpRequestMethod.POST, URI_TEMPLATE,
+        ImmutableMap.of("Content-Type", "application/json"));
+    JsonObject parameters = toJson("{\"version\": \"v2\", \"id\": 1, \"name\": \"x\", \"payload\": {\"rows\": [1, 2]}}");
+    String before = parameters.toString();
+
+    HttpUriRequest request = template.getHttpRequest(parameters);
+    Assert.assertEquals(request.getURI().toString(), "https://domain/v2/calls/1");
+    Assert.assertEquals(toJson(getEntity(request)), toJson("{\"name\": \"x\", \"rows\": [1, 2]}"));
+    Assert.assertEquals(request.getFirstHeader("Content-Type").getValue(), "application/json");
+    Assert.assertEquals(parameters.toString(), before);
+
+    // payloads given separately
+    request = template.getHttpRequest(toJson("{\"version\": \"v2\", \"id\": 1}"), toJson("{\"rows\": [3]}"));
+    Assert.assertEquals(toJson(getEntity(request)), toJson("{\"rows\": [3]}"));
+  }
+
+  @Test
+  public void testPutUrlEncoded() throws IOException {
+    RequestTemplate template = RequestTemplate.compile(HttpRequestMethod.PUT, URI_TEMPLATE,
+        ImmutableMap.of("Content-Type", "application/x-www-form-urlencoded"));
+    HttpUriRequest request = template.getHttpRequest(toJson("{\"version\": \"v2\", \"id\": 1, \"name\": \"x y\"}"));
+    Assert.assertEquals(getEntity(request), "name=x+y");
+  }
+
+  /**
+   * Parameters used by headers are not used by the URI
+   */
+  @Test
+  public void testHeaderVariables() throws IOException {
+    Map<String, String> headers = ImmutableMap.of("Authorization", "Bearer {{token}}", "Accept", "application/json");
+    RequestTemplate template = RequestTemplate.compile(HttpRequestMethod.GET, "https://domain/calls", headers);
+
+    HttpUriRequest request = template.getHttpRequest(toJson("{\"token\": \"abc\", \"name\": \"x\"}"));
+    Assert.assertEquals(request.getFirstHeader("Authorization").getValue(), "Bearer abc");
+    Assert.assertEquals(request.getFirstHeader("Accept").getValue(), "application/json");
+    Assert.assertEquals(request.getURI().toString(), "https://domain/calls?name=x");
+
+    request = template.getHttpRequest(toJson("{\"name\": \"x\"}"));
+    Assert.assertEquals(request.getFirstHeader("Authorization").getValue(), "Bearer {{token}}");
+  }
+
+  @Test
+  public void testIsCompiledFrom() {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("Accept", "application/json");
+    RequestTemplate template = RequestTemplate.compile(HttpRequestMethod.GET, URI_TEMPLATE, headers);
+    Assert.assertTrue(template.isCompiledFrom(HttpRequestMethod.GET, URI_TEMPLATE, headers));
+    Assert.assertFalse(template.isCompiledFrom(HttpRequestMethod.POST, URI_TEMPLATE, headers));
+    Assert.assertFalse(template.isCompiledFrom(HttpRequestMethod.GET, "https://domain", headers));
+
+    // the template keeps its own copy of the headers
+    headers.put("Authorization", "Bearer abc");
+    Assert.assertFalse(template.isCompiledFrom(HttpRequestMethod.GET, URI_TEMPLATE, headers));
+  }
+}
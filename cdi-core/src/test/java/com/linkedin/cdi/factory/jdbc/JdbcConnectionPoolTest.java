@@ -0,0 +1,255 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.factory.jdbc;
+
+import com.linkedin.cdi.factory.DefaultConnectionClientFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.gobblin.configuration.SourceState;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class JdbcConnectionPoolTest {
+
+  /**
+   * Test that connections from the factory are reused after they are closed
+   */
+  @Test
+  public void testReuse() throws Exception {
+    String url = "jdbc:h2:mem:poolReuse;DB_CLOSE_DELAY=-1";
+    DefaultConnectionClientFactory factory = new DefaultConnectionClientFactory();
+    SourceState state = new SourceState();
+    state.setProp("ms.jdbc.connection.pool", "{\"maxSize\": 10}");
+    for (int i = 0; i < 10; i++) {
+      Connection connection = factory.getJdbcConnection(url, "sa", "", state);
+      Assert.assertEquals(countSessions(connection), 1);
+      connection.close();
+      Assert.assertTrue(connection.isClosed());
+      Assert.assertThrows(SQLException.class, connection::createStatement);
+    }
+    JdbcConnectionPool pool = JdbcConnectionPool.getInstance(url, "sa", 10, 60, 300, 5, 3600, 50);
+    Assert.assertEquals(pool.getCreated(), 1);
+    Assert.assertEquals(pool.getIdle(), 1);
+    Assert.assertEquals(pool.getBorrowed(), 0);
+
+    // work units with other settings have another pool
+    state.setProp("ms.jdbc.connection.pool", "{\"maxSize\": 2}");
+    Connection connection = factory.getJdbcConnection(url, "sa", "", state);
+    Assert.assertEquals(countSessions(connection), 2);
+    connection.close();
+    Assert.assertEquals(pool.getCreated(), 1);
+    Assert.assertEquals(JdbcConnectionPool.getInstance(url, "sa", 2, 60, 300, 5, 3600, 50).getCreated(), 1);
+
+    // pooling is disabled by default, or by a maximum size of 0
+    for (String value : new String[]{"", "{\"maxSize\": 0}"}) {
+      state.setProp("ms.jdbc.connection.pool", value);
+      connection = factory.getJdbcConnection(url, "sa", "", state);
+      Assert.assertEquals(countSessions(connection), 3);
+      connection.close();
+    }
+    Assert.assertEquals(pool.getCreated(), 1);
+  }
+
+  /**
+   * Test that the pool doesn't grow beyond the maximum size, and concurrent borrowers wait for connections
+   */
+  @Test
+  public void testMaxSize() throws Exception {
+    JdbcConnectionPool pool = new JdbcConnectionPool("jdbc:h2:mem:poolMaxSize;DB_CLOSE_DELAY=-1", "sa",
+        3, 10, 300, 5, 3600, 10);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<Integer>> futures = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      futures.add(executor.submit(() -> {
+        try (Connection connection = pool.getConnection("")) {
+          Thread.sleep(10);
+          return countSessions(connection);
+        }
+      }));
+    }
+    for (Future<Integer> future : futures) {
+      Assert.assertTrue(future.get(30, TimeUnit.SECONDS) <= 3);
+    }
+    executor.shutdown();
+    Assert.assertEquals(pool.getCreated(), 3);
+    Assert.assertEquals(pool.getSize(), 3);
+
+    // a borrower times out when all connections are in use
+    JdbcConnectionPool small = new JdbcConnectionPool("jdbc:h2:mem:poolMaxWait;DB_CLOSE_DELAY=-1", "sa",
+        1, 0, 300, 5, 3600, 10);
+    Connection connection = small.getConnection("");
+    Assert.assertThrows(SQLException.class, () -> small.getConnection(""));
+    connection.close();
+    small.getConnection("").close();
+    Assert.assertEquals(small.getCreated(), 1);
+  }
+
+  /**
+   * Test that invalid connections are replaced, idle connections are evicted, and
+   * aborted connections are not reused
+   */
+  @Test
+  public void testValidationAndEviction() throws Exception {
+    JdbcConnectionPool pool = new JdbcConnectionPool("jdbc:h2:mem:poolEviction;DB_CLOSE_DELAY=-1", "sa",
+        5, 10, 1, 5, 3600, 10);
+    Connection connection = pool.getConnection("");
+    Connection physical = connection.unwrap(Connection.class);
+    connection.close();
+    Assert.assertEquals(pool.getIdle(), 1);
+
+    // the idle physical connection is closed, so it is replaced when it is borrowed
+    physical.close();
+    connection = pool.getConnection("");
+    Assert.assertEquals(pool.getCreated(), 2);
+    Assert.assertEquals(countSessions(connection), 1);
+
+    // an aborted connection is closed rather than returned
+    connection.abort(Runnable::run);
+    Assert.assertEquals(pool.getIdle(), 0);
+    Assert.assertEquals(pool.getSize(), 0);
+
+    // an idle connection is closed after the idle timeout
+    pool.getConnection("").close();
+    Assert.assertEquals(pool.getIdle(), 1);
+    pool.maintain();
+    Assert.assertEquals(pool.getIdle(), 1);
+    Thread.sleep(1100);
+    pool.maintain();
+    Assert.assertEquals(pool.getIdle(), 0);
+    Assert.assertEquals(pool.getSize(), 0);
+    Assert.assertEquals(pool.getCreated(), 3);
+  }
+
+  /**
+   * Test that the session settings are restored when a connection is returned,
+   * and uncommitted changes are rolled back
+   */
+  @Test
+  public void testReset() throws Exception {
+    String url = "jdbc:h2:mem:poolReset;DB_CLOSE_DELAY=-1";
+    try (Connection setup = DriverManager.getConnection(url, "sa", "");
+        Statement statement = setup.createStatement()) {
+      statement.execute("CREATE TABLE items (id INT)");
+    }
+    JdbcConnectionPool pool = new JdbcConnectionPool(url, "sa", 1, 10, 300, 5, 3600, 10);
+    Connection connection = pool.getConnection("");
+    connection.setAutoCommit(false);
+    try (Statement statement = connection.createStatement()) {
+      statement.execute("INSERT INTO items VALUES (1)");
+    }
+    connection.close();
+
+    connection = pool.getConnection("");
+    Assert.assertTrue(connection.getAutoCommit());
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM items")) {
+      resultSet.next();
+      Assert.assertEquals(resultSet.getInt(1), 0);
+    }
+    connection.close();
+    Assert.assertEquals(pool.getCreated(), 1);
+  }
+
+  /**
+   * Test that connections borrowed for too long are reported
+   */
+  @Test
+  public void testLeakDetection() throws Exception {
+    JdbcConnectionPool pool = new JdbcConnectionPool("jdbc:h2:mem:poolLeak;DB_CLOSE_DELAY=-1", "sa",
+        2, 10, 300, 5, 1, 10);
+    Connection leaked = pool.getConnection("");
+    pool.getConnection("").close();
+    Thread.sleep(1100);
+    pool.maintain();
+    pool.maintain();
+    Assert.assertEquals(pool.getLeaks(), 1);
+    leaked.close();
+    Assert.assertEquals(pool.getBorrowed(), 0);
+  }
+
+  /**
+   * Test that prepared statements are reused on the same physical connection, across borrowers,
+   * and that their parameters and settings are reset when they are returned
+   */
+  @Test
+  public void testStatementCache() throws Exception {
+    String url = "jdbc:h2:mem:poolStatements;DB_CLOSE_DELAY=-1";
+    try (Connection setup = DriverManager.getConnection(url, "sa", "");
+        Statement statement = setup.createStatement()) {
+      statement.execute("CREATE TABLE items AS SELECT x AS id FROM SYSTEM_RANGE(1, 100)");
+    }
+    JdbcConnectionPool pool = new JdbcConnectionPool(url, "sa", 1, 10, 300, 5, 3600, 2);
+    String sql = "SELECT id FROM items WHERE id > ? ORDER BY id";
+    for (int i = 0; i < 5; i++) {
+      try (Connection connection = pool.getConnection("");
+          PreparedStatement statement = connection.prepareStatement(sql)) {
+        Assert.assertEquals(statement.getMaxRows(), 0);
+        Assert.assertSame(statement.getConnection(), connection);
+        statement.setInt(1, i * 10);
+        statement.setMaxRows(5);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          Assert.assertTrue(resultSet.next());
+          Assert.assertEquals(resultSet.getInt(1), i * 10 + 1);
+        }
+        statement.close();
+        Assert.assertTrue(statement.isClosed());
+        Assert.assertThrows(SQLException.class, statement::executeQuery);
+      }
+    }
+    Assert.assertEquals(pool.getPrepared(), 1);
+    Assert.assertEquals(pool.getCreated(), 1);
+
+    // the parameters are cleared when a statement is returned
+    try (Connection connection = pool.getConnection("");
+        PreparedStatement statement = connection.prepareStatement(sql)) {
+      Assert.assertThrows(SQLException.class, statement::executeQuery);
+    }
+
+    // the same statement in use twice is prepared twice
+    try (Connection connection = pool.getConnection("");
+        PreparedStatement first = connection.prepareStatement(sql);
+        PreparedStatement second = connection.prepareStatement(sql)) {
+      Assert.assertNotSame(first.unwrap(PreparedStatement.class), second.unwrap(PreparedStatement.class));
+    }
+    Assert.assertEquals(pool.getPrepared(), 2);
+
+    // the least recently used statement is evicted
+    try (Connection connection = pool.getConnection("")) {
+      connection.prepareStatement("SELECT 1").close();
+      connection.prepareStatement("SELECT 2").close();
+      connection.prepareStatement(sql).close();
+    }
+    Assert.assertEquals(pool.getPrepared(), 5);
+
+    // the cache can be disabled
+    JdbcConnectionPool uncached = new JdbcConnectionPool(url, "sa", 1, 10, 300, 5, 3600, 0);
+    for (int i = 0; i < 3; i++) {
+      try (Connection connection = uncached.getConnection("")) {
+        connection.prepareStatement(sql).close();
+      }
+    }
+    Assert.assertEquals(uncached.getPrepared(), 0);
+  }
+
+  private static int countSessions(Connection connection) throws SQLException {
+    try (Statement statement = connection.createStatement();
+        ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS")) {
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+  }
+}
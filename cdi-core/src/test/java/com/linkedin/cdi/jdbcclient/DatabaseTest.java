@@ -4,6 +4,8 @@
 
 package com.linkedin.cdi.jdbcclient;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
 import mockit.Mock;
 import mockit.MockUp;
 import org.apache.gobblin.configuration.State;
@@ -42,6 +44,40 @@ public class DatabaseTest {
     Assert.assertEquals(mySqlDb.getDefaultDriver(), "com.mysql.cj.jdbc.Driver");
   }
 
+  @Test
+  public void testFind() {
+    Assert.assertEquals(Database.find("jdbc:postgresql://localhost:5432/test"), Database.POSTGRESQL);
+    Assert.assertEquals(Database.find("jdbc:h2:mem:test;DB_CLOSE_DELAY=-1"), Database.H2);
+    Assert.assertEquals(Database.fromUrl("jdbc:postgresql://localhost:5432/test").getName(), "PostgreSql");
+    Assert.assertNull(Database.find("jdbc:db2://localhost:50000/test"));
+    Assert.assertNull(Database.find(null));
+  }
+
+  /**
+   * Test that MySQL streams rows one by one unless the connection uses cursor fetch
+   */
+  @Test
+  public void testGetStreamingFetchSize() {
+    Assert.assertEquals(Database.MYSQL.getStreamingFetchSize("jdbc:mysql://localhost:3036/test", 1000),
+        Integer.MIN_VALUE);
+    Assert.assertEquals(Database.MYSQL.getStreamingFetchSize(
+        "jdbc:mysql://localhost:3036/test?useSSL=false&useCursorFetch=true", 1000), 1000);
+    Assert.assertEquals(Database.POSTGRESQL.getStreamingFetchSize("jdbc:postgresql://localhost/test", 1000), 1000);
+  }
+
+  /**
+   * Test that PostgreSQL connections are switched to manual commit, so that rows are fetched by a cursor
+   */
+  @Test
+  public void testPrepareForStreaming() throws Exception {
+    try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:databaseTest")) {
+      Database.H2.prepareForStreaming(connection);
+      Assert.assertTrue(connection.getAutoCommit());
+      Database.POSTGRESQL.prepareForStreaming(connection);
+      Assert.assertFalse(connection.getAutoCommit());
+    }
+  }
+
   private void mockEncryptionUtils(String expectPassword) {
     new MockUp<PasswordManager>() {
       @Mock
@@ -0,0 +1,37 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.keys;
+
+import gobblin.configuration.SourceState;
+import org.apache.gobblin.configuration.State;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class JdbcKeysTest {
+  @Test
+  public void testValidateAvroExtractor() {
+    State state = new SourceState();
+    state.setProp("extract.table.name", "xxx");
+    state.setProp("ms.extractor.class", "com.linkedin.cdi.extractor.AvroExtractor");
+    Assert.assertTrue(new JdbcKeys().validate(state));
+
+    state.setProp("ms.jdbc.partition", "{\"column\": \"id\"}");
+    Assert.assertFalse(new JdbcKeys().validate(state));
+    state.removeProp("ms.jdbc.partition");
+
+    state.setProp("ms.jdbc.keyset", "[\"id\"]");
+    Assert.assertFalse(new JdbcKeys().validate(state));
+    state.removeProp("ms.jdbc.keyset");
+
+    state.setProp("ms.jdbc.egress", "{\"batchSize\": 500}");
+    Assert.assertFalse(new JdbcKeys().validate(state));
+
+    state.setProp("ms.extractor.class", "com.linkedin.cdi.extractor.CsvExtractor");
+    state.setProp("ms.jdbc.partition", "{\"column\": \"id\"}");
+    state.setProp("ms.jdbc.keyset", "[\"id\"]");
+    Assert.assertTrue(new JdbcKeys().validate(state));
+  }
+}
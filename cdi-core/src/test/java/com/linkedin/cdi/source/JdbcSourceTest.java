@@ -4,12 +4,30 @@
 
 package com.linkedin.cdi.source;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import gobblin.configuration.SourceState;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.gobblin.configuration.WorkUnitState;
+import org.apache.gobblin.source.extractor.Extractor;
+import org.apache.gobblin.source.workunit.WorkUnit;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 
 public class JdbcSourceTest {
+  private static final String URL = "jdbc:h2:mem:jdbcSourceTest;DB_CLOSE_DELAY=-1";
+
   @Test
   public void testInitialize() {
     JdbcSource jdbcSource = new JdbcSource();
@@ -17,4 +35,110 @@ public class JdbcSourceTest {
     state.setProp("extract.table.name", "xxx");
     Assert.assertNotNull(jdbcSource.getWorkunits(state));
   }
+
+  /**
+   * Test that the statements of ms.jdbc.statements are extracted concurrently by work units of their own,
+   * each with its own schema, and that a failed statement doesn't fail the other statements
+   */
+  @Test
+  public void testStatements() throws Exception {
+    try (Connection connection = DriverManager.getConnection(URL); Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE orders (id BIGINT, amount DECIMAL(10, 2))");
+      statement.execute("INSERT INTO orders SELECT x, x * 1.5 FROM SYSTEM_RANGE(1, 30)");
+      statement.execute("CREATE TABLE customers (id INT, name VARCHAR(16), active BOOLEAN)");
+      statement.execute("INSERT INTO customers SELECT x, 'customer ' || x, MOD(x, 2) = 0 FROM SYSTEM_RANGE(1, 5)");
+    }
+    SourceState state = new SourceState();
+    state.setProp("extract.table.name", "xxx");
+    state.setProp("ms.source.uri", URL);
+    state.setProp("ms.extractor.class", "com.linkedin.cdi.extractor.JsonExtractor");
+    state.setProp("ms.jdbc.connection.pool", "{\"maxSize\": 2}");
+    state.setProp("ms.jdbc.statements", "["
+        + "{\"name\": \"orders\", \"statement\": \"select * from orders\"},"
+        + "{\"name\": \"customers\", \"statement\": \"select id, name from customers\","
+        + " \"schema\": [{\"columnName\": \"ID\", \"isNullable\": false, \"dataType\": {\"type\": \"int\"}},"
+        + " {\"columnName\": \"NAME\", \"isNullable\": true, \"dataType\": {\"type\": \"string\"}}]},"
+        + "{\"name\": \"missing\", \"statement\": \"select * from missing\"}]");
+
+    List<WorkUnit> workUnits = new JdbcSource().getWorkunits(state);
+    Assert.assertEquals(workUnits.size(), 3);
+    Map<String, WorkUnit> statements = new HashMap<>();
+    for (WorkUnit workUnit : workUnits) {
+      statements.put(workUnit.getProp("ms.jdbc.statement"), workUnit);
+    }
+    Assert.assertEquals(statements.size(), 3);
+    // each statement has its own signature, which keeps its watermarks
+    Assert.assertEquals(new HashSet<>(getUrns(workUnits)).size(), 3);
+    Assert.assertTrue(statements.get("select id, name from customers").getProp("ms.output.schema").contains("NAME"));
+    Assert.assertFalse(statements.get("select * from orders").contains("ms.output.schema"));
+
+    // like task runners, each work unit is extracted with a source of its own
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    Map<String, WorkUnitState> states = new HashMap<>();
+    Map<String, Future<List<Object>>> results = new HashMap<>();
+    for (Map.Entry<String, WorkUnit> entry : statements.entrySet()) {
+      WorkUnitState workUnitState = new WorkUnitState(entry.getValue(), state);
+      states.put(entry.getKey(), workUnitState);
+      results.put(entry.getKey(), executor.submit(() -> extract(workUnitState)));
+    }
+    executor.shutdown();
+
+    List<Object> orders = results.get("select * from orders").get();
+    Assert.assertEquals(orders.size(), 31);
+    Assert.assertEquals(((JsonArray) orders.get(0)).size(), 2);
+    Assert.assertEquals(((JsonObject) orders.get(1)).get("AMOUNT").getAsDouble(), 1.5);
+
+    List<Object> customers = results.get("select id, name from customers").get();
+    Assert.assertEquals(customers.size(), 6);
+    Assert.assertEquals(((JsonArray) customers.get(0)).size(), 2);
+    Assert.assertEquals(((JsonObject) customers.get(1)).get("NAME").getAsString(), "customer 1");
+
+    // the missing table fails its own work unit only
+    List<Object> missing = results.get("select * from missing").get();
+    Assert.assertEquals(missing.size(), 1);
+    Assert.assertEquals(states.get("select * from missing").getWorkingState(), WorkUnitState.WorkingState.FAILED);
+    Assert.assertNotEquals(states.get("select * from orders").getWorkingState(), WorkUnitState.WorkingState.FAILED);
+    Assert.assertNotEquals(states.get("select id, name from customers").getWorkingState(),
+        WorkUnitState.WorkingState.FAILED);
+  }
+
+  /**
+   * Test that statements are rejected with a unit watermark, which would make them ambiguous
+   */
+  @Test
+  public void testStatementsWithUnitWatermark() {
+    SourceState state = new SourceState();
+    state.setProp("extract.table.name", "xxx");
+    state.setProp("ms.jdbc.statements", "[{\"name\": \"a\", \"statement\": \"select 1\"}]");
+    state.setProp("ms.watermark", "[{\"name\": \"region\", \"type\": \"unit\", \"units\": \"us,eu\"}]");
+    Assert.assertThrows(RuntimeException.class, () -> new JdbcSource().getWorkunits(state));
+
+    // statement names must be unique
+    state.removeProp("ms.watermark");
+    state.setProp("ms.jdbc.statements", "[{\"name\": \"a\", \"statement\": \"select 1\"},"
+        + "{\"name\": \"a\", \"statement\": \"select 2\"}]");
+    Assert.assertThrows(RuntimeException.class, () -> new JdbcSource().getWorkunits(state));
+  }
+
+  /**
+   * Extract a work unit, and return its schema followed by its records
+   */
+  private static List<Object> extract(WorkUnitState state) throws Exception {
+    Extractor<?, ?> extractor = new JdbcSource().getExtractor(state);
+    List<Object> output = new ArrayList<>();
+    output.add(extractor.getSchema());
+    for (Object record = extractor.readRecord(null); record != null; record = extractor.readRecord(null)) {
+      output.add(record);
+    }
+    extractor.close();
+    return output;
+  }
+
+  private static List<String> getUrns(List<WorkUnit> workUnits) {
+    List<String> urns = new ArrayList<>();
+    for (WorkUnit workUnit : workUnits) {
+      urns.add(workUnit.getProp("dataset.urn"));
+    }
+    return urns;
+  }
 }
@@ -289,6 +289,32 @@ public class MultistageSourceTest {
     Assert.assertEquals((long) actual.get("ColumnName.Number"), 1000L);
   }
 
+  /**
+   * Test that the high watermarks of the units of work unit batches are expanded by unit signature
+   */
+  @Test
+  public void testGetPreviousHighWatermarksOfBatches() throws Exception {
+    SourceState sourceState = Mockito.mock(SourceState.class);
+    WorkUnitState workUnitState = Mockito.mock(WorkUnitState.class);
+    source.sourceState = sourceState;
+
+    Map<String, Iterable<WorkUnitState>> previousWorkUnitStatesByDatasetUrns = new HashMap<>();
+    previousWorkUnitStatesByDatasetUrns.put("ColumnName.Number", ImmutableList.of(workUnitState));
+    when(workUnitState.getActualHighWatermark(LongWatermark.class)).thenReturn(new LongWatermark(1000L));
+    when(workUnitState.contains(MSTAGE_WORK_UNIT_BATCH_WATERMARKS.getConfig())).thenReturn(true);
+    when(workUnitState.getProp(MSTAGE_WORK_UNIT_BATCH_WATERMARKS.getConfig()))
+        .thenReturn("{\"unit.a\": 1000, \"unit.b\": 500}");
+    when(sourceState.getPreviousWorkUnitStatesByDatasetUrns()).thenReturn(previousWorkUnitStatesByDatasetUrns);
+
+    Method method = MultistageSource.class.getDeclaredMethod("getPreviousHighWatermarks");
+    method.setAccessible(true);
+    Map<String, Long> actual = (Map) method.invoke(source);
+    Assert.assertEquals(actual.size(), 3);
+    Assert.assertEquals((long) actual.get("ColumnName.Number"), 1000L);
+    Assert.assertEquals((long) actual.get("unit.a"), 1000L);
+    Assert.assertEquals((long) actual.get("unit.b"), 500L);
+  }
+
   /**
    * Test normal cases
    */
@@ -746,4 +772,53 @@ public class MultistageSourceTest {
     Assert.assertEquals(actualWorkUnits.get(0).getLowWatermark(), expectedWorkUnit.getLowWatermark());
     Assert.assertEquals(actualWorkUnits.get(0).getExpectedHighWatermark(), expectedWorkUnit.getExpectedHighWatermark());
   }
+
+  /**
+   * Test that unit partitions are batched into work units per ms.work.unit.batch.size, and
+   * each unit in a batch keeps its own signature and low watermark
+   */
+  @Test
+  public void testGenerateBatchWorkUnits() {
+    SourceState state = new SourceState();
+    state.setProp(MSTAGE_WORK_UNIT_BATCH_SIZE.getConfig(), "2");
+    MultistageSource<?, ?> source = new MultistageSource<>();
+    source.setSourceState(state);
+    source.jobKeys.initialize(state);
+
+    String jsonDef = "{\"name\": \"system\",\"type\": \"datetime\", \"range\": {\"from\": \"2021-06-18\", \"to\": \"2021-06-19\"}}";
+    WatermarkDefinition datetimeWatermark = new WatermarkDefinition(gson.fromJson(jsonDef, JsonObject.class),
+        false, WorkUnitPartitionTypes.DAILY);
+    WatermarkDefinition unitWatermark = new WatermarkDefinition("ids", "a,b,c,d,e");
+    List<WatermarkDefinition> definitions = ImmutableList.of(datetimeWatermark, unitWatermark);
+    long low = DTF_PST_TIMEZONE.parseDateTime("2021-06-18T00:00:00").getMillis();
+    long high = DTF_PST_TIMEZONE.parseDateTime("2021-06-19T00:00:00").getMillis();
+
+    List<WorkUnit> workUnits = source.generateWorkUnits(definitions, new HashMap<>());
+    Assert.assertEquals(workUnits.size(), 3);
+    List<JsonObject> units = new ArrayList<>();
+    for (WorkUnit workUnit : workUnits) {
+      Assert.assertEquals(workUnit.getLowWatermark(LongWatermark.class).getValue(), low);
+      Assert.assertEquals(workUnit.getExpectedHighWatermark(LongWatermark.class).getValue(), high);
+      MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnit).forEach(unit -> units.add(unit.getAsJsonObject()));
+    }
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(0)).size(), 2);
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(2)).size(), 1);
+    Assert.assertEquals(units.size(), 5);
+    Assert.assertEquals(units.get(1).get("unit").getAsString(), "{\"ids\":\"b\"}");
+    Assert.assertEquals(units.get(1).get("lowWatermark").getAsLong(), low);
+
+    // a unit that had completed part of the range starts from its previous high watermark,
+    // while the other units of the batch start from the beginning of the range
+    Map<String, Long> previousHighWatermarks = new HashMap<>();
+    previousHighWatermarks.put(units.get(1).get("signature").getAsString(), low + 3600000L);
+    workUnits = source.generateWorkUnits(definitions, previousHighWatermarks);
+    Assert.assertEquals(workUnits.size(), 3);
+    Assert.assertEquals(workUnits.get(0).getLowWatermark(LongWatermark.class).getValue(), low);
+    JsonArray batch = MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(0));
+    Assert.assertEquals(batch.get(0).getAsJsonObject().get("unit").getAsString(), "{\"ids\":\"a\"}");
+    Assert.assertEquals(batch.get(0).getAsJsonObject().get("lowWatermark").getAsLong(), low);
+    Assert.assertEquals(batch.get(1).getAsJsonObject().get("unit").getAsString(), "{\"ids\":\"b\"}");
+    Assert.assertEquals(batch.get(1).getAsJsonObject().get("lowWatermark").getAsLong(), low + 3600000L);
+    Assert.assertEquals(MSTAGE_WORK_UNIT_BATCH_UNITS.get(workUnits.get(1)).size(), 2);
+  }
 }
@@ -0,0 +1,244 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import com.google.gson.JsonObject;
+import com.linkedin.cdi.preprocessor.GpgDecryptProcessor;
+import com.linkedin.cdi.preprocessor.GpgEncryptProcessor;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.util.Date;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.bouncycastle.bcpg.CompressionAlgorithmTags;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.openpgp.PGPEncryptedData;
+import org.bouncycastle.openpgp.PGPKeyPair;
+import org.bouncycastle.openpgp.PGPKeyRingGenerator;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.operator.PGPDigestCalculator;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPDigestCalculatorProviderBuilder;
+import org.bouncycastle.openpgp.operator.jcajce.JcaPGPKeyPair;
+import org.bouncycastle.openpgp.operator.jcajce.JcePBESecretKeyEncryptorBuilder;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class CachedGpgCodecTest {
+  private static final String PASSPHRASE = "gpgTest";
+  private File tempDir;
+  private File publicKeyFile;
+  private File secretKeyFile;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+    KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA", BouncyCastleProvider.PROVIDER_NAME);
+    keyPairGenerator.initialize(1024);
+    PGPKeyPair keyPair = new JcaPGPKeyPair(PGPPublicKey.RSA_GENERAL, keyPairGenerator.generateKeyPair(), new Date());
+    PGPDigestCalculator sha1 = new JcaPGPDigestCalculatorProviderBuilder().build().get(HashAlgorithmTags.SHA1);
+    PGPKeyRingGenerator generator = new PGPKeyRingGenerator(PGPSignature.POSITIVE_CERTIFICATION, keyPair,
+        "gpgTest", sha1, null, null,
+        new JcaPGPContentSignerBuilder(keyPair.getPublicKey().getAlgorithm(), HashAlgorithmTags.SHA1),
+        new JcePBESecretKeyEncryptorBuilder(PGPEncryptedData.AES_256, sha1)
+            .setProvider(BouncyCastleProvider.PROVIDER_NAME).build(PASSPHRASE.toCharArray()));
+
+    tempDir = Files.createTempDirectory("gpg").toFile();
+    publicKeyFile = new File(tempDir, "public.key");
+    secretKeyFile = new File(tempDir, "secret.key");
+    try (OutputStream out = new FileOutputStream(publicKeyFile)) {
+      generator.generatePublicKeyRing().encode(out);
+    }
+    try (OutputStream out = new FileOutputStream(secretKeyFile)) {
+      generator.generateSecretKeyRing().encode(out);
+    }
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    FileUtils.deleteDirectory(tempDir);
+  }
+
+  @BeforeMethod
+  public void clearCache() {
+    CachedGpgCodec.clearCache();
+  }
+
+  /**
+   * Test that the key rings are loaded once across many streams and processors
+   */
+  @Test
+  public void testKeyRingLoadedOnce() throws Exception {
+    long loads = CachedGpgCodec.getKeyRingLoads();
+    for (int i = 0; i < 50; i++) {
+      String text = "line " + i + "\nanother line\n";
+      Assert.assertEquals(decrypt(encrypt(text.getBytes(StandardCharsets.UTF_8))), text);
+    }
+    // one load for the public key ring, and one load for the secret key ring
+    Assert.assertEquals(CachedGpgCodec.getKeyRingLoads() - loads, 2);
+  }
+
+  /**
+   * Test that a changed key file is reloaded
+   */
+  @Test
+  public void testKeyRingReloadedOnChange() throws Exception {
+    long loads = CachedGpgCodec.getKeyRingLoads();
+    byte[] encrypted = encrypt("abc".getBytes(StandardCharsets.UTF_8));
+    Assert.assertEquals(decrypt(encrypted), "abc");
+    Assert.assertEquals(decrypt(encrypted), "abc");
+    Assert.assertEquals(CachedGpgCodec.getKeyRingLoads() - loads, 2);
+
+    Assert.assertTrue(secretKeyFile.setLastModified(secretKeyFile.lastModified() - 60000));
+    Assert.assertEquals(decrypt(encrypted), "abc");
+    Assert.assertEquals(CachedGpgCodec.getKeyRingLoads() - loads, 3);
+  }
+
+  /**
+   * Test buffer size parameter
+   */
+  @Test
+  public void testBufferSize() {
+    JsonObject parameters = new JsonObject();
+    parameters.addProperty("keystore_path", publicKeyFile.getAbsolutePath());
+    Assert.assertEquals(((CachedGpgCodec) EncryptionUtils.getGpgCodec(parameters)).getBufferSize(),
+        CachedGpgCodec.DEFAULT_BUFFER_SIZE);
+
+    parameters.addProperty("buffer_size", 1024 * 1024);
+    Assert.assertEquals(((CachedGpgCodec) EncryptionUtils.getGpgCodec(parameters)).getBufferSize(), 1024 * 1024);
+  }
+
+  /**
+   * Test that compression is applied to compressible data, and the output is decryptable
+   */
+  @Test
+  public void testCompressionOnPlainData() throws Exception {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      builder.append("id,").append(i).append(",name,some name\n");
+    }
+    byte[] data = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+    JsonObject parameters = getEncryptionParameters();
+    parameters.addProperty("compression", "ZLIB");
+    parameters.addProperty("compression_level", 6);
+    ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    CachedGpgCodec.EncryptedOutputStream out =
+        (CachedGpgCodec.EncryptedOutputStream) new GpgEncryptProcessor(parameters).process(encrypted);
+    out.write(data);
+    out.close();
+    Assert.assertEquals(out.getChosenCompressionAlgorithm(), CompressionAlgorithmTags.ZLIB);
+    Assert.assertTrue(encrypted.size() < data.length / 4);
+    Assert.assertEquals(decrypt(encrypted.toByteArray()), builder.toString());
+  }
+
+  /**
+   * Test that compression is turned off for gzip data, and the output is decryptable
+   */
+  @Test
+  public void testCompressionBypassedForCompressedData() throws Exception {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (OutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write("some text".getBytes(StandardCharsets.UTF_8));
+    }
+    JsonObject parameters = getEncryptionParameters();
+    parameters.addProperty("compression", "ZIP");
+    ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    CachedGpgCodec.EncryptedOutputStream out =
+        (CachedGpgCodec.EncryptedOutputStream) new GpgEncryptProcessor(parameters).process(encrypted);
+    out.write(gzipped.toByteArray());
+    out.close();
+    Assert.assertEquals(out.getChosenCompressionAlgorithm(), CompressionAlgorithmTags.UNCOMPRESSED);
+
+    JsonObject decryption = new JsonObject();
+    decryption.addProperty("keystore_path", secretKeyFile.getAbsolutePath());
+    decryption.addProperty("keystore_password", PASSPHRASE);
+    InputStream decrypted = new GpgDecryptProcessor(decryption).process(new ByteArrayInputStream(encrypted.toByteArray()));
+    Assert.assertEquals(IOUtils.toString(new GZIPInputStream(decrypted), StandardCharsets.UTF_8), "some text");
+  }
+
+  /**
+   * Test that compression is turned off for high entropy data larger than the first block
+   */
+  @Test
+  public void testCompressionBypassedForRandomData() throws Exception {
+    byte[] data = new byte[200000];
+    new Random(1).nextBytes(data);
+    JsonObject parameters = getEncryptionParameters();
+    parameters.addProperty("compression", "ZIP");
+    parameters.addProperty("buffer_size", 4096);
+    ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    CachedGpgCodec.EncryptedOutputStream out =
+        (CachedGpgCodec.EncryptedOutputStream) new GpgEncryptProcessor(parameters).process(encrypted);
+    for (int i = 0; i < data.length; i += 1000) {
+      out.write(data, i, Math.min(1000, data.length - i));
+    }
+    out.close();
+    Assert.assertEquals(out.getChosenCompressionAlgorithm(), CompressionAlgorithmTags.UNCOMPRESSED);
+
+    JsonObject decryption = new JsonObject();
+    decryption.addProperty("keystore_path", secretKeyFile.getAbsolutePath());
+    decryption.addProperty("keystore_password", PASSPHRASE);
+    Assert.assertEquals(IOUtils.toByteArray(new GpgDecryptProcessor(decryption)
+        .process(new ByteArrayInputStream(encrypted.toByteArray()))), data);
+  }
+
+  /**
+   * Test that no compression is applied by default
+   */
+  @Test
+  public void testNoCompressionByDefault() throws Exception {
+    ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    CachedGpgCodec.EncryptedOutputStream out =
+        (CachedGpgCodec.EncryptedOutputStream) new GpgEncryptProcessor(getEncryptionParameters()).process(encrypted);
+    out.write("abc".getBytes(StandardCharsets.UTF_8));
+    out.close();
+    Assert.assertEquals(out.getChosenCompressionAlgorithm(), CompressionAlgorithmTags.UNCOMPRESSED);
+    Assert.assertEquals(decrypt(encrypted.toByteArray()), "abc");
+  }
+
+  private JsonObject getEncryptionParameters() {
+    JsonObject parameters = new JsonObject();
+    parameters.addProperty("keystore_path", publicKeyFile.getAbsolutePath());
+    parameters.addProperty("cipher", "AES_256");
+    return parameters;
+  }
+
+  private byte[] encrypt(byte[] data) throws Exception {
+    ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    try (OutputStream out = new GpgEncryptProcessor(getEncryptionParameters()).process(encrypted)) {
+      out.write(data);
+    }
+    return encrypted.toByteArray();
+  }
+
+  private String decrypt(byte[] data) throws Exception {
+    JsonObject parameters = new JsonObject();
+    parameters.addProperty("keystore_path", secretKeyFile.getAbsolutePath());
+    parameters.addProperty("keystore_password", PASSPHRASE);
+    return IOUtils.toString(new GpgDecryptProcessor(parameters).process(new ByteArrayInputStream(data)),
+        StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,90 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+import org.apache.avro.Schema;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class CompressionUtilsTest {
+  @Test
+  public void testIsCompressed() throws Exception {
+    ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+    try (OutputStream gzip = new GZIPOutputStream(gzipped)) {
+      gzip.write("abc".getBytes(StandardCharsets.UTF_8));
+    }
+    byte[] data = gzipped.toByteArray();
+    Assert.assertTrue(CompressionUtils.isCompressed(data, data.length));
+
+    // the header of a bzip2 stream, and of an empty bzip2 stream
+    data = new byte[]{'B', 'Z', 'h', '9', 0x31, 0x41, 0x59, 0x26, 0x53, 0x59, 0x4e, (byte) 0xec, (byte) 0xe8, 0x36};
+    Assert.assertTrue(CompressionUtils.isCompressed(data, data.length));
+    data = new byte[]{'B', 'Z', 'h', '9', 0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90, 0, 0, 0, 0};
+    Assert.assertTrue(CompressionUtils.isCompressed(data, data.length));
+
+    data = new byte[]{'P', 'A', 'R', '1', 0x15, 0x00, 0x15, (byte) 0x9c, 0x01};
+    Assert.assertTrue(CompressionUtils.isCompressed(data, data.length));
+
+    // text starting with the leading letters of a signature is not compressed
+    for (String text : new String[]{"BZh is a bzip2 signature", "ORC,ORCA\n1,2\n", "PAR1 some parquet data",
+        "Obj,1\n"}) {
+      data = text.getBytes(StandardCharsets.UTF_8);
+      Assert.assertFalse(CompressionUtils.isCompressed(data, data.length), text);
+    }
+
+    data = "id,name\n1,abc\n2,xyz\n".getBytes(StandardCharsets.UTF_8);
+    Assert.assertFalse(CompressionUtils.isCompressed(data, data.length));
+    Assert.assertFalse(CompressionUtils.isCompressed(data, 0));
+  }
+
+  @Test
+  public void testEntropy() {
+    byte[] data = new byte[8192];
+    Assert.assertEquals(CompressionUtils.getEntropy(data, data.length), 0.0);
+    Assert.assertFalse(CompressionUtils.isCompressed(data, data.length));
+
+    new Random(1).nextBytes(data);
+    Assert.assertTrue(CompressionUtils.getEntropy(data, data.length) > 7.9);
+    Assert.assertTrue(CompressionUtils.isCompressed(data, data.length));
+    // small samples are not judged by entropy
+    Assert.assertFalse(CompressionUtils.isCompressed(data, 100));
+  }
+
+  @Test
+  public void testAvroCodec() throws Exception {
+    Assert.assertTrue(isCompressed(getAvroFile(CodecFactory.deflateCodec(6))));
+    Assert.assertFalse(isCompressed(getAvroFile(CodecFactory.nullCodec())));
+  }
+
+  private boolean isCompressed(byte[] data) {
+    return CompressionUtils.isCompressed(data, data.length);
+  }
+
+  private byte[] getAvroFile(CodecFactory codec) throws Exception {
+    Schema schema = new Schema.Parser().parse(
+        "{\"type\":\"record\",\"name\":\"test\",\"fields\":[{\"name\":\"id\",\"type\":\"string\"}]}");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (DataFileWriter<GenericRecord> writer = new DataFileWriter<>(new GenericDatumWriter<GenericRecord>(schema))) {
+      writer.setCodec(codec);
+      writer.create(schema, out);
+      GenericRecord record = new GenericData.Record(schema);
+      record.put("id", "abc");
+      writer.append(record);
+    }
+    return out.toByteArray();
+  }
+}
@@ -5,8 +5,15 @@
 package com.linkedin.cdi.util;
 
 import com.sun.rowset.JdbcRowSetImpl;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.Arrays;
 import javax.sql.rowset.RowSetMetaDataImpl;
 import javax.sql.rowset.serial.SerialBlob;
 import javax.sql.rowset.serial.SerialClob;
@@ -211,6 +218,76 @@ public class JdbcUtilsTest extends PowerMockTestCase {
     Assert.assertEquals(JdbcUtils.readClobAsString(clob), testingClobString);
   }
 
+  /**
+   * Test that LOB streams are copied through a buffer smaller than the values
+   */
+  @Test
+  public void testCopy() throws IOException {
+    Assert.assertTrue(JdbcUtils.isBinaryLob(Types.BLOB));
+    Assert.assertTrue(JdbcUtils.isBinaryLob(Types.LONGVARBINARY));
+    Assert.assertTrue(JdbcUtils.isCharacterLob(Types.NCLOB));
+    Assert.assertFalse(JdbcUtils.isCharacterLob(Types.VARCHAR));
+
+    byte[] bytes = "streamed bytes".getBytes(StandardCharsets.UTF_8);
+    for (int length = 0; length <= bytes.length; length++) {
+      byte[] value = Arrays.copyOf(bytes, length);
+      StringWriter base64 = new StringWriter();
+      Assert.assertEquals(JdbcUtils.copyAsBase64(new ByteArrayInputStream(value), base64, new byte[4]), length);
+      // java.util.Base64 is not mocked by the tests of readBlobAsString
+      Assert.assertEquals(base64.toString(), java.util.Base64.getEncoder().encodeToString(value));
+
+      ByteArrayOutputStream copy = new ByteArrayOutputStream();
+      Assert.assertEquals(JdbcUtils.copy(new ByteArrayInputStream(value), copy, new byte[4]), length);
+      Assert.assertEquals(copy.toByteArray(), value);
+    }
+
+    StringWriter text = new StringWriter();
+    Assert.assertEquals(JdbcUtils.copy(new StringReader("streamed text"), text, new char[3]), 13);
+    Assert.assertEquals(text.toString(), "streamed text");
+  }
+
+  /**
+   * Test that the converters chosen by column types convert values as parseColumnAsString does
+   */
+  @Test
+  public void testGetColumnConverters() throws SQLException {
+    JdbcUtils.ColumnConverter[] converters =
+        JdbcUtils.getColumnConverters(new int[]{Types.VARCHAR, Types.BOOLEAN, Types.CLOB});
+    when(rowSet.getString(1)).thenReturn("text");
+    when(rowSet.getBoolean(2)).thenReturn(true);
+    when(rowSet.wasNull()).thenReturn(false);
+    when(clob.length()).thenReturn(4L);
+    when(clob.getSubString(1, 4)).thenReturn("clob");
+    when(rowSet.getClob(3)).thenReturn(clob);
+    Assert.assertEquals(JdbcUtils.parseRowAsStrings(rowSet, converters), new String[]{"text", "true", "clob"});
+
+    // a null boolean stays null
+    when(rowSet.getBoolean(2)).thenReturn(false);
+    when(rowSet.wasNull()).thenReturn(true);
+    Assert.assertNull(converters[1].convert(rowSet, 2));
+  }
+
+  /**
+   * Test that the fetch size is derived from the declared widths of columns
+   */
+  @Test
+  public void testGetFetchSize() throws SQLException {
+    RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+    metaData.setColumnCount(2);
+    metaData.setColumnType(1, Types.BIGINT);
+    metaData.setColumnType(2, Types.VARCHAR);
+    metaData.setPrecision(2, 64);
+    Assert.assertEquals(JdbcUtils.estimateRowBytes(metaData), 168);
+    Assert.assertEquals(JdbcUtils.getFetchSize(metaData, 168000, 10000), 1000);
+    Assert.assertEquals(JdbcUtils.getFetchSize(metaData, 4L * 1024 * 1024, 10000), 10000);
+    Assert.assertEquals(JdbcUtils.getFetchSize(metaData, 100, 10000), 10);
+    Assert.assertEquals(JdbcUtils.getFetchSize(metaData, 100, 5), 5);
+
+    // large objects take a fixed estimate
+    metaData.setColumnType(2, Types.CLOB);
+    Assert.assertEquals(JdbcUtils.getFetchSize(metaData, 4L * 1024 * 1024, 10000), 1014);
+  }
+
   @Test
   public void testConvertBitToBoolean() {
     Assert.assertEquals(JdbcUtils.convertBitToBoolean(), true);
@@ -0,0 +1,91 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class SpillableBufferTest {
+  private static final int THRESHOLD = 64 * 1024;
+
+  /**
+   * Test that data below the threshold stays in memory and can be read repeatedly
+   */
+  @Test
+  public void testBelowThreshold() throws IOException {
+    byte[] data = getData(THRESHOLD);
+    SpillableBuffer buffer = SpillableBuffer.of(new ByteArrayInputStream(data), THRESHOLD, false);
+    Assert.assertFalse(buffer.isSpilled());
+    Assert.assertNull(buffer.getFile());
+    Assert.assertEquals(buffer.size(), data.length);
+    Assert.assertEquals(IOUtils.toByteArray(buffer.getInputStream()), data);
+    Assert.assertEquals(IOUtils.toByteArray(buffer.getInputStream()), data);
+    buffer.close();
+  }
+
+  /**
+   * Test that data above the threshold is spilled to a file, which is deleted on close
+   */
+  @Test
+  public void testAboveThreshold() throws IOException {
+    for (boolean compressed : new boolean[]{false, true}) {
+      byte[] data = getData(THRESHOLD + 1);
+      SpillableBuffer buffer = SpillableBuffer.of(new ByteArrayInputStream(data), THRESHOLD, compressed);
+      Assert.assertTrue(buffer.isSpilled());
+      File file = buffer.getFile();
+      Assert.assertTrue(file.exists());
+      Assert.assertEquals(buffer.size(), data.length);
+      Assert.assertEquals(IOUtils.toByteArray(buffer.getInputStream()), data);
+      Assert.assertEquals(IOUtils.toByteArray(buffer.getInputStream()), data);
+      buffer.close();
+      Assert.assertFalse(file.exists());
+    }
+  }
+
+  /**
+   * Test that compressible data spilled with LZ4 takes less disk space
+   */
+  @Test
+  public void testCompressedSpill() throws IOException {
+    byte[] data = new byte[10 * THRESHOLD];
+    SpillableBuffer buffer = new SpillableBuffer(THRESHOLD, true);
+    try (OutputStream out = buffer.getOutputStream()) {
+      for (int i = 0; i < data.length; i += 100) {
+        out.write(data, i, Math.min(100, data.length - i));
+      }
+    }
+    Assert.assertTrue(buffer.isSpilled());
+    Assert.assertTrue(buffer.getFile().length() < data.length / 10);
+    Assert.assertEquals(IOUtils.toByteArray(buffer.getInputStream()), data);
+    buffer.close();
+  }
+
+  /**
+   * Test that the buffer cannot be written after reading or read after closing
+   */
+  @Test
+  public void testLifeCycle() throws IOException {
+    SpillableBuffer buffer = new SpillableBuffer(THRESHOLD, false);
+    buffer.getOutputStream().write(1);
+    Assert.assertEquals(IOUtils.toByteArray(buffer.getInputStream()), new byte[]{1});
+    Assert.assertThrows(IOException.class, () -> buffer.getOutputStream().write(2));
+    buffer.close();
+    Assert.assertThrows(IOException.class, buffer::getInputStream);
+  }
+
+  private byte[] getData(int size) {
+    byte[] data = new byte[size];
+    new Random(1).nextBytes(data);
+    return data;
+  }
+}
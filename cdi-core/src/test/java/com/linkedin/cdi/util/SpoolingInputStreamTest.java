@@ -0,0 +1,110 @@
+// Copyright 2021 LinkedIn Corporation. All rights reserved.
+// Licensed under the BSD-2 Clause license.
+// See LICENSE in the project root for license information.
+
+package com.linkedin.cdi.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class SpoolingInputStreamTest {
+
+  /**
+   * Test that the consumer can read data before the producer finishes
+   */
+  @Test
+  public void testConcurrentRead() throws Exception {
+    CountDownLatch firstBlockRead = new CountDownLatch(1);
+    byte[] block = new byte[128 * 1024];
+    SpoolingInputStream stream = SpoolingInputStream.start(out -> {
+      out.write(block);
+      out.flush();
+      Assert.assertTrue(firstBlockRead.await(30, TimeUnit.SECONDS));
+      out.write(block);
+    }, true);
+
+    byte[] buffer = new byte[block.length];
+    IOUtils.readFully(stream, buffer);
+    Assert.assertFalse(stream.isFinished());
+    firstBlockRead.countDown();
+
+    Assert.assertEquals(IOUtils.toByteArray(stream).length, block.length);
+    Assert.assertEquals(stream.getDataSize(), 2L * block.length);
+    Assert.assertTrue(stream.getSpoolSize() < block.length / 10);
+    stream.close();
+  }
+
+  /**
+   * Test that data is read back intact, with and without compression
+   */
+  @Test
+  public void testContent() throws Exception {
+    byte[] data = new byte[1000000];
+    new Random(1).nextBytes(data);
+    for (boolean compressed : new boolean[]{false, true}) {
+      SpoolingInputStream stream = SpoolingInputStream.start(out -> {
+        for (int i = 0; i < data.length; i += 1000) {
+          out.write(data, i, 1000);
+        }
+      }, compressed);
+      Assert.assertEquals(IOUtils.toByteArray(stream), data);
+      stream.close();
+    }
+
+    SpoolingInputStream stream = SpoolingInputStream.start(out -> { }, true);
+    Assert.assertEquals(stream.read(), -1);
+    stream.close();
+  }
+
+  /**
+   * Test that a producer failure is raised to the consumer after the written data
+   */
+  @Test
+  public void testProducerFailure() throws Exception {
+    SpoolingInputStream stream = SpoolingInputStream.start(out -> {
+      out.write("abc".getBytes(StandardCharsets.UTF_8));
+      out.flush();
+      throw new IllegalStateException("failed");
+    }, false);
+    Assert.assertEquals(stream.read(), 'a');
+    Assert.assertEquals(stream.read(), 'b');
+    Assert.assertEquals(stream.read(), 'c');
+    try {
+      stream.read();
+      Assert.fail("Expected IOException");
+    } catch (IOException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+    stream.close();
+  }
+
+  /**
+   * Test that closing the stream stops the producer
+   */
+  @Test
+  public void testCancel() throws Exception {
+    CountDownLatch stopped = new CountDownLatch(1);
+    SpoolingInputStream stream = SpoolingInputStream.start(out -> {
+      try {
+        byte[] block = new byte[1024];
+        while (true) {
+          out.write(block);
+        }
+      } finally {
+        stopped.countDown();
+      }
+    }, true);
+    Assert.assertEquals(stream.read(), 0);
+    stream.close();
+    Assert.assertTrue(stopped.await(30, TimeUnit.SECONDS));
+    Assert.assertThrows(IOException.class, stream::read);
+  }
+}